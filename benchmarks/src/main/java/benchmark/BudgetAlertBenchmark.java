@@ -0,0 +1,121 @@
+package benchmark;
+
+import model.Money;
+import model.Transaction;
+import model.TransactionType;
+import model.User;
+import repository.UserRepository;
+import service.BudgetAlertService;
+import service.CredentialService;
+import service.TransactionService;
+
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures the insert throughput of BudgetAlertService with a large number of budgets: first the rule
+ * engine alone, fed transactions directly, then TransactionService.addTransaction with and without the
+ * service registered as a listener.
+ *
+ * <p>Every user gets the same number of budgets, spread over the transaction types with limits from 100.00
+ * to 5,000.00, and the transactions are spread over the users and the twelve months of a year, so a share of
+ * them crosses a limit and raises an alert. A listener counts the alerts delivered. The run ends by stating
+ * whether the full add path with budgets met the target of 100,000 inserts per second.
+ *
+ * <p>Usage:
+ * {@code java -Xmx4g -cp benchmarks/target/benchmarks.jar benchmark.BudgetAlertBenchmark [users] [budgetsPerUser] [inserts]},
+ * defaulting to 100,000 users with 10 budgets each, 1,000,000 budgets in all, and 2,000,000 inserts.
+ */
+public class BudgetAlertBenchmark {
+
+    private static final LocalDate FIRST_DATE = LocalDate.of(2024, 1, 1);
+
+    // Inserts per second the full add path must sustain with the budgets registered
+    private static final double TARGET_RATE = 100_000;
+
+    public static void main(String[] args) {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int budgetsPerUser = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int inserts = args.length > 2 ? Integer.parseInt(args[2]) : 2_000_000;
+
+        UserRepository userRepository = new UserRepository();
+        String passwordHash = new CredentialService(CredentialService.MIN_ITERATIONS).hash("Password123!");
+        for (int u = 0; u < users; u++) {
+            userRepository.addUser(new User("First", "Last", "user" + u + "@example.com", "user" + u, passwordHash));
+        }
+
+        // The rule engine alone, fed prebuilt transactions
+        Transaction[] transactions = new Transaction[inserts];
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < inserts; i++) {
+            transactions[i] = new Transaction("user" + random.nextInt(users), TransactionType.fromOrdinal(random.nextInt(TransactionType.count())),
+                    Money.ofMinorUnits(1 + random.nextInt(20_000)), FIRST_DATE.plusDays(random.nextInt(365)), "Benchmark");
+        }
+        LongAdder delivered = new LongAdder();
+        BudgetAlertService engine = withBudgets(users, budgetsPerUser, delivered);
+        feed(engine, transactions, inserts / 10);
+        engine.close();
+        engine = withBudgets(users, budgetsPerUser, delivered);
+        long start = System.nanoTime();
+        feed(engine, transactions, inserts);
+        double engineRate = inserts / ((System.nanoTime() - start) / 1e9);
+        report("Rule engine alone", engine, engineRate);
+        engine.close();
+        transactions = null;
+
+        // The full add path, without and then with the rule engine as a listener
+        double baseRate = addAll(new TransactionService(userRepository), users, inserts);
+        System.out.printf("%-32s %,12.0f inserts/s%n", "addTransaction, no budgets", baseRate);
+        BudgetAlertService listener = withBudgets(users, budgetsPerUser, delivered);
+        TransactionService transactionService = new TransactionService(userRepository);
+        transactionService.addListener(listener);
+        double listenedRate = addAll(transactionService, users, inserts);
+        report("addTransaction with budgets", listener, listenedRate);
+        listener.close();
+        System.out.printf("Target of %,.0f inserts/s with budgets: %s%n", TARGET_RATE, listenedRate >= TARGET_RATE ? "met" : "MISSED");
+    }
+
+    /**
+     * Creates a service with the same budgets for every user and a listener counting deliveries.
+     */
+    private static BudgetAlertService withBudgets(int users, int budgetsPerUser, LongAdder delivered) {
+        BudgetAlertService service = new BudgetAlertService();
+        service.addListener(alert -> delivered.increment());
+        for (int u = 0; u < users; u++) {
+            for (int b = 0; b < budgetsPerUser; b++) {
+                service.addRule("user" + u, TransactionType.fromOrdinal(b % TransactionType.count()),
+                        Money.ofMinorUnits(10_000 + 490_000L * b / budgetsPerUser));
+            }
+        }
+        return service;
+    }
+
+    private static void feed(BudgetAlertService service, Transaction[] transactions, int count) {
+        for (int i = 0; i < count; i++) {
+            service.transactionAdded(transactions[i]);
+        }
+    }
+
+    /**
+     * Adds random transactions through the service, the first tenth as a warm-up, and returns the rate of the rest.
+     */
+    private static double addAll(TransactionService transactionService, int users, int inserts) {
+        SplittableRandom random = new SplittableRandom(7);
+        int warmUp = inserts / 10;
+        long start = 0;
+        for (int i = 0; i < inserts; i++) {
+            if (i == warmUp) {
+                start = System.nanoTime();
+            }
+            transactionService.addTransaction("user" + random.nextInt(users), TransactionType.fromOrdinal(random.nextInt(TransactionType.count())),
+                    Money.ofMinorUnits(1 + random.nextInt(20_000)), FIRST_DATE.plusDays(random.nextInt(365)), "Benchmark");
+        }
+        return (inserts - warmUp) / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private static void report(String label, BudgetAlertService service, double rate) {
+        System.out.printf("%-32s %,12.0f inserts/s   %,d budgets, %,d alerts raised, %,d dropped%n", label, rate,
+                service.getRuleCount(), service.getRaisedAlertCount(), service.getDroppedAlertCount());
+    }
+}
@@ -0,0 +1,59 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import service.CredentialService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of hashing and verifying a password at different work factors, to pick the iteration count
+ * for the hardware it runs on.
+ *
+ * <p>Run with {@code java -jar benchmarks/target/benchmarks.jar CredentialServiceBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CredentialServiceBenchmark {
+
+    @Param({"1000", "100000", "600000"})
+    public int iterations;
+
+    private CredentialService credentialService;
+    private String passwordHash;
+
+    @Setup
+    public void setUp() {
+        credentialService = new CredentialService(iterations);
+        passwordHash = credentialService.hash("Password123!");
+    }
+
+    @TearDown
+    public void tearDown() {
+        credentialService.close();
+    }
+
+    @Benchmark
+    public String hash() {
+        return credentialService.hash("Password123!");
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return credentialService.verify("Password123!", passwordHash);
+    }
+}
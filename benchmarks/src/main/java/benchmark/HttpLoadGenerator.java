@@ -0,0 +1,281 @@
+package benchmark;
+
+import api.FinanceHttpServer;
+import metrics.MetricsRegistry;
+import metrics.OperationTimer;
+import repository.UserRepository;
+import service.CredentialService;
+import service.TransactionService;
+import service.UserService;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop HTTP load generator for FinanceHttpServer: each client is a virtual thread holding one
+ * kept-alive connection and sending its next request as soon as the previous response arrives. It reports
+ * throughput and p50/p99/p99.9 latency per route, measured after a warm-up period.
+ *
+ * <p>The mix is 40% totals, 25% transaction pages of 20, 25% transaction adds and 10% user lookups, spread
+ * over a fixed set of users created before the run. With every client always waiting on a response, the
+ * latency is dominated by queueing once the server is saturated: it approaches clients / throughput.
+ *
+ * <p>Usage:
+ * {@code java -cp benchmarks/target/benchmarks.jar benchmark.HttpLoadGenerator [connections] [seconds] [host:port]},
+ * defaulting to 10,000 connections for 20 seconds against a server started in this JVM. Both ends then hold one file
+ * descriptor per connection; against a larger count than the descriptor limit allows, run
+ * {@code benchmark.ServeHttp 8080 1000} in another process and pass {@code 127.0.0.1:8080}.
+ */
+public class HttpLoadGenerator {
+
+    private static final int USERS = 100;
+    private static final int WARM_UP_SECONDS = 5;
+    private static final String PASSWORD = "LoadTest123!";
+
+    private static final String[] ROUTES = {"total", "list", "add", "user"};
+    private static final int[] ROUTE_PERCENT = {40, 25, 25, 10};
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        FinanceHttpServer server = null;
+        CredentialService credentialService = null;
+        InetSocketAddress target;
+        if (args.length > 2) {
+            String[] hostPort = args[2].split(":");
+            target = new InetSocketAddress(hostPort[0], Integer.parseInt(hostPort[1]));
+        } else {
+            UserRepository userRepository = new UserRepository();
+            MetricsRegistry metrics = new MetricsRegistry();
+            credentialService = new CredentialService(CredentialService.MIN_ITERATIONS);
+            UserService userService = new UserService(userRepository, credentialService, metrics);
+            TransactionService transactionService = new TransactionService(userRepository, metrics);
+            userService.addListener(transactionService);
+            userRepository.addUsernameChangeGuard(transactionService);
+            FinanceHttpServer.configureConnections(2 * connections);
+            server = new FinanceHttpServer(userService, transactionService,
+                    new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), FinanceHttpServer.DEFAULT_BACKLOG);
+            server.start();
+            target = server.getAddress();
+        }
+
+        try (Client setup = new Client(target)) {
+            for (int u = 0; u < USERS; u++) {
+                int status = setup.send("POST", "/users", "{\"username\":\"load_user_" + u + "\",\"password\":\"" + PASSWORD
+                        + "\",\"email\":\"load" + u + "@example.com\",\"firstName\":\"Load\",\"lastName\":\"User\"}");
+                if (status != 201 && status != 409) {
+                    throw new IllegalStateException("Cannot create load_user_" + u + ": HTTP " + status);
+                }
+            }
+        }
+
+        MetricsRegistry results = new MetricsRegistry();
+        OperationTimer[] timers = new OperationTimer[ROUTES.length];
+        for (int r = 0; r < ROUTES.length; r++) {
+            timers[r] = results.timer("load." + ROUTES[r]);
+        }
+        OperationTimer all = results.timer("load.all");
+        LongAdder errors = new LongAdder();
+        LongAdder reconnects = new LongAdder();
+        LongAdder connectFailures = new LongAdder();
+
+        CountDownLatch connected = new CountDownLatch(connections);
+        CountDownLatch go = new CountDownLatch(1);
+        long[] window = new long[2];
+        long connectStart = System.nanoTime();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < connections; c++) {
+                int clientNumber = c;
+                clients.submit(() -> {
+                    Client client;
+                    try {
+                        client = new Client(target);
+                    } catch (IOException e) {
+                        connectFailures.increment();
+                        return null;
+                    } finally {
+                        connected.countDown();
+                    }
+                    try (client) {
+                        go.await();
+                        SplittableRandom random = new SplittableRandom(clientNumber);
+                        while (System.nanoTime() < window[1]) {
+                            int route = pickRoute(random.nextInt(100));
+                            String user = "load_user_" + random.nextInt(USERS);
+                            long start = System.nanoTime();
+                            int status;
+                            try {
+                                status = request(client, route, user, random);
+                            } catch (IOException e) {
+                                reconnects.increment();
+                                client.reconnect();
+                                continue;
+                            }
+                            long end = System.nanoTime();
+                            if (start >= window[0] && end <= window[1]) {
+                                timers[route].record(end - start);
+                                all.record(end - start);
+                                if (status >= 400) {
+                                    errors.increment();
+                                }
+                            }
+                        }
+                    }
+                    return null;
+                });
+            }
+            connected.await();
+            System.out.printf("Opened %,d connections in %,.1f s (%,d failed)%n",
+                    connections - connectFailures.sum(), (System.nanoTime() - connectStart) / 1e9, connectFailures.sum());
+            window[0] = System.nanoTime() + WARM_UP_SECONDS * 1_000_000_000L;
+            window[1] = window[0] + seconds * 1_000_000_000L;
+            go.countDown();
+        }
+
+        System.out.printf("%-12s %12s %12s %10s %10s %10s %10s%n", "route", "requests", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (int r = 0; r < ROUTES.length; r++) {
+            print(timers[r], seconds);
+        }
+        print(all, seconds);
+        System.out.printf("Errors (HTTP 4xx/5xx): %,d   reconnects: %,d%n", errors.sum(), reconnects.sum());
+
+        if (server != null) {
+            server.close();
+            credentialService.close();
+        }
+    }
+
+    private static int pickRoute(int percent) {
+        int cumulative = 0;
+        for (int r = 0; r < ROUTE_PERCENT.length; r++) {
+            cumulative += ROUTE_PERCENT[r];
+            if (percent < cumulative) {
+                return r;
+            }
+        }
+        return ROUTE_PERCENT.length - 1;
+    }
+
+    private static int request(Client client, int route, String user, SplittableRandom random) throws IOException {
+        return switch (ROUTES[route]) {
+            case "total" -> client.send("GET", "/users/" + user + "/totals/expense", null);
+            case "list" -> client.send("GET", "/users/" + user + "/transactions?limit=20", null);
+            case "add" -> client.send("POST", "/users/" + user + "/transactions", "{\"type\":\"expense\",\"amount\":\""
+                    + (1 + random.nextInt(500)) + "." + (10 + random.nextInt(90)) + "\",\"description\":\"Load test\"}");
+            default -> client.send("GET", "/users/" + user, null);
+        };
+    }
+
+    private static void print(OperationTimer timer, int seconds) {
+        System.out.printf("%-12s %,12d %,12.0f %10.2f %10.2f %10.2f %10.2f%n", timer.getName().substring("load.".length()),
+                timer.getCount(), (double) timer.getCount() / seconds, timer.getP50Nanos() / 1e6,
+                timer.getP99Nanos() / 1e6, timer.getP999Nanos() / 1e6, timer.getMaxNanos() / 1e6);
+    }
+
+    /**
+     * A kept-alive HTTP/1.1 connection that sends one request at a time and reads the whole response.
+     */
+    private static final class Client implements AutoCloseable {
+
+        private final InetSocketAddress target;
+        private final String host;
+        private Socket socket;
+        private InputStream in;
+        private OutputStream out;
+
+        Client(InetSocketAddress target) throws IOException {
+            this.target = target;
+            this.host = target.getHostString() + ":" + target.getPort();
+            connect();
+        }
+
+        private void connect() throws IOException {
+            socket = new Socket();
+            socket.setTcpNoDelay(true);
+            socket.connect(target, 60_000);
+            in = new BufferedInputStream(socket.getInputStream());
+            out = new BufferedOutputStream(socket.getOutputStream());
+        }
+
+        void reconnect() {
+            try {
+                socket.close();
+                connect();
+            } catch (IOException e) {
+                // Retried on the next request
+            }
+        }
+
+        /**
+         * Sends a request and reads the response.
+         *
+         * @return the status code
+         */
+        int send(String method, String path, String body) throws IOException {
+            byte[] content = body == null ? new byte[0] : body.getBytes(StandardCharsets.UTF_8);
+            StringBuilder request = new StringBuilder(128)
+                    .append(method).append(' ').append(path).append(" HTTP/1.1\r\nHost: ").append(host).append("\r\n");
+            if (body != null) {
+                request.append("Content-Type: application/json\r\nContent-Length: ").append(content.length).append("\r\n");
+            }
+            request.append("\r\n");
+            out.write(request.toString().getBytes(StandardCharsets.US_ASCII));
+            out.write(content);
+            out.flush();
+
+            String statusLine = readLine();
+            int status = Integer.parseInt(statusLine.substring(9, 12));
+            long length = 0;
+            boolean close = false;
+            String header;
+            while (!(header = readLine()).isEmpty()) {
+                String lower = header.toLowerCase(Locale.ROOT);
+                if (lower.startsWith("content-length:")) {
+                    length = Long.parseLong(lower.substring("content-length:".length()).trim());
+                } else if (lower.startsWith("connection:") && lower.contains("close")) {
+                    close = true;
+                }
+            }
+            in.skipNBytes(length);
+            if (close) {
+                reconnect();
+            }
+            return status;
+        }
+
+        private String readLine() throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+            int b;
+            while ((b = in.read()) != '\n') {
+                if (b < 0) {
+                    throw new EOFException("Connection closed");
+                }
+                if (b != '\r') {
+                    line.write(b);
+                }
+            }
+            return line.toString(StandardCharsets.US_ASCII);
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package benchmark;
+
+import model.User;
+import repository.UserRepository;
+import service.CredentialService;
+import service.ImportReport;
+import service.TransactionImporter;
+import service.TransactionService;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Measures single-threaded bulk import throughput of TransactionImporter on a synthetic CSV held in memory.
+ *
+ * <p>Usage: {@code java -cp benchmarks/target/benchmarks.jar benchmark.ImportBenchmark [rows] [users]}, defaulting to
+ * 5,000,000 rows over 1,000 users. About one row in a thousand is invalid, to exercise the rejection path.
+ */
+public class ImportBenchmark {
+
+    private static final String[] TYPES = {"income", "expense", "investment"};
+    private static final String[] DESCRIPTIONS = {"Salary", "Groceries, weekly", "Rent", "Stocks", "Utilities"};
+
+    public static void main(String[] args) throws IOException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        int users = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+
+        UserRepository userRepository = new UserRepository();
+        String passwordHash = new CredentialService(CredentialService.MIN_ITERATIONS).hash("Password123!");
+        for (int i = 0; i < users; i++) {
+            userRepository.addUser(new User("First", "Last", "user" + i + "@example.com", "user" + i, passwordHash));
+        }
+
+        StringBuilder csv = new StringBuilder("username,type,amount,date,description\n");
+        LocalDate start = LocalDate.of(2015, 1, 1);
+        for (int i = 0; i < rows; i++) {
+            String amount = i % 1000 == 999 ? "12,x" : (i % 5000) + "." + (i % 100);
+            csv.append("user").append(i % users).append(',')
+                    .append(TYPES[i % TYPES.length]).append(',')
+                    .append(amount).append(',')
+                    .append(start.plusDays(i / 2000)).append(',')
+                    .append(DESCRIPTIONS[i % DESCRIPTIONS.length]).append('\n');
+        }
+        byte[] input = csv.toString().getBytes(StandardCharsets.UTF_8);
+        csv = null;
+
+        TransactionImporter importer = new TransactionImporter(userRepository, new TransactionService(userRepository));
+        long startTime = System.nanoTime();
+        ImportReport report = importer.importCsv(new ByteArrayInputStream(input));
+        long nanos = System.nanoTime() - startTime;
+
+        System.out.println(report);
+        System.out.printf("%,d rows in %,.1f ms (%,.0f rows/s)%n", rows, nanos / 1e6, rows / (nanos / 1e9));
+        if (!report.getRejectedRows().isEmpty()) {
+            System.out.println("First rejection: " + report.getRejectedRows().get(0));
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package benchmark;
+
+import metrics.MetricsRegistry;
+import model.Money;
+import model.Transaction;
+import model.TransactionType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import repository.UserRepository;
+import service.TransactionService;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the operation timers: the same TransactionService calls with a live MetricsRegistry and with
+ * one from MetricsRegistry.disabled(), which skips all counting and timing.
+ *
+ * <p>Run with {@code java -jar benchmarks/target/benchmarks.jar InstrumentationOverheadBenchmark} and
+ * compare the scores of the two {@code metrics} values per benchmark.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 3, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class InstrumentationOverheadBenchmark {
+
+    @Param({"disabled", "enabled"})
+    public String metrics;
+
+    private static final int USERS = 1000;
+    private static final int TRANSACTIONS_PER_USER = 100;
+
+    private TransactionService transactionService;
+
+    // Inputs generated up front so the benchmark measures only the service
+    private static final int INPUTS = 1 << 12;
+    private String[] usernames;
+    private TransactionType[] types;
+    private Money[] amounts;
+    private LocalDate[] dates;
+    private int[] transactionIds;
+    private int next;
+
+    /**
+     * Generates the data set, rebuilt every iteration because the add benchmark grows it.
+     */
+    @Setup(Level.Iteration)
+    public void setUp() {
+        SyntheticData data = new SyntheticData(SyntheticData.DEFAULT_SEED, USERS);
+        UserRepository userRepository = data.createUsers();
+        MetricsRegistry registry = metrics.equals("enabled") ? new MetricsRegistry() : MetricsRegistry.disabled();
+        transactionService = data.createTransactions(userRepository, TRANSACTIONS_PER_USER, registry);
+
+        List<Transaction> all = transactionService.getAllTransactions();
+        usernames = new String[INPUTS];
+        types = new TransactionType[INPUTS];
+        amounts = new Money[INPUTS];
+        dates = new LocalDate[INPUTS];
+        transactionIds = new int[INPUTS];
+        for (int i = 0; i < INPUTS; i++) {
+            usernames[i] = data.nextUsername();
+            types[i] = data.nextType();
+            amounts[i] = Money.of(data.nextAmount());
+            dates[i] = data.nextDate();
+            transactionIds[i] = all.get(i * (all.size() / INPUTS)).getTransactionId();
+        }
+    }
+
+    private int nextInput() {
+        return next = (next + 1) & (INPUTS - 1);
+    }
+
+    @Benchmark
+    public void addTransaction() {
+        int i = nextInput();
+        transactionService.addTransaction(usernames[i], types[i], amounts[i], dates[i], "Groceries");
+    }
+
+    @Benchmark
+    public Transaction getTransactionById() {
+        return transactionService.getTransactionById(transactionIds[nextInput()]);
+    }
+
+    @Benchmark
+    public double getTotalAmountByType() {
+        int i = nextInput();
+        return transactionService.getTotalAmountByType(usernames[i], types[i]);
+    }
+
+    @Benchmark
+    public List<Transaction> getTransactionsByUser() {
+        return transactionService.getTransactionsByUser(usernames[nextInput()]);
+    }
+}
@@ -0,0 +1,54 @@
+package benchmark;
+
+import model.Transaction;
+import model.TransactionType;
+import repository.MappedTransactionSnapshot;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the cold-start time of a MappedTransactionSnapshot: opening the file and answering the first
+ * per-user queries.
+ *
+ * <p>Usage:
+ * {@code java -Xmx16g -cp benchmarks/target/benchmarks.jar benchmark.MappedSnapshotBenchmark [file] [rows] [users]},
+ * defaulting to a temporary file, 50,000,000 rows and 100,000 users. Writing the file needs the rows on the heap;
+ * opening it does not.
+ */
+public class MappedSnapshotBenchmark {
+
+    private static final String[] TYPES = {"income", "expense", "investment"};
+    private static final String[] DESCRIPTIONS = {"Salary", "Groceries", "Rent", "Stocks", "Utilities", "Dining"};
+
+    public static void main(String[] args) throws IOException {
+        Path file = args.length > 0 ? Path.of(args[0]) : Files.createTempFile("pft-mapped", ".bin");
+        int rows = args.length > 1 ? Integer.parseInt(args[1]) : 50_000_000;
+        int users = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+
+        List<Transaction> transactions = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            transactions.add(new Transaction("user" + (i % users), TYPES[i % TYPES.length], i % 1000,
+                    LocalDate.of(2020, 1, 1).plusDays(i % 1500), DESCRIPTIONS[i % DESCRIPTIONS.length]));
+        }
+        long start = System.nanoTime();
+        MappedTransactionSnapshot.write(file, transactions);
+        System.out.printf("Wrote %,d rows (%,d bytes) in %,.1f ms%n", rows, Files.size(file), (System.nanoTime() - start) / 1e6);
+        transactions = null;
+
+        start = System.nanoTime();
+        MappedTransactionSnapshot snapshot = MappedTransactionSnapshot.open(file);
+        System.out.printf("Opened %,d rows for %,d users in %,.3f ms%n", snapshot.getRowCount(), snapshot.getUserCount(),
+                (System.nanoTime() - start) / 1e6);
+
+        start = System.nanoTime();
+        double income = snapshot.getTotalAmountByType("user0", TransactionType.INCOME);
+        int count = snapshot.getTransactionsByUser("user" + (users - 1)).size();
+        System.out.printf("First queries (total %.2f, %,d transactions) in %,.3f ms%n", income, count,
+                (System.nanoTime() - start) / 1e6);
+    }
+}
@@ -0,0 +1,83 @@
+package benchmark;
+
+import model.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of summing amounts as doubles, as overflow-checked minor units (what the aggregation paths
+ * use) and as BigDecimal. Scores are additions per second.
+ *
+ * <p>Run with {@code java -jar benchmarks/target/benchmarks.jar MoneyArithmeticBenchmark -prof gc}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MoneyArithmeticBenchmark {
+
+    private static final int AMOUNTS = 1 << 16;
+
+    private double[] doubleAmounts;
+    private long[] minorUnitAmounts;
+    private BigDecimal[] decimalAmounts;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(SyntheticData.DEFAULT_SEED);
+        doubleAmounts = new double[AMOUNTS];
+        minorUnitAmounts = new long[AMOUNTS];
+        decimalAmounts = new BigDecimal[AMOUNTS];
+        for (int i = 0; i < AMOUNTS; i++) {
+            long cents = 1 + random.nextInt(500_000);
+            minorUnitAmounts[i] = cents;
+            doubleAmounts[i] = Money.toDouble(cents);
+            decimalAmounts[i] = BigDecimal.valueOf(cents, Money.SCALE);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(AMOUNTS)
+    public double sumDouble() {
+        double sum = 0;
+        for (double amount : doubleAmounts) {
+            sum += amount;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(AMOUNTS)
+    public long sumMinorUnits() {
+        long sum = 0;
+        for (long amount : minorUnitAmounts) {
+            sum = Money.add(sum, amount);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(AMOUNTS)
+    public BigDecimal sumBigDecimal() {
+        BigDecimal sum = BigDecimal.ZERO;
+        for (BigDecimal amount : decimalAmounts) {
+            sum = sum.add(amount);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,81 @@
+package benchmark;
+
+import model.Money;
+import model.Transaction;
+import model.TransactionType;
+import repository.ColumnarTransactionStore;
+import service.BatchAnalyticsService;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Reports how the parallel net worth scan of BatchAnalyticsService scales with the number of threads,
+ * from one thread up to the number of cores, and checks its totals against a sequential scan.
+ *
+ * <p>Usage: {@code java -Xmx8g -cp benchmarks/target/benchmarks.jar benchmark.NetWorthScalingReport [rows] [users]},
+ * defaulting to 20,000,000 rows over 100,000 users.
+ */
+public class NetWorthScalingReport {
+
+    private static final String[] DESCRIPTIONS = {"Salary", "Groceries", "Rent", "Stocks", "Utilities", "Dining"};
+    private static final int RUNS = 5;
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 20_000_000;
+        int users = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+
+        ColumnarTransactionStore store = new ColumnarTransactionStore();
+        for (int i = 0; i < rows; i++) {
+            store.transactionAdded(new Transaction("user" + (i % users), TransactionType.fromOrdinal(i % TransactionType.count()),
+                    i % 1000, LocalDate.of(2020, 1, 1).plusDays(i % 1500), DESCRIPTIONS[i % DESCRIPTIONS.length]));
+        }
+        verify(store);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.printf("%,d rows, %,d users, %d cores%n", rows, users, cores);
+        double singleThreadMillis = 0;
+        for (int threads = 1; ; threads = Math.min(threads * 2, cores)) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            BatchAnalyticsService analytics = new BatchAnalyticsService(store, pool);
+            analytics.getNetWorthByUser();
+            long best = Long.MAX_VALUE;
+            for (int run = 0; run < RUNS; run++) {
+                long start = System.nanoTime();
+                analytics.getNetWorthByUser();
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            pool.shutdown();
+
+            double millis = best / 1e6;
+            if (threads == 1) {
+                singleThreadMillis = millis;
+            }
+            double speedup = singleThreadMillis / millis;
+            System.out.printf("%3d threads: %,9.1f ms  speedup %5.2fx  efficiency %3.0f%%%n",
+                    threads, millis, speedup, 100 * speedup / threads);
+            if (threads == cores) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Checks the parallel totals against the sequential per-type scan.
+     */
+    private static void verify(ColumnarTransactionStore store) {
+        Map<String, long[]> parallel = new BatchAnalyticsService(store).getTotalsByUser();
+        for (TransactionType type : TransactionType.values()) {
+            Map<String, Double> sequential = store.getTotalAmountByTypeForAllUsers(type.getName());
+            for (Map.Entry<String, Double> entry : sequential.entrySet()) {
+                double expected = entry.getValue();
+                double actual = Money.toDouble(parallel.get(entry.getKey())[type.ordinal()]);
+                if (expected != actual) {
+                    throw new IllegalStateException("Totals differ for " + entry.getKey() + " " + type.getName()
+                            + ": " + expected + " vs " + actual);
+                }
+            }
+        }
+    }
+}
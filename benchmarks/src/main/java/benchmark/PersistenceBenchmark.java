@@ -0,0 +1,79 @@
+package benchmark;
+
+import repository.UserRepository;
+import service.CredentialService;
+import service.PersistenceService;
+import service.TransactionService;
+import service.UserService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+/**
+ * Measures write throughput through the write-ahead log and the time to recover the written data,
+ * first from the log alone and then from a snapshot.
+ *
+ * <p>Usage:
+ * {@code java -cp benchmarks/target/benchmarks.jar benchmark.PersistenceBenchmark [directory] [transactions] [users]},
+ * defaulting to a temporary directory, 1,000,000 transactions and 1,000 users. Point the directory at the disk to
+ * measure.
+ */
+public class PersistenceBenchmark {
+
+    private static final String[] TYPES = {"income", "expense", "investment"};
+
+    public static void main(String[] args) throws IOException {
+        Path directory = args.length > 0 ? Path.of(args[0]) : Files.createTempDirectory("pft-bench");
+        int transactions = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int users = args.length > 2 ? Integer.parseInt(args[2]) : 1_000;
+
+        // Write phase: every mutation goes through the log. Passwords are hashed with the lowest work
+        // factor, since creating the users is not what is measured.
+        UserRepository userRepository = new UserRepository();
+        UserService userService = new UserService(userRepository, new CredentialService(CredentialService.MIN_ITERATIONS));
+        TransactionService transactionService = new TransactionService(userRepository);
+        try (PersistenceService persistence = PersistenceService.open(directory, userRepository, userService, transactionService)) {
+            for (int i = 0; i < users; i++) {
+                userService.createUser("user" + i, "Password123!", "user" + i + "@example.com", "First", "Last");
+            }
+
+            long start = System.nanoTime();
+            for (int i = 0; i < transactions; i++) {
+                transactionService.addTransaction("user" + (i % users), TYPES[i % TYPES.length], i % 1000,
+                        LocalDate.of(2020, 1, 1).plusDays(i % 1500), "Transaction " + i);
+            }
+            persistence.sync();
+            report("Logged and synced", transactions, System.nanoTime() - start);
+        }
+
+        // Recovery from the log alone
+        long start = System.nanoTime();
+        PersistenceService recovered = recover(directory);
+        report("Recovered from log", recovered.getRecoveredRecords(), System.nanoTime() - start);
+
+        start = System.nanoTime();
+        recovered.snapshot();
+        report("Wrote snapshot", recovered.getRecoveredRecords(), System.nanoTime() - start);
+        recovered.close();
+
+        // Recovery from the snapshot
+        start = System.nanoTime();
+        recovered = recover(directory);
+        report("Recovered from snapshot", recovered.getRecoveredRecords(), System.nanoTime() - start);
+        recovered.close();
+
+        System.out.println("Data directory: " + directory);
+    }
+
+    private static PersistenceService recover(Path directory) throws IOException {
+        UserRepository userRepository = new UserRepository();
+        return PersistenceService.open(directory, userRepository, new UserService(userRepository), new TransactionService(userRepository));
+    }
+
+    private static void report(String phase, long records, long nanos) {
+        System.out.printf("%-24s %,12d records in %,8.1f ms (%,.0f records/s)%n",
+                phase, records, nanos / 1e6, records / (nanos / 1e9));
+    }
+}
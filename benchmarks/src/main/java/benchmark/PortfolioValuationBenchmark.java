@@ -0,0 +1,106 @@
+package benchmark;
+
+import model.Investment;
+import model.Money;
+import model.Transaction;
+import model.TransactionType;
+import model.User;
+import repository.PriceTable;
+import repository.UserRepository;
+import service.PortfolioService;
+import service.TransactionService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Measures PortfolioService valuations: a full revalueAll of every position against revalue after a price
+ * change in a few symbols, which visits only the positions held in them.
+ *
+ * <p>Usage:
+ * {@code java -Xmx4g -cp benchmarks/target/benchmarks.jar benchmark.PortfolioValuationBenchmark [users] [symbols] [positionsPerUser]},
+ * defaulting to 5,000 users, 500 symbols and 100 positions per user.
+ */
+public class PortfolioValuationBenchmark {
+
+    private static final int REPEATS = 50;
+    private static final int[] CHANGED_SYMBOLS = {1, 10, 100};
+
+    public static void main(String[] args) {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+        int symbols = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int positionsPerUser = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+
+        UserRepository userRepository = new UserRepository();
+        TransactionService transactionService = new TransactionService(userRepository);
+        PriceTable priceTable = new PriceTable();
+        PortfolioService portfolioService = new PortfolioService(priceTable);
+        transactionService.addListener(portfolioService);
+
+        SplittableRandom random = new SplittableRandom(42);
+        Map<String, Double> prices = new HashMap<>();
+        for (int s = 0; s < symbols; s++) {
+            prices.put("SYM" + s, 5 + random.nextInt(50_000) / 100.0);
+        }
+        priceTable.setPrices(prices);
+
+        List<Transaction> trades = new ArrayList<>(users * positionsPerUser);
+        for (int u = 0; u < users; u++) {
+            String username = "investor_" + u;
+            userRepository.addUser(new User("Investor", String.valueOf(u), username + "@example.com", username, "-"));
+            int first = random.nextInt(symbols);
+            for (int p = 0; p < positionsPerUser; p++) {
+                String symbol = "SYM" + (first + p) % symbols;
+                Investment investment = Investment.ofMicros(symbol, 1_000_000L * (1 + random.nextInt(500)));
+                trades.add(new Transaction(username, TransactionType.INVESTMENT, Money.ofMinorUnits(100 + random.nextInt(1_000_000)),
+                        LocalDate.of(2023, 1, 1).plusDays(random.nextInt(600)), "Buy " + symbol, investment));
+            }
+        }
+        long start = System.nanoTime();
+        transactionService.addTransactions(trades);
+        System.out.printf("Derived %,d positions for %,d users in %,d symbols from %,d trades in %,.1f ms%n",
+                portfolioService.getPositionCount(), users, symbols, trades.size(), (System.nanoTime() - start) / 1e6);
+
+        for (int i = 0; i < REPEATS; i++) {
+            portfolioService.revalueAll();
+        }
+        start = System.nanoTime();
+        for (int i = 0; i < REPEATS; i++) {
+            portfolioService.revalueAll();
+        }
+        double full = (System.nanoTime() - start) / 1e6 / REPEATS;
+        System.out.printf("revalueAll:                      %,9.3f ms  (%,.1f ns per position)%n",
+                full, full * 1e6 / portfolioService.getPositionCount());
+
+        for (int i = 0; i < 20 * REPEATS; i++) {
+            priceTable.setPrice("SYM" + random.nextInt(symbols), 5 + random.nextInt(50_000) / 100.0);
+            portfolioService.revalue();
+        }
+        for (int changed : CHANGED_SYMBOLS) {
+            int revalued = 0;
+            long nanos = 0;
+            for (int i = 0; i < 2 * REPEATS; i++) {
+                Map<String, Double> tick = new HashMap<>();
+                for (int c = 0; c < changed; c++) {
+                    tick.put("SYM" + random.nextInt(symbols), 5 + random.nextInt(50_000) / 100.0);
+                }
+                priceTable.setPrices(tick);
+                start = System.nanoTime();
+                revalued = portfolioService.revalue();
+                if (i >= REPEATS) {
+                    nanos += System.nanoTime() - start;
+                }
+            }
+            System.out.printf("revalue after %3d changed prices: %,9.3f ms  (%,d positions re-valued)%n",
+                    changed, nanos / 1e6 / REPEATS, revalued);
+        }
+
+        Money incremental = portfolioService.getMarketValue("investor_0");
+        portfolioService.revalueAll();
+        System.out.println("Incremental and full valuation agree: " + incremental.equals(portfolioService.getMarketValue("investor_0")));
+    }
+}
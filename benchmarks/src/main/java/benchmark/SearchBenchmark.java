@@ -0,0 +1,81 @@
+package benchmark;
+
+import model.Transaction;
+import model.User;
+import repository.UserRepository;
+import service.CredentialService;
+import service.TransactionSearchService;
+import service.TransactionService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Measures TransactionSearchService queries over one user's history against a scan of every description
+ * with {@code contains}.
+ *
+ * <p>Usage: {@code java -Xmx4g -cp benchmarks/target/benchmarks.jar benchmark.SearchBenchmark [transactions]},
+ * defaulting to 1,000,000 transactions.
+ */
+public class SearchBenchmark {
+
+    private static final String[] TYPES = {"income", "expense", "investment"};
+    private static final String[] MERCHANTS = {"Netflix", "Spotify", "Whole Foods", "Trader Joe's", "Shell", "Uber",
+            "Amazon", "Target", "Costco", "Starbucks", "Delta", "Airbnb", "Comcast", "T-Mobile", "Chipotle", "Walgreens"};
+    private static final String[] CATEGORIES = {"groceries", "subscription", "fuel", "travel", "dining", "utilities",
+            "pharmacy", "shopping", "salary", "dividend", "refund", "rent"};
+    private static final String[] QUERIES = {"groceries", "netflix", "groc*", "whole foods groceries", "t-mob*", "uber travel refund"};
+    private static final int REPEATS = 20;
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        UserRepository userRepository = new UserRepository();
+        userRepository.addUser(new User("Heavy", "User", "heavy@example.com", "heavy_user",
+                new CredentialService(CredentialService.MIN_ITERATIONS).hash("Password123!")));
+        TransactionService transactionService = new TransactionService(userRepository);
+        TransactionSearchService searchService = new TransactionSearchService(transactionService);
+        transactionService.addListener(searchService);
+
+        SplittableRandom random = new SplittableRandom(42);
+        List<Transaction> transactions = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            String description = MERCHANTS[random.nextInt(MERCHANTS.length)] + " "
+                    + CATEGORIES[random.nextInt(CATEGORIES.length)] + " #" + random.nextInt(10_000);
+            transactions.add(new Transaction("heavy_user", TYPES[random.nextInt(TYPES.length)], 1 + random.nextInt(100_000) / 100.0,
+                    LocalDate.of(2020, 1, 1).plusDays(random.nextInt(1500)), description));
+        }
+        long start = System.nanoTime();
+        transactionService.addTransactions(transactions);
+        System.out.printf("Stored and indexed %,d transactions in %,.1f ms%n", rows, (System.nanoTime() - start) / 1e6);
+
+        for (String query : QUERIES) {
+            int matches = 0;
+            for (int i = 0; i < REPEATS; i++) {
+                matches = searchService.count("heavy_user", query);
+                searchService.search("heavy_user", query, 50);
+            }
+            start = System.nanoTime();
+            for (int i = 0; i < REPEATS; i++) {
+                searchService.count("heavy_user", query);
+                searchService.search("heavy_user", query, 50);
+            }
+            double indexed = (System.nanoTime() - start) / 1e6 / REPEATS;
+
+            String needle = query.split("\\s+")[0].replace("*", "");
+            start = System.nanoTime();
+            int scanned = 0;
+            for (Transaction transaction : transactionService.getTransactionsByUser("heavy_user")) {
+                if (transaction.getDescription().toLowerCase().contains(needle)) {
+                    scanned++;
+                }
+            }
+            double scan = (System.nanoTime() - start) / 1e6;
+
+            System.out.printf("%-24s %,9d matches  index %,8.3f ms  (contains scan for '%s': %,d in %,.1f ms)%n",
+                    "'" + query + "'", matches, indexed, needle, scanned, scan);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package benchmark;
+
+import api.FinanceHttpServer;
+import metrics.MetricsRegistry;
+import metrics.TextMetricsExporter;
+import repository.UserRepository;
+import service.CredentialService;
+import service.TransactionService;
+import service.UserService;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+/**
+ * Serves UserService and TransactionService over HTTP/JSON on the loopback address until the process is
+ * stopped, then prints the operation timers.
+ *
+ * <p>Usage: {@code java -cp benchmarks/target/benchmarks.jar benchmark.ServeHttp [port] [hashIterations]}, defaulting
+ * to port 8080 and CredentialService.DEFAULT_ITERATIONS. Pass a low iteration count, e.g. 1000, when load testing user
+ * creation.
+ */
+public class ServeHttp {
+
+    // Idle kept-alive connections held open, enough for HttpLoadGenerator's default client count
+    private static final int MAX_IDLE_CONNECTIONS = 20_000;
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : FinanceHttpServer.DEFAULT_PORT;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : CredentialService.DEFAULT_ITERATIONS;
+
+        UserRepository userRepository = new UserRepository();
+        MetricsRegistry metrics = new MetricsRegistry();
+        CredentialService credentialService = new CredentialService(iterations);
+        UserService userService = new UserService(userRepository, credentialService, metrics);
+        TransactionService transactionService = new TransactionService(userRepository, metrics);
+        userService.addListener(transactionService);
+        userRepository.addUsernameChangeGuard(transactionService);
+
+        FinanceHttpServer.configureConnections(MAX_IDLE_CONNECTIONS);
+        FinanceHttpServer server = new FinanceHttpServer(userService, transactionService,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), port), FinanceHttpServer.DEFAULT_BACKLOG);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            credentialService.close();
+            try {
+                new TextMetricsExporter(System.out).export(metrics);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }));
+        server.start();
+        System.out.println("Serving on http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort());
+    }
+}
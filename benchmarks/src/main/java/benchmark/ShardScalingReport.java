@@ -0,0 +1,127 @@
+package benchmark;
+
+import model.Money;
+import model.TransactionType;
+import service.CredentialService;
+import shard.Shard;
+import shard.ShardRouter;
+
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reports how the throughput of a ShardRouter changes with the number of shards, then adds a shard to the
+ * largest configuration and reports how many users the rebalance moved and how long it took.
+ *
+ * <p>Each configuration is loaded with the same users and transactions, then a fixed number of threads run
+ * a mix of 50% transaction adds, 30% per-user totals and 20% pages of 20 transactions against it for the given
+ * time. All shards share this JVM and its cores: the shards multiply the indexes and locks the load is spread
+ * over, not the processors, so beyond the point where one service stops being limited by contention the
+ * throughput levels off. On a single core, differences come from the smaller per-shard indexes, not from
+ * parallelism.
+ *
+ * <p>Usage:
+ * {@code java -Xmx4g -cp benchmarks/target/benchmarks.jar benchmark.ShardScalingReport [users] [seconds] [threads] [maxShards]},
+ * defaulting to 10,000 users for 5 seconds per configuration, two threads per core, and up to 8 shards.
+ */
+public class ShardScalingReport {
+
+    private static final int TRANSACTIONS_PER_USER = 20;
+    private static final String PASSWORD = "Password123!";
+    private static final LocalDate FIRST_DATE = LocalDate.of(2024, 1, 1);
+
+    public static void main(String[] args) throws InterruptedException {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 2 * Runtime.getRuntime().availableProcessors();
+        int maxShards = args.length > 3 ? Integer.parseInt(args[3]) : 8;
+
+        CredentialService credentialService = new CredentialService(CredentialService.MIN_ITERATIONS);
+        System.out.printf("%,d users, %,d transactions each, %d threads, %d cores, %d s per configuration%n",
+                users, TRANSACTIONS_PER_USER, threads, Runtime.getRuntime().availableProcessors(), seconds);
+        System.out.printf("%-8s %14s %10s%n", "shards", "ops/s", "speedup");
+
+        double singleShardRate = 0;
+        ShardRouter router = null;
+        for (int shards = 1; shards <= maxShards; shards *= 2) {
+            router = load(new ShardRouter(shards, credentialService), users);
+            if (shards == 1) {
+                // Warm-up, so the first configuration is not measured while the JIT is still compiling
+                run(router, users, seconds, threads);
+            }
+            double rate = run(router, users, seconds, threads);
+            if (shards == 1) {
+                singleShardRate = rate;
+            }
+            System.out.printf("%-8d %,14.0f %9.2fx%n", shards, rate, rate / singleShardRate);
+        }
+
+        Money expensesBefore = router.getTotalByType(TransactionType.EXPENSE);
+        long transactionsBefore = router.getTransactionCount();
+        int shardsBefore = router.getShardCount();
+        long start = System.nanoTime();
+        Shard added = router.addShard();
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        long moved = added.getUserRepository().getUserCount();
+        System.out.printf("Adding a shard to %d moved %,d of %,d users (%.1f%%, ideal %.1f%%) in %,d ms%n", shardsBefore,
+                moved, router.getUserCount(), 100.0 * moved / router.getUserCount(), 100.0 / (shardsBefore + 1), millis);
+        boolean conserved = router.getTransactionCount() == transactionsBefore
+                && router.getTotalByType(TransactionType.EXPENSE).equals(expensesBefore) && router.verifyTotals().isEmpty();
+        System.out.println("Transactions and totals after the rebalance " + (conserved ? "match" : "DO NOT match"));
+
+        credentialService.close();
+    }
+
+    /**
+     * Creates the users and their transactions through the router.
+     */
+    private static ShardRouter load(ShardRouter router, int users) {
+        for (int u = 0; u < users; u++) {
+            String username = "user" + u;
+            router.createUser(username, PASSWORD, username + "@example.com", "First", "Last");
+            for (int t = 0; t < TRANSACTIONS_PER_USER; t++) {
+                router.addTransaction(username, TransactionType.fromOrdinal(t % TransactionType.count()),
+                        Money.ofMinorUnits(100 + t), FIRST_DATE.plusDays(t), "Load");
+            }
+        }
+        return router;
+    }
+
+    /**
+     * Runs the operation mix from several threads for a fixed time.
+     *
+     * @return the operations completed per second
+     */
+    private static double run(ShardRouter router, int users, int seconds, int threads) throws InterruptedException {
+        LongAdder operations = new LongAdder();
+        CountDownLatch done = new CountDownLatch(threads);
+        long end = System.nanoTime() + seconds * 1_000_000_000L;
+        for (int t = 0; t < threads; t++) {
+            int seed = t;
+            Thread thread = new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(seed);
+                long count = 0;
+                while (System.nanoTime() < end) {
+                    String username = "user" + random.nextInt(users);
+                    int pick = random.nextInt(100);
+                    if (pick < 50) {
+                        router.addTransaction(username, TransactionType.EXPENSE, Money.ofMinorUnits(1 + random.nextInt(10_000)),
+                                FIRST_DATE.plusDays(random.nextInt(365)), "Run");
+                    } else if (pick < 80) {
+                        router.getTotalByType(username, TransactionType.EXPENSE);
+                    } else {
+                        router.getTransactionsPage(username, null, 20);
+                    }
+                    count++;
+                }
+                operations.add(count);
+                done.countDown();
+            });
+            thread.start();
+        }
+        done.await();
+        return (double) operations.sum() / seconds;
+    }
+}
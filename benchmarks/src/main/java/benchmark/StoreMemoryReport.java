@@ -0,0 +1,73 @@
+package benchmark;
+
+import model.Transaction;
+import model.User;
+import repository.ColumnarTransactionStore;
+import repository.UserRepository;
+import service.CredentialService;
+import service.TransactionService;
+
+import java.lang.ref.Reference;
+import java.time.LocalDate;
+
+/**
+ * Reports the heap used by the object-based TransactionService and by the ColumnarTransactionStore
+ * for the same synthetic transactions.
+ *
+ * <p>Usage: {@code java -Xmx8g -cp benchmarks/target/benchmarks.jar benchmark.StoreMemoryReport [rows] [users]},
+ * defaulting to 10,000,000 rows over 10,000 users. Each store is measured on its own, as the retained heap after a full
+ * GC.
+ */
+public class StoreMemoryReport {
+
+    private static final String[] TYPES = {"income", "expense", "investment"};
+    private static final String[] DESCRIPTIONS = {"Salary", "Groceries", "Rent", "Stocks", "Utilities", "Dining"};
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        int users = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+
+        UserRepository userRepository = new UserRepository();
+        String passwordHash = new CredentialService(CredentialService.MIN_ITERATIONS).hash("Password123!");
+        for (int i = 0; i < users; i++) {
+            userRepository.addUser(new User("First", "Last", "user" + i + "@example.com", "user" + i, passwordHash));
+        }
+
+        // Object-based store: the TransactionService indexes
+        long baseline = usedHeap();
+        TransactionService transactionService = new TransactionService(userRepository);
+        for (int i = 0; i < rows; i++) {
+            transactionService.addTransaction("user" + (i % users), TYPES[i % TYPES.length], i % 1000,
+                    dateOf(i), DESCRIPTIONS[i % DESCRIPTIONS.length]);
+        }
+        long objectBytes = usedHeap() - baseline;
+        Reference.reachabilityFence(transactionService);
+        transactionService = null;
+
+        // Columnar store, fed the same rows directly
+        baseline = usedHeap();
+        ColumnarTransactionStore columnarStore = new ColumnarTransactionStore();
+        for (int i = 0; i < rows; i++) {
+            columnarStore.transactionAdded(new Transaction("user" + (i % users), TYPES[i % TYPES.length], i % 1000,
+                    dateOf(i), DESCRIPTIONS[i % DESCRIPTIONS.length]));
+        }
+        long columnarBytes = usedHeap() - baseline;
+
+        System.out.println("Rows: " + columnarStore.getRowCount() + ", users: " + users);
+        System.out.printf("Object store:   %,d bytes (%.1f bytes/row)%n", objectBytes, (double) objectBytes / rows);
+        System.out.printf("Columnar store: %,d bytes (%.1f bytes/row)%n", columnarBytes, (double) columnarBytes / rows);
+        System.out.printf("Columnar store uses %.1f%% of the object store%n", 100.0 * columnarBytes / objectBytes);
+    }
+
+    private static LocalDate dateOf(int row) {
+        return LocalDate.of(2020, 1, 1).plusDays(row % 1500);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
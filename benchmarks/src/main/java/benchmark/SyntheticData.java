@@ -0,0 +1,171 @@
+package benchmark;
+
+import metrics.MetricsRegistry;
+import model.Transaction;
+import model.TransactionType;
+import model.User;
+import repository.UserRepository;
+import service.CredentialService;
+import service.TransactionService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic generator of users and transactions for the benchmarks.
+ * The same seed, user count and per-user transaction count always produce the same data set,
+ * so results are comparable between runs and machines.
+ */
+public class SyntheticData {
+
+    /**
+     * Seed used by the benchmarks.
+     */
+    public static final long DEFAULT_SEED = 42L;
+
+    private static final LocalDate FIRST_DATE = LocalDate.of(2020, 1, 1);
+    private static final int DATE_RANGE_DAYS = 5 * 365;
+    private static final String[] DESCRIPTIONS = {"Salary", "Groceries", "Rent", "Stocks", "Utilities", "Dining", "Travel", "Bonus"};
+
+    private final SplittableRandom random;
+    private final int userCount;
+
+    /**
+     * Constructor for SyntheticData.
+     *
+     * @param seed      the random seed
+     * @param userCount the number of users to generate
+     */
+    public SyntheticData(long seed, int userCount) {
+        if (userCount < 1) {
+            throw new IllegalArgumentException("User count must be at least 1");
+        }
+        this.random = new SplittableRandom(seed);
+        this.userCount = userCount;
+    }
+
+    /**
+     * Gets the username of the user with the given index.
+     *
+     * @param index the user index, from 0 to the user count
+     * @return the username
+     */
+    public static String username(int index) {
+        return "user" + index;
+    }
+
+    /**
+     * Gets the number of users generated.
+     *
+     * @return the user count
+     */
+    public int getUserCount() {
+        return userCount;
+    }
+
+    /**
+     * Creates the users and stores them in a UserRepository.
+     * Users are added to the repository directly rather than through the UserService, so setting up
+     * a large data set neither prints a line nor hashes a password per user; they all share one hash.
+     *
+     * @return the populated repository
+     */
+    public UserRepository createUsers() {
+        UserRepository userRepository = new UserRepository();
+        String passwordHash = new CredentialService(CredentialService.MIN_ITERATIONS).hash("Password123!");
+        for (int i = 0; i < userCount; i++) {
+            String username = username(i);
+            userRepository.addUser(new User("First", "Last", username + "@example.com", username, passwordHash));
+        }
+        return userRepository;
+    }
+
+    /**
+     * Creates a TransactionService over the repository holding the given number of transactions per user.
+     *
+     * @param userRepository      the repository of the generated users
+     * @param transactionsPerUser the number of transactions per user
+     * @return the populated service
+     */
+    public TransactionService createTransactions(UserRepository userRepository, int transactionsPerUser) {
+        return createTransactions(userRepository, transactionsPerUser, new MetricsRegistry());
+    }
+
+    /**
+     * Creates a TransactionService over the repository holding the given number of transactions per user.
+     *
+     * @param userRepository      the repository of the generated users
+     * @param transactionsPerUser the number of transactions per user
+     * @param metrics             the registry the service keeps its operation timers in
+     * @return the populated service
+     */
+    public TransactionService createTransactions(UserRepository userRepository, int transactionsPerUser, MetricsRegistry metrics) {
+        TransactionService transactionService = new TransactionService(userRepository, metrics);
+        List<Transaction> batch = new ArrayList<>(transactionsPerUser);
+        for (int i = 0; i < userCount; i++) {
+            batch.clear();
+            for (int j = 0; j < transactionsPerUser; j++) {
+                batch.add(nextTransaction(username(i)));
+            }
+            transactionService.addTransactions(batch);
+        }
+        return transactionService;
+    }
+
+    /**
+     * Creates a random transaction for a user.
+     *
+     * @param username the username
+     * @return the transaction, not yet stored
+     */
+    public Transaction nextTransaction(String username) {
+        return new Transaction(username, nextType(), nextAmount(), nextDate(), nextDescription());
+    }
+
+    /**
+     * Gets a random username among the generated users.
+     *
+     * @return the username
+     */
+    public String nextUsername() {
+        return username(random.nextInt(userCount));
+    }
+
+    /**
+     * Gets a random transaction type.
+     *
+     * @return the type
+     */
+    public TransactionType nextType() {
+        return TransactionType.fromOrdinal(random.nextInt(TransactionType.count()));
+    }
+
+    /**
+     * Gets a random amount between 0.01 and 5000.00, in whole cents.
+     *
+     * @return the amount
+     */
+    public double nextAmount() {
+        return (1 + random.nextInt(500_000)) / 100.0;
+    }
+
+    /**
+     * Gets a random date within five years from 2020-01-01.
+     *
+     * @return the date
+     */
+    public LocalDate nextDate() {
+        return FIRST_DATE.plusDays(random.nextInt(DATE_RANGE_DAYS));
+    }
+
+    /**
+     * Gets a random description.
+     *
+     * @return the description
+     */
+    public String nextDescription() {
+        return DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)];
+    }
+}
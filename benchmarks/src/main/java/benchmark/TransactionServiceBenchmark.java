@@ -0,0 +1,159 @@
+package benchmark;
+
+import model.Transaction;
+import model.TransactionType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import repository.UserRepository;
+import service.TransactionPage;
+import service.TransactionService;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the TransactionService hot paths over a generated data set.
+ *
+ * <p>Run with {@code java -jar benchmarks/target/benchmarks.jar TransactionServiceBenchmark -prof gc}
+ * to also get the allocation rate per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class TransactionServiceBenchmark {
+
+    @Param({"100", "10000"})
+    public int userCount;
+
+    @Param({"10", "1000"})
+    public int transactionsPerUser;
+
+    private SyntheticData data;
+    private TransactionService transactionService;
+
+    // Inputs for the add benchmark, generated up front so the benchmark measures only the service
+    private static final int INPUTS = 1 << 12;
+    private String[] usernames;
+    private TransactionType[] types;
+    private double[] amounts;
+    private LocalDate[] dates;
+    private String[] descriptions;
+    private int next;
+
+    // Transactions per page for the paging benchmark
+    private static final int PAGE_SIZE = 50;
+
+    /**
+     * Generates the data set. It is rebuilt every iteration because the add and delete benchmarks change it;
+     * rebuilding keeps each iteration measuring the configured size.
+     */
+    @Setup(Level.Iteration)
+    public void setUp() {
+        data = new SyntheticData(SyntheticData.DEFAULT_SEED, userCount);
+        UserRepository userRepository = data.createUsers();
+        transactionService = data.createTransactions(userRepository, transactionsPerUser);
+
+        usernames = new String[INPUTS];
+        types = new TransactionType[INPUTS];
+        amounts = new double[INPUTS];
+        dates = new LocalDate[INPUTS];
+        descriptions = new String[INPUTS];
+        for (int i = 0; i < INPUTS; i++) {
+            usernames[i] = data.nextUsername();
+            types[i] = data.nextType();
+            amounts[i] = data.nextAmount();
+            dates[i] = data.nextDate();
+            descriptions[i] = data.nextDescription();
+        }
+    }
+
+    /**
+     * Holds a freshly stored transaction for each deleteTransaction invocation.
+     * The gc profiler also counts what this setup allocates, so the B/op of deleteTransaction includes
+     * building and storing the transaction.
+     */
+    @State(Scope.Thread)
+    public static class DeleteState {
+
+        private int transactionId;
+
+        /**
+         * Stores the transaction the next invocation deletes.
+         *
+         * @param benchmark the benchmark state holding the service
+         */
+        @Setup(Level.Invocation)
+        public void setUp(TransactionServiceBenchmark benchmark) {
+            Transaction transaction = benchmark.data.nextTransaction(benchmark.data.nextUsername());
+            benchmark.transactionService.restoreTransaction(transaction);
+            transactionId = transaction.getTransactionId();
+        }
+    }
+
+    private int nextInput() {
+        return next = (next + 1) & (INPUTS - 1);
+    }
+
+    @Benchmark
+    public void addTransaction() {
+        int i = nextInput();
+        transactionService.addTransaction(usernames[i], types[i].getName(), amounts[i], dates[i], descriptions[i]);
+    }
+
+    @Benchmark
+    public List<Transaction> getTransactionsByUser() {
+        return transactionService.getTransactionsByUser(usernames[nextInput()]);
+    }
+
+    @Benchmark
+    public TransactionPage getTransactionsPage() {
+        return transactionService.getTransactionsPage(usernames[nextInput()], null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public long sumTransactionsByUser() {
+        long sum = 0;
+        for (Transaction transaction : transactionService.getTransactionsByUser(usernames[nextInput()])) {
+            sum += transaction.getAmountMinorUnits();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long sumStreamTransactionsByUser() {
+        return transactionService.streamTransactionsByUser(usernames[nextInput()])
+                .mapToLong(Transaction::getAmountMinorUnits)
+                .sum();
+    }
+
+    @Benchmark
+    public double getTotalAmountByType() {
+        int i = nextInput();
+        return transactionService.getTotalAmountByType(usernames[i], types[i]);
+    }
+
+    @Benchmark
+    public double getTotalAmountByTypeName() {
+        int i = nextInput();
+        return transactionService.getTotalAmountByType(usernames[i], types[i].getName());
+    }
+
+    @Benchmark
+    public boolean deleteTransaction(DeleteState state) {
+        return transactionService.deleteTransaction(state.transactionId);
+    }
+}
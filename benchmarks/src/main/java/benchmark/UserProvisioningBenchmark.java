@@ -0,0 +1,84 @@
+package benchmark;
+
+import model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import service.CredentialService;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Throughput of the user provisioning path apart from hashing: checking the password rules and
+ * constructing a User, which validates the email, and the password check on its own against the regular
+ * expression it replaces. CredentialServiceBenchmark covers the hashing.
+ *
+ * <p>Run with {@code java -jar benchmarks/target/benchmarks.jar UserProvisioningBenchmark -prof gc}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserProvisioningBenchmark {
+
+    // Passwords checked, valid and invalid, generated up front
+    private static final int INPUTS = 1 << 10;
+    private static final Pattern PASSWORD_PATTERN = Pattern.compile(User.PASSWORD_PATTERN);
+    private String[] usernames;
+    private String[] emails;
+    private String[] passwords;
+    private String passwordHash;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        usernames = new String[INPUTS];
+        emails = new String[INPUTS];
+        passwords = new String[INPUTS];
+        for (int i = 0; i < INPUTS; i++) {
+            usernames[i] = SyntheticData.username(i);
+            emails[i] = usernames[i] + "@example.com";
+            // Every fourth password lacks a special character and is rejected only after a full scan
+            passwords[i] = i % 4 == 0 ? "Password" + i : "Pass!word" + i;
+        }
+        passwordHash = new CredentialService(CredentialService.MIN_ITERATIONS).hash("Pass!word1");
+    }
+
+    private int nextInput() {
+        return next = (next + 1) & (INPUTS - 1);
+    }
+
+    @Benchmark
+    public boolean isValidPassword() {
+        return User.isValidPassword(passwords[nextInput()]);
+    }
+
+    @Benchmark
+    public boolean isValidPasswordRegex() {
+        return PASSWORD_PATTERN.matcher(passwords[nextInput()]).matches();
+    }
+
+    @Benchmark
+    public boolean isValidPasswordRegexUncompiled() {
+        return Pattern.matches(User.PASSWORD_PATTERN, passwords[nextInput()]);
+    }
+
+    @Benchmark
+    public User createUser() {
+        int i = nextInput() | 1;
+        if (!User.isValidPassword(passwords[i])) {
+            throw new IllegalArgumentException("Invalid password");
+        }
+        return new User("First", "Last", emails[i], usernames[i], passwordHash);
+    }
+}
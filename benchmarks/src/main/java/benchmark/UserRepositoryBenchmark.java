@@ -0,0 +1,76 @@
+package benchmark;
+
+import model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import repository.UserRepository;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the UserRepository lookups over a generated set of users, for usernames that exist
+ * and usernames that do not.
+ *
+ * <p>Run with {@code java -jar benchmarks/target/benchmarks.jar UserRepositoryBenchmark -prof gc}
+ * to also get the allocation rate per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserRepositoryBenchmark {
+
+    @Param({"100", "10000", "1000000"})
+    public int userCount;
+
+    private UserRepository userRepository;
+
+    // Usernames looked up, generated up front so the benchmark measures only the repository
+    private static final int INPUTS = 1 << 12;
+    private String[] existingUsernames;
+    private String[] missingUsernames;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        SyntheticData data = new SyntheticData(SyntheticData.DEFAULT_SEED, userCount);
+        userRepository = data.createUsers();
+        existingUsernames = new String[INPUTS];
+        missingUsernames = new String[INPUTS];
+        for (int i = 0; i < INPUTS; i++) {
+            // Fresh String instances, so lookups hash and compare as they would for request input
+            existingUsernames[i] = new String(data.nextUsername());
+            missingUsernames[i] = "missing" + i;
+        }
+    }
+
+    private int nextInput() {
+        return next = (next + 1) & (INPUTS - 1);
+    }
+
+    @Benchmark
+    public boolean usernameExists() {
+        return userRepository.usernameExists(existingUsernames[nextInput()]);
+    }
+
+    @Benchmark
+    public boolean usernameExistsMissing() {
+        return userRepository.usernameExists(missingUsernames[nextInput()]);
+    }
+
+    @Benchmark
+    public User getUserByUsername() {
+        return userRepository.getUserByUsername(existingUsernames[nextInput()]);
+    }
+}
@@ -0,0 +1,530 @@
+package api;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import metrics.OperationTimer;
+import model.Investment;
+import model.Money;
+import model.Transaction;
+import model.TransactionType;
+import model.User;
+import service.TransactionCursor;
+import service.TransactionPage;
+import service.TransactionService;
+import service.UserService;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Embedded HTTP/JSON front end over UserService and TransactionService, built on the JDK's
+ * {@code com.sun.net.httpserver} with one virtual thread per request. A request that blocks, e.g. on a
+ * ledger lock or on password hashing, parks its virtual thread instead of holding a platform thread, so
+ * thousands of concurrent connections need no thread pool sizing.
+ *
+ * <p>Routes (bodies are JSON objects; amounts are decimal strings or numbers and are returned as strings):
+ * <pre>
+ *   POST   /users                            {username, password, email, firstName, lastName}
+ *   GET    /users/{username}
+ *   PUT    /users/{username}                 {password, email, firstName, lastName}
+ *   DELETE /users/{username}                 also deletes the user's transactions
+ *   POST   /users/{username}/transactions    {type, amount, date?, description?, symbol?, quantity?}
+ *   GET    /users/{username}/transactions    ?after={cursor}&amp;limit={n}, a page ordered by date
+ *   GET    /users/{username}/totals/{type}   ?from={date}&amp;to={date}, optional together
+ *   GET    /transactions/{id}
+ *   DELETE /transactions/{id}
+ * </pre>
+ * Invalid input is answered with 400, unknown users and transactions with 404, a taken username with 409,
+ * and every error body is {@code {"error": message}}. Requests are timed under {@code http.request} in the
+ * UserService's metrics registry.
+ *
+ * <p>By default the JDK server leaves Nagle's algorithm on, which holds back each small response for a
+ * delayed acknowledgement (about 40 ms per request on Linux), and closes a kept-alive connection that goes
+ * idle while 200 others already are. Call {@link #configureConnections} before the first server is created.
+ *
+ * <p>There is no authentication; bind the server to a loopback address unless it sits behind a gateway
+ * that provides it.
+ */
+public class FinanceHttpServer implements Closeable {
+
+    /**
+     * Port used when none is given.
+     */
+    public static final int DEFAULT_PORT = 8080;
+
+    /**
+     * Pending connections queued by the operating system before they are accepted.
+     */
+    public static final int DEFAULT_BACKLOG = 4096;
+
+    /**
+     * Transactions per page when the request gives no limit.
+     */
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
+    // Largest request body read; bigger requests are refused
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+
+    // Most integer and fractional digits accepted in an amount or quantity, well beyond what Money and
+    // Investment hold; bounds the work of rounding a decimal such as 1e999999999
+    private static final int MAX_DECIMAL_DIGITS = 24;
+
+    private static final String JSON_CONTENT_TYPE = "application/json; charset=utf-8";
+
+    // System properties the JDK server reads once, when its first instance is created
+    private static final String MAX_IDLE_CONNECTIONS_PROPERTY = "sun.net.httpserver.maxIdleConnections";
+    private static final String NO_DELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+    private final UserService userService;
+    private final TransactionService transactionService;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final OperationTimer requestTimer;
+
+    /**
+     * The status and JSON body of a response.
+     */
+    private static final class Response {
+
+        private final int status;
+        private final Object body;
+
+        Response(int status, Object body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Constructor for FinanceHttpServer. The server is bound but does not accept requests until start is called.
+     *
+     * @param userService        the service backing the user routes
+     * @param transactionService the service backing the transaction routes
+     * @param address            the address to listen on; port 0 picks a free port
+     * @param backlog            the number of pending connections the operating system may queue
+     * @throws IOException if the address cannot be bound
+     */
+    public FinanceHttpServer(UserService userService, TransactionService transactionService,
+                             InetSocketAddress address, int backlog) throws IOException {
+        this.userService = userService;
+        this.transactionService = transactionService;
+        this.requestTimer = userService.getMetricsRegistry().timer("http.request");
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.server = HttpServer.create(address, backlog);
+        this.server.setExecutor(executor);
+        this.server.createContext("/", this::handle);
+    }
+
+    /**
+     * Turns on TCP_NODELAY for the JDK server's connections and sets how many idle kept-alive connections it
+     * keeps open, except where the system properties were already given on the command line. Has no effect
+     * once a server has been created in this JVM.
+     *
+     * @param maxIdleConnections the most idle connections to keep, e.g. the number of expected clients
+     */
+    public static void configureConnections(int maxIdleConnections) {
+        if (System.getProperty(NO_DELAY_PROPERTY) == null) {
+            System.setProperty(NO_DELAY_PROPERTY, "true");
+        }
+        if (System.getProperty(MAX_IDLE_CONNECTIONS_PROPERTY) == null) {
+            System.setProperty(MAX_IDLE_CONNECTIONS_PROPERTY, Integer.toString(maxIdleConnections));
+        }
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Gets the address the server listens on, with the actual port if port 0 was requested.
+     *
+     * @return the bound address
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * Stops accepting connections, closes the open ones and waits for the running requests to finish.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+
+    /**
+     * Handles one exchange on its own virtual thread.
+     */
+    private void handle(HttpExchange exchange) {
+        long start = requestTimer.start();
+        try (exchange) {
+            Response response;
+            try {
+                response = route(exchange);
+            } catch (IllegalArgumentException e) {
+                response = error(400, e.getMessage());
+            } catch (RejectedExecutionException e) {
+                response = error(503, "Server busy, retry later");
+            } catch (RuntimeException e) {
+                response = error(500, "Internal error");
+            }
+            send(exchange, response);
+        } catch (IOException e) {
+            // The client closed the connection before the response was written; nothing to answer
+        } finally {
+            requestTimer.stop(start);
+        }
+    }
+
+    /**
+     * Dispatches a request by method and path.
+     */
+    private Response route(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        List<String> path = segments(exchange.getRequestURI().getPath());
+        Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+
+        if (path.size() == 1 && path.get(0).equals("users")) {
+            return method.equals("POST") ? createUser(body(exchange)) : methodNotAllowed();
+        }
+        if (path.size() >= 2 && path.get(0).equals("users")) {
+            String username = path.get(1);
+            if (path.size() == 2) {
+                return switch (method) {
+                    case "GET" -> getUser(username);
+                    case "PUT" -> updateUser(username, body(exchange));
+                    case "DELETE" -> deleteUser(username);
+                    default -> methodNotAllowed();
+                };
+            }
+            if (path.size() == 3 && path.get(2).equals("transactions")) {
+                return switch (method) {
+                    case "GET" -> listTransactions(username, query);
+                    case "POST" -> addTransaction(username, body(exchange));
+                    default -> methodNotAllowed();
+                };
+            }
+            if (path.size() == 4 && path.get(2).equals("totals")) {
+                return method.equals("GET") ? getTotal(username, path.get(3), query) : methodNotAllowed();
+            }
+        }
+        if (path.size() == 2 && path.get(0).equals("transactions")) {
+            int transactionId = parseId(path.get(1));
+            return switch (method) {
+                case "GET" -> getTransaction(transactionId);
+                case "DELETE" -> deleteTransaction(transactionId);
+                default -> methodNotAllowed();
+            };
+        }
+        return error(404, "No such resource");
+    }
+
+    /**
+     * Creates a user; 409 if the username is taken.
+     */
+    private Response createUser(Map<String, Object> body) {
+        String username = requireString(body, "username");
+        User user = userService.createUser(username, requireString(body, "password"), requireString(body, "email"),
+                optionalString(body, "firstName"), optionalString(body, "lastName"));
+        return user == null ? error(409, "Username '" + username + "' is already taken") : new Response(201, userJson(user));
+    }
+
+    /**
+     * Gets a user's details.
+     */
+    private Response getUser(String username) {
+        User user = userService.getUserDetails(username);
+        return user == null ? userNotFound(username) : new Response(200, userJson(user));
+    }
+
+    /**
+     * Replaces a user's password, email and names.
+     */
+    private Response updateUser(String username, Map<String, Object> body) {
+        User user = userService.updateUser(username, requireString(body, "password"), requireString(body, "email"),
+                optionalString(body, "firstName"), optionalString(body, "lastName"));
+        return user == null ? userNotFound(username) : new Response(200, userJson(user));
+    }
+
+    /**
+     * Deletes a user and, through the service listeners, the user's transactions.
+     */
+    private Response deleteUser(String username) {
+        if (userService.getUserDetails(username) == null) {
+            return userNotFound(username);
+        }
+        userService.deleteUser(username);
+        return new Response(204, null);
+    }
+
+    /**
+     * Adds a transaction, recording a holding when the body has a symbol.
+     */
+    private Response addTransaction(String username, Map<String, Object> body) {
+        if (userService.getUserDetails(username) == null) {
+            return userNotFound(username);
+        }
+        Money amount = Money.of(requireDecimal(body, "amount"));
+        String dateText = optionalString(body, "date");
+        LocalDate date = dateText == null ? LocalDate.now() : parseDate(dateText, "date");
+        String description = optionalString(body, "description");
+
+        Transaction transaction;
+        String symbol = optionalString(body, "symbol");
+        if (symbol != null) {
+            String type = optionalString(body, "type");
+            if (type != null && TransactionType.parse(type) != TransactionType.INVESTMENT) {
+                throw new IllegalArgumentException("Only investment transactions can record a holding");
+            }
+            Investment investment = Investment.of(symbol, requireDecimal(body, "quantity"));
+            transaction = transactionService.addInvestment(username, investment, amount, date, description);
+        } else {
+            TransactionType type = TransactionType.parse(requireString(body, "type"));
+            transaction = transactionService.addTransaction(username, type, amount, date, description);
+        }
+        return new Response(201, transactionJson(transaction));
+    }
+
+    /**
+     * Gets one page of a user's transactions and the cursor of the next.
+     */
+    private Response listTransactions(String username, Map<String, String> query) {
+        if (userService.getUserDetails(username) == null) {
+            return userNotFound(username);
+        }
+        String after = query.get("after");
+        String limit = query.get("limit");
+        TransactionPage page = transactionService.getTransactionsPage(username,
+                after == null ? null : TransactionCursor.parse(after),
+                limit == null ? DEFAULT_PAGE_SIZE : parseInt(limit, "limit"));
+
+        List<Object> transactions = new ArrayList<>(page.getTransactions().size());
+        for (Transaction transaction : page.getTransactions()) {
+            transactions.add(transactionJson(transaction));
+        }
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("transactions", transactions);
+        json.put("nextCursor", page.getNextCursor() == null ? null : page.getNextCursor().toString());
+        return new Response(200, json);
+    }
+
+    /**
+     * Gets a user's total of one type, over all dates or an inclusive date range.
+     */
+    private Response getTotal(String username, String typeName, Map<String, String> query) {
+        if (userService.getUserDetails(username) == null) {
+            return userNotFound(username);
+        }
+        TransactionType type = TransactionType.parse(typeName);
+        String from = query.get("from");
+        String to = query.get("to");
+        if ((from == null) != (to == null)) {
+            throw new IllegalArgumentException("'from' and 'to' must be given together");
+        }
+        Money total = from == null
+                ? transactionService.getTotalByType(username, type)
+                : transactionService.getTotalByTypeBetween(username, type, parseDate(from, "from"), parseDate(to, "to"));
+
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("username", username);
+        json.put("type", type.getName());
+        json.put("total", total.toBigDecimal().toPlainString());
+        return new Response(200, json);
+    }
+
+    /**
+     * Gets a transaction by ID.
+     */
+    private Response getTransaction(int transactionId) {
+        Transaction transaction = transactionService.getTransactionById(transactionId);
+        return transaction == null
+                ? error(404, "Transaction " + transactionId + " does not exist")
+                : new Response(200, transactionJson(transaction));
+    }
+
+    /**
+     * Deletes a transaction by ID.
+     */
+    private Response deleteTransaction(int transactionId) {
+        return transactionService.deleteTransaction(transactionId)
+                ? new Response(204, null)
+                : error(404, "Transaction " + transactionId + " does not exist");
+    }
+
+    /**
+     * Converts a user to JSON, leaving out the password hash.
+     */
+    private static Map<String, Object> userJson(User user) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("username", user.getUsername());
+        json.put("email", user.getEmail());
+        json.put("firstName", user.getFirstName());
+        json.put("lastName", user.getLastName());
+        return json;
+    }
+
+    /**
+     * Converts a transaction to JSON, with its holding if it records one.
+     */
+    private static Map<String, Object> transactionJson(Transaction transaction) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", transaction.getTransactionId());
+        json.put("username", transaction.getUsername());
+        json.put("type", transaction.getTransactionType());
+        json.put("amount", transaction.getMoney().toBigDecimal().toPlainString());
+        json.put("date", transaction.getTransactionDate().toString());
+        json.put("description", transaction.getDescription());
+        Investment investment = transaction.getInvestment();
+        if (investment != null) {
+            json.put("symbol", investment.getSymbol());
+            json.put("quantity", investment.getQuantity().toPlainString());
+        }
+        return json;
+    }
+
+    private static Response userNotFound(String username) {
+        return error(404, "Username '" + username + "' does not exist");
+    }
+
+    private static Response methodNotAllowed() {
+        return error(405, "Method not allowed");
+    }
+
+    private static Response error(int status, String message) {
+        Map<String, Object> json = new HashMap<>();
+        json.put("error", message);
+        return new Response(status, json);
+    }
+
+    /**
+     * Writes a response, with no body for 204.
+     */
+    private static void send(HttpExchange exchange, Response response) throws IOException {
+        if (response.body == null) {
+            exchange.sendResponseHeaders(response.status, -1);
+            return;
+        }
+        byte[] bytes = Json.write(response.body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", JSON_CONTENT_TYPE);
+        exchange.sendResponseHeaders(response.status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Reads the request body as a JSON object.
+     */
+    private static Map<String, Object> body(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (bytes.length > MAX_BODY_BYTES) {
+                throw new IllegalArgumentException("Request body larger than " + MAX_BODY_BYTES + " bytes");
+            }
+            return Json.parseObject(new String(bytes, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static List<String> segments(String path) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : path.split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(segment);
+            }
+        }
+        return segments;
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    private static String requireString(Map<String, Object> body, String field) {
+        String value = optionalString(body, field);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing field '" + field + "'");
+        }
+        return value;
+    }
+
+    private static String optionalString(Map<String, Object> body, String field) {
+        Object value = body.get(field);
+        if (value != null && !(value instanceof String)) {
+            throw new IllegalArgumentException("Field '" + field + "' must be a string");
+        }
+        return (String) value;
+    }
+
+    /**
+     * Reads a decimal field given as a JSON number or a string.
+     */
+    private static BigDecimal requireDecimal(Map<String, Object> body, String field) {
+        Object value = body.get(field);
+        BigDecimal decimal;
+        if (value instanceof BigDecimal number) {
+            decimal = number;
+        } else if (value instanceof String text) {
+            try {
+                decimal = new BigDecimal(text.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Field '" + field + "' must be a decimal number");
+            }
+        } else {
+            throw new IllegalArgumentException("Missing field '" + field + "'");
+        }
+        if (decimal.scale() > MAX_DECIMAL_DIGITS || decimal.precision() - decimal.scale() > MAX_DECIMAL_DIGITS) {
+            throw new IllegalArgumentException("Field '" + field + "' is out of range");
+        }
+        return decimal;
+    }
+
+    private static LocalDate parseDate(String text, String name) {
+        try {
+            return LocalDate.parse(text);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("'" + name + "' must be a date like 2024-01-31");
+        }
+    }
+
+    private static int parseInt(String text, String name) {
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("'" + name + "' must be an integer");
+        }
+    }
+
+    private static int parseId(String text) {
+        return parseInt(text, "transaction ID");
+    }
+}
@@ -0,0 +1,302 @@
+package api;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JSON reading and writing for the HTTP front end, so the application keeps no third-party dependency.
+ *
+ * <p>Objects are read into {@code Map<String, Object>} in field order, arrays into {@code List<Object>},
+ * numbers into BigDecimal (so amounts are never rounded through a double), and true, false and null into
+ * Boolean and null. Writing accepts the same types plus any other Number; anything else is written as its
+ * toString, quoted.
+ */
+public final class Json {
+
+    // Deepest nesting accepted, so a hostile body cannot overflow the stack
+    private static final int MAX_DEPTH = 32;
+
+    private final String text;
+    private int position;
+
+    private Json(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Parses a JSON object.
+     *
+     * @param text the JSON text
+     * @return the fields of the object, in the order they appear
+     * @throws IllegalArgumentException if the text is not a single well-formed JSON object
+     */
+    public static Map<String, Object> parseObject(String text) {
+        Json parser = new Json(text);
+        parser.skipWhitespace();
+        if (parser.peek() != '{') {
+            throw parser.error("Expected a JSON object");
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, Object> object = (Map<String, Object>) parser.readValue(0);
+        parser.skipWhitespace();
+        if (parser.position != text.length()) {
+            throw parser.error("Unexpected trailing characters");
+        }
+        return object;
+    }
+
+    /**
+     * Writes a value as JSON.
+     *
+     * @param value a Map with String keys, a Collection, a CharSequence, a Number, a Boolean or null
+     * @return the JSON text
+     */
+    public static String write(Object value) {
+        StringBuilder out = new StringBuilder(128);
+        writeValue(out, value);
+        return out.toString();
+    }
+
+    private static void writeValue(StringBuilder out, Object value) {
+        if (value == null) {
+            out.append("null");
+        } else if (value instanceof Boolean || value instanceof Integer || value instanceof Long) {
+            out.append(value);
+        } else if (value instanceof BigDecimal decimal) {
+            out.append(decimal.toPlainString());
+        } else if (value instanceof Number number) {
+            double d = number.doubleValue();
+            out.append(Double.isFinite(d) ? number.toString() : "null");
+        } else if (value instanceof Map<?, ?> map) {
+            out.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                writeString(out, String.valueOf(entry.getKey()));
+                out.append(':');
+                writeValue(out, entry.getValue());
+            }
+            out.append('}');
+        } else if (value instanceof Collection<?> collection) {
+            out.append('[');
+            boolean first = true;
+            for (Object element : collection) {
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                writeValue(out, element);
+            }
+            out.append(']');
+        } else {
+            writeString(out, value.toString());
+        }
+    }
+
+    private static void writeString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+
+    private Object readValue(int depth) {
+        if (depth > MAX_DEPTH) {
+            throw error("Nesting too deep");
+        }
+        skipWhitespace();
+        char c = peek();
+        switch (c) {
+            case '{' -> {
+                return readObject(depth);
+            }
+            case '[' -> {
+                return readArray(depth);
+            }
+            case '"' -> {
+                return readString();
+            }
+            case 't' -> {
+                expectWord("true");
+                return Boolean.TRUE;
+            }
+            case 'f' -> {
+                expectWord("false");
+                return Boolean.FALSE;
+            }
+            case 'n' -> {
+                expectWord("null");
+                return null;
+            }
+            default -> {
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    return readNumber();
+                }
+                throw error("Unexpected character '" + c + "'");
+            }
+        }
+    }
+
+    private Map<String, Object> readObject(int depth) {
+        Map<String, Object> object = new LinkedHashMap<>();
+        position++;
+        skipWhitespace();
+        if (peek() == '}') {
+            position++;
+            return object;
+        }
+        while (true) {
+            skipWhitespace();
+            if (peek() != '"') {
+                throw error("Expected a field name");
+            }
+            String name = readString();
+            skipWhitespace();
+            expect(':');
+            object.put(name, readValue(depth + 1));
+            skipWhitespace();
+            if (peek() == ',') {
+                position++;
+            } else {
+                expect('}');
+                return object;
+            }
+        }
+    }
+
+    private List<Object> readArray(int depth) {
+        List<Object> array = new ArrayList<>();
+        position++;
+        skipWhitespace();
+        if (peek() == ']') {
+            position++;
+            return array;
+        }
+        while (true) {
+            array.add(readValue(depth + 1));
+            skipWhitespace();
+            if (peek() == ',') {
+                position++;
+            } else {
+                expect(']');
+                return array;
+            }
+        }
+    }
+
+    private String readString() {
+        position++;
+        StringBuilder value = new StringBuilder();
+        while (true) {
+            char c = next();
+            if (c == '"') {
+                return value.toString();
+            }
+            if (c < 0x20) {
+                throw error("Control character in string");
+            }
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            char escaped = next();
+            switch (escaped) {
+                case '"', '\\', '/' -> value.append(escaped);
+                case 'b' -> value.append('\b');
+                case 'f' -> value.append('\f');
+                case 'n' -> value.append('\n');
+                case 'r' -> value.append('\r');
+                case 't' -> value.append('\t');
+                case 'u' -> {
+                    if (position + 4 > text.length()) {
+                        throw error("Truncated unicode escape");
+                    }
+                    // Integer.parseInt would also take a sign or non-ASCII digits, so read the four hex digits one by one
+                    int code = 0;
+                    for (int i = 0; i < 4; i++) {
+                        char hex = text.charAt(position + i);
+                        int digit = hex < 0x80 ? Character.digit(hex, 16) : -1;
+                        if (digit < 0) {
+                            throw error("Invalid unicode escape");
+                        }
+                        code = code * 16 + digit;
+                    }
+                    value.append((char) code);
+                    position += 4;
+                }
+                default -> throw error("Invalid escape '\\" + escaped + "'");
+            }
+        }
+    }
+
+    private BigDecimal readNumber() {
+        int start = position;
+        while (position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) >= 0) {
+            position++;
+        }
+        try {
+            return new BigDecimal(text.substring(start, position));
+        } catch (NumberFormatException e) {
+            throw error("Invalid number");
+        }
+    }
+
+    private void expectWord(String word) {
+        if (!text.startsWith(word, position)) {
+            throw error("Expected " + word);
+        }
+        position += word.length();
+    }
+
+    private void expect(char c) {
+        if (peek() != c) {
+            throw error("Expected '" + c + "'");
+        }
+        position++;
+    }
+
+    private char peek() {
+        if (position >= text.length()) {
+            throw error("Unexpected end of input");
+        }
+        return text.charAt(position);
+    }
+
+    private char next() {
+        char c = peek();
+        position++;
+        return c;
+    }
+
+    private void skipWhitespace() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at offset " + position);
+    }
+}
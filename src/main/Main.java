@@ -1,28 +1,53 @@
 package main;
 
+import metrics.MetricsRegistry;
+import metrics.TextMetricsExporter;
+import model.Investment;
+import model.Money;
 import model.Transaction;
+import model.TransactionType;
 import model.User;
+import repository.PriceTable;
 import repository.UserRepository;
+import service.CredentialService;
+import service.LedgerSnapshot;
+import service.PortfolioService;
+import service.Position;
 import service.TransactionService;
 import service.UserService;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Main application class to demonstrate the use of UserService and TransactionService.
  */
 public class Main {
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
         // Create the UserRepository instance
         UserRepository userRepository = new UserRepository();
 
+        // Create the MetricsRegistry shared by the services, printing their events to the console
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.addEventSink(event -> System.out.println("[event] " + event));
+
         // Create the UserService, passing in the UserRepository
-        UserService userService = new UserService(userRepository);
+        UserService userService = new UserService(userRepository, new CredentialService(), metrics);
 
         // Create the TransactionService, passing in the UserRepository as UserLookupService
-        TransactionService transactionService = new TransactionService(userRepository);
+        TransactionService transactionService = new TransactionService(userRepository, metrics);
+
+        // Delete a user's transactions along with the user, and refuse to rename a user who has any
+        userService.addListener(transactionService);
+        userRepository.addUsernameChangeGuard(transactionService);
+
+        // Derive investment positions from the transactions, valued against a local price table
+        PriceTable priceTable = new PriceTable();
+        PortfolioService portfolioService = new PortfolioService(priceTable, metrics);
+        transactionService.addListener(portfolioService);
 
         // Now you can use userService and transactionService
 
@@ -104,6 +129,9 @@ public class Main {
         // Testing Delete Transaction
         // ===========================
         System.out.println("\n=== Testing Delete Transaction ===");
+        // Take a point-in-time view before deleting, for the snapshot test below
+        LedgerSnapshot janeBeforeDelete = transactionService.getSnapshot("jane_smith");
+
         // Get the transaction ID to delete (e.g., the first transaction)
         int transactionIdToDelete = janeTransactions.get(0).getTransactionId();
         boolean isDeleted = transactionService.deleteTransaction(transactionIdToDelete);
@@ -121,6 +149,17 @@ public class Main {
                     + ", Amount: $" + t.getAmount() + ", Description: " + t.getDescription());
         }
 
+        // ===========================
+        // Testing Ledger Snapshots
+        // ===========================
+        System.out.println("\n=== Testing Ledger Snapshots ===");
+        // The snapshot taken before the delete is unaffected by it
+        LedgerSnapshot janeNow = transactionService.getSnapshot("jane_smith");
+        System.out.println("Snapshot version " + janeBeforeDelete.getVersion() + ": " + janeBeforeDelete.size()
+                + " transactions, income " + janeBeforeDelete.getTotal(TransactionType.INCOME));
+        System.out.println("Snapshot version " + janeNow.getVersion() + ": " + janeNow.size()
+                + " transactions, income " + janeNow.getTotal(TransactionType.INCOME));
+
         // ===========================
         // Testing Add Transaction with Invalid Type
         // ===========================
@@ -162,15 +201,11 @@ public class Main {
         }
 
         // ===========================
-        // Testing Get Password (Validation)
+        // Testing Password Verification
         // ===========================
-        System.out.println("\n=== Testing Get Password (Validation) ===");
-        try {
-            String password = userService.getUserDetails("jane_smith").getPassword();
-            System.out.println("Password for 'jane_smith': " + password);
-        } catch (IllegalArgumentException e) {
-            System.out.println("Error retrieving password: " + e.getMessage());
-        }
+        System.out.println("\n=== Testing Password Verification ===");
+        System.out.println("Correct password for 'jane_smith' accepted: " + userService.authenticate("jane_smith", "NewPass456!").join());
+        System.out.println("Wrong password for 'jane_smith' accepted: " + userService.authenticate("jane_smith", "SecurePass456!").join());
 
         // ===========================
         // Testing Update User with Invalid Email
@@ -182,6 +217,35 @@ public class Main {
             System.out.println("Error updating user: " + e.getMessage());
         }
 
+        // ===========================
+        // Testing Investment Portfolio
+        // ===========================
+        System.out.println("\n=== Testing Investment Portfolio ===");
+        priceTable.setPrices(Map.of("AAPL", 190.00, "VTI", 240.00));
+        transactionService.addInvestment("jane_smith", Investment.of("AAPL", 10), Money.of(1750.00), LocalDate.now().minusDays(30), "Buy AAPL");
+        transactionService.addInvestment("jane_smith", Investment.of("AAPL", 5), Money.of(950.00), LocalDate.now().minusDays(10), "Buy AAPL");
+        transactionService.addInvestment("jane_smith", Investment.of("AAPL", -6), Money.of(1140.00), LocalDate.now(), "Sell AAPL");
+        transactionService.addInvestment("jane_smith", Investment.of("VTI", 2.5), Money.of(575.00), LocalDate.now(), "Buy VTI");
+        portfolioService.revalue();
+        for (Position position : portfolioService.getPositions("jane_smith")) {
+            System.out.println(position);
+        }
+        System.out.println("Market value for 'jane_smith': " + portfolioService.getMarketValue("jane_smith"));
+        priceTable.setPrice("AAPL", 200.00);
+        System.out.println("Positions re-valued after an AAPL price change: " + portfolioService.revalue());
+        System.out.println("Market value for 'jane_smith': " + portfolioService.getMarketValue("jane_smith"));
+
+        // ===========================
+        // Testing Delete User With Transactions
+        // ===========================
+        System.out.println("\n=== Testing Delete User With Transactions ===");
+        userService.createUser("temp_user", "TempPass123!", "temp@example.com", "Temp", "User");
+        transactionService.addTransaction("temp_user", "income", 300.00, LocalDate.now(), "Refund");
+        transactionService.addTransaction("temp_user", "expense", 45.50, LocalDate.now(), "Taxi");
+        System.out.println("Transactions before deleting 'temp_user': " + transactionService.getAllTransactions().size());
+        userService.deleteUser("temp_user");
+        System.out.println("Transactions after deleting 'temp_user': " + transactionService.getAllTransactions().size());
+
         // ===========================
         // Testing Delete Non-Existent User
         // ===========================
@@ -191,6 +255,12 @@ public class Main {
         // ===========================
         // Testing Complete
         // ===========================
+        // ===========================
+        // Operation Metrics
+        // ===========================
+        System.out.println("\n=== Operation Metrics ===");
+        new TextMetricsExporter(System.out).export(metrics);
+
         System.out.println("\n=== Testing Complete ===");
     }
 }
@@ -0,0 +1,98 @@
+package metrics;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Structured record of something that happened, such as a user being created, with named fields
+ * instead of a formatted message.
+ */
+public final class Event {
+
+    private final Instant timestamp;
+    private final String name;
+    private final Map<String, Object> fields;
+
+    /**
+     * Constructor for Event.
+     *
+     * @param timestamp when the event happened
+     * @param name      the event name, e.g. {@code user.created}
+     * @param fields    the fields in order
+     */
+    Event(Instant timestamp, String name, Map<String, Object> fields) {
+        this.timestamp = timestamp;
+        this.name = name;
+        this.fields = Collections.unmodifiableMap(fields);
+    }
+
+    /**
+     * Creates an event stamped with the current time.
+     *
+     * @param name           the event name, e.g. {@code user.created}
+     * @param keysAndValues  alternating field names and values
+     * @return the event
+     * @throws IllegalArgumentException if a name has no value or a field name is not a String
+     */
+    public static Event of(String name, Object... keysAndValues) {
+        if (keysAndValues.length % 2 != 0) {
+            throw new IllegalArgumentException("Event field '" + keysAndValues[keysAndValues.length - 1] + "' has no value");
+        }
+        Map<String, Object> fields = new LinkedHashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            if (!(keysAndValues[i] instanceof String key)) {
+                throw new IllegalArgumentException("Event field name must be a String: " + keysAndValues[i]);
+            }
+            fields.put(key, keysAndValues[i + 1]);
+        }
+        return new Event(Instant.now(), name, fields);
+    }
+
+    /**
+     * Gets when the event happened.
+     *
+     * @return the timestamp
+     */
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Gets the event name.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the fields of the event.
+     *
+     * @return the fields by name, in the order they were given
+     */
+    public Map<String, Object> getFields() {
+        return fields;
+    }
+
+    /**
+     * Gets one field of the event.
+     *
+     * @param key the field name
+     * @return the value, or null if the event has no such field
+     */
+    public Object get(String key) {
+        return fields.get(key);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(name);
+        for (Map.Entry<String, Object> field : fields.entrySet()) {
+            builder.append(' ').append(field.getKey()).append('=').append(field.getValue());
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,16 @@
+package metrics;
+
+/**
+ * Receiver of the structured events emitted through a MetricsRegistry, e.g. a log writer or the console.
+ * Events are delivered on the thread that emitted them, so implementations must be quick.
+ */
+@FunctionalInterface
+public interface EventSink {
+
+    /**
+     * Called for every event emitted.
+     *
+     * @param event the event
+     */
+    void accept(Event event);
+}
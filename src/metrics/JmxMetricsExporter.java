@@ -0,0 +1,78 @@
+package metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registers every timer of a registry as an MXBean named {@code domain:type=Operation,name=<operation>},
+ * so JConsole, VisualVM or a JMX scraper read the live counts and percentiles. Calling export again
+ * registers the timers created since; close unregisters them all.
+ */
+public class JmxMetricsExporter implements MetricsExporter, Closeable {
+
+    /**
+     * Domain used by the no-argument constructor.
+     */
+    public static final String DEFAULT_DOMAIN = "personalfinance";
+
+    private final MBeanServer server;
+    private final String domain;
+
+    // Names registered by this exporter
+    private final Map<String, ObjectName> registered = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor for JmxMetricsExporter, registering on the platform MBean server.
+     */
+    public JmxMetricsExporter() {
+        this(ManagementFactory.getPlatformMBeanServer(), DEFAULT_DOMAIN);
+    }
+
+    /**
+     * Constructor for JmxMetricsExporter.
+     *
+     * @param server the MBean server to register on
+     * @param domain the object name domain
+     */
+    public JmxMetricsExporter(MBeanServer server, String domain) {
+        this.server = server;
+        this.domain = domain;
+    }
+
+    @Override
+    public void export(MetricsRegistry registry) throws IOException {
+        for (OperationTimer timer : registry.getTimers().values()) {
+            if (registered.containsKey(timer.getName())) {
+                continue;
+            }
+            try {
+                ObjectName name = ObjectName.getInstance(domain + ":type=Operation,name=" + ObjectName.quote(timer.getName()));
+                server.registerMBean(timer, name);
+                registered.put(timer.getName(), name);
+            } catch (JMException e) {
+                throw new IOException("Cannot register timer " + timer.getName(), e);
+            }
+        }
+    }
+
+    /**
+     * Unregisters the timers registered by this exporter.
+     */
+    @Override
+    public void close() {
+        for (ObjectName name : registered.values()) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException e) {
+                // Already unregistered elsewhere; nothing left to clean up
+            }
+        }
+        registered.clear();
+    }
+}
@@ -0,0 +1,19 @@
+package metrics;
+
+import java.io.IOException;
+
+/**
+ * Publishes the timers of a MetricsRegistry somewhere they can be read, such as JMX or a text dump.
+ * Call export whenever the metrics should be published; exporters that publish live values only need
+ * to be called again after new timers are created.
+ */
+public interface MetricsExporter {
+
+    /**
+     * Publishes the current timers of a registry.
+     *
+     * @param registry the registry to export
+     * @throws IOException if the metrics cannot be written
+     */
+    void export(MetricsRegistry registry) throws IOException;
+}
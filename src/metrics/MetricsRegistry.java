@@ -0,0 +1,117 @@
+package metrics;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Registry of the operation timers of the services and dispatcher of their structured events.
+ * The services take a registry in their constructors; pass the same one to all of them and export it
+ * with a {@link MetricsExporter}.
+ */
+public class MetricsRegistry {
+
+    // Timers by operation name
+    private final Map<String, OperationTimer> timers = new ConcurrentHashMap<>();
+
+    // Sinks receiving every emitted event
+    private final List<EventSink> eventSinks = new CopyOnWriteArrayList<>();
+
+    // False for the registry returned by disabled()
+    private final boolean enabled;
+
+    /**
+     * Constructor for MetricsRegistry.
+     */
+    public MetricsRegistry() {
+        this(true);
+    }
+
+    /**
+     * Constructor for MetricsRegistry.
+     *
+     * @param enabled false for a registry whose timers record nothing
+     */
+    private MetricsRegistry(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Creates a registry whose timers count and record nothing, e.g. to measure the cost of the
+     * instrumentation. Events are still delivered to its sinks.
+     *
+     * @return the registry
+     */
+    public static MetricsRegistry disabled() {
+        return new MetricsRegistry(false);
+    }
+
+    /**
+     * Gets the timer of an operation, recording the latency of every call.
+     *
+     * @param name the operation name, e.g. {@code user.create}
+     * @return the timer, created on first use
+     */
+    public OperationTimer timer(String name) {
+        return timer(name, 1);
+    }
+
+    /**
+     * Gets the timer of an operation, recording the latency of one call in sampleEvery and estimating
+     * the call count from those. Use sampling for operations that take a few microseconds or less.
+     * The rate of an existing timer is kept.
+     *
+     * @param name        the operation name, e.g. {@code transaction.total}
+     * @param sampleEvery the latency of one call in this many is recorded, a power of two
+     * @return the timer, created on first use
+     */
+    public OperationTimer timer(String name, int sampleEvery) {
+        return timers.computeIfAbsent(name, key -> new OperationTimer(key, sampleEvery, enabled));
+    }
+
+    /**
+     * Gets all timers.
+     *
+     * @return the timers by operation name, in name order
+     */
+    public SortedMap<String, OperationTimer> getTimers() {
+        return new TreeMap<>(timers);
+    }
+
+    /**
+     * Registers a sink to receive every later event.
+     *
+     * @param sink the sink to add
+     */
+    public void addEventSink(EventSink sink) {
+        eventSinks.add(sink);
+    }
+
+    /**
+     * Unregisters an event sink.
+     *
+     * @param sink the sink to remove
+     */
+    public void removeEventSink(EventSink sink) {
+        eventSinks.remove(sink);
+    }
+
+    /**
+     * Emits an event to the sinks. Nothing is built when there are no sinks.
+     *
+     * @param name          the event name, e.g. {@code user.created}
+     * @param keysAndValues alternating field names and values
+     */
+    public void emit(String name, Object... keysAndValues) {
+        if (eventSinks.isEmpty()) {
+            return;
+        }
+        Event event = Event.of(name, keysAndValues);
+        for (EventSink sink : eventSinks) {
+            sink.accept(event);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package metrics;
+
+/**
+ * Management interface of an OperationTimer, as registered by JmxMetricsExporter.
+ * Latencies are in nanoseconds and are taken from the sampled calls.
+ */
+public interface OperationTimerMXBean {
+
+    /**
+     * Gets the number of calls: exact if every call is sampled, otherwise the sampled calls times the
+     * sample rate.
+     *
+     * @return the call count
+     */
+    long getCount();
+
+    /**
+     * Gets the number of calls whose latency was recorded.
+     *
+     * @return the sample count
+     */
+    long getSampleCount();
+
+    /**
+     * Gets the mean latency of the sampled calls.
+     *
+     * @return the mean in nanoseconds, or 0 if none was sampled
+     */
+    long getMeanNanos();
+
+    /**
+     * Gets the median latency of the sampled calls.
+     *
+     * @return the 50th percentile in nanoseconds
+     */
+    long getP50Nanos();
+
+    /**
+     * Gets the 99th percentile latency of the sampled calls.
+     *
+     * @return the 99th percentile in nanoseconds
+     */
+    long getP99Nanos();
+
+    /**
+     * Gets the 99.9th percentile latency of the sampled calls.
+     *
+     * @return the 99.9th percentile in nanoseconds
+     */
+    long getP999Nanos();
+
+    /**
+     * Gets the longest sampled latency.
+     *
+     * @return the maximum in nanoseconds
+     */
+    long getMaxNanos();
+}
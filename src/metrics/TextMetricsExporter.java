@@ -0,0 +1,41 @@
+package metrics;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Writes one line per timer: call count, sample rate and latency percentiles in microseconds.
+ */
+public class TextMetricsExporter implements MetricsExporter {
+
+    private final Appendable out;
+
+    /**
+     * Constructor for TextMetricsExporter.
+     *
+     * @param out where the dump is written, e.g. System.out or a file writer
+     */
+    public TextMetricsExporter(Appendable out) {
+        this.out = out;
+    }
+
+    @Override
+    public void export(MetricsRegistry registry) throws IOException {
+        for (OperationTimer timer : registry.getTimers().values()) {
+            out.append(format(timer)).append(System.lineSeparator());
+        }
+    }
+
+    /**
+     * Formats one timer as a line of the dump. Numbers are written the same way whatever the default locale,
+     * so the dump can be parsed by tools.
+     *
+     * @param timer the timer
+     * @return the line, without a line separator
+     */
+    public static String format(OperationTimer timer) {
+        return String.format(Locale.ROOT, "%-28s count=%-10d sampled=1/%-4d mean=%.3fus p50=%.3fus p99=%.3fus p999=%.3fus max=%.3fus",
+                timer.getName(), timer.getCount(), timer.getSampleEvery(), timer.getMeanNanos() / 1e3,
+                timer.getP50Nanos() / 1e3, timer.getP99Nanos() / 1e3, timer.getP999Nanos() / 1e3, timer.getMaxNanos() / 1e3);
+    }
+}
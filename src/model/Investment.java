@@ -1,4 +1,166 @@
 package model;
 
-public class Investment {
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * The holding traded by an investment transaction: a security symbol and the signed quantity bought
+ * (positive) or sold (negative). The transaction amount is what was paid or received for it.
+ *
+ * <p>Quantities are kept as an exact long count of millionths of a unit, so fractional shares add up
+ * without drift the same way {@link Money} amounts do.
+ */
+public final class Investment {
+
+    /**
+     * Number of decimal places of a quantity.
+     */
+    public static final int QUANTITY_SCALE = 6;
+
+    private static final long MICROS_PER_UNIT = 1_000_000;
+
+    // Ticker symbols: uppercase letters and digits, optionally with '.' or '-' class suffixes (e.g. BRK.B)
+    private static final Pattern SYMBOL_PATTERN = Pattern.compile("[A-Z0-9][A-Z0-9.\\-]{0,15}");
+
+    private final String symbol;
+    private final long quantityMicros;
+
+    /**
+     * Constructor for Investment.
+     *
+     * @param symbol         the security symbol, already normalised
+     * @param quantityMicros the signed quantity in millionths of a unit
+     */
+    private Investment(String symbol, long quantityMicros) {
+        this.symbol = symbol;
+        this.quantityMicros = quantityMicros;
+    }
+
+    /**
+     * Creates a holding from a quantity in millionths of a unit.
+     *
+     * @param symbol         the security symbol, case-insensitive (e.g. "aapl")
+     * @param quantityMicros the quantity in millionths of a unit, positive for a buy and negative for a sell
+     * @return the holding
+     * @throws IllegalArgumentException if the symbol is not valid or the quantity is zero
+     */
+    public static Investment ofMicros(String symbol, long quantityMicros) {
+        if (quantityMicros == 0) {
+            throw new IllegalArgumentException("Quantity must not be zero");
+        }
+        return new Investment(normalizeSymbol(symbol), quantityMicros);
+    }
+
+    /**
+     * Creates a holding, rounding the quantity half-even to millionths of a unit.
+     *
+     * @param symbol   the security symbol, case-insensitive (e.g. "aapl")
+     * @param quantity the quantity, positive for a buy and negative for a sell
+     * @return the holding
+     * @throws IllegalArgumentException if the symbol is not valid or the quantity rounds to zero
+     */
+    public static Investment of(String symbol, BigDecimal quantity) {
+        try {
+            return ofMicros(symbol, quantity.setScale(QUANTITY_SCALE, RoundingMode.HALF_EVEN).unscaledValue().longValueExact());
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Quantity out of range: " + quantity);
+        }
+    }
+
+    /**
+     * Creates a holding, rounding the quantity half-even to millionths of a unit.
+     *
+     * @param symbol   the security symbol, case-insensitive (e.g. "aapl")
+     * @param quantity the quantity, positive for a buy and negative for a sell
+     * @return the holding
+     * @throws IllegalArgumentException if the symbol is not valid or the quantity rounds to zero
+     */
+    public static Investment of(String symbol, double quantity) {
+        if (!Double.isFinite(quantity)) {
+            throw new IllegalArgumentException("Quantity must be a finite number");
+        }
+        return of(symbol, BigDecimal.valueOf(quantity));
+    }
+
+    /**
+     * Validates a security symbol and converts it to upper case.
+     *
+     * @param symbol the symbol
+     * @return the uppercase symbol
+     * @throws IllegalArgumentException if the symbol is null or not valid
+     */
+    public static String normalizeSymbol(String symbol) {
+        if (symbol == null) {
+            throw new IllegalArgumentException("Symbol must not be null");
+        }
+        String normalized = symbol.trim().toUpperCase(Locale.ROOT);
+        if (!SYMBOL_PATTERN.matcher(normalized).matches()) {
+            throw new IllegalArgumentException("Invalid symbol: " + symbol);
+        }
+        return normalized;
+    }
+
+    /**
+     * Gets the security symbol.
+     *
+     * @return the uppercase symbol
+     */
+    public String getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * Gets the signed quantity in millionths of a unit.
+     *
+     * @return the quantity in millionths, negative for a sell
+     */
+    public long getQuantityMicros() {
+        return quantityMicros;
+    }
+
+    /**
+     * Gets the signed quantity.
+     *
+     * @return the exact quantity, negative for a sell
+     */
+    public BigDecimal getQuantity() {
+        return BigDecimal.valueOf(quantityMicros, QUANTITY_SCALE).stripTrailingZeros();
+    }
+
+    /**
+     * Checks whether the holding was bought rather than sold.
+     *
+     * @return true for a buy
+     */
+    public boolean isBuy() {
+        return quantityMicros > 0;
+    }
+
+    /**
+     * Converts a quantity in millionths of a unit to a double, for valuation against prices.
+     *
+     * @param quantityMicros the quantity in millionths
+     * @return the quantity in units
+     */
+    public static double toDouble(long quantityMicros) {
+        return (double) quantityMicros / MICROS_PER_UNIT;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Investment other && quantityMicros == other.quantityMicros && symbol.equals(other.symbol);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(symbol, quantityMicros);
+    }
+
+    @Override
+    public String toString() {
+        return getQuantity().toPlainString() + " " + symbol;
+    }
 }
@@ -0,0 +1,253 @@
+package model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.Objects;
+
+/**
+ * An exact amount of money: a long count of minor units (cents) of a currency.
+ *
+ * <p>Transactions and every total are kept as minor units, so sums never drift the way doubles do.
+ * The static methods work on raw minor-unit longs and are what the aggregation paths use: they are
+ * allocation-free and throw an ArithmeticException on overflow instead of wrapping around.
+ * The tracker keeps all amounts in {@link #DEFAULT_CURRENCY}.
+ */
+public final class Money implements Comparable<Money> {
+
+    /**
+     * Currency of every amount in the tracker.
+     */
+    public static final Currency DEFAULT_CURRENCY = Currency.getInstance("USD");
+
+    /**
+     * Number of decimal places of a minor unit of the default currency.
+     */
+    public static final int SCALE = DEFAULT_CURRENCY.getDefaultFractionDigits();
+
+    /**
+     * Zero in the default currency.
+     */
+    public static final Money ZERO = new Money(0, DEFAULT_CURRENCY);
+
+    // Minor units in one major unit, 10^SCALE, e.g. 100 cents to the dollar
+    private static final long MINOR_UNITS_PER_UNIT = BigDecimal.ONE.scaleByPowerOfTen(SCALE).longValueExact();
+
+    // Largest double magnitude converted without a decimal: scaled amounts stay below 1e13, where the
+    // scaling error is far below a minor unit
+    private static final double MAX_FAST_AMOUNT = 1e13 / MINOR_UNITS_PER_UNIT;
+
+    private final long minorUnits;
+    private final Currency currency;
+
+    /**
+     * Constructor for Money.
+     *
+     * @param minorUnits the amount in minor units, e.g. cents
+     * @param currency   the currency
+     */
+    private Money(long minorUnits, Currency currency) {
+        this.minorUnits = minorUnits;
+        this.currency = currency;
+    }
+
+    /**
+     * Creates an amount from minor units of the default currency.
+     *
+     * @param minorUnits the amount in minor units, e.g. cents
+     * @return the amount
+     */
+    public static Money ofMinorUnits(long minorUnits) {
+        return minorUnits == 0 ? ZERO : new Money(minorUnits, DEFAULT_CURRENCY);
+    }
+
+    /**
+     * Creates an amount of the default currency from a double, rounded half-even to the minor unit.
+     *
+     * @param amount the amount in major units, e.g. dollars
+     * @return the amount
+     * @throws IllegalArgumentException if the amount is not finite or too large
+     */
+    public static Money of(double amount) {
+        return ofMinorUnits(toMinorUnits(amount));
+    }
+
+    /**
+     * Creates an amount of the default currency from a decimal, rounded half-even to the minor unit.
+     *
+     * @param amount the amount in major units, e.g. dollars
+     * @return the amount
+     * @throws IllegalArgumentException if the amount is too large
+     */
+    public static Money of(BigDecimal amount) {
+        return ofMinorUnits(toMinorUnits(amount));
+    }
+
+    /**
+     * Converts a double amount to minor units, rounding half-even. The double is taken as the shortest
+     * decimal that represents it, so 0.1 is 10 cents and 2.675 rounds to 268 cents.
+     *
+     * @param amount the amount in major units, e.g. dollars
+     * @return the amount in minor units
+     * @throws IllegalArgumentException if the amount is not finite or too large
+     */
+    public static long toMinorUnits(double amount) {
+        if (Double.isNaN(amount) || Double.isInfinite(amount)) {
+            throw new IllegalArgumentException("Amount must be a finite number: " + amount);
+        }
+        // Away from a half cent, rounding the scaled double gives the same cent as rounding the decimal;
+        // near one the tie must be broken on the exact decimal
+        if (Math.abs(amount) < MAX_FAST_AMOUNT) {
+            double scaled = amount * MINOR_UNITS_PER_UNIT;
+            long rounded = Math.round(scaled);
+            if (Math.abs(Math.abs(scaled - rounded) - 0.5) > 0.01) {
+                return rounded;
+            }
+        }
+        return toMinorUnits(BigDecimal.valueOf(amount));
+    }
+
+    /**
+     * Converts a decimal amount to minor units, rounding half-even.
+     *
+     * @param amount the amount in major units, e.g. dollars
+     * @return the amount in minor units
+     * @throws IllegalArgumentException if the amount is too large
+     */
+    public static long toMinorUnits(BigDecimal amount) {
+        try {
+            return amount.setScale(SCALE, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount is too large: " + amount, e);
+        }
+    }
+
+    /**
+     * Converts minor units to a double amount in major units, the nearest double to the exact value.
+     *
+     * @param minorUnits the amount in minor units
+     * @return the amount in major units, e.g. dollars
+     */
+    public static double toDouble(long minorUnits) {
+        return minorUnits / (double) MINOR_UNITS_PER_UNIT;
+    }
+
+    /**
+     * Adds two amounts in minor units.
+     *
+     * @param a the first amount in minor units
+     * @param b the second amount in minor units
+     * @return the sum in minor units
+     * @throws ArithmeticException if the sum overflows
+     */
+    public static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    /**
+     * Subtracts an amount in minor units from another.
+     *
+     * @param a the amount in minor units
+     * @param b the amount to subtract in minor units
+     * @return the difference in minor units
+     * @throws ArithmeticException if the difference overflows
+     */
+    public static long subtract(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+
+    /**
+     * Gets the amount in minor units, e.g. cents.
+     *
+     * @return the minor units
+     */
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    /**
+     * Gets the currency.
+     *
+     * @return the currency
+     */
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    /**
+     * Adds another amount of the same currency.
+     *
+     * @param other the amount to add
+     * @return the sum
+     * @throws IllegalArgumentException if the currencies differ
+     * @throws ArithmeticException      if the sum overflows
+     */
+    public Money plus(Money other) {
+        checkCurrency(other);
+        return ofMinorUnits(add(minorUnits, other.minorUnits));
+    }
+
+    /**
+     * Subtracts another amount of the same currency.
+     *
+     * @param other the amount to subtract
+     * @return the difference
+     * @throws IllegalArgumentException if the currencies differ
+     * @throws ArithmeticException      if the difference overflows
+     */
+    public Money minus(Money other) {
+        checkCurrency(other);
+        return ofMinorUnits(subtract(minorUnits, other.minorUnits));
+    }
+
+    /**
+     * Gets the amount in major units as a double, e.g. for display or the double-based APIs.
+     *
+     * @return the amount in major units
+     */
+    public double toDouble() {
+        return toDouble(minorUnits);
+    }
+
+    /**
+     * Gets the exact amount in major units.
+     *
+     * @return the amount in major units
+     */
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        checkCurrency(other);
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Money other && minorUnits == other.minorUnits && currency.equals(other.currency);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(minorUnits, currency);
+    }
+
+    @Override
+    public String toString() {
+        return currency.getCurrencyCode() + " " + toBigDecimal().toPlainString();
+    }
+
+    /**
+     * Checks that another amount has the same currency.
+     *
+     * @param other the other amount
+     * @throws IllegalArgumentException if the currencies differ
+     */
+    private void checkCurrency(Money other) {
+        if (!currency.equals(other.currency)) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " and " + other.currency);
+        }
+    }
+}
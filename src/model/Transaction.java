@@ -1,22 +1,36 @@
 package model;
 
 import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Transaction {
 
+    // Earliest and latest supported transaction dates: the ledgers key transactions by an int epoch day
+    public static final LocalDate MIN_DATE = LocalDate.ofEpochDay(Integer.MIN_VALUE);
+    public static final LocalDate MAX_DATE = LocalDate.ofEpochDay(Integer.MAX_VALUE);
 
-    private static int idCounter = 1;
+    // Source of transaction IDs, safe to use from concurrent ingestion threads
+    private static final AtomicInteger idCounter = new AtomicInteger(1);
     private final int transactionId;
     private final String username;
-    private String transactionType;
-    private double amount;
+    private TransactionType transactionType;
+
+    // The amount in minor units (cents) of Money.DEFAULT_CURRENCY, so sums of amounts are exact
+    private long amountMinorUnits;
     private LocalDate transactionDate;
     private String description;
 
+    // The security and quantity traded, for investment transactions that record one; null otherwise
+    private final Investment investment;
+
+    // Owner notified of every setter change, e.g. the TransactionService keeping running totals.
+    // Volatile because it is attached by one thread and read by any thread calling a setter
+    private volatile TransactionUpdateHandler updateHandler;
+
     /**
      * Constructor that initializes a Transaction with a unique ID and transaction details.
-     * The transaction ID is Automatically assigned based on an incrementing static counter, ensuring
-     * each transaction has a unique identifier.
+     * The transaction ID is Automatically assigned based on an incrementing static atomic counter, ensuring
+     * each transaction has a unique identifier even when transactions are created concurrently.
      *
      * @param username         The username of the user who made the transaction.
      * @param transactionType The type of transaction (e.g., "income", "expense", "investment").
@@ -27,34 +41,164 @@ public class Transaction {
     public Transaction(String username, String transactionType, double amount, LocalDate transactionDate, String description) {
 
         // Validate the transaction type, ensuring it is either "income," "expense," or "investment."
-        // If the transaction type is invalid, throw an IllegalArgumentException.
-        if (!isValidTransactionType(transactionType.toLowerCase())) {
-            throw new IllegalArgumentException("Invalid transaction type: " + transactionType);
-        }
+        // If the transaction type is invalid, TransactionType.parse throws an IllegalArgumentException.
+        this(username, TransactionType.parse(transactionType), amount, transactionDate, description);
+    }
 
-        // Ensure that the transaction amount is a positive number.
-        // If the amount is negative, throw an IllegalArgumentException.
-        if (amount < 0) {
-            throw new IllegalArgumentException("Amount must be a positive number");
-        }
+    /**
+     * Constructor that initializes a Transaction with a unique ID and transaction details.
+     * The amount is rounded half-even to whole cents.
+     *
+     * @param username         The username of the user who made the transaction.
+     * @param transactionType The type of transaction.
+     * @param amount          The amount of money involved in the transaction.
+     * @param transactionDate The date when the transaction occurred.
+     * @param description     A brief description of the transaction.
+     */
+    public Transaction(String username, TransactionType transactionType, double amount, LocalDate transactionDate, String description) {
+        this(username, transactionType, Money.of(amount), transactionDate, description);
+    }
+
+    /**
+     * Constructor that initializes a Transaction with a unique ID and transaction details.
+     *
+     * @param username         The username of the user who made the transaction.
+     * @param transactionType The type of transaction.
+     * @param amount          The amount of money involved in the transaction.
+     * @param transactionDate The date when the transaction occurred.
+     * @param description     A brief description of the transaction.
+     */
+    public Transaction(String username, TransactionType transactionType, Money amount, LocalDate transactionDate, String description) {
+        this(username, transactionType, amount, transactionDate, description, null);
+    }
+
+    /**
+     * Constructor that initializes an investment Transaction with a unique ID, recording the holding traded.
+     * The amount is what was paid for a buy or received for a sell.
+     *
+     * @param username         The username of the user who made the transaction.
+     * @param transactionType The type of transaction; must be investment when a holding is given.
+     * @param amount          The amount of money involved in the transaction.
+     * @param transactionDate The date when the transaction occurred.
+     * @param description     A brief description of the transaction.
+     * @param investment      The security and quantity traded, or null.
+     */
+    public Transaction(String username, TransactionType transactionType, Money amount, LocalDate transactionDate,
+                       String description, Investment investment) {
+
+        validate(transactionType, amount, transactionDate, investment);
 
-        this.transactionId = idCounter;
-        idCounter ++;
+        this.transactionId = idCounter.getAndIncrement();
         this.username = username;
         this.transactionType = transactionType;
-        this.amount = amount;
+        this.amountMinorUnits = amount.getMinorUnits();
         this.transactionDate = transactionDate;
         this.description = description;
+        this.investment = investment;
     }
 
     /**
-     * Checks if the transaction type is valid.
+     * Constructor that recreates a previously stored Transaction with its original ID, e.g. when recovering
+     * from persisted data. Advances the ID counter past the given ID so new transactions never reuse it.
+     *
+     * @param transactionId    The original transaction ID.
+     * @param username         The username of the user who made the transaction.
+     * @param transactionType The type of transaction.
+     * @param amount          The amount of money involved in the transaction.
+     * @param transactionDate The date when the transaction occurred.
+     * @param description     A brief description of the transaction.
+     */
+    public Transaction(int transactionId, String username, TransactionType transactionType, Money amount,
+                       LocalDate transactionDate, String description) {
+        this(transactionId, username, transactionType, amount, transactionDate, description, null);
+    }
+
+    /**
+     * Constructor that recreates a previously stored Transaction with its original ID and holding.
+     * Advances the ID counter past the given ID so new transactions never reuse it.
+     *
+     * @param transactionId    The original transaction ID.
+     * @param username         The username of the user who made the transaction.
+     * @param transactionType The type of transaction.
+     * @param amount          The amount of money involved in the transaction.
+     * @param transactionDate The date when the transaction occurred.
+     * @param description     A brief description of the transaction.
+     * @param investment      The security and quantity traded, or null.
+     */
+    public Transaction(int transactionId, String username, TransactionType transactionType, Money amount,
+                       LocalDate transactionDate, String description, Investment investment) {
+
+        validate(transactionType, amount, transactionDate, investment);
+
+        idCounter.accumulateAndGet(transactionId + 1, Math::max);
+        this.transactionId = transactionId;
+        this.username = username;
+        this.transactionType = transactionType;
+        this.amountMinorUnits = amount.getMinorUnits();
+        this.transactionDate = transactionDate;
+        this.description = description;
+        this.investment = investment;
+    }
+
+    /**
+     * Validates the details of a new transaction.
      *
      * @param transactionType the type of transaction
-     * @return true if the type is valid, false otherwise
+     * @param amount          the transaction amount
+     * @param transactionDate the transaction date
+     * @param investment      the holding traded, or null
+     * @throws IllegalArgumentException if any detail is invalid
+     */
+    private static void validate(TransactionType transactionType, Money amount, LocalDate transactionDate,
+                                 Investment investment) {
+
+        if (transactionType == null) {
+            throw new IllegalArgumentException("Transaction type must not be null");
+        }
+
+        validateDate(transactionDate);
+        validateAmount(amount);
+
+        // Only investment transactions trade a holding.
+        if (investment != null && transactionType != TransactionType.INVESTMENT) {
+            throw new IllegalArgumentException("Only investment transactions can record a holding");
+        }
+    }
+
+    /**
+     * Validates the date of a transaction.
+     *
+     * @param transactionDate the transaction date
+     * @throws IllegalArgumentException if the date is null or outside MIN_DATE to MAX_DATE
+     */
+    private static void validateDate(LocalDate transactionDate) {
+
+        // Ensure that the transaction has a date, since transactions are indexed by date.
+        if (transactionDate == null) {
+            throw new IllegalArgumentException("Transaction date must not be null");
+        }
+        if (transactionDate.isBefore(MIN_DATE) || transactionDate.isAfter(MAX_DATE)) {
+            throw new IllegalArgumentException("Transaction date " + transactionDate + " is outside the supported range "
+                    + MIN_DATE + " to " + MAX_DATE);
+        }
+    }
+
+    /**
+     * Validates the amount of a transaction.
+     *
+     * @param amount the transaction amount
+     * @throws IllegalArgumentException if the amount is null or negative
      */
-    private boolean isValidTransactionType(String transactionType) {
-        return transactionType.equals("income") || transactionType.equals("expense") || transactionType.equals("investment");
+    private static void validateAmount(Money amount) {
+        if (amount == null) {
+            throw new IllegalArgumentException("Amount must not be null");
+        }
+
+        // Ensure that the transaction amount is a positive number.
+        // If the amount is negative, throw an IllegalArgumentException.
+        if (amount.getMinorUnits() < 0) {
+            throw new IllegalArgumentException("Amount must be a positive number");
+        }
     }
 
     /**
@@ -79,19 +223,47 @@ public class Transaction {
     /**
      * Gets the type of the transaction (e.g., "income", "expense", "investment").
      *
-     * @return the transaction type
+     * @return the transaction type name
      */
     public String getTransactionType() {
+        return transactionType.getName();
+    }
+
+    /**
+     * Gets the type of the transaction.
+     *
+     * @return the transaction type
+     */
+    public TransactionType getType() {
         return transactionType;
     }
 
     /**
-     * Gets the amount of money involved in the transaction.
+     * Gets the amount of money involved in the transaction as a double, e.g. for display.
+     * Use getMoney or getAmountMinorUnits for arithmetic.
      *
      * @return the transaction amount
      */
     public double getAmount() {
-        return amount;
+        return Money.toDouble(amountMinorUnits);
+    }
+
+    /**
+     * Gets the amount of money involved in the transaction.
+     *
+     * @return the transaction amount
+     */
+    public Money getMoney() {
+        return Money.ofMinorUnits(amountMinorUnits);
+    }
+
+    /**
+     * Gets the amount of money involved in the transaction in minor units (cents), without allocating.
+     *
+     * @return the transaction amount in minor units
+     */
+    public long getAmountMinorUnits() {
+        return amountMinorUnits;
     }
 
     /**
@@ -112,31 +284,81 @@ public class Transaction {
         return description;
     }
 
+    /**
+     * Gets the security and quantity traded by an investment transaction.
+     *
+     * @return the holding, or null if the transaction records none
+     */
+    public Investment getInvestment() {
+        return investment;
+    }
+
+    /**
+     * Copies the transaction's current fields into an immutable record.
+     *
+     * @return the record
+     */
+    public TransactionRecord toRecord() {
+        return new TransactionRecord(this);
+    }
+
     /**
      * Sets the type of the transaction (e.g., "income", "expense", "investment").
      *
      * @param transactionType the type of transaction
+     * @throws IllegalArgumentException if the type is not valid
      */
     public void setTransactionType(String transactionType) {
-        this.transactionType = transactionType;
+        setType(TransactionType.parse(transactionType));
     }
 
     /**
-     * Sets the amount of money involved in the transaction.
+     * Sets the type of the transaction.
+     *
+     * @param transactionType the type of transaction
+     * @throws IllegalArgumentException if the type is null, or not investment for a transaction with a holding
+     */
+    public void setType(TransactionType transactionType) {
+        if (transactionType == null) {
+            throw new IllegalArgumentException("Transaction type must not be null");
+        }
+        if (investment != null && transactionType != TransactionType.INVESTMENT) {
+            throw new IllegalArgumentException("A transaction with a holding must stay an investment");
+        }
+        update(() -> this.transactionType = transactionType);
+    }
+
+    /**
+     * Sets the amount of money involved in the transaction, rounded half-even to whole cents.
      *
      * @param amount the transaction amount
+     * @throws IllegalArgumentException if the amount is negative or not finite
      */
     public void setAmount(double amount) {
-        this.amount = amount;
+        setMoney(Money.of(amount));
+    }
+
+    /**
+     * Sets the amount of money involved in the transaction.
+     *
+     * @param amount the transaction amount
+     * @throws IllegalArgumentException if the amount is null or negative
+     */
+    public void setMoney(Money amount) {
+        validateAmount(amount);
+        long minorUnits = amount.getMinorUnits();
+        update(() -> this.amountMinorUnits = minorUnits);
     }
 
     /**
      * Sets the date when the transaction occurred.
      *
      * @param transactionDate the transaction date
+     * @throws IllegalArgumentException if the date is null or outside MIN_DATE to MAX_DATE
      */
     public void setTransactionDate(LocalDate transactionDate) {
-        this.transactionDate = transactionDate;
+        validateDate(transactionDate);
+        update(() -> this.transactionDate = transactionDate);
     }
 
     /**
@@ -145,6 +367,29 @@ public class Transaction {
      * @param description the transaction description
      */
     public void setDescription(String description) {
-        this.description = description;
+        update(() -> this.description = description);
+    }
+
+    /**
+     * Sets the handler that every setter change is routed through.
+     *
+     * @param updateHandler the handler, or null to apply changes directly
+     */
+    public void setUpdateHandler(TransactionUpdateHandler updateHandler) {
+        this.updateHandler = updateHandler;
+    }
+
+    /**
+     * Applies a field change, through the update handler if one is set.
+     *
+     * @param change the field assignment to apply
+     */
+    private void update(Runnable change) {
+        TransactionUpdateHandler handler = updateHandler;
+        if (handler == null) {
+            change.run();
+        } else {
+            handler.applyUpdate(this, change);
+        }
     }
 }
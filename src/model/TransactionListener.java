@@ -0,0 +1,68 @@
+package model;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Listener notified by TransactionService after each change to its transactions.
+ * Notifications for one user are delivered in order while that user's ledger is locked,
+ * so implementations must be quick and must not call back into the service for the same user.
+ */
+public interface TransactionListener {
+
+    /**
+     * Called after a transaction has been added.
+     *
+     * @param transaction the new transaction
+     */
+    default void transactionAdded(Transaction transaction) {
+    }
+
+    /**
+     * Called after several transactions of one user have been added by a single batch add,
+     * instead of transactionAdded for each. The default forwards each to transactionAdded;
+     * stores that can append a batch more cheaply override it.
+     *
+     * @param transactions the new transactions
+     */
+    default void transactionsAdded(List<Transaction> transactions) {
+        for (Transaction transaction : transactions) {
+            transactionAdded(transaction);
+        }
+    }
+
+    /**
+     * Called after a transaction has been deleted.
+     *
+     * @param transaction the deleted transaction
+     */
+    default void transactionDeleted(Transaction transaction) {
+    }
+
+    /**
+     * Called after several transactions of one user have been deleted by a single batch delete,
+     * instead of transactionDeleted for each. The default forwards each to transactionDeleted;
+     * stores that can reclaim space in one pass override it.
+     *
+     * @param transactions the deleted transactions
+     */
+    default void transactionsDeleted(List<Transaction> transactions) {
+        for (Transaction transaction : transactions) {
+            transactionDeleted(transaction);
+        }
+    }
+
+    /**
+     * Called after a transaction has been changed through one of its setters.
+     * The transaction already holds its new values; the old values are passed alongside.
+     *
+     * @param transaction     the changed transaction
+     * @param oldType         the transaction type before the change
+     * @param oldAmount       the amount in minor units (cents) before the change
+     * @param oldDate         the transaction date before the change
+     * @param oldDescription  the description before the change
+     */
+    default void transactionUpdated(Transaction transaction, TransactionType oldType, long oldAmount,
+                                    LocalDate oldDate, String oldDescription) {
+    }
+}
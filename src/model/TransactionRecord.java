@@ -0,0 +1,172 @@
+package model;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * An immutable copy of a transaction's fields at one moment, as held by point-in-time ledger snapshots.
+ * Unlike {@link Transaction}, nothing can change it after it is taken, so it can be shared between
+ * snapshots and read from any thread without locking.
+ */
+public final class TransactionRecord {
+
+    private final int transactionId;
+    private final String username;
+    private final TransactionType transactionType;
+
+    // The amount in minor units (cents) of Money.DEFAULT_CURRENCY
+    private final long amountMinorUnits;
+    private final LocalDate transactionDate;
+    private final String description;
+
+    // The security and quantity traded, for investment transactions that record one; null otherwise
+    private final Investment investment;
+
+    /**
+     * Constructor for TransactionRecord.
+     *
+     * @param transaction the transaction whose current fields are copied
+     */
+    TransactionRecord(Transaction transaction) {
+        this.transactionId = transaction.getTransactionId();
+        this.username = transaction.getUsername();
+        this.transactionType = transaction.getType();
+        this.amountMinorUnits = transaction.getAmountMinorUnits();
+        this.transactionDate = transaction.getTransactionDate();
+        this.description = transaction.getDescription();
+        this.investment = transaction.getInvestment();
+    }
+
+    /**
+     * Constructor for TransactionRecord from stored fields, e.g. a row of a snapshot file.
+     * Unlike the Transaction restore constructor, it does not touch the transaction ID counter.
+     *
+     * @param transactionId   the transaction ID
+     * @param username        the username of the user who made the transaction
+     * @param transactionType the type of transaction
+     * @param amount          the amount of money involved in the transaction
+     * @param transactionDate the date when the transaction occurred
+     * @param description     a brief description of the transaction
+     * @param investment      the security and quantity traded, or null
+     */
+    public TransactionRecord(int transactionId, String username, TransactionType transactionType, Money amount,
+                             LocalDate transactionDate, String description, Investment investment) {
+        this.transactionId = transactionId;
+        this.username = username;
+        this.transactionType = transactionType;
+        this.amountMinorUnits = amount.getMinorUnits();
+        this.transactionDate = transactionDate;
+        this.description = description;
+        this.investment = investment;
+    }
+
+    /**
+     * Gets the unique transaction ID.
+     *
+     * @return the transaction ID
+     */
+    public int getTransactionId() {
+        return transactionId;
+    }
+
+    /**
+     * Gets the username of the user who made the transaction.
+     *
+     * @return the username
+     */
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * Gets the type of the transaction (e.g., "income", "expense", "investment").
+     *
+     * @return the transaction type name
+     */
+    public String getTransactionType() {
+        return transactionType.getName();
+    }
+
+    /**
+     * Gets the type of the transaction.
+     *
+     * @return the transaction type
+     */
+    public TransactionType getType() {
+        return transactionType;
+    }
+
+    /**
+     * Gets the amount of money involved in the transaction as a double, e.g. for display.
+     * Use getMoney or getAmountMinorUnits for arithmetic.
+     *
+     * @return the transaction amount
+     */
+    public double getAmount() {
+        return Money.toDouble(amountMinorUnits);
+    }
+
+    /**
+     * Gets the amount of money involved in the transaction.
+     *
+     * @return the transaction amount
+     */
+    public Money getMoney() {
+        return Money.ofMinorUnits(amountMinorUnits);
+    }
+
+    /**
+     * Gets the amount of money involved in the transaction in minor units (cents), without allocating.
+     *
+     * @return the transaction amount in minor units
+     */
+    public long getAmountMinorUnits() {
+        return amountMinorUnits;
+    }
+
+    /**
+     * Gets the date when the transaction occurred.
+     *
+     * @return the transaction date
+     */
+    public LocalDate getTransactionDate() {
+        return transactionDate;
+    }
+
+    /**
+     * Gets the description of the transaction.
+     *
+     * @return the transaction description
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Gets the security and quantity traded by an investment transaction.
+     *
+     * @return the holding, or null if the transaction records none
+     */
+    public Investment getInvestment() {
+        return investment;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof TransactionRecord other && transactionId == other.transactionId
+                && amountMinorUnits == other.amountMinorUnits && transactionType == other.transactionType
+                && username.equals(other.username) && transactionDate.equals(other.transactionDate)
+                && Objects.equals(description, other.description) && Objects.equals(investment, other.investment);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(transactionId, username, transactionType, amountMinorUnits, transactionDate, description, investment);
+    }
+
+    @Override
+    public String toString() {
+        return "#" + transactionId + " " + transactionDate + " " + transactionType.getName() + " "
+                + Money.ofMinorUnits(amountMinorUnits) + (description == null ? "" : " " + description);
+    }
+}
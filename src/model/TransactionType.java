@@ -0,0 +1,90 @@
+package model;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The kinds of transaction a user can record.
+ */
+public enum TransactionType {
+    INCOME("income"),
+    EXPENSE("expense"),
+    INVESTMENT("investment");
+
+    // Cached values() array, since values() clones on every call
+    private static final TransactionType[] VALUES = values();
+
+    // Lookup of the lowercase names used by the String-based APIs
+    private static final Map<String, TransactionType> BY_NAME = new HashMap<>();
+
+    static {
+        for (TransactionType type : VALUES) {
+            BY_NAME.put(type.name, type);
+        }
+    }
+
+    private final String name;
+
+    TransactionType(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Gets the lowercase name of the type, as used by the String-based APIs (e.g., "income").
+     *
+     * @return the type name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Looks up a type by name, ignoring case.
+     * Lowercase names, which is what callers normally pass, are found without converting the string.
+     *
+     * @param name the type name (e.g., "income", "Expense")
+     * @return the matching type, or null if the name is null or not a known type
+     */
+    public static TransactionType lookup(String name) {
+        if (name == null) {
+            return null;
+        }
+        TransactionType type = BY_NAME.get(name);
+        return type != null ? type : BY_NAME.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Parses a type name, ignoring case.
+     *
+     * @param name the type name (e.g., "income", "Expense")
+     * @return the matching type
+     * @throws IllegalArgumentException if the name is not a known type
+     */
+    public static TransactionType parse(String name) {
+        TransactionType type = lookup(name);
+        if (type == null) {
+            throw new IllegalArgumentException("Invalid transaction type: " + name);
+        }
+        return type;
+    }
+
+    /**
+     * Gets the type with the given ordinal.
+     *
+     * @param ordinal the ordinal
+     * @return the type
+     */
+    public static TransactionType fromOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    /**
+     * Gets the number of types.
+     *
+     * @return the number of types
+     */
+    public static int count() {
+        return VALUES.length;
+    }
+}
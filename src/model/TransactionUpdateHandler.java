@@ -0,0 +1,19 @@
+package model;
+
+/**
+ * Callback that a Transaction routes its setter changes through.
+ * Lets the owner of a transaction update anything derived from it (indexes, running totals)
+ * in the same step as the change itself.
+ */
+public interface TransactionUpdateHandler {
+
+    /**
+     * Applies a change to the given transaction.
+     * Implementations must run the change exactly once; the transaction holds its old values
+     * before the change runs and its new values afterwards.
+     *
+     * @param transaction the transaction being changed
+     * @param change      the field assignment to apply
+     */
+    void applyUpdate(Transaction transaction, Runnable change);
+}
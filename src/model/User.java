@@ -1,51 +1,95 @@
 package model;
+import java.util.Objects;
 import java.util.regex.Pattern;
 
 /**
- * Represents a user in the system with an id, email, username, and password.
+ * Represents a user in the system with an id, email, username, and password hash.
+ * The plaintext password is never kept: UserService checks it against the password rules and hashes it.
  */
 public class User {
     private String firstName;
     private String lastName;
     private String email;
     private String username;
-    private String password;
+    private String passwordHash;
 
-    // Regular expression pattern for email validation
-    private static final String EMAIL_PATTERN = "^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+$";
-    private static final String PASSWORD_PATTERN = "^(?=.*[0-9])(?=.*[a-z])(?=.*[A-Z])(?=.*[@#$%^&+=!])(?=\\S+$).{8,}$";
+    // Notified before the username changes, so a repository indexing this user can re-key it
+    private UsernameChangeListener usernameChangeListener;
 
+    // Regular expression pattern for email validation, compiled once
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+$");
 
+    /**
+     * The password rules as a regular expression: at least 8 characters with a digit, a lowercase and an
+     * uppercase letter and one of {@code @#$%^&+=!}, and no whitespace. isValidPassword checks the same
+     * rules in a single pass; this is the reference it must agree with.
+     */
+    public static final String PASSWORD_PATTERN = "^(?=.*[0-9])(?=.*[a-z])(?=.*[A-Z])(?=.*[@#$%^&+=!])(?=\\S+$).{8,}$";
+
+    // Special characters a password must contain one of
+    private static final String PASSWORD_SPECIAL_CHARACTERS = "@#$%^&+=!";
 
     /**
-     * Constructs a User object with the specified id, email, username, and password.
+     * Constructs a User object with the specified id, email, username, and password hash.
      *
      * @param firstName       the user firstname
      * @param lastName       the user lastname
      * @param email     the email address of the user
      * @param username  the username of the user
-     * @param password  the password for the user
+     * @param passwordHash  the hash of the user's password, as made by CredentialService
      */
-    public User(String firstName, String lastName, String email, String username, String password) {
+    public User(String firstName, String lastName, String email, String username, String passwordHash) {
         this.firstName = firstName;
         this.lastName = lastName;
         this.username = username;
-        this.setEmail(email);
-        this.setPassword(password);
+        this.email = requireValidEmail(email);
+        this.passwordHash = requirePasswordHash(passwordHash);
     }
 
     /**
      * Checks if email is valid using pre defined pattern
      */
     public static boolean isValidEmail(String email) {
-        return Pattern.matches(EMAIL_PATTERN, email);
+        return EMAIL_PATTERN.matcher(email).matches();
     }
 
     /**
-     * Checks if password is valid using pre-defined pattern
+     * Checks if password is valid using the rules of {@link #PASSWORD_PATTERN}, in a single pass over the
+     * characters. Characters are counted as code points and line terminators are rejected, as the
+     * pattern's {@code .} does.
      */
     public static boolean isValidPassword(String password) {
-        return Pattern.matches(PASSWORD_PATTERN, password);
+        boolean digit = false;
+        boolean lower = false;
+        boolean upper = false;
+        boolean special = false;
+        int length = 0;
+        for (int i = 0; i < password.length(); ) {
+            int c = password.codePointAt(i);
+            i += Character.charCount(c);
+            length++;
+            if (c >= '0' && c <= '9') {
+                digit = true;
+            } else if (c >= 'a' && c <= 'z') {
+                lower = true;
+            } else if (c >= 'A' && c <= 'Z') {
+                upper = true;
+            } else if (PASSWORD_SPECIAL_CHARACTERS.indexOf(c) >= 0) {
+                special = true;
+            } else if (isWhitespaceOrLineTerminator(c)) {
+                return false;
+            }
+        }
+        return length >= 8 && digit && lower && upper && special;
+    }
+
+    /**
+     * Checks for the characters the password pattern rejects: {@code \s} whitespace and the line
+     * terminators {@code .} does not match.
+     */
+    private static boolean isWhitespaceOrLineTerminator(int c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r'
+                || c == 0x85 || c == 0x2028 || c == 0x2029;
     }
 
 
@@ -100,11 +144,21 @@ public class User {
      * @param email the new email address
      */
     public void setEmail(String email) {
-        if (isValidEmail(email)) {
-            this.email = email;
-        } else {
+        this.email = requireValidEmail(email);
+    }
+
+    /**
+     * Checks an email address before it is stored, for the constructor and setEmail alike.
+     *
+     * @param email the email address
+     * @return the email address
+     * @throws IllegalArgumentException if the address is not valid
+     */
+    private static String requireValidEmail(String email) {
+        if (!isValidEmail(email)) {
             throw new IllegalArgumentException("Invalid email address");
         }
+        return email;
     }
 
     /**
@@ -118,32 +172,55 @@ public class User {
 
     /**
      * Sets the username.
+     * If a listener is registered it is notified first and may reject the new username.
      *
      * @param username the new username
      */
     public void setUsername(String username) {
+        if (usernameChangeListener != null && !Objects.equals(username, this.username)) {
+            usernameChangeListener.usernameChanging(this, this.username, username);
+        }
         this.username = username;
     }
 
     /**
-     * Gets the password.
+     * Sets the listener notified before the username changes.
+     *
+     * @param usernameChangeListener the listener, or null to remove it
+     */
+    public void setUsernameChangeListener(UsernameChangeListener usernameChangeListener) {
+        this.usernameChangeListener = usernameChangeListener;
+    }
+
+    /**
+     * Gets the password hash.
+     *
+     * @return the password hash
+     */
+    public String getPasswordHash() {
+        return this.passwordHash;
+    }
+
+    /**
+     * Sets the password hash.
      *
-     * @return the password
+     * @param passwordHash the new password hash
      */
-    public String getPassword() {
-        return this.password;
+    public void setPasswordHash(String passwordHash) {
+        this.passwordHash = requirePasswordHash(passwordHash);
     }
 
     /**
-     * Sets the password.
+     * Checks a password hash before it is stored, for the constructor and setPasswordHash alike.
      *
-     * @param password the new password
+     * @param passwordHash the password hash
+     * @return the password hash
+     * @throws IllegalArgumentException if the hash is null or empty
      */
-    public void setPassword(String password) {
-        if (isValidPassword(password)){
-            this.password = password;
-        }else{
-            throw new IllegalArgumentException("Invalid password");
+    private static String requirePasswordHash(String passwordHash) {
+        if (passwordHash == null || passwordHash.isEmpty()) {
+            throw new IllegalArgumentException("Password hash must not be empty");
         }
+        return passwordHash;
     }
 }
\ No newline at end of file
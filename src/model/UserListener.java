@@ -0,0 +1,23 @@
+package model;
+
+/**
+ * Listener notified by UserService after each change to its users.
+ */
+public interface UserListener {
+
+    /**
+     * Called after a user has been created or updated.
+     *
+     * @param user the user, holding its new values
+     */
+    default void userSaved(User user) {
+    }
+
+    /**
+     * Called after a user has been deleted.
+     *
+     * @param user the deleted user
+     */
+    default void userDeleted(User user) {
+    }
+}
@@ -0,0 +1,20 @@
+package model;
+
+/**
+ * Callback wrapped by UserRepository around the re-keying of a stored user whose username changes.
+ * Lets a service that keeps state under usernames veto the change, and hold its own locks while the
+ * repository re-keys the user, so that nothing can be stored under the old name in between.
+ */
+public interface UsernameChangeGuard {
+
+    /**
+     * Called before the username of a stored user is changed.
+     *
+     * @param user        the user being renamed
+     * @param oldUsername the current username
+     * @param newUsername the username about to be set
+     * @param rename      re-keys the user in the repository; must be run once unless the change is vetoed
+     * @throws IllegalArgumentException if the change is vetoed
+     */
+    void usernameChanging(User user, String oldUsername, String newUsername, Runnable rename);
+}
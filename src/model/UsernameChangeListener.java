@@ -0,0 +1,18 @@
+package model;
+
+/**
+ * Callback notified by a User right before its username changes.
+ * Lets anything that indexes users by username re-key the user, or veto the change by throwing.
+ */
+public interface UsernameChangeListener {
+
+    /**
+     * Called before the username of the given user is changed.
+     *
+     * @param user        the user being renamed
+     * @param oldUsername the current username
+     * @param newUsername the username about to be set
+     * @throws IllegalArgumentException if the new username cannot be accepted
+     */
+    void usernameChanging(User user, String oldUsername, String newUsername);
+}
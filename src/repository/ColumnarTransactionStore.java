@@ -0,0 +1,697 @@
+package repository;
+
+import model.Money;
+import model.Transaction;
+import model.TransactionListener;
+import model.TransactionType;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Column-oriented, primitive-backed copy of the transactions of a TransactionService, for analytics scans.
+ * Register it with TransactionService.addListenerWithBackfill and it copies the transactions already stored,
+ * then mirrors every add, delete and setter change.
+ *
+ * <p>Each transaction is one row spread over parallel arrays: amounts as long[] cents, dates as epoch-day int[],
+ * types as byte ordinals of TransactionType, and usernames and descriptions as int IDs into string
+ * dictionaries. Aggregations are therefore tight loops over primitive arrays, with no per-row objects
+ * to chase. Deleted rows are tombstoned and reclaimed by compaction once they make up half of a segment.
+ *
+ * <p>The rows are split into segments by the hash of the username, the same way TransactionService picks
+ * a user's lock stripe, and each segment has its own columns, dictionaries and read-write lock. Writers for
+ * users in different segments therefore do not contend, and a user's rows all live in one segment.
+ * Each segment also indexes the rows of each user, so per-user queries read only that user's rows.
+ */
+public class ColumnarTransactionStore implements TransactionListener {
+
+    // Type code stored for a deleted row
+    private static final byte TOMBSTONE = -1;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // Fewest rows a parallel scan hands to one task
+    private static final int MIN_ROWS_PER_TASK = 1 << 14;
+
+    // Segments holding the rows; a user's rows are in segmentFor(username)
+    private final Segment[] segments;
+
+    /**
+     * Constructor for ColumnarTransactionStore.
+     * Uses four segments per available processor.
+     */
+    public ColumnarTransactionStore() {
+        this(4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor for ColumnarTransactionStore with an explicit number of segments.
+     *
+     * @param segmentCount the number of segments the users are spread over, rounded up to a power of two
+     */
+    public ColumnarTransactionStore(int segmentCount) {
+        if (segmentCount < 1) {
+            throw new IllegalArgumentException("Segment count must be at least 1");
+        }
+        int count = 1;
+        while (count < segmentCount) {
+            count <<= 1;
+        }
+        this.segments = new Segment[count];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * Gets the segment holding a user's rows.
+     *
+     * @param username the username
+     * @return the segment for that user
+     */
+    private Segment segmentFor(String username) {
+        int hash = username.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+    }
+
+    @Override
+    public void transactionAdded(Transaction transaction) {
+        Segment segment = segmentFor(transaction.getUsername());
+        segment.lock.writeLock().lock();
+        try {
+            segment.append(transaction);
+        } finally {
+            segment.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void transactionsAdded(List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        // The transactions of one batch belong to one user, so they share a segment
+        Segment segment = segmentFor(transactions.get(0).getUsername());
+        segment.lock.writeLock().lock();
+        try {
+            for (Transaction transaction : transactions) {
+                segment.append(transaction);
+            }
+        } finally {
+            segment.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void transactionDeleted(Transaction transaction) {
+        Segment segment = segmentFor(transaction.getUsername());
+        segment.lock.writeLock().lock();
+        try {
+            segment.tombstone(transaction);
+            segment.compactIfSparse();
+        } finally {
+            segment.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void transactionsDeleted(List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        Segment segment = segmentFor(transactions.get(0).getUsername());
+        segment.lock.writeLock().lock();
+        try {
+            for (Transaction transaction : transactions) {
+                segment.tombstone(transaction);
+            }
+            segment.compactIfSparse();
+        } finally {
+            segment.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void transactionUpdated(Transaction transaction, TransactionType oldType, long oldAmount,
+                                   LocalDate oldDate, String oldDescription) {
+        Segment segment = segmentFor(transaction.getUsername());
+        segment.lock.writeLock().lock();
+        try {
+            int row = segment.rowsById.get(transaction.getTransactionId());
+            if (row >= 0) {
+                segment.writeValues(row, transaction);
+            }
+        } finally {
+            segment.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Calculates the total amount for a transaction type for a user from the user's rows.
+     *
+     * @param username        the username
+     * @param transactionType the transaction type (e.g., "income", "expense")
+     * @return the total amount, or 0 if there are no matching rows
+     */
+    public double getTotalAmountByType(String username, String transactionType) {
+        return getTotalAmountByTypeBetween(username, transactionType, LocalDate.MIN, LocalDate.MAX);
+    }
+
+    /**
+     * Calculates the total amount for a transaction type for a user within a date range.
+     * Reads only the user's own rows, in O(rows of the user).
+     *
+     * @param username        the username
+     * @param transactionType the transaction type (e.g., "income", "expense")
+     * @param from            the first date of the range, inclusive
+     * @param to              the last date of the range, inclusive
+     * @return the total amount, or 0 if there are no matching rows
+     */
+    public double getTotalAmountByTypeBetween(String username, String transactionType, LocalDate from, LocalDate to) {
+        byte type = typeCode(transactionType);
+        long fromDay = from.toEpochDay();
+        long toDay = to.toEpochDay();
+
+        Segment segment = segmentFor(username);
+        segment.lock.readLock().lock();
+        try {
+            int userId = segment.usernames.lookup(username);
+            if (userId < 0 || type < 0) {
+                return 0;
+            }
+
+            int[] rows = segment.userRows[userId];
+            int count = segment.userRowCounts[userId];
+            long sum = 0;
+            for (int i = 0; i < count; i++) {
+                int row = rows[i];
+                if (segment.types[row] == type && segment.epochDays[row] >= fromDay && segment.epochDays[row] <= toDay) {
+                    sum = Money.add(sum, segment.amounts[row]);
+                }
+            }
+            return Money.toDouble(sum);
+        } finally {
+            segment.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Calculates the total amount for a transaction type for every user in one scan over the columns.
+     * Segments are scanned one at a time under their own read lock, so each user's total is complete,
+     * but changes made during the call may or may not be included.
+     *
+     * @param transactionType the transaction type (e.g., "income", "expense")
+     * @return the totals keyed by username; users without matching rows are absent
+     */
+    public Map<String, Double> getTotalAmountByTypeForAllUsers(String transactionType) {
+        byte type = typeCode(transactionType);
+        Map<String, Double> totals = new HashMap<>();
+        if (type < 0) {
+            return totals;
+        }
+
+        for (Segment segment : segments) {
+            segment.lock.readLock().lock();
+            try {
+                long[] sums = new long[segment.usernames.size()];
+                boolean[] seen = new boolean[segment.usernames.size()];
+                for (int row = 0; row < segment.size; row++) {
+                    if (segment.types[row] == type) {
+                        int userId = segment.userIds[row];
+                        sums[userId] = Money.add(sums[userId], segment.amounts[row]);
+                        seen[userId] = true;
+                    }
+                }
+                for (int userId = 0; userId < sums.length; userId++) {
+                    if (seen[userId]) {
+                        totals.put(segment.usernames.decode(userId), Money.toDouble(sums[userId]));
+                    }
+                }
+            } finally {
+                segment.lock.readLock().unlock();
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Calculates the total amount of every transaction type for every user in one parallel scan.
+     *
+     * <p>Each segment is scanned as a fork-join task under its own read lock, and segments with many rows are
+     * split further into ranges. Each thread adds into its own user-by-type partial array per segment, so the
+     * scan shares nothing between threads, and the partials are summed once at the end of the segment.
+     * The sums are exact, so they do not depend on how the rows were split. As with
+     * getTotalAmountByTypeForAllUsers, each user's totals are complete but segments are not read at one instant.
+     *
+     * @param pool the pool to scan on
+     * @return the totals in minor units indexed by TransactionType ordinal, keyed by username; users without
+     * rows are absent
+     * @throws ArithmeticException if a total overflows
+     */
+    public Map<String, long[]> getTotalsByTypeForAllUsers(ForkJoinPool pool) {
+        int tasksPerSegment = Math.max(1, pool.getParallelism() * 8 / segments.length);
+        SegmentTotalsTask[] tasks = new SegmentTotalsTask[segments.length];
+        for (int i = 0; i < segments.length; i++) {
+            tasks[i] = new SegmentTotalsTask(segments[i], tasksPerSegment);
+        }
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+
+        Map<String, long[]> totals = new HashMap<>();
+        for (SegmentTotalsTask task : tasks) {
+            totals.putAll(task.getRawResult());
+        }
+        return totals;
+    }
+
+    /**
+     * Fork-join task summing the rows of one segment by user and type, under the segment's read lock.
+     */
+    @SuppressWarnings("serial") // fork-join tasks are never serialized
+    private static final class SegmentTotalsTask extends RecursiveTask<Map<String, long[]>> {
+
+        private final Segment segment;
+        private final int tasks;
+
+        SegmentTotalsTask(Segment segment, int tasks) {
+            this.segment = segment;
+            this.tasks = tasks;
+        }
+
+        @Override
+        protected Map<String, long[]> compute() {
+            segment.lock.readLock().lock();
+            try {
+                int userCount = segment.usernames.size();
+                int stride = TransactionType.count() + 1;
+                int rowsPerTask = Math.max(MIN_ROWS_PER_TASK, segment.size / tasks + 1);
+                Map<Thread, long[]> partials = new ConcurrentHashMap<>();
+                new ScanTask(segment, 0, segment.size, rowsPerTask, partials, userCount * stride).invoke();
+
+                long[] sums = new long[userCount * stride];
+                for (long[] partial : partials.values()) {
+                    for (int i = 0; i < sums.length; i++) {
+                        sums[i] = Money.add(sums[i], partial[i]);
+                    }
+                }
+
+                Map<String, long[]> totals = new HashMap<>();
+                for (int userId = 0; userId < userCount; userId++) {
+                    int offset = userId * stride;
+                    if (sums[offset + stride - 1] > 0) {
+                        totals.put(segment.usernames.decode(userId), Arrays.copyOfRange(sums, offset, offset + stride - 1));
+                    }
+                }
+                return totals;
+            } finally {
+                segment.lock.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Fork-join task summing a range of a segment's rows into the calling thread's partial array. Each user has
+     * a slot per type ordinal followed by a count of its rows, so users with no live rows can be told apart.
+     * Runs while the SegmentTotalsTask that started it holds the segment's read lock.
+     */
+    @SuppressWarnings("serial") // fork-join tasks are never serialized
+    private static final class ScanTask extends RecursiveAction {
+
+        private final Segment segment;
+        private final int from;
+        private final int to;
+        private final int rowsPerTask;
+        private final Map<Thread, long[]> partials;
+        private final int partialLength;
+
+        ScanTask(Segment segment, int from, int to, int rowsPerTask, Map<Thread, long[]> partials, int partialLength) {
+            this.segment = segment;
+            this.from = from;
+            this.to = to;
+            this.rowsPerTask = rowsPerTask;
+            this.partials = partials;
+            this.partialLength = partialLength;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > rowsPerTask) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ScanTask(segment, from, middle, rowsPerTask, partials, partialLength),
+                        new ScanTask(segment, middle, to, rowsPerTask, partials, partialLength));
+                return;
+            }
+            long[] partial = partials.computeIfAbsent(Thread.currentThread(), thread -> new long[partialLength]);
+            int stride = TransactionType.count() + 1;
+            byte[] types = segment.types;
+            int[] userIds = segment.userIds;
+            long[] amounts = segment.amounts;
+            for (int row = from; row < to; row++) {
+                byte type = types[row];
+                if (type != TOMBSTONE) {
+                    int offset = userIds[row] * stride;
+                    partial[offset + type] = Money.add(partial[offset + type], amounts[row]);
+                    partial[offset + stride - 1]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the number of live (not deleted) rows.
+     *
+     * @return the row count
+     */
+    public int getRowCount() {
+        int rows = 0;
+        for (Segment segment : segments) {
+            segment.lock.readLock().lock();
+            try {
+                rows += segment.size - segment.deletedRows;
+            } finally {
+                segment.lock.readLock().unlock();
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Estimates the heap used by the column arrays, the ID maps and the per-user row indexes, excluding the
+     * dictionary strings.
+     *
+     * @return the estimated size in bytes
+     */
+    public long estimateMemoryBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            segment.lock.readLock().lock();
+            try {
+                bytes += segment.estimateMemoryBytes();
+            } finally {
+                segment.lock.readLock().unlock();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Maps a transaction type name to its byte code.
+     *
+     * @param transactionType the transaction type name, in any case
+     * @return the code, or -1 if the type is not known
+     */
+    private static byte typeCode(String transactionType) {
+        TransactionType type = TransactionType.lookup(transactionType);
+        return type == null ? TOMBSTONE : (byte) type.ordinal();
+    }
+
+    /**
+     * The rows of the users whose names hash to one segment, with their own lock.
+     * Scans share the read lock, mutations take the write lock; the methods expect the caller to hold it.
+     */
+    private static final class Segment {
+
+        // Guards all of the segment's fields
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        // Column arrays, all of length capacity; rows [0, size) are in use
+        private int[] transactionIds = new int[INITIAL_CAPACITY];
+        private int[] userIds = new int[INITIAL_CAPACITY];
+        private byte[] types = new byte[INITIAL_CAPACITY];
+        private long[] amounts = new long[INITIAL_CAPACITY];
+        private int[] epochDays = new int[INITIAL_CAPACITY];
+        private int[] descriptionIds = new int[INITIAL_CAPACITY];
+        private int size;
+        private int deletedRows;
+
+        // Transaction ID to row index
+        private final IntIntMap rowsById = new IntIntMap();
+
+        // Row indexes of each user's rows, by user ID, including tombstoned rows until the next compaction
+        private int[][] userRows = new int[16][];
+        private int[] userRowCounts = new int[16];
+
+        // Dictionary encodings of usernames and descriptions
+        private final StringDictionary usernames = new StringDictionary();
+        private final StringDictionary descriptions = new StringDictionary();
+
+        /**
+         * Appends a transaction as a new row.
+         *
+         * @param transaction the transaction to copy from
+         */
+        void append(Transaction transaction) {
+            if (size == transactionIds.length) {
+                grow();
+            }
+            int row = size++;
+            int userId = usernames.encode(transaction.getUsername());
+            transactionIds[row] = transaction.getTransactionId();
+            userIds[row] = userId;
+            writeValues(row, transaction);
+            rowsById.put(transaction.getTransactionId(), row);
+            indexUserRow(userId, row);
+        }
+
+        /**
+         * Writes the mutable values of a transaction into a row.
+         *
+         * @param row         the row index
+         * @param transaction the transaction to copy from
+         */
+        void writeValues(int row, Transaction transaction) {
+            types[row] = (byte) transaction.getType().ordinal();
+            amounts[row] = transaction.getAmountMinorUnits();
+            epochDays[row] = Math.toIntExact(transaction.getTransactionDate().toEpochDay());
+            descriptionIds[row] = descriptions.encode(transaction.getDescription());
+        }
+
+        /**
+         * Adds a row to the index of its user's rows.
+         */
+        private void indexUserRow(int userId, int row) {
+            if (userId == userRows.length) {
+                userRows = Arrays.copyOf(userRows, userId * 2);
+                userRowCounts = Arrays.copyOf(userRowCounts, userId * 2);
+            }
+            int[] rows = userRows[userId];
+            int count = userRowCounts[userId];
+            if (rows == null) {
+                rows = new int[4];
+                userRows[userId] = rows;
+            } else if (count == rows.length) {
+                rows = Arrays.copyOf(rows, count * 2);
+                userRows[userId] = rows;
+            }
+            rows[count] = row;
+            userRowCounts[userId] = count + 1;
+        }
+
+        /**
+         * Doubles the capacity of every column.
+         */
+        private void grow() {
+            int capacity = transactionIds.length * 2;
+            transactionIds = Arrays.copyOf(transactionIds, capacity);
+            userIds = Arrays.copyOf(userIds, capacity);
+            types = Arrays.copyOf(types, capacity);
+            amounts = Arrays.copyOf(amounts, capacity);
+            epochDays = Arrays.copyOf(epochDays, capacity);
+            descriptionIds = Arrays.copyOf(descriptionIds, capacity);
+        }
+
+        /**
+         * Marks a transaction's row as deleted.
+         */
+        void tombstone(Transaction transaction) {
+            int row = rowsById.remove(transaction.getTransactionId());
+            if (row >= 0) {
+                types[row] = TOMBSTONE;
+                deletedRows++;
+            }
+        }
+
+        /**
+         * Compacts once deleted rows make up half of the segment.
+         */
+        void compactIfSparse() {
+            if (deletedRows > INITIAL_CAPACITY && deletedRows * 2 > size) {
+                compact();
+            }
+        }
+
+        /**
+         * Removes tombstoned rows by sliding the live rows down, then rebuilds the ID map and the user row index.
+         */
+        private void compact() {
+            Arrays.fill(userRowCounts, 0);
+            int live = 0;
+            for (int row = 0; row < size; row++) {
+                if (types[row] == TOMBSTONE) {
+                    continue;
+                }
+                transactionIds[live] = transactionIds[row];
+                userIds[live] = userIds[row];
+                types[live] = types[row];
+                amounts[live] = amounts[row];
+                epochDays[live] = epochDays[row];
+                descriptionIds[live] = descriptionIds[row];
+                rowsById.put(transactionIds[live], live);
+                indexUserRow(userIds[live], live);
+                live++;
+            }
+            size = live;
+            deletedRows = 0;
+        }
+
+        long estimateMemoryBytes() {
+            long perRow = Integer.BYTES * 4L + Byte.BYTES + Long.BYTES;
+            long bytes = perRow * transactionIds.length + rowsById.estimateMemoryBytes();
+            bytes += (long) (Integer.BYTES + 8) * userRows.length;
+            for (int userId = 0; userId < usernames.size(); userId++) {
+                bytes += (long) Integer.BYTES * userRows[userId].length;
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * Dictionary encoding of strings to dense int IDs.
+     */
+    private static final class StringDictionary {
+
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int encode(String value) {
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = values.size();
+                ids.put(value, id);
+                values.add(value);
+            }
+            return id;
+        }
+
+        int lookup(String value) {
+            return ids.getOrDefault(value, -1);
+        }
+
+        String decode(int id) {
+            return values.get(id);
+        }
+
+        int size() {
+            return values.size();
+        }
+    }
+
+    /**
+     * Open-addressing map from int keys to non-negative int values, avoiding boxed entries.
+     */
+    private static final class IntIntMap {
+
+        private static final int EMPTY = Integer.MIN_VALUE;
+        private static final int REMOVED = Integer.MIN_VALUE + 1;
+
+        private int[] keys = newTable(1024);
+        private int[] values = new int[1024];
+        private int used;
+
+        private static int[] newTable(int capacity) {
+            int[] table = new int[capacity];
+            Arrays.fill(table, EMPTY);
+            return table;
+        }
+
+        private int slot(int key) {
+            int mixed = key * 0x9E3779B9;
+            return (mixed ^ (mixed >>> 16)) & (keys.length - 1);
+        }
+
+        void put(int key, int value) {
+            if ((used + 1) * 2 > keys.length) {
+                rehash();
+            }
+            int slot = slot(key);
+            int firstRemoved = -1;
+            while (keys[slot] != EMPTY) {
+                if (keys[slot] == key) {
+                    values[slot] = value;
+                    return;
+                }
+                if (keys[slot] == REMOVED && firstRemoved < 0) {
+                    firstRemoved = slot;
+                }
+                slot = (slot + 1) & (keys.length - 1);
+            }
+            if (firstRemoved >= 0) {
+                slot = firstRemoved;
+            } else {
+                used++;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+        }
+
+        int get(int key) {
+            int slot = slot(key);
+            while (keys[slot] != EMPTY) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+                slot = (slot + 1) & (keys.length - 1);
+            }
+            return -1;
+        }
+
+        int remove(int key) {
+            int slot = slot(key);
+            while (keys[slot] != EMPTY) {
+                if (keys[slot] == key) {
+                    keys[slot] = REMOVED;
+                    return values[slot];
+                }
+                slot = (slot + 1) & (keys.length - 1);
+            }
+            return -1;
+        }
+
+        private void rehash() {
+            int[] oldKeys = keys;
+            int[] oldValues = values;
+            int live = 0;
+            for (int key : oldKeys) {
+                if (key != EMPTY && key != REMOVED) {
+                    live++;
+                }
+            }
+            int capacity = oldKeys.length;
+            while (live * 4 >= capacity) {
+                capacity *= 2;
+            }
+            keys = newTable(capacity);
+            values = new int[capacity];
+            used = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY && oldKeys[i] != REMOVED) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        long estimateMemoryBytes() {
+            return (long) Integer.BYTES * 2 * keys.length;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package repository;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Makes the entries of a directory durable.
+ *
+ * <p>Fsyncing a file makes its contents durable but not its name: after a crash the directory may still
+ * hold the entries it had before a create, rename or delete. Callers force the directory after such a
+ * change whenever later work (deleting log segments the new file replaces, say) depends on it.
+ */
+final class DirectorySync {
+
+    // Windows cannot open a directory as a channel; its file systems commit renames without one
+    private static final boolean SUPPORTED = !System.getProperty("os.name", "").startsWith("Windows");
+
+    private DirectorySync() {
+    }
+
+    /**
+     * Fsyncs a directory, making every create, rename and delete of its entries so far durable.
+     *
+     * @param directory the directory
+     * @throws IOException if the directory cannot be opened or forced
+     */
+    static void force(Path directory) throws IOException {
+        if (!SUPPORTED) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+}
@@ -0,0 +1,485 @@
+package repository;
+
+import model.Money;
+import model.Transaction;
+import model.TransactionRecord;
+import model.TransactionType;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Read-only view of transactions stored in a fixed-width, versioned file that is memory-mapped and queried
+ * in place. Opening a snapshot maps the file and reads its header only, so it takes the same time for any
+ * number of rows; rows are decoded when a query touches them.
+ *
+ * <p>File layout (all integers big-endian):
+ * <pre>
+ *   header            64 bytes   magic, version, row count, user count, description count, section offsets
+ *   user directory    48 bytes per user, sorted by the UTF-8 bytes of the username:
+ *                     name offset, name length, first row, row count, total in cents per TransactionType
+ *   descriptions      12 bytes per distinct description: offset and length in the string heap (-1 for null)
+ *   rows              32 bytes per transaction, grouped by user and ordered by date and then by ID:
+ *                     ID, user index, amount in cents, epoch day, description index, type ordinal
+ *   string heap       UTF-8 bytes of the usernames and descriptions
+ * </pre>
+ *
+ * <p>The holdings of investment transactions (Transaction.getInvestment) are not stored: the snapshot serves
+ * amount analytics, and positions are rebuilt from the write-ahead log and SnapshotFile instead.
+ */
+public class MappedTransactionSnapshot {
+
+    private static final int MAGIC = 0x50464d31; // "PFM1"
+    private static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 64;
+    private static final int HEADER_FIELDS_BYTES = 56;
+    private static final int USER_ENTRY_BYTES = 48;
+    private static final int DESCRIPTION_ENTRY_BYTES = 12;
+    private static final int ROW_BYTES = 32;
+
+    // Offsets of the fields within a user directory entry
+    private static final int USER_NAME_OFFSET = 0;
+    private static final int USER_NAME_LENGTH = 8;
+    private static final int USER_FIRST_ROW = 12;
+    private static final int USER_ROW_COUNT = 16;
+    private static final int USER_TOTALS = 24;
+
+    // Offsets of the fields within a row
+    private static final int ROW_ID = 0;
+    private static final int ROW_USER = 4;
+    private static final int ROW_AMOUNT = 8;
+    private static final int ROW_EPOCH_DAY = 16;
+    private static final int ROW_DESCRIPTION = 20;
+    private static final int ROW_TYPE = 24;
+
+    // Rows are mapped in chunks, since one mapping cannot exceed 2 GB
+    private static final int ROWS_PER_CHUNK_SHIFT = 25;
+    private static final int ROWS_PER_CHUNK = 1 << ROWS_PER_CHUNK_SHIFT;
+
+    private final long rowCount;
+    private final int userCount;
+    private final ByteBuffer users;
+    private final ByteBuffer descriptions;
+    private final ByteBuffer[] rowChunks;
+    private final ByteBuffer strings;
+
+    private MappedTransactionSnapshot(FileChannel channel) throws IOException {
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not a mapped transaction snapshot");
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported mapped snapshot version " + version);
+        }
+        this.rowCount = header.getLong();
+        this.userCount = header.getInt();
+        int descriptionCount = header.getInt();
+        long usersOffset = header.getLong();
+        long descriptionsOffset = header.getLong();
+        long rowsOffset = header.getLong();
+        long stringsOffset = header.getLong();
+
+        this.users = channel.map(FileChannel.MapMode.READ_ONLY, usersOffset, (long) userCount * USER_ENTRY_BYTES);
+        this.descriptions = channel.map(FileChannel.MapMode.READ_ONLY, descriptionsOffset,
+                (long) descriptionCount * DESCRIPTION_ENTRY_BYTES);
+
+        int chunks = (int) ((rowCount + ROWS_PER_CHUNK - 1) >>> ROWS_PER_CHUNK_SHIFT);
+        this.rowChunks = new ByteBuffer[chunks];
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            long firstRow = (long) chunk << ROWS_PER_CHUNK_SHIFT;
+            long rows = Math.min(ROWS_PER_CHUNK, rowCount - firstRow);
+            rowChunks[chunk] = channel.map(FileChannel.MapMode.READ_ONLY, rowsOffset + firstRow * ROW_BYTES, rows * ROW_BYTES);
+        }
+        this.strings = channel.map(FileChannel.MapMode.READ_ONLY, stringsOffset, channel.size() - stringsOffset);
+    }
+
+    /**
+     * Opens a snapshot file by mapping it into memory.
+     * The file itself is closed again right away; the mappings stay valid until they are garbage collected.
+     *
+     * @param file the snapshot file
+     * @return the read-only view
+     * @throws IOException if the file cannot be mapped or is not a supported snapshot
+     */
+    public static MappedTransactionSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new MappedTransactionSnapshot(channel);
+        }
+    }
+
+    /**
+     * Gets the number of transactions in the snapshot.
+     *
+     * @return the row count
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Gets the number of users with transactions in the snapshot.
+     *
+     * @return the user count
+     */
+    public int getUserCount() {
+        return userCount;
+    }
+
+    /**
+     * Retrieves all transactions of a user, decoding only that user's rows.
+     * The rows are returned as immutable TransactionRecords, so reading a snapshot creates no Transactions
+     * and leaves the transaction ID counter alone.
+     *
+     * @param username the username
+     * @return the user's transactions ordered by date and then by ID, empty if the user has none
+     */
+    public List<TransactionRecord> getTransactionsByUser(String username) {
+        int user = findUser(username);
+        if (user < 0) {
+            return new ArrayList<>();
+        }
+        long first = firstRow(user);
+        return readRows(username, first, first + rowCountOf(user));
+    }
+
+    /**
+     * Retrieves a user's transactions dated within a range, locating the range by binary search.
+     *
+     * @param username the username
+     * @param from     the first date of the range, inclusive
+     * @param to       the last date of the range, inclusive
+     * @return the user's transactions in the range, ordered by date and then by ID
+     */
+    public List<TransactionRecord> getTransactionsByUserBetween(String username, LocalDate from, LocalDate to) {
+        int user = findUser(username);
+        if (user < 0) {
+            return new ArrayList<>();
+        }
+        long first = firstRow(user);
+        long end = first + rowCountOf(user);
+        return readRows(username, lowerBound(first, end, from.toEpochDay()), lowerBound(first, end, to.toEpochDay() + 1));
+    }
+
+    /**
+     * Gets the total amount for a transaction type for a user, from the totals stored in the user directory.
+     *
+     * @param username        the username
+     * @param transactionType the transaction type (e.g., "income", "expense")
+     * @return the total, or 0 if the user or the type is unknown
+     */
+    public double getTotalAmountByType(String username, String transactionType) {
+        TransactionType type = TransactionType.lookup(transactionType);
+        return type == null ? 0 : getTotalAmountByType(username, type);
+    }
+
+    /**
+     * Gets the total amount for a transaction type for a user, from the totals stored in the user directory.
+     *
+     * @param username        the username
+     * @param transactionType the transaction type
+     * @return the total, or 0 if the user is unknown
+     */
+    public double getTotalAmountByType(String username, TransactionType transactionType) {
+        return getTotalByType(username, transactionType).toDouble();
+    }
+
+    /**
+     * Gets the exact total for a transaction type for a user, from the totals stored in the user directory.
+     *
+     * @param username        the username
+     * @param transactionType the transaction type
+     * @return the total, zero if the user is unknown
+     */
+    public Money getTotalByType(String username, TransactionType transactionType) {
+        int user = findUser(username);
+        if (user < 0) {
+            return Money.ZERO;
+        }
+        return Money.ofMinorUnits(users.getLong(user * USER_ENTRY_BYTES + USER_TOTALS + transactionType.ordinal() * Long.BYTES));
+    }
+
+    /**
+     * Gets the total amount for a transaction type for a user within a date range, summing the rows in place.
+     *
+     * @param username        the username
+     * @param transactionType the transaction type
+     * @param from            the first date of the range, inclusive
+     * @param to              the last date of the range, inclusive
+     * @return the total, or 0 if the user is unknown
+     */
+    public double getTotalAmountByTypeBetween(String username, TransactionType transactionType, LocalDate from, LocalDate to) {
+        return getTotalByTypeBetween(username, transactionType, from, to).toDouble();
+    }
+
+    /**
+     * Gets the exact total for a transaction type for a user within a date range, summing the rows in place.
+     *
+     * @param username        the username
+     * @param transactionType the transaction type
+     * @param from            the first date of the range, inclusive
+     * @param to              the last date of the range, inclusive
+     * @return the total, zero if the user is unknown
+     */
+    public Money getTotalByTypeBetween(String username, TransactionType transactionType, LocalDate from, LocalDate to) {
+        int user = findUser(username);
+        if (user < 0) {
+            return Money.ZERO;
+        }
+        long first = firstRow(user);
+        long end = first + rowCountOf(user);
+        long sum = 0;
+        for (long row = lowerBound(first, end, from.toEpochDay()), last = lowerBound(first, end, to.toEpochDay() + 1); row < last; row++) {
+            ByteBuffer chunk = chunkOf(row);
+            int offset = offsetOf(row);
+            if (chunk.get(offset + ROW_TYPE) == transactionType.ordinal()) {
+                sum = Money.add(sum, chunk.getLong(offset + ROW_AMOUNT));
+            }
+        }
+        return Money.ofMinorUnits(sum);
+    }
+
+    /**
+     * Writes the given transactions to a new snapshot file, replacing any existing one atomically.
+     *
+     * @param file         the snapshot file
+     * @param transactions the transactions to store
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path file, Collection<Transaction> transactions) throws IOException {
+        // Group by user, ordering users by the unsigned bytes of their UTF-8 names for binary search
+        Map<byte[], List<Transaction>> byUser = new TreeMap<>(Arrays::compareUnsigned);
+        for (Transaction transaction : transactions) {
+            byUser.computeIfAbsent(transaction.getUsername().getBytes(StandardCharsets.UTF_8), key -> new ArrayList<>()).add(transaction);
+        }
+
+        // Lay out the string heap: usernames first, then each distinct description once
+        List<byte[]> strings = new ArrayList<>();
+        long heapSize = 0;
+        long[] nameOffsets = new long[byUser.size()];
+        int user = 0;
+        for (byte[] name : byUser.keySet()) {
+            nameOffsets[user++] = heapSize;
+            strings.add(name);
+            heapSize += name.length;
+        }
+        Map<String, Integer> descriptionIndexes = new HashMap<>();
+        List<long[]> descriptionEntries = new ArrayList<>();
+        for (Transaction transaction : transactions) {
+            String description = transaction.getDescription();
+            if (!descriptionIndexes.containsKey(description)) {
+                descriptionIndexes.put(description, descriptionEntries.size());
+                if (description == null) {
+                    descriptionEntries.add(new long[]{-1, 0});
+                } else {
+                    byte[] bytes = description.getBytes(StandardCharsets.UTF_8);
+                    descriptionEntries.add(new long[]{heapSize, bytes.length});
+                    strings.add(bytes);
+                    heapSize += bytes.length;
+                }
+            }
+        }
+
+        long usersOffset = HEADER_BYTES;
+        long descriptionsOffset = usersOffset + (long) byUser.size() * USER_ENTRY_BYTES;
+        long rowsOffset = descriptionsOffset + (long) descriptionEntries.size() * DESCRIPTION_ENTRY_BYTES;
+        long stringsOffset = rowsOffset + (long) transactions.size() * ROW_BYTES;
+        if (heapSize > Integer.MAX_VALUE) {
+            throw new IOException("Usernames and descriptions exceed the 2 GB string heap limit");
+        }
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(transactions.size());
+            out.writeInt(byUser.size());
+            out.writeInt(descriptionEntries.size());
+            out.writeLong(usersOffset);
+            out.writeLong(descriptionsOffset);
+            out.writeLong(rowsOffset);
+            out.writeLong(stringsOffset);
+            out.write(new byte[HEADER_BYTES - HEADER_FIELDS_BYTES]);
+
+            // User directory
+            user = 0;
+            int firstRow = 0;
+            for (Map.Entry<byte[], List<Transaction>> entry : byUser.entrySet()) {
+                List<Transaction> userTransactions = entry.getValue();
+                userTransactions.sort(Comparator.comparing(Transaction::getTransactionDate).thenComparingInt(Transaction::getTransactionId));
+                long[] totals = new long[TransactionType.count()];
+                for (Transaction transaction : userTransactions) {
+                    int type = transaction.getType().ordinal();
+                    totals[type] = Money.add(totals[type], transaction.getAmountMinorUnits());
+                }
+
+                out.writeLong(nameOffsets[user]);
+                out.writeInt(entry.getKey().length);
+                out.writeInt(firstRow);
+                out.writeInt(userTransactions.size());
+                out.writeInt(0);
+                for (long total : totals) {
+                    out.writeLong(total);
+                }
+                out.write(new byte[USER_ENTRY_BYTES - USER_TOTALS - totals.length * Long.BYTES]);
+                firstRow += userTransactions.size();
+                user++;
+            }
+
+            // Description table
+            for (long[] description : descriptionEntries) {
+                out.writeLong(description[0]);
+                out.writeInt((int) description[1]);
+            }
+
+            // Rows
+            user = 0;
+            for (List<Transaction> userTransactions : byUser.values()) {
+                for (Transaction transaction : userTransactions) {
+                    out.writeInt(transaction.getTransactionId());
+                    out.writeInt(user);
+                    out.writeLong(transaction.getAmountMinorUnits());
+                    out.writeInt(Math.toIntExact(transaction.getTransactionDate().toEpochDay()));
+                    out.writeInt(descriptionIndexes.get(transaction.getDescription()));
+                    out.writeByte(transaction.getType().ordinal());
+                    out.write(new byte[ROW_BYTES - ROW_TYPE - 1]);
+                }
+                user++;
+            }
+
+            // String heap
+            for (byte[] string : strings) {
+                out.write(string);
+            }
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        DirectorySync.force(file.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Finds a user in the directory by binary search on the UTF-8 bytes of the username.
+     *
+     * @param username the username
+     * @return the user index, or -1 if the user has no transactions in the snapshot
+     */
+    private int findUser(String username) {
+        byte[] name = username.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = userCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compareName(middle, name);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Compares the stored name of a user with the given bytes, unsigned and lexicographically.
+     */
+    private int compareName(int user, byte[] name) {
+        int offset = (int) users.getLong(user * USER_ENTRY_BYTES + USER_NAME_OFFSET);
+        int length = users.getInt(user * USER_ENTRY_BYTES + USER_NAME_LENGTH);
+        for (int i = 0, common = Math.min(length, name.length); i < common; i++) {
+            int comparison = Byte.compareUnsigned(strings.get(offset + i), name[i]);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return Integer.compare(length, name.length);
+    }
+
+    private long firstRow(int user) {
+        return users.getInt(user * USER_ENTRY_BYTES + USER_FIRST_ROW);
+    }
+
+    private long rowCountOf(int user) {
+        return users.getInt(user * USER_ENTRY_BYTES + USER_ROW_COUNT);
+    }
+
+    /**
+     * Finds the first row in [first, end) whose epoch day is at least the given day, by binary search.
+     */
+    private long lowerBound(long first, long end, long epochDay) {
+        long low = first;
+        long high = end;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (chunkOf(middle).getInt(offsetOf(middle) + ROW_EPOCH_DAY) < epochDay) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Decodes the rows in [first, end) into TransactionRecords.
+     */
+    private List<TransactionRecord> readRows(String username, long first, long end) {
+        List<TransactionRecord> result = new ArrayList<>((int) Math.max(0, end - first));
+        for (long row = first; row < end; row++) {
+            ByteBuffer chunk = chunkOf(row);
+            int offset = offsetOf(row);
+            result.add(new TransactionRecord(
+                    chunk.getInt(offset + ROW_ID),
+                    username,
+                    TransactionType.fromOrdinal(chunk.get(offset + ROW_TYPE)),
+                    Money.ofMinorUnits(chunk.getLong(offset + ROW_AMOUNT)),
+                    LocalDate.ofEpochDay(chunk.getInt(offset + ROW_EPOCH_DAY)),
+                    readDescription(chunk.getInt(offset + ROW_DESCRIPTION)),
+                    null));
+        }
+        return result;
+    }
+
+    private String readDescription(int index) {
+        long offset = descriptions.getLong(index * DESCRIPTION_ENTRY_BYTES);
+        if (offset < 0) {
+            return null;
+        }
+        int length = descriptions.getInt(index * DESCRIPTION_ENTRY_BYTES + Long.BYTES);
+        byte[] bytes = new byte[length];
+        strings.get((int) offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private ByteBuffer chunkOf(long row) {
+        return rowChunks[(int) (row >>> ROWS_PER_CHUNK_SHIFT)];
+    }
+
+    private static int offsetOf(long row) {
+        return (int) (row & (ROWS_PER_CHUNK - 1)) * ROW_BYTES;
+    }
+}
@@ -0,0 +1,214 @@
+package repository;
+
+import model.Investment;
+import model.Money;
+import model.Transaction;
+import model.TransactionType;
+import model.User;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Binary encoding of the user and transaction mutations stored in the write-ahead log and in snapshots.
+ *
+ * <p>Every record carries the full state of the user or transaction it describes, so applying a record
+ * is an upsert or a delete and replaying records a second time is harmless. That lets a snapshot be
+ * taken while writes continue: records logged during the snapshot are replayed on top of it.
+ *
+ * <p>A record is a one-byte kind followed by its fields. Strings are a length (-1 for null) and UTF-8 bytes,
+ * and amounts are exact minor units.
+ */
+public final class MutationRecords {
+
+    private static final byte USER_SAVED = 1;
+    private static final byte USER_DELETED = 2;
+    private static final byte TRANSACTION_SAVED = 3;
+    private static final byte TRANSACTION_DELETED = 4;
+
+    // TRANSACTION_SAVED followed by the symbol and quantity in millionths of the holding traded,
+    // written only for transactions that record one
+    private static final byte TRANSACTION_SAVED_WITH_INVESTMENT = 5;
+
+    /**
+     * Receives the mutations decoded from records.
+     */
+    public interface Handler {
+
+        /**
+         * A user was created or updated.
+         *
+         * @param user the user with its stored values
+         */
+        void userSaved(User user);
+
+        /**
+         * A user was deleted.
+         *
+         * @param username the username of the deleted user
+         */
+        void userDeleted(String username);
+
+        /**
+         * A transaction was added or changed.
+         *
+         * @param transaction the transaction with its stored ID and values
+         */
+        void transactionSaved(Transaction transaction);
+
+        /**
+         * A transaction was deleted.
+         *
+         * @param transactionId the ID of the deleted transaction
+         */
+        void transactionDeleted(int transactionId);
+    }
+
+    private MutationRecords() {
+    }
+
+    /**
+     * Encodes the creation or update of a user.
+     *
+     * @param user the user
+     * @return the record bytes
+     */
+    public static byte[] userSaved(User user) {
+        byte[] username = utf8(user.getUsername());
+        byte[] firstName = utf8(user.getFirstName());
+        byte[] lastName = utf8(user.getLastName());
+        byte[] email = utf8(user.getEmail());
+        byte[] passwordHash = utf8(user.getPasswordHash());
+
+        ByteBuffer record = ByteBuffer.allocate(1 + size(username) + size(firstName) + size(lastName) + size(email) + size(passwordHash));
+        record.put(USER_SAVED);
+        putString(record, username);
+        putString(record, firstName);
+        putString(record, lastName);
+        putString(record, email);
+        putString(record, passwordHash);
+        return record.array();
+    }
+
+    /**
+     * Encodes the deletion of a user.
+     *
+     * @param username the username of the deleted user
+     * @return the record bytes
+     */
+    public static byte[] userDeleted(String username) {
+        byte[] name = utf8(username);
+        ByteBuffer record = ByteBuffer.allocate(1 + size(name));
+        record.put(USER_DELETED);
+        putString(record, name);
+        return record.array();
+    }
+
+    /**
+     * Encodes the addition or change of a transaction.
+     *
+     * @param transaction the transaction
+     * @return the record bytes
+     */
+    public static byte[] transactionSaved(Transaction transaction) {
+        byte[] username = utf8(transaction.getUsername());
+        byte[] description = utf8(transaction.getDescription());
+        Investment investment = transaction.getInvestment();
+        byte[] symbol = investment == null ? null : utf8(investment.getSymbol());
+
+        int length = 1 + Integer.BYTES + size(username) + 1 + Long.BYTES + Long.BYTES + size(description);
+        if (investment != null) {
+            length += size(symbol) + Long.BYTES;
+        }
+        ByteBuffer record = ByteBuffer.allocate(length);
+        record.put(investment == null ? TRANSACTION_SAVED : TRANSACTION_SAVED_WITH_INVESTMENT);
+        record.putInt(transaction.getTransactionId());
+        putString(record, username);
+        record.put((byte) transaction.getType().ordinal());
+        record.putLong(transaction.getAmountMinorUnits());
+        record.putLong(transaction.getTransactionDate().toEpochDay());
+        putString(record, description);
+        if (investment != null) {
+            putString(record, symbol);
+            record.putLong(investment.getQuantityMicros());
+        }
+        return record.array();
+    }
+
+    /**
+     * Encodes the deletion of a transaction.
+     *
+     * @param transactionId the ID of the deleted transaction
+     * @return the record bytes
+     */
+    public static byte[] transactionDeleted(int transactionId) {
+        ByteBuffer record = ByteBuffer.allocate(1 + Integer.BYTES);
+        record.put(TRANSACTION_DELETED);
+        record.putInt(transactionId);
+        return record.array();
+    }
+
+    /**
+     * Decodes one record and passes the mutation to a handler.
+     *
+     * @param record  the record bytes, positioned at the start of the record
+     * @param handler the handler to call
+     * @throws IllegalArgumentException if the record kind is unknown
+     */
+    public static void decode(ByteBuffer record, Handler handler) {
+        byte kind = record.get();
+        switch (kind) {
+            case USER_SAVED -> {
+                String username = getString(record);
+                String firstName = getString(record);
+                String lastName = getString(record);
+                String email = getString(record);
+                String passwordHash = getString(record);
+                handler.userSaved(new User(firstName, lastName, email, username, passwordHash));
+            }
+            case USER_DELETED -> handler.userDeleted(getString(record));
+            case TRANSACTION_SAVED, TRANSACTION_SAVED_WITH_INVESTMENT -> {
+                int transactionId = record.getInt();
+                String username = getString(record);
+                TransactionType type = TransactionType.fromOrdinal(record.get());
+                Money amount = Money.ofMinorUnits(record.getLong());
+                LocalDate date = LocalDate.ofEpochDay(record.getLong());
+                String description = getString(record);
+                Investment investment = kind == TRANSACTION_SAVED_WITH_INVESTMENT
+                        ? Investment.ofMicros(getString(record), record.getLong())
+                        : null;
+                handler.transactionSaved(new Transaction(transactionId, username, type, amount, date, description, investment));
+            }
+            case TRANSACTION_DELETED -> handler.transactionDeleted(record.getInt());
+            default -> throw new IllegalArgumentException("Unknown mutation record kind: " + kind);
+        }
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int size(byte[] string) {
+        return Integer.BYTES + (string == null ? 0 : string.length);
+    }
+
+    private static void putString(ByteBuffer record, byte[] string) {
+        if (string == null) {
+            record.putInt(-1);
+        } else {
+            record.putInt(string.length);
+            record.put(string);
+        }
+    }
+
+    private static String getString(ByteBuffer record) {
+        int length = record.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
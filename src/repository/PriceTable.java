@@ -0,0 +1,319 @@
+package repository;
+
+import model.Investment;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Latest known price per unit of each security, loaded locally (from a CSV file or a map) rather than
+ * fetched from a market data feed.
+ *
+ * <p>Symbols are given dense int IDs on first use, and prices are kept in a double[] indexed by them, so a
+ * valuation can read them as a primitive array. Every change bumps a version number and stamps the changed
+ * symbols with it; a consumer remembers the version it last read and asks for the changes since, which lets
+ * it re-value only the holdings whose price moved.
+ */
+public class PriceTable {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    // Guards all fields; readers share the read lock, price changes take the write lock
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Symbol to ID, and ID to symbol
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> symbols = new ArrayList<>();
+
+    // Price per unit by symbol ID, NaN while no price is known
+    private double[] prices = newPrices(INITIAL_CAPACITY);
+
+    // Version at which each symbol's price last changed
+    private long[] changedAt = new long[INITIAL_CAPACITY];
+
+    // Incremented by every change to one or more prices
+    private long version;
+
+    /**
+     * The prices changed since a given version, as returned by changesSince.
+     */
+    public static final class Changes {
+
+        private final long version;
+        private final int[] symbolIds;
+        private final double[] prices;
+
+        Changes(long version, int[] symbolIds, double[] prices) {
+            this.version = version;
+            this.symbolIds = symbolIds;
+            this.prices = prices;
+        }
+
+        /**
+         * Gets the version of the table the changes were read at; pass it to the next changesSince call.
+         *
+         * @return the table version
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Gets the number of symbols whose price changed.
+         *
+         * @return the number of changed symbols
+         */
+        public int size() {
+            return symbolIds.length;
+        }
+
+        /**
+         * Gets the ID of a changed symbol.
+         *
+         * @param index the index of the change, from 0 to size() - 1
+         * @return the symbol ID
+         */
+        public int getSymbolId(int index) {
+            return symbolIds[index];
+        }
+
+        /**
+         * Gets the new price of a changed symbol.
+         *
+         * @param index the index of the change, from 0 to size() - 1
+         * @return the price per unit
+         */
+        public double getPrice(int index) {
+            return prices[index];
+        }
+    }
+
+    /**
+     * Loads prices from a CSV file of {@code symbol,price} lines. Blank lines, lines starting with {@code #}
+     * and a first line whose price is not a number (a header) are skipped.
+     *
+     * @param file the file to read
+     * @return the number of prices loaded
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if a line is malformed; no price is changed then
+     */
+    public int load(Path file) throws IOException {
+        Map<String, Double> loaded = new LinkedHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    continue;
+                }
+                int comma = trimmed.indexOf(',');
+                if (comma < 0) {
+                    throw new IllegalArgumentException("Line " + lineNumber + ": expected symbol,price");
+                }
+                double price;
+                try {
+                    price = Double.parseDouble(trimmed.substring(comma + 1).trim());
+                } catch (NumberFormatException e) {
+                    if (lineNumber == 1) {
+                        continue;
+                    }
+                    throw new IllegalArgumentException("Line " + lineNumber + ": invalid price");
+                }
+                loaded.put(trimmed.substring(0, comma), price);
+            }
+        }
+        setPrices(loaded);
+        return loaded.size();
+    }
+
+    /**
+     * Sets the price of one security.
+     *
+     * @param symbol the security symbol, case-insensitive
+     * @param price  the price per unit
+     * @throws IllegalArgumentException if the symbol is not valid or the price is negative or not finite
+     */
+    public void setPrice(String symbol, double price) {
+        setPrices(Map.of(symbol, price));
+    }
+
+    /**
+     * Sets the prices of several securities as one change. Prices equal to the current ones are not
+     * reported as changed.
+     *
+     * @param pricesBySymbol the price per unit of each symbol, case-insensitive
+     * @throws IllegalArgumentException if a symbol is not valid or a price is negative or not finite;
+     *                                  no price is changed then
+     */
+    public void setPrices(Map<String, Double> pricesBySymbol) {
+        Map<String, Double> validated = new LinkedHashMap<>();
+        for (Map.Entry<String, Double> entry : pricesBySymbol.entrySet()) {
+            Double price = entry.getValue();
+            if (price == null || !Double.isFinite(price) || price < 0) {
+                throw new IllegalArgumentException("Invalid price for " + entry.getKey() + ": " + price);
+            }
+            validated.put(Investment.normalizeSymbol(entry.getKey()), price);
+        }
+
+        lock.writeLock().lock();
+        try {
+            long next = version + 1;
+            boolean changed = false;
+            for (Map.Entry<String, Double> entry : validated.entrySet()) {
+                int id = idOfLocked(entry.getKey());
+                if (Double.compare(prices[id], entry.getValue()) != 0) {
+                    prices[id] = entry.getValue();
+                    changedAt[id] = next;
+                    changed = true;
+                }
+            }
+            if (changed) {
+                version = next;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the ID of a symbol, assigning the next one if the symbol is new. IDs are dense and never reused.
+     *
+     * @param symbol the security symbol, case-insensitive
+     * @return the symbol ID
+     * @throws IllegalArgumentException if the symbol is not valid
+     */
+    public int idOf(String symbol) {
+        String normalized = Investment.normalizeSymbol(symbol);
+        lock.readLock().lock();
+        try {
+            Integer id = ids.get(normalized);
+            if (id != null) {
+                return id;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            return idOfLocked(normalized);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the symbol with an ID.
+     *
+     * @param symbolId the symbol ID
+     * @return the uppercase symbol
+     */
+    public String symbolOf(int symbolId) {
+        lock.readLock().lock();
+        try {
+            return symbols.get(symbolId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the price of a security.
+     *
+     * @param symbol the security symbol, case-insensitive
+     * @return the price per unit, or NaN if no price is loaded for it
+     */
+    public double getPrice(String symbol) {
+        String normalized = Investment.normalizeSymbol(symbol);
+        lock.readLock().lock();
+        try {
+            Integer id = ids.get(normalized);
+            return id == null ? Double.NaN : prices[id];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the current version; it grows with every change to the prices.
+     *
+     * @return the version, 0 before any price is set
+     */
+    public long getVersion() {
+        lock.readLock().lock();
+        try {
+            return version;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the prices that changed after a version.
+     *
+     * @param sinceVersion the version last read, or 0 for every price set so far
+     * @return the changed symbols with their new prices, and the current version
+     */
+    public Changes changesSince(long sinceVersion) {
+        lock.readLock().lock();
+        try {
+            int count = 0;
+            for (int id = 0; id < symbols.size(); id++) {
+                if (changedAt[id] > sinceVersion) {
+                    count++;
+                }
+            }
+            int[] changedIds = new int[count];
+            double[] changedPrices = new double[count];
+            int next = 0;
+            for (int id = 0; id < symbols.size() && next < count; id++) {
+                if (changedAt[id] > sinceVersion) {
+                    changedIds[next] = id;
+                    changedPrices[next++] = prices[id];
+                }
+            }
+            return new Changes(version, changedIds, changedPrices);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the ID of a normalised symbol, assigning one if needed. The caller must hold the write lock.
+     */
+    private int idOfLocked(String symbol) {
+        Integer id = ids.get(symbol);
+        if (id != null) {
+            return id;
+        }
+        int newId = symbols.size();
+        if (newId == prices.length) {
+            int capacity = prices.length * 2;
+            double[] grown = newPrices(capacity);
+            System.arraycopy(prices, 0, grown, 0, prices.length);
+            prices = grown;
+            changedAt = Arrays.copyOf(changedAt, capacity);
+        }
+        ids.put(symbol, newId);
+        symbols.add(symbol);
+        return newId;
+    }
+
+    private static double[] newPrices(int capacity) {
+        double[] unknown = new double[capacity];
+        Arrays.fill(unknown, Double.NaN);
+        return unknown;
+    }
+}
@@ -0,0 +1,149 @@
+package repository;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Compacted snapshot of the stored users and transactions, written next to the write-ahead log.
+ *
+ * <p>The file holds a header (magic, format version, first log segment not covered by the snapshot),
+ * a sequence of length-prefixed {@link MutationRecords}, an end marker, the record count and a CRC32 of
+ * everything before it. It is written to a temporary file, fsynced, atomically moved into place and its
+ * directory fsynced, so a crash leaves either the old or the new snapshot, never a partial one, and once
+ * write returns the new one survives a crash.
+ */
+public final class SnapshotFile {
+
+    private static final int MAGIC = 0x50465331; // "PFS1"
+    private static final int VERSION = 1;
+    private static final int END_MARKER = -1;
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * Writes a snapshot, replacing any existing one.
+     *
+     * @param file         the snapshot file
+     * @param firstSegment the first write-ahead log segment whose records are not covered by the snapshot
+     * @param records      the records making up the snapshot
+     * @throws IOException if the snapshot cannot be written
+     */
+    public static void write(Path file, long firstSegment, Iterator<byte[]> records) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            CRC32 crc = new CRC32();
+            OutputStream stream = Channels.newOutputStream(channel);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(stream, crc), 1 << 16));
+
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(firstSegment);
+            long count = 0;
+            while (records.hasNext()) {
+                byte[] record = records.next();
+                out.writeInt(record.length);
+                out.write(record);
+                count++;
+            }
+            out.writeInt(END_MARKER);
+            out.writeLong(count);
+            out.flush();
+
+            DataOutputStream trailer = new DataOutputStream(stream);
+            trailer.writeInt((int) crc.getValue());
+            trailer.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        DirectorySync.force(file.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Reads a snapshot, passing each record to a consumer.
+     * The whole file, including its record count and checksum, is verified before the first record reaches
+     * the consumer, so a corrupt snapshot applies nothing. The file is therefore read twice.
+     *
+     * @param file     the snapshot file
+     * @param consumer receives each record's bytes
+     * @return the first write-ahead log segment not covered by the snapshot, or 0 if there is no snapshot
+     * @throws IOException if the snapshot cannot be read or is corrupt
+     */
+    public static long read(Path file, Consumer<ByteBuffer> consumer) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            scan(channel, file, null);
+            channel.position(0);
+            return scan(channel, file, consumer);
+        }
+    }
+
+    /**
+     * Reads a snapshot from the channel's position to its end, checking its structure, count and checksum.
+     *
+     * @param channel  the open snapshot file, not closed by the scan
+     * @param file     the snapshot file, for error messages
+     * @param consumer receives each record's bytes, or null to only verify
+     * @return the first write-ahead log segment not covered by the snapshot
+     * @throws IOException if the snapshot cannot be read or is corrupt
+     */
+    private static long scan(FileChannel channel, Path file, Consumer<ByteBuffer> consumer) throws IOException {
+        CRC32 crc = new CRC32();
+        InputStream stream = Channels.newInputStream(channel);
+        DataInputStream in = new DataInputStream(new CheckedInputStream(new BufferedInputStream(stream, 1 << 16), crc));
+
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a snapshot file: " + file);
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version + " in " + file);
+        }
+        long firstSegment = in.readLong();
+
+        long count = 0;
+        byte[] buffer = new byte[256];
+        int length;
+        while ((length = in.readInt()) != END_MARKER) {
+            if (length < 0) {
+                throw new IOException("Corrupt snapshot record length " + length + " in " + file);
+            }
+            if (buffer.length < length) {
+                buffer = new byte[Math.max(length, buffer.length * 2)];
+            }
+            in.readFully(buffer, 0, length);
+            if (consumer != null) {
+                consumer.accept(ByteBuffer.wrap(buffer, 0, length));
+            }
+            count++;
+        }
+        if (in.readLong() != count) {
+            throw new IOException("Snapshot record count mismatch in " + file);
+        }
+        int expected = (int) crc.getValue();
+        if (new DataInputStream(in).readInt() != expected) {
+            throw new IOException("Snapshot checksum mismatch in " + file);
+        }
+        return firstSegment;
+    }
+}
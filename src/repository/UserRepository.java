@@ -1,18 +1,66 @@
 package repository;
 
 import model.User;
+import model.UsernameChangeGuard;
+import model.UsernameChangeListener;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Repository class for managing user data.
  * This class provides methods to add, remove, and retrieve users.
+ * Users are indexed by username, so every lookup is a constant-time hash lookup.
+ * The repository is thread-safe.
  */
 public class UserRepository{
 
-    // List to store User objects
-    private final List<User> users = new ArrayList<>();
+    // Map of username to User object
+    private final Map<String, User> users = new ConcurrentHashMap<>();
+
+    // Services keeping state under usernames, wrapped around every re-keying in the order they were added
+    private final List<UsernameChangeGuard> usernameChangeGuards = new CopyOnWriteArrayList<>();
+
+    // Re-keys a stored user when its username changes, inside the guards, rejecting names that are already taken
+    private final UsernameChangeListener usernameChangeListener = (user, oldUsername, newUsername) ->
+            rename(List.copyOf(usernameChangeGuards), 0, user, oldUsername, newUsername);
+
+    /**
+     * Registers a guard to be wrapped around every later username change of a stored user.
+     * A TransactionService must be registered, or a renamed user's transactions are left under the old name.
+     *
+     * @param guard the guard to add
+     */
+    public void addUsernameChangeGuard(UsernameChangeGuard guard) {
+        usernameChangeGuards.add(guard);
+    }
+
+    /**
+     * Unregisters a guard.
+     *
+     * @param guard the guard to remove
+     */
+    public void removeUsernameChangeGuard(UsernameChangeGuard guard) {
+        usernameChangeGuards.remove(guard);
+    }
+
+    /**
+     * Runs the guards from the given one on, each wrapped around the next, and re-keys the user inside the last.
+     */
+    private void rename(List<UsernameChangeGuard> guards, int next, User user, String oldUsername, String newUsername) {
+        if (next < guards.size()) {
+            guards.get(next).usernameChanging(user, oldUsername, newUsername,
+                    () -> rename(guards, next + 1, user, oldUsername, newUsername));
+            return;
+        }
+        if (users.putIfAbsent(newUsername, user) != null) {
+            throw new IllegalArgumentException("Username '" + newUsername + "' is already taken.");
+        }
+        users.remove(oldUsername, user);
+    }
 
 
     /**
@@ -23,16 +71,20 @@ public class UserRepository{
      */
 
     public boolean usernameExists(String username) {
-        return users.stream().anyMatch(user -> user.getUsername().equals(username));
+        return users.containsKey(username);
     }
 
     /**
      * Adds a new user to the repository.
      *
      * @param user the User object to be added
+     * @throws IllegalArgumentException if the username is already taken
      */
     public void addUser(User user) {
-        users.add(user);
+        if (users.putIfAbsent(user.getUsername(), user) != null) {
+            throw new IllegalArgumentException("Username '" + user.getUsername() + "' is already taken.");
+        }
+        user.setUsernameChangeListener(usernameChangeListener);
     }
 
     /**
@@ -41,7 +93,9 @@ public class UserRepository{
      * @param user the User object to be removed
      */
     public void removeUser(User user) {
-        users.remove(user);
+        if (users.remove(user.getUsername(), user)) {
+            user.setUsernameChangeListener(null);
+        }
     }
 
 
@@ -52,9 +106,24 @@ public class UserRepository{
      * @return the User object if found, null otherwise
      */
     public User getUserByUsername(String username) {
-        return users.stream()
-                .filter(user -> user.getUsername().equals(username))
-                .findFirst()
-                .orElse(null);
+        return users.get(username);
+    }
+
+    /**
+     * Counts the users in the repository.
+     *
+     * @return the number of users
+     */
+    public int getUserCount() {
+        return users.size();
+    }
+
+    /**
+     * Retrieves every user in the repository.
+     *
+     * @return a new list of all users, in no particular order
+     */
+    public List<User> getAllUsers() {
+        return new ArrayList<>(users.values());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,366 @@
+package repository;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, segmented binary log with group commit.
+ *
+ * <p>Records are appended to an in-memory batch and a background committer thread writes the batch
+ * to the current segment file with one FileChannel write and one fsync, either every commit interval
+ * or as soon as the batch is large or a caller waits in {@link #sync()}. Appending therefore never
+ * waits for the disk, and one fsync covers every record appended since the previous one.
+ *
+ * <p>Each record is framed as its length, a CRC32 of its bytes, and the bytes. Segments are files named
+ * {@code wal-<number>.log}; {@link #rotate()} starts a new one so older segments can be deleted once a
+ * snapshot covers them. A reopened log always starts a fresh segment rather than appending after a
+ * possibly torn tail.
+ */
+public class WriteAheadLog implements Closeable {
+
+    // Bytes of framing before each record: length and CRC32
+    private static final int FRAME_BYTES = 8;
+
+    // Batch size that triggers a commit before the interval elapses
+    private static final int COMMIT_THRESHOLD_BYTES = 1 << 20;
+
+    private final Path directory;
+    private final long commitIntervalMillis;
+
+    // Guards the batches, the sequence numbers and the flags below
+    private final Object lock = new Object();
+    private ByteBuffer pending = ByteBuffer.allocate(COMMIT_THRESHOLD_BYTES * 2);
+    private ByteBuffer spare = ByteBuffer.allocate(COMMIT_THRESHOLD_BYTES * 2);
+    private long appendedRecords;
+    private long durableRecords;
+    private boolean syncRequested;
+    private boolean closed;
+    private IOException failure;
+
+    // Guards the channel; held for the whole of a commit or rotation
+    private final Object channelLock = new Object();
+    private FileChannel channel;
+    private long segment;
+
+    private final CRC32 crc = new CRC32();
+    private final Thread committer;
+
+    /**
+     * Opens a log in a directory, starting a new segment after any that already exist.
+     *
+     * @param directory      the directory holding the segment files, created if missing
+     * @param commitInterval the longest time in milliseconds an appended record waits before being committed
+     * @throws IOException if the directory or the new segment cannot be created
+     */
+    public WriteAheadLog(Path directory, long commitInterval) throws IOException {
+        if (commitInterval < 1) {
+            throw new IllegalArgumentException("Commit interval must be at least 1 ms");
+        }
+        this.directory = Files.createDirectories(directory);
+        this.commitIntervalMillis = commitInterval;
+
+        List<Long> segments = listSegments(directory);
+        this.segment = segments.isEmpty() ? 1 : segments.get(segments.size() - 1) + 1;
+        this.channel = openSegment(segment);
+
+        this.committer = new Thread(this::runCommitter, "wal-committer");
+        this.committer.setDaemon(true);
+        this.committer.start();
+    }
+
+    /**
+     * Appends a record. The record becomes durable at the next group commit; call {@link #sync()}
+     * to wait for it.
+     *
+     * @param record the record bytes
+     * @throws UncheckedIOException if an earlier commit failed
+     * @throws IllegalStateException if the log is closed
+     */
+    public void append(byte[] record) {
+        synchronized (lock) {
+            checkOpen();
+            if (pending.remaining() < FRAME_BYTES + record.length) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + FRAME_BYTES + record.length));
+                pending.flip();
+                larger.put(pending);
+                pending = larger;
+            }
+            crc.reset();
+            crc.update(record);
+            pending.putInt(record.length);
+            pending.putInt((int) crc.getValue());
+            pending.put(record);
+            appendedRecords++;
+            if (pending.position() >= COMMIT_THRESHOLD_BYTES) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Waits until every record appended before this call has been written and fsynced.
+     *
+     * @throws IOException if a commit failed
+     */
+    public void sync() throws IOException {
+        synchronized (lock) {
+            long target = appendedRecords;
+            syncRequested = true;
+            lock.notifyAll();
+            while (durableRecords < target && failure == null) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for the log to sync", e);
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Commits everything appended so far and starts a new segment.
+     * Records appended after this call go to the new segment.
+     *
+     * @return the number of the new segment
+     * @throws IOException if the commit or the new segment fails
+     */
+    public long rotate() throws IOException {
+        synchronized (channelLock) {
+            commit();
+            channel.close();
+            segment++;
+            channel = openSegment(segment);
+            return segment;
+        }
+    }
+
+    /**
+     * Deletes every segment numbered below the given one.
+     *
+     * @param firstKept the lowest segment number to keep
+     * @throws IOException if a segment cannot be deleted
+     */
+    public void deleteSegmentsBefore(long firstKept) throws IOException {
+        for (long number : listSegments(directory)) {
+            if (number < firstKept) {
+                Files.deleteIfExists(segmentPath(directory, number));
+            }
+        }
+    }
+
+    /**
+     * Commits everything appended so far, stops the committer and closes the current segment.
+     *
+     * @throws IOException if the final commit fails
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (channelLock) {
+            commit();
+            channel.close();
+        }
+    }
+
+    /**
+     * Replays the records of every segment numbered at or above the given one, in order.
+     * Within a segment, replay stops at the first incomplete or corrupt record, which can only be
+     * the tail of a write interrupted by a crash. A length longer than the rest of the segment counts
+     * as corrupt, so a torn frame never allocates more than the segment holds.
+     *
+     * @param directory   the directory holding the segment files
+     * @param fromSegment the lowest segment number to replay
+     * @param consumer    receives each record's bytes
+     * @return the number of records replayed
+     * @throws IOException if a segment cannot be read
+     */
+    public static long replay(Path directory, long fromSegment, Consumer<ByteBuffer> consumer) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return 0;
+        }
+        long records = 0;
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[256];
+        for (long number : listSegments(directory)) {
+            if (number < fromSegment) {
+                continue;
+            }
+            Path path = segmentPath(directory, number);
+            long remaining = Files.size(path);
+            try (InputStream file = Files.newInputStream(path);
+                 DataInputStream in = new DataInputStream(new BufferedInputStream(file, 1 << 16))) {
+                while (true) {
+                    int length;
+                    int checksum;
+                    try {
+                        length = in.readInt();
+                        checksum = in.readInt();
+                        remaining -= FRAME_BYTES;
+                        if (length < 0 || length > remaining) {
+                            break;
+                        }
+                        remaining -= length;
+                        if (buffer.length < length) {
+                            buffer = new byte[Math.max(length, buffer.length * 2)];
+                        }
+                        in.readFully(buffer, 0, length);
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    crc.reset();
+                    crc.update(buffer, 0, length);
+                    if ((int) crc.getValue() != checksum) {
+                        break;
+                    }
+                    consumer.accept(ByteBuffer.wrap(buffer, 0, length).asReadOnlyBuffer());
+                    records++;
+                }
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Body of the committer thread: commits whenever the interval elapses, the batch is large,
+     * or a caller is waiting in sync().
+     */
+    private void runCommitter() {
+        while (true) {
+            synchronized (lock) {
+                if (!closed && !syncRequested && pending.position() < COMMIT_THRESHOLD_BYTES) {
+                    try {
+                        lock.wait(commitIntervalMillis);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (closed) {
+                    return;
+                }
+            }
+            try {
+                synchronized (channelLock) {
+                    commit();
+                }
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Writes and fsyncs the pending batch. The caller must hold channelLock.
+     *
+     * @throws IOException if the write or fsync fails; the failure is also reported to later calls
+     */
+    private void commit() throws IOException {
+        ByteBuffer batch;
+        long records;
+        synchronized (lock) {
+            syncRequested = false;
+            if (failure != null) {
+                throw failure;
+            }
+            if (pending.position() == 0) {
+                durableRecords = appendedRecords;
+                lock.notifyAll();
+                return;
+            }
+            batch = pending;
+            pending = spare;
+            spare = batch;
+            records = appendedRecords;
+        }
+
+        try {
+            batch.flip();
+            while (batch.hasRemaining()) {
+                channel.write(batch);
+            }
+            channel.force(false);
+            batch.clear();
+        } catch (IOException e) {
+            synchronized (lock) {
+                failure = e;
+                lock.notifyAll();
+            }
+            throw e;
+        }
+
+        synchronized (lock) {
+            durableRecords = records;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Throws if the log is closed or a commit has failed. The caller must hold lock.
+     */
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Write-ahead log is closed");
+        }
+        if (failure != null) {
+            throw new UncheckedIOException("Write-ahead log failed to commit", failure);
+        }
+    }
+
+    /**
+     * Creates a segment file and makes its directory entry durable, so records committed to it are not
+     * lost with the entry in a crash.
+     */
+    private FileChannel openSegment(long number) throws IOException {
+        FileChannel segmentChannel = FileChannel.open(segmentPath(directory, number),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        DirectorySync.force(directory);
+        return segmentChannel;
+    }
+
+    private static Path segmentPath(Path directory, long number) {
+        return directory.resolve(String.format("wal-%016d.log", number));
+    }
+
+    /**
+     * Lists the segment numbers present in a directory, in ascending order.
+     */
+    private static List<Long> listSegments(Path directory) throws IOException {
+        List<Long> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith("wal-") && name.endsWith(".log"))
+                    .forEach(name -> segments.add(Long.parseLong(name.substring(4, name.length() - 4))));
+        }
+        segments.sort(null);
+        return segments;
+    }
+}
@@ -0,0 +1,109 @@
+package service;
+
+import model.Money;
+import model.TransactionType;
+import repository.ColumnarTransactionStore;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Service class for batch reports over every user at once, such as the nightly net worth run.
+ * Each report is a single parallel scan of a ColumnarTransactionStore, instead of one query per user
+ * and type against the TransactionService. Built from a TransactionService, it fills its own store with the
+ * transactions already stored and keeps it mirroring the service from then on.
+ */
+public class BatchAnalyticsService {
+
+    private final ColumnarTransactionStore store;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructor for BatchAnalyticsService over a new store mirroring a TransactionService, scanning on the
+     * common fork-join pool.
+     *
+     * @param transactionService the service whose transactions are reported on
+     */
+    public BatchAnalyticsService(TransactionService transactionService) {
+        this(transactionService, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor for BatchAnalyticsService over a new store mirroring a TransactionService.
+     *
+     * @param transactionService the service whose transactions are reported on
+     * @param pool               the pool to scan on; its parallelism bounds the threads used
+     */
+    public BatchAnalyticsService(TransactionService transactionService, ForkJoinPool pool) {
+        this(mirror(transactionService), pool);
+    }
+
+    /**
+     * Constructor for BatchAnalyticsService, scanning on the common fork-join pool.
+     *
+     * @param store the store to scan, holding every transaction of the TransactionService, e.g. registered
+     *              with its addListenerWithBackfill
+     */
+    public BatchAnalyticsService(ColumnarTransactionStore store) {
+        this(store, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor for BatchAnalyticsService.
+     *
+     * @param store the store to scan, holding every transaction of the TransactionService, e.g. registered
+     *              with its addListenerWithBackfill
+     * @param pool  the pool to scan on; its parallelism bounds the threads used
+     */
+    public BatchAnalyticsService(ColumnarTransactionStore store, ForkJoinPool pool) {
+        this.store = store;
+        this.pool = pool;
+    }
+
+    /**
+     * Creates a store holding the transactions a TransactionService stores now and registered to follow
+     * its later changes.
+     */
+    private static ColumnarTransactionStore mirror(TransactionService transactionService) {
+        ColumnarTransactionStore store = new ColumnarTransactionStore();
+        transactionService.addListenerWithBackfill(store);
+        return store;
+    }
+
+    /**
+     * Calculates every user's total amount per transaction type.
+     *
+     * @return the totals in minor units indexed by TransactionType ordinal, keyed by username; users without
+     * transactions are absent
+     */
+    public Map<String, long[]> getTotalsByUser() {
+        return store.getTotalsByTypeForAllUsers(pool);
+    }
+
+    /**
+     * Calculates every user's net worth: income minus expense plus investment.
+     *
+     * @return the net worth keyed by username; users without transactions are absent
+     */
+    public Map<String, Money> getNetWorthByUser() {
+        Map<String, long[]> totals = getTotalsByUser();
+        Map<String, Money> netWorth = new HashMap<>(totals.size() * 2);
+        for (Map.Entry<String, long[]> entry : totals.entrySet()) {
+            netWorth.put(entry.getKey(), Money.ofMinorUnits(netWorth(entry.getValue())));
+        }
+        return netWorth;
+    }
+
+    /**
+     * Calculates a net worth from totals per transaction type.
+     *
+     * @param totals the totals in minor units indexed by TransactionType ordinal
+     * @return income minus expense plus investment, in minor units
+     * @throws ArithmeticException if the result overflows
+     */
+    public static long netWorth(long[] totals) {
+        return Money.add(Money.subtract(totals[TransactionType.INCOME.ordinal()], totals[TransactionType.EXPENSE.ordinal()]),
+                totals[TransactionType.INVESTMENT.ordinal()]);
+    }
+}
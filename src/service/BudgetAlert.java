@@ -0,0 +1,77 @@
+package service;
+
+import model.Money;
+
+import java.time.YearMonth;
+
+/**
+ * An alert raised by a BudgetAlertService when a change took a user's monthly total above a budget's limit.
+ */
+public final class BudgetAlert {
+
+    private final BudgetRule rule;
+    private final YearMonth month;
+
+    // The monthly total in minor units right after the change
+    private final long totalMinorUnits;
+
+    // The transaction whose add or change crossed the limit
+    private final int transactionId;
+
+    /**
+     * Constructor for BudgetAlert.
+     *
+     * @param rule            the budget exceeded
+     * @param month           the month whose total went over the limit
+     * @param totalMinorUnits the month's total in minor units after the change
+     * @param transactionId   the ID of the transaction whose add or change crossed the limit
+     */
+    BudgetAlert(BudgetRule rule, YearMonth month, long totalMinorUnits, int transactionId) {
+        this.rule = rule;
+        this.month = month;
+        this.totalMinorUnits = totalMinorUnits;
+        this.transactionId = transactionId;
+    }
+
+    /**
+     * Gets the budget exceeded.
+     *
+     * @return the rule
+     */
+    public BudgetRule getRule() {
+        return rule;
+    }
+
+    /**
+     * Gets the month whose total went over the limit.
+     *
+     * @return the month
+     */
+    public YearMonth getMonth() {
+        return month;
+    }
+
+    /**
+     * Gets the month's total right after the change.
+     *
+     * @return the total
+     */
+    public Money getTotal() {
+        return Money.ofMinorUnits(totalMinorUnits);
+    }
+
+    /**
+     * Gets the ID of the transaction whose add or change crossed the limit.
+     *
+     * @return the transaction ID
+     */
+    public int getTransactionId() {
+        return transactionId;
+    }
+
+    @Override
+    public String toString() {
+        return rule.getUsername() + " " + rule.getType().getName() + " in " + month + " reached " + getTotal()
+                + ", over the budget of " + rule.getLimit() + " (transaction " + transactionId + ")";
+    }
+}
@@ -0,0 +1,15 @@
+package service;
+
+/**
+ * Listener receiving the alerts of a BudgetAlertService. Alerts are delivered one at a time on the
+ * service's notifier thread, in the order they were raised.
+ */
+public interface BudgetAlertListener {
+
+    /**
+     * Called when a budget has been exceeded.
+     *
+     * @param alert the alert
+     */
+    void budgetExceeded(BudgetAlert alert);
+}
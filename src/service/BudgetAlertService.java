@@ -0,0 +1,568 @@
+package service;
+
+import model.Money;
+import model.Transaction;
+import model.TransactionListener;
+import model.TransactionType;
+import model.User;
+import model.UserListener;
+import model.UsernameChangeGuard;
+
+import java.io.Closeable;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Service class raising alerts as soon as a change takes a user's monthly total of a transaction type above
+ * one of the user's budgets, e.g. "expense over 2000.00 in a month".
+ *
+ * <p>Register it with TransactionService.addListener before transactions are added, with
+ * UserService.addListener to drop a deleted user's budgets, and with UserRepository.addUsernameChangeGuard
+ * to refuse renaming a user whose budgets it keeps under the old name. It keeps a running total per user, month and type,
+ * updated on every add, delete and setter change, and each user's budgets per type ordered by limit. A change
+ * only looks at the budgets of its own user and type whose limit lies between the month's total before and
+ * after it, found by binary search, so the cost per change is O(log r) for the user's r budgets of that type,
+ * however many budgets other users have. Budgets fire again each time the total goes back under the limit
+ * and over it again; adding a budget does not fire for months already over it.
+ *
+ * <p>Changes are evaluated while TransactionService holds the user's lock, so alerts are never raised on that
+ * thread's time: they are handed to a single notifier thread through a bounded queue, and delivered to the
+ * {@link BudgetAlertListener}s in the order they were raised. When the queue is full, new alerts are dropped
+ * and counted rather than holding up ingestion.
+ */
+public class BudgetAlertService implements TransactionListener, UserListener, UsernameChangeGuard, Closeable {
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 10_000;
+    private static final int CLOSE_TIMEOUT_SECONDS = 5;
+
+    // Each user's monthly totals and budgets, created on the first transaction or budget and dropped
+    // once the user has neither
+    private final Map<String, UserBudgets> budgetsByUser = new ConcurrentHashMap<>();
+
+    private final AtomicLong ruleIds = new AtomicLong();
+    private final LongAdder ruleCount = new LongAdder();
+
+    // Listeners the notifier thread delivers every alert to
+    private final List<BudgetAlertListener> listeners = new CopyOnWriteArrayList<>();
+
+    // The single notifier thread and its bounded queue of pending deliveries
+    private final ThreadPoolExecutor notifier;
+
+    // Alerts raised, and those dropped because the queue was full or the service closed
+    private final LongAdder raisedAlerts = new LongAdder();
+    private final LongAdder droppedAlerts = new LongAdder();
+
+    /**
+     * Constructor for BudgetAlertService, with a queue of 10,000 pending alerts.
+     */
+    public BudgetAlertService() {
+        this(DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Constructor for BudgetAlertService.
+     *
+     * @param queueCapacity the number of alerts that may wait for delivery before new ones are dropped
+     * @throws IllegalArgumentException if the capacity is less than 1
+     */
+    public BudgetAlertService(int queueCapacity) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("Queue capacity must be at least 1");
+        }
+        // The thread is started on the first alert, so a service that raises none costs nothing
+        this.notifier = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "budget-alert-notifier");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Registers a listener to receive every alert raised from now on.
+     *
+     * @param listener the listener to add
+     */
+    public void addListener(BudgetAlertListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeListener(BudgetAlertListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Adds a monthly budget for a user and transaction type.
+     *
+     * @param username        the user the budget applies to
+     * @param transactionType the transaction type whose monthly total is watched
+     * @param limit           the largest monthly total that does not raise an alert
+     * @return the new rule, to pass to removeRule
+     * @throws IllegalArgumentException if the username is empty, the type is null or the limit is null or negative
+     */
+    public BudgetRule addRule(String username, TransactionType transactionType, Money limit) {
+        if (username == null || username.isEmpty()) {
+            throw new IllegalArgumentException("Username must not be empty");
+        }
+        if (transactionType == null) {
+            throw new IllegalArgumentException("Transaction type must not be null");
+        }
+        if (limit == null || limit.getMinorUnits() < 0) {
+            throw new IllegalArgumentException("Budget limit must not be negative");
+        }
+
+        BudgetRule rule = new BudgetRule(ruleIds.incrementAndGet(), username, transactionType, limit.getMinorUnits());
+        budgetsByUser.compute(username, (key, budgets) -> {
+            UserBudgets updated = budgets == null ? new UserBudgets() : budgets;
+            updated.addRule(rule);
+            return updated;
+        });
+        ruleCount.increment();
+        return rule;
+    }
+
+    /**
+     * Removes a budget.
+     *
+     * @param rule the rule returned by addRule
+     * @return true if it was removed, false if it had already been removed
+     */
+    public boolean removeRule(BudgetRule rule) {
+        boolean[] removed = new boolean[1];
+        budgetsByUser.computeIfPresent(rule.getUsername(), (key, budgets) -> {
+            removed[0] = budgets.removeRule(rule);
+            return budgets.isEmpty() ? null : budgets;
+        });
+        if (removed[0]) {
+            ruleCount.decrement();
+        }
+        return removed[0];
+    }
+
+    /**
+     * Gets a user's budgets.
+     *
+     * @param username the username
+     * @return the budgets, by type and then by limit, empty if the user has none
+     */
+    public List<BudgetRule> getRules(String username) {
+        List<BudgetRule> rules = new ArrayList<>();
+        budgetsByUser.computeIfPresent(username, (key, budgets) -> {
+            budgets.collectRules(rules);
+            return budgets;
+        });
+        return rules;
+    }
+
+    /**
+     * Counts the budgets of all users.
+     *
+     * @return the number of budgets
+     */
+    public long getRuleCount() {
+        return ruleCount.sum();
+    }
+
+    /**
+     * Gets the running total of a user's transactions of a type in a month, as the budgets see it.
+     *
+     * @param username        the username
+     * @param transactionType the transaction type
+     * @param month           the month
+     * @return the total, zero if the user has no such transactions
+     */
+    public Money getMonthlyTotal(String username, TransactionType transactionType, YearMonth month) {
+        long[] total = new long[1];
+        budgetsByUser.computeIfPresent(username, (key, budgets) -> {
+            total[0] = budgets.getTotal(monthKey(month.getYear(), month.getMonthValue()), transactionType.ordinal());
+            return budgets;
+        });
+        return Money.ofMinorUnits(total[0]);
+    }
+
+    /**
+     * Gets the number of alerts raised, whether delivered, waiting or dropped.
+     *
+     * @return the alert count
+     */
+    public long getRaisedAlertCount() {
+        return raisedAlerts.sum();
+    }
+
+    /**
+     * Gets the number of alerts dropped because the queue was full or the service was closed.
+     *
+     * @return the dropped count
+     */
+    public long getDroppedAlertCount() {
+        return droppedAlerts.sum();
+    }
+
+    /**
+     * Gets the number of alerts waiting for delivery.
+     *
+     * @return the queue depth
+     */
+    public int getQueueDepth() {
+        return notifier.getQueue().size();
+    }
+
+    @Override
+    public void transactionAdded(Transaction transaction) {
+        change(transaction.getUsername(), transaction.getTransactionDate(), transaction.getType(),
+                transaction.getAmountMinorUnits(), transaction.getTransactionId());
+    }
+
+    @Override
+    public void transactionDeleted(Transaction transaction) {
+        change(transaction.getUsername(), transaction.getTransactionDate(), transaction.getType(),
+                -transaction.getAmountMinorUnits(), transaction.getTransactionId());
+    }
+
+    @Override
+    public void transactionsDeleted(List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        // All of one user: take the user's entry once for the whole batch
+        budgetsByUser.computeIfPresent(transactions.get(0).getUsername(), (key, budgets) -> {
+            for (Transaction transaction : transactions) {
+                LocalDate date = transaction.getTransactionDate();
+                budgets.add(monthKey(date.getYear(), date.getMonthValue()), transaction.getType().ordinal(),
+                        -transaction.getAmountMinorUnits());
+            }
+            return budgets.isEmpty() ? null : budgets;
+        });
+    }
+
+    @Override
+    public void transactionUpdated(Transaction transaction, TransactionType oldType, long oldAmount,
+                                   LocalDate oldDate, String oldDescription) {
+        LocalDate date = transaction.getTransactionDate();
+        if (oldType == transaction.getType() && oldDate.getYear() == date.getYear() && oldDate.getMonthValue() == date.getMonthValue()) {
+            // Same month and type: apply the net change once, so an edit that leaves the total over a limit
+            // does not dip under and fire again
+            change(transaction.getUsername(), date, oldType, transaction.getAmountMinorUnits() - oldAmount,
+                    transaction.getTransactionId());
+        } else {
+            change(transaction.getUsername(), oldDate, oldType, -oldAmount, transaction.getTransactionId());
+            transactionAdded(transaction);
+        }
+    }
+
+    /**
+     * Drops the budgets of a deleted user. The user's monthly totals go as TransactionService deletes the
+     * user's transactions.
+     *
+     * @param user the deleted user
+     */
+    @Override
+    public void userDeleted(User user) {
+        int[] removed = new int[1];
+        budgetsByUser.computeIfPresent(user.getUsername(), (key, budgets) -> {
+            removed[0] = budgets.clearRules();
+            return budgets.isEmpty() ? null : budgets;
+        });
+        ruleCount.add(-removed[0]);
+    }
+
+    /**
+     * Refuses to rename a user who has budgets or monthly totals, which are kept under the old name.
+     *
+     * @param user        the user being renamed
+     * @param oldUsername the current username
+     * @param newUsername the username about to be set
+     * @param rename      re-keys the user in the repository
+     * @throws IllegalArgumentException if the user has budgets or monthly totals
+     */
+    @Override
+    public void usernameChanging(User user, String oldUsername, String newUsername, Runnable rename) {
+        if (budgetsByUser.containsKey(oldUsername)) {
+            throw new IllegalArgumentException("User '" + oldUsername + "' has budgets and cannot be renamed.");
+        }
+        rename.run();
+    }
+
+    /**
+     * Applies a change to a user's monthly total and raises an alert for each budget whose limit it crossed.
+     *
+     * @param username      the username
+     * @param date          the date of the transaction, giving the month
+     * @param type          the transaction type
+     * @param delta         the change to the total in minor units
+     * @param transactionId the ID of the transaction changed
+     */
+    private void change(String username, LocalDate date, TransactionType type, long delta, int transactionId) {
+        if (delta == 0) {
+            return;
+        }
+        int month = monthKey(date.getYear(), date.getMonthValue());
+        budgetsByUser.compute(username, (key, budgets) -> {
+            UserBudgets updated = budgets == null ? new UserBudgets() : budgets;
+            long before = updated.add(month, type.ordinal(), delta);
+            if (delta > 0) {
+                raiseCrossed(updated, type, month, before, Money.add(before, delta), transactionId);
+            }
+            return updated.isEmpty() ? null : updated;
+        });
+    }
+
+    /**
+     * Raises an alert for each budget with a limit from the total before a change, inclusive, to the total
+     * after it, exclusive: the budgets the change took from within the limit to over it.
+     */
+    private void raiseCrossed(UserBudgets budgets, TransactionType type, int month, long before, long after, int transactionId) {
+        long[] limits = budgets.limitsByType[type.ordinal()];
+        if (limits == null) {
+            return;
+        }
+        BudgetRule[] rules = budgets.rulesByType[type.ordinal()];
+        for (int i = lowerBound(limits, before); i < limits.length && limits[i] < after; i++) {
+            raise(new BudgetAlert(rules[i], YearMonth.of(Math.floorDiv(month, 12), Math.floorMod(month, 12) + 1), after, transactionId));
+        }
+    }
+
+    /**
+     * Queues an alert for delivery, or drops it if the queue is full.
+     *
+     * @param alert the alert
+     */
+    private void raise(BudgetAlert alert) {
+        raisedAlerts.increment();
+        if (listeners.isEmpty()) {
+            return;
+        }
+        try {
+            notifier.execute(() -> {
+                for (BudgetAlertListener listener : listeners) {
+                    listener.budgetExceeded(alert);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            droppedAlerts.increment();
+        }
+    }
+
+    /**
+     * Stops raising alerts to the listeners and waits up to five seconds for the queued ones to be delivered.
+     * Alerts raised after closing are counted as dropped.
+     */
+    @Override
+    public void close() {
+        notifier.shutdown();
+        try {
+            notifier.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Numbers a month: twelve times the year plus the zero-based month.
+     */
+    private static int monthKey(int year, int month) {
+        return year * 12 + month - 1;
+    }
+
+    /**
+     * Finds the first position of a sorted array holding a value at least the given one.
+     */
+    private static int lowerBound(long[] values, long value) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * One user's monthly totals and budgets. Only accessed inside the budgetsByUser compute calls for the
+     * user, which run one at a time.
+     */
+    private static final class UserBudgets {
+
+        // Months with a non-zero total as sorted monthKeys, and their totals in minor units at
+        // months position * type count + type ordinal; a user rarely has more than a few dozen months
+        private int[] months = new int[0];
+        private long[] totals = new long[0];
+
+        // Each type's budgets ordered by limit, with the limits at the same positions; null for no budgets
+        private final BudgetRule[][] rulesByType = new BudgetRule[TransactionType.count()][];
+        private final long[][] limitsByType = new long[TransactionType.count()][];
+
+        /**
+         * Adds an amount to a month's type, dropping the month when all its totals are back to zero.
+         *
+         * @return the type's total before the change
+         */
+        long add(int month, int type, long amount) {
+            int types = TransactionType.count();
+            int position = Arrays.binarySearch(months, month);
+            if (position < 0) {
+                position = -position - 1;
+                months = insert(months, position, month);
+                long[] newTotals = new long[totals.length + types];
+                System.arraycopy(totals, 0, newTotals, 0, position * types);
+                System.arraycopy(totals, position * types, newTotals, (position + 1) * types, totals.length - position * types);
+                totals = newTotals;
+            }
+
+            int offset = position * types;
+            long before = totals[offset + type];
+            totals[offset + type] = Money.add(before, amount);
+            if (isZero(totals, offset, types)) {
+                int[] newMonths = new int[months.length - 1];
+                System.arraycopy(months, 0, newMonths, 0, position);
+                System.arraycopy(months, position + 1, newMonths, position, newMonths.length - position);
+                long[] newTotals = new long[totals.length - types];
+                System.arraycopy(totals, 0, newTotals, 0, offset);
+                System.arraycopy(totals, offset + types, newTotals, offset, newTotals.length - offset);
+                months = newMonths;
+                totals = newTotals;
+            }
+            return before;
+        }
+
+        long getTotal(int month, int type) {
+            int position = Arrays.binarySearch(months, month);
+            return position < 0 ? 0 : totals[position * TransactionType.count() + type];
+        }
+
+        /**
+         * Inserts a budget after those with the same or a lower limit.
+         */
+        void addRule(BudgetRule rule) {
+            int type = rule.getType().ordinal();
+            BudgetRule[] rules = rulesByType[type] == null ? new BudgetRule[0] : rulesByType[type];
+            long[] limits = limitsByType[type] == null ? new long[0] : limitsByType[type];
+            int position = lowerBound(limits, rule.getLimitMinorUnits());
+            while (position < limits.length && limits[position] == rule.getLimitMinorUnits()) {
+                position++;
+            }
+
+            BudgetRule[] newRules = new BudgetRule[rules.length + 1];
+            long[] newLimits = new long[limits.length + 1];
+            System.arraycopy(rules, 0, newRules, 0, position);
+            System.arraycopy(limits, 0, newLimits, 0, position);
+            newRules[position] = rule;
+            newLimits[position] = rule.getLimitMinorUnits();
+            System.arraycopy(rules, position, newRules, position + 1, rules.length - position);
+            System.arraycopy(limits, position, newLimits, position + 1, limits.length - position);
+            rulesByType[type] = newRules;
+            limitsByType[type] = newLimits;
+        }
+
+        /**
+         * Removes a budget.
+         *
+         * @return true if the budget was found
+         */
+        boolean removeRule(BudgetRule rule) {
+            int type = rule.getType().ordinal();
+            BudgetRule[] rules = rulesByType[type];
+            if (rules == null) {
+                return false;
+            }
+            long[] limits = limitsByType[type];
+            for (int i = lowerBound(limits, rule.getLimitMinorUnits()); i < rules.length && limits[i] == rule.getLimitMinorUnits(); i++) {
+                if (rules[i] == rule) {
+                    if (rules.length == 1) {
+                        rulesByType[type] = null;
+                        limitsByType[type] = null;
+                    } else {
+                        BudgetRule[] newRules = new BudgetRule[rules.length - 1];
+                        long[] newLimits = new long[limits.length - 1];
+                        System.arraycopy(rules, 0, newRules, 0, i);
+                        System.arraycopy(limits, 0, newLimits, 0, i);
+                        System.arraycopy(rules, i + 1, newRules, i, rules.length - i - 1);
+                        System.arraycopy(limits, i + 1, newLimits, i, limits.length - i - 1);
+                        rulesByType[type] = newRules;
+                        limitsByType[type] = newLimits;
+                    }
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Removes every budget.
+         *
+         * @return the number of budgets removed
+         */
+        int clearRules() {
+            int removed = 0;
+            for (int type = 0; type < rulesByType.length; type++) {
+                if (rulesByType[type] != null) {
+                    removed += rulesByType[type].length;
+                }
+                rulesByType[type] = null;
+                limitsByType[type] = null;
+            }
+            return removed;
+        }
+
+        void collectRules(List<BudgetRule> into) {
+            for (BudgetRule[] rules : rulesByType) {
+                if (rules != null) {
+                    into.addAll(Arrays.asList(rules));
+                }
+            }
+        }
+
+        /**
+         * Checks whether the user has neither a non-zero monthly total nor a budget left.
+         */
+        boolean isEmpty() {
+            if (months.length != 0) {
+                return false;
+            }
+            for (BudgetRule[] rules : rulesByType) {
+                if (rules != null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean isZero(long[] totals, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                if (totals[i] != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static int[] insert(int[] values, int position, int value) {
+            int[] inserted = new int[values.length + 1];
+            System.arraycopy(values, 0, inserted, 0, position);
+            inserted[position] = value;
+            System.arraycopy(values, position, inserted, position + 1, values.length - position);
+            return inserted;
+        }
+    }
+}
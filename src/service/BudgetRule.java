@@ -0,0 +1,83 @@
+package service;
+
+import model.Money;
+import model.TransactionType;
+
+/**
+ * A monthly budget of one user for one transaction type, as added to a BudgetAlertService: it fires an alert
+ * whenever a change takes the user's total of that type in a calendar month above the limit.
+ */
+public final class BudgetRule {
+
+    private final long id;
+    private final String username;
+    private final TransactionType type;
+
+    // The largest monthly total, in minor units, that does not fire the rule
+    private final long limitMinorUnits;
+
+    /**
+     * Constructor for BudgetRule.
+     *
+     * @param id              the rule ID, unique within its service
+     * @param username        the user the budget applies to
+     * @param type            the transaction type whose monthly total is watched
+     * @param limitMinorUnits the monthly limit in minor units
+     */
+    BudgetRule(long id, String username, TransactionType type, long limitMinorUnits) {
+        this.id = id;
+        this.username = username;
+        this.type = type;
+        this.limitMinorUnits = limitMinorUnits;
+    }
+
+    /**
+     * Gets the rule ID.
+     *
+     * @return the ID
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Gets the username of the user the budget applies to.
+     *
+     * @return the username
+     */
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * Gets the transaction type whose monthly total is watched.
+     *
+     * @return the transaction type
+     */
+    public TransactionType getType() {
+        return type;
+    }
+
+    /**
+     * Gets the monthly limit.
+     *
+     * @return the limit
+     */
+    public Money getLimit() {
+        return Money.ofMinorUnits(limitMinorUnits);
+    }
+
+    /**
+     * Gets the monthly limit in minor units, without allocating.
+     *
+     * @return the limit in minor units
+     */
+    public long getLimitMinorUnits() {
+        return limitMinorUnits;
+    }
+
+    @Override
+    public String toString() {
+        return "Budget #" + id + ": " + username + " " + type.getName() + " over " + getLimit() + " in a month";
+    }
+}
@@ -0,0 +1,267 @@
+package service;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.io.Closeable;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Service class for hashing and verifying passwords with salted PBKDF2-HMAC-SHA256.
+ *
+ * <p>Hashes are stored as {@code pbkdf2-sha256$iterations$salt$hash}, with the salt and hash in Base64,
+ * so a hash keeps verifying after the work factor is changed; {@link #needsRehash} tells when it was made
+ * with a different one.
+ *
+ * <p>Hashing is deliberately slow, so asynchronous verification runs on a small bounded pool: a login
+ * spike queues up to the queue capacity and is then rejected, instead of taking every core away from
+ * transaction ingestion.
+ */
+public class CredentialService implements Closeable {
+
+    /**
+     * Default PBKDF2 iteration count, the OWASP recommendation for PBKDF2-HMAC-SHA256.
+     */
+    public static final int DEFAULT_ITERATIONS = 600_000;
+
+    /**
+     * Lowest accepted iteration count.
+     */
+    public static final int MIN_ITERATIONS = 1_000;
+
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String PREFIX = "pbkdf2-sha256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    private final int iterations;
+    private final SecureRandom random = new SecureRandom();
+    private final ThreadPoolExecutor verifier;
+
+    // Hashing latency, for both new hashes and verifications
+    private final LongAdder hashCount = new LongAdder();
+    private final LongAdder hashNanos = new LongAdder();
+    private final AtomicLong maxHashNanos = new AtomicLong();
+
+    // Asynchronous verifications turned away because the queue was full
+    private final LongAdder rejectedVerifications = new LongAdder();
+
+    /**
+     * Constructor for CredentialService, using 600,000 iterations, a quarter of the cores for
+     * verification and a queue of 1024 pending verifications.
+     */
+    public CredentialService() {
+        this(DEFAULT_ITERATIONS);
+    }
+
+    /**
+     * Constructor for CredentialService, using a quarter of the cores for verification and a queue of
+     * 1024 pending verifications.
+     *
+     * @param iterations the PBKDF2 iteration count for new hashes
+     */
+    public CredentialService(int iterations) {
+        this(iterations, Math.max(1, Runtime.getRuntime().availableProcessors() / 4), DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Constructor for CredentialService.
+     *
+     * @param iterations      the PBKDF2 iteration count for new hashes
+     * @param verifierThreads the number of threads running asynchronous verifications
+     * @param queueCapacity   the number of asynchronous verifications that may wait for a thread
+     */
+    public CredentialService(int iterations, int verifierThreads, int queueCapacity) {
+        if (iterations < MIN_ITERATIONS) {
+            throw new IllegalArgumentException("Iterations must be at least " + MIN_ITERATIONS);
+        }
+        if (verifierThreads < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Verifier threads and queue capacity must be at least 1");
+        }
+        this.iterations = iterations;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "credential-verifier-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        // Threads are started on first use, so an idle service costs nothing
+        this.verifier = new ThreadPoolExecutor(verifierThreads, verifierThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Checks if a stored value is a hash made by this service, as opposed to e.g. a plaintext password.
+     *
+     * @param encoded the stored value
+     * @return true if it has the hash format
+     */
+    public static boolean isPasswordHash(String encoded) {
+        return encoded != null && encoded.startsWith(PREFIX + "$") && encoded.split("\\$").length == 4;
+    }
+
+    /**
+     * Hashes a password with a new random salt.
+     *
+     * @param password the password
+     * @return the encoded hash
+     */
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        byte[] hash = derive(password, salt, iterations);
+        Base64.Encoder base64 = Base64.getEncoder().withoutPadding();
+        return PREFIX + "$" + iterations + "$" + base64.encodeToString(salt) + "$" + base64.encodeToString(hash);
+    }
+
+    /**
+     * Checks a password against a stored hash on the calling thread.
+     *
+     * @param password the password to check
+     * @param encoded  the stored hash
+     * @return true if the password matches, false if it does not or the hash is malformed, including an empty
+     * salt or fewer than MIN_ITERATIONS iterations
+     */
+    public boolean verify(String password, String encoded) {
+        if (!isPasswordHash(encoded)) {
+            return false;
+        }
+        String[] parts = encoded.split("\\$");
+        int hashIterations;
+        byte[] salt;
+        byte[] expected;
+        try {
+            hashIterations = Integer.parseInt(parts[1]);
+            salt = Base64.getDecoder().decode(parts[2]);
+            expected = Base64.getDecoder().decode(parts[3]);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        if (hashIterations < MIN_ITERATIONS || salt.length == 0 || expected.length * 8 != HASH_BITS) {
+            return false;
+        }
+        return MessageDigest.isEqual(expected, derive(password, salt, hashIterations));
+    }
+
+    /**
+     * Checks a password against a stored hash on the verification pool.
+     *
+     * @param password the password to check
+     * @param encoded  the stored hash
+     * @return a future completed with the result, or failed with a RejectedExecutionException if too many
+     * verifications are already waiting
+     */
+    public CompletableFuture<Boolean> verifyAsync(String password, String encoded) {
+        try {
+            return CompletableFuture.supplyAsync(() -> verify(password, encoded), verifier);
+        } catch (RejectedExecutionException e) {
+            rejectedVerifications.increment();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Checks if a stored hash was made with a different work factor than the current one.
+     *
+     * @param encoded the stored hash
+     * @return true if the password should be hashed again when next known
+     */
+    public boolean needsRehash(String encoded) {
+        return !isPasswordHash(encoded) || !encoded.startsWith(PREFIX + "$" + iterations + "$");
+    }
+
+    /**
+     * Gets the iteration count used for new hashes.
+     *
+     * @return the iteration count
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Gets the number of hashes computed, for new hashes and verifications.
+     *
+     * @return the hash count
+     */
+    public long getHashCount() {
+        return hashCount.sum();
+    }
+
+    /**
+     * Gets the mean time to compute a hash.
+     *
+     * @return the mean latency in nanoseconds, or 0 if none was computed
+     */
+    public long getAverageHashNanos() {
+        long count = hashCount.sum();
+        return count == 0 ? 0 : hashNanos.sum() / count;
+    }
+
+    /**
+     * Gets the longest time taken to compute a hash.
+     *
+     * @return the maximum latency in nanoseconds
+     */
+    public long getMaxHashNanos() {
+        return maxHashNanos.get();
+    }
+
+    /**
+     * Gets the number of asynchronous verifications waiting for a thread.
+     *
+     * @return the queue depth
+     */
+    public int getQueueDepth() {
+        return verifier.getQueue().size();
+    }
+
+    /**
+     * Gets the number of asynchronous verifications rejected because the queue was full.
+     *
+     * @return the rejected count
+     */
+    public long getRejectedVerifications() {
+        return rejectedVerifications.sum();
+    }
+
+    /**
+     * Stops the verification pool; verifications already queued still run.
+     */
+    @Override
+    public void close() {
+        verifier.shutdown();
+    }
+
+    /**
+     * Runs PBKDF2 and records how long it took.
+     */
+    private byte[] derive(String password, byte[] salt, int hashIterations) {
+        long start = System.nanoTime();
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, hashIterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        } finally {
+            spec.clearPassword();
+            long elapsed = System.nanoTime() - start;
+            hashCount.increment();
+            hashNanos.add(elapsed);
+            maxHashNanos.accumulateAndGet(elapsed, Math::max);
+        }
+    }
+}
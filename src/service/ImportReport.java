@@ -0,0 +1,124 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a bulk transaction import: how many rows were stored and which rows were rejected and why.
+ * Only the first {@link #MAX_REJECTED_ROWS_KEPT} rejected rows are kept in detail; all are counted.
+ */
+public class ImportReport {
+
+    /**
+     * Most rejected rows whose details are kept.
+     */
+    public static final int MAX_REJECTED_ROWS_KEPT = 1000;
+
+    /**
+     * A row that could not be imported.
+     */
+    public static class RejectedRow {
+
+        private final long lineNumber;
+        private final String line;
+        private final String reason;
+
+        RejectedRow(long lineNumber, String line, String reason) {
+            this.lineNumber = lineNumber;
+            this.line = line;
+            this.reason = reason;
+        }
+
+        /**
+         * Gets the 1-based line number of the row in the input.
+         *
+         * @return the line number
+         */
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        /**
+         * Gets the text of the row.
+         *
+         * @return the row text
+         */
+        public String getLine() {
+            return line;
+        }
+
+        /**
+         * Gets why the row was rejected.
+         *
+         * @return the reason
+         */
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return "Line " + lineNumber + ": " + reason + " [" + line + "]";
+        }
+    }
+
+    private long importedRows;
+    private long rejectedRowCount;
+    private final List<RejectedRow> rejectedRows = new ArrayList<>();
+
+    /**
+     * Records rows that were stored.
+     *
+     * @param rows the number of rows
+     */
+    void addImported(long rows) {
+        importedRows += rows;
+    }
+
+    /**
+     * Records a row that was rejected.
+     *
+     * @param lineNumber the 1-based line number
+     * @param line       the row text
+     * @param reason     why it was rejected
+     */
+    void addRejected(long lineNumber, String line, String reason) {
+        rejectedRowCount++;
+        if (rejectedRows.size() < MAX_REJECTED_ROWS_KEPT) {
+            rejectedRows.add(new RejectedRow(lineNumber, line, reason));
+        }
+    }
+
+    /**
+     * Gets the number of rows stored as transactions.
+     *
+     * @return the imported row count
+     */
+    public long getImportedRows() {
+        return importedRows;
+    }
+
+    /**
+     * Gets the number of rows rejected.
+     *
+     * @return the rejected row count
+     */
+    public long getRejectedRowCount() {
+        return rejectedRowCount;
+    }
+
+    /**
+     * Gets the details of the rejected rows, up to {@link #MAX_REJECTED_ROWS_KEPT}.
+     *
+     * @return the rejected rows, in input order
+     */
+    public List<RejectedRow> getRejectedRows() {
+        return Collections.unmodifiableList(rejectedRows);
+    }
+
+    @Override
+    public String toString() {
+        return "Imported " + importedRows + " rows, rejected " + rejectedRowCount;
+    }
+}
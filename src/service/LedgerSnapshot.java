@@ -0,0 +1,222 @@
+package service;
+
+import model.Money;
+import model.TransactionRecord;
+import model.TransactionType;
+
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * An immutable point-in-time view of one user's transactions and per-type totals, as returned by
+ * TransactionService.getSnapshot.
+ *
+ * <p>A snapshot never changes after it is taken, however many transactions are later added, deleted or
+ * edited, and reading it takes no lock, so long-running reports never hold up ingestion. Snapshots share
+ * structure with each other: once the user's first snapshot has been built, taking one copies nothing, and
+ * keeping an old one alive retains only the tree nodes that have since been replaced.
+ */
+public final class LedgerSnapshot {
+
+    private final String username;
+
+    // Number of changes applied to the ledger when the snapshot was taken
+    private final long version;
+
+    // Root of the persistent tree of the user's records, or null when there are none
+    private final LedgerTree.Node root;
+
+    // Totals in minor units per transaction type, indexed by type ordinal; never modified
+    private final long[] totalsByType;
+
+    /**
+     * Constructor for LedgerSnapshot.
+     *
+     * @param username     the user the snapshot belongs to
+     * @param version      the number of changes applied to the ledger so far
+     * @param root         the root of the record tree, or null for no transactions
+     * @param totalsByType the totals per type ordinal, owned by the snapshot from now on
+     */
+    LedgerSnapshot(String username, long version, LedgerTree.Node root, long[] totalsByType) {
+        this.username = username;
+        this.version = version;
+        this.root = root;
+        this.totalsByType = totalsByType;
+    }
+
+    /**
+     * Creates the snapshot of a user with no transactions.
+     *
+     * @param username the username
+     * @return the empty snapshot
+     */
+    static LedgerSnapshot empty(String username) {
+        return new LedgerSnapshot(username, 0, null, new long[TransactionType.count()]);
+    }
+
+    /**
+     * Gets the username of the user the snapshot belongs to.
+     *
+     * @return the username
+     */
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * Gets the number of changes the ledger had applied when the snapshot was taken. Of two snapshots of
+     * the same ledger, the one with the higher version is the more recent.
+     *
+     * @return the version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the root of the record tree, for the ledger to build the next version from.
+     *
+     * @return the root, or null when the snapshot holds no transactions
+     */
+    LedgerTree.Node root() {
+        return root;
+    }
+
+    /**
+     * Gets the number of transactions in the snapshot.
+     *
+     * @return the number of transactions
+     */
+    public int size() {
+        return LedgerTree.size(root);
+    }
+
+    /**
+     * Checks whether the snapshot holds no transactions.
+     *
+     * @return true if the snapshot is empty
+     */
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    /**
+     * Gets the total of a transaction type, in O(1).
+     *
+     * @param transactionType the transaction type
+     * @return the total
+     */
+    public Money getTotal(TransactionType transactionType) {
+        return Money.ofMinorUnits(getTotalMinorUnits(transactionType));
+    }
+
+    /**
+     * Gets the total of a transaction type in minor units, in O(1) and without allocating.
+     *
+     * @param transactionType the transaction type
+     * @return the total in minor units
+     */
+    public long getTotalMinorUnits(TransactionType transactionType) {
+        return totalsByType[transactionType.ordinal()];
+    }
+
+    /**
+     * Gets the total of a transaction type over the transactions dated within a range,
+     * in O(log n + k) for the k transactions in the range.
+     *
+     * @param transactionType the transaction type
+     * @param from            the first date of the range, inclusive
+     * @param to              the last date of the range, inclusive
+     * @return the total
+     * @throws IllegalArgumentException if from is after to
+     */
+    public Money getTotalBetween(TransactionType transactionType, LocalDate from, LocalDate to) {
+        long total = 0;
+        for (TransactionRecord record : getTransactionsBetween(from, to)) {
+            if (record.getType() == transactionType) {
+                total = Money.add(total, record.getAmountMinorUnits());
+            }
+        }
+        return Money.ofMinorUnits(total);
+    }
+
+    /**
+     * Gets the transactions in the snapshot, in O(1): the list is a read-only view of the snapshot, not a copy.
+     * Access by position takes O(log n).
+     *
+     * @return the transactions, ordered by date and then by ID
+     */
+    public List<TransactionRecord> getTransactions() {
+        return new RecordList(root, 0, size());
+    }
+
+    /**
+     * Gets the transactions dated within a range, in O(log n) as a read-only view of the snapshot.
+     *
+     * @param from the first date of the range, inclusive
+     * @param to   the last date of the range, inclusive
+     * @return the transactions in the range, ordered by date and then by ID
+     * @throws IllegalArgumentException if from is after to
+     */
+    public List<TransactionRecord> getTransactionsBetween(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Start date " + from + " is after end date " + to);
+        }
+        if (UserLedger.holdsNoSupportedDate(from, to)) {
+            return List.of();
+        }
+        int start = LedgerTree.rank(root, UserLedger.dateKey(from, 0));
+        long last = UserLedger.dateKey(to, -1);
+        int end = last == Long.MAX_VALUE ? size() : LedgerTree.rank(root, last + 1);
+        return new RecordList(root, start, end);
+    }
+
+    @Override
+    public String toString() {
+        return "LedgerSnapshot[" + username + ", version " + version + ", " + size() + " transactions]";
+    }
+
+    /**
+     * A read-only list over a range of positions of a record tree.
+     */
+    private static final class RecordList extends AbstractList<TransactionRecord> {
+
+        private final LedgerTree.Node root;
+        private final int from;
+        private final int to;
+
+        RecordList(LedgerTree.Node root, int from, int to) {
+            this.root = root;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public TransactionRecord get(int index) {
+            if (index < 0 || index >= to - from) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + (to - from));
+            }
+            return LedgerTree.get(root, from + index);
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+
+        @Override
+        public Iterator<TransactionRecord> iterator() {
+            return LedgerTree.iterator(root, from, to);
+        }
+
+        @Override
+        public List<TransactionRecord> subList(int fromIndex, int toIndex) {
+            if (fromIndex < 0 || toIndex > to - from || fromIndex > toIndex) {
+                throw new IndexOutOfBoundsException("Range [" + fromIndex + ", " + toIndex + ") out of bounds for length " + (to - from));
+            }
+            return new RecordList(root, from + fromIndex, from + toIndex);
+        }
+    }
+}
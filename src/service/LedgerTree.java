@@ -0,0 +1,268 @@
+package service;
+
+import model.TransactionRecord;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A persistent AVL tree of transaction records keyed by their UserLedger ordering key.
+ *
+ * <p>Nodes are never modified once built. Inserting or removing copies only the O(log n) nodes on the path
+ * from the root to the change and shares every other subtree with the previous version, so each root ever
+ * returned stays a complete, unchanging version of the tree. Each node also counts the records below it,
+ * which gives O(log n) access by position and by rank.
+ */
+final class LedgerTree {
+
+    /**
+     * An immutable tree node.
+     */
+    static final class Node {
+
+        final long key;
+        final TransactionRecord record;
+        final Node left;
+        final Node right;
+        final int height;
+
+        // Number of records in this subtree, including this one
+        final int size;
+
+        /**
+         * Constructor for Node.
+         *
+         * @param key    the ordering key
+         * @param record the record stored under the key
+         * @param left   the subtree of smaller keys, or null
+         * @param right  the subtree of larger keys, or null
+         */
+        Node(long key, TransactionRecord record, Node left, Node right) {
+            this.key = key;
+            this.record = record;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+            this.size = size(left) + size(right) + 1;
+        }
+    }
+
+    private LedgerTree() {
+    }
+
+    /**
+     * Gets the number of records in a tree.
+     *
+     * @param node the root, or null for the empty tree
+     * @return the number of records
+     */
+    static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    /**
+     * Builds a new version of a tree with a record stored under a key, replacing any record already there.
+     *
+     * @param node   the root of the current version, or null for the empty tree
+     * @param key    the ordering key
+     * @param record the record to store
+     * @return the root of the new version
+     */
+    static Node put(Node node, long key, TransactionRecord record) {
+        if (node == null) {
+            return new Node(key, record, null, null);
+        }
+        if (key < node.key) {
+            return balance(node.key, node.record, put(node.left, key, record), node.right);
+        }
+        if (key > node.key) {
+            return balance(node.key, node.record, node.left, put(node.right, key, record));
+        }
+        return new Node(key, record, node.left, node.right);
+    }
+
+    /**
+     * Builds a balanced tree from records already in key order, in O(n).
+     *
+     * @param keys    the ordering keys, strictly ascending
+     * @param records the record stored under each key
+     * @return the root, or null if there are no records
+     */
+    static Node fromSorted(long[] keys, TransactionRecord[] records) {
+        return fromSorted(keys, records, 0, keys.length);
+    }
+
+    private static Node fromSorted(long[] keys, TransactionRecord[] records, int from, int to) {
+        if (from == to) {
+            return null;
+        }
+        int middle = (from + to) >>> 1;
+        return new Node(keys[middle], records[middle],
+                fromSorted(keys, records, from, middle), fromSorted(keys, records, middle + 1, to));
+    }
+
+    /**
+     * Builds a new version of a tree without the record under a key.
+     *
+     * @param node the root of the current version, or null for the empty tree
+     * @param key  the ordering key
+     * @return the root of the new version, or the current root if the key is absent
+     */
+    static Node remove(Node node, long key) {
+        if (node == null) {
+            return null;
+        }
+        if (key < node.key) {
+            Node left = remove(node.left, key);
+            return left == node.left ? node : balance(node.key, node.record, left, node.right);
+        }
+        if (key > node.key) {
+            Node right = remove(node.right, key);
+            return right == node.right ? node : balance(node.key, node.record, node.left, right);
+        }
+        if (node.left == null) {
+            return node.right;
+        }
+        if (node.right == null) {
+            return node.left;
+        }
+        Node first = node.right;
+        while (first.left != null) {
+            first = first.left;
+        }
+        return balance(first.key, first.record, node.left, removeFirst(node.right));
+    }
+
+    private static Node removeFirst(Node node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        return balance(node.key, node.record, removeFirst(node.left), node.right);
+    }
+
+    /**
+     * Builds a node from two subtrees whose heights differ by at most two, rotating once or twice
+     * to restore the AVL balance.
+     */
+    private static Node balance(long key, TransactionRecord record, Node left, Node right) {
+        int leftHeight = height(left);
+        int rightHeight = height(right);
+        if (leftHeight > rightHeight + 1) {
+            if (height(left.left) >= height(left.right)) {
+                return new Node(left.key, left.record, left.left, new Node(key, record, left.right, right));
+            }
+            Node pivot = left.right;
+            return new Node(pivot.key, pivot.record,
+                    new Node(left.key, left.record, left.left, pivot.left), new Node(key, record, pivot.right, right));
+        }
+        if (rightHeight > leftHeight + 1) {
+            if (height(right.right) >= height(right.left)) {
+                return new Node(right.key, right.record, new Node(key, record, left, right.left), right.right);
+            }
+            Node pivot = right.left;
+            return new Node(pivot.key, pivot.record,
+                    new Node(key, record, left, pivot.left), new Node(right.key, right.record, pivot.right, right.right));
+        }
+        return new Node(key, record, left, right);
+    }
+
+    /**
+     * Counts the records whose keys are below a key, in O(log n).
+     *
+     * @param node the root, or null for the empty tree
+     * @param key  the ordering key
+     * @return the number of records with a smaller key, i.e. the position the key has or would have
+     */
+    static int rank(Node node, long key) {
+        int rank = 0;
+        while (node != null) {
+            if (key <= node.key) {
+                node = node.left;
+            } else {
+                rank += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Gets the record at a position in key order, in O(log n).
+     *
+     * @param node  the root
+     * @param index the position, from 0 to size - 1
+     * @return the record
+     */
+    static TransactionRecord get(Node node, int index) {
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return node.record;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * Iterates the records between two positions in key order. Finding the first record takes O(log n);
+     * each further record takes amortised O(1).
+     *
+     * @param root the root, or null for the empty tree
+     * @param from the first position, inclusive
+     * @param to   the last position, exclusive
+     * @return the iterator
+     */
+    static Iterator<TransactionRecord> iterator(Node root, int from, int to) {
+        return new Iterator<>() {
+
+            // Nodes whose record and right subtree are still to be visited, deepest last
+            private final Node[] stack = new Node[height(root)];
+            private int depth;
+            private int remaining = to - from;
+
+            {
+                Node node = root;
+                int index = from;
+                while (node != null && remaining > 0) {
+                    int leftSize = size(node.left);
+                    if (index < leftSize) {
+                        stack[depth++] = node;
+                        node = node.left;
+                    } else if (index == leftSize) {
+                        stack[depth++] = node;
+                        node = null;
+                    } else {
+                        index -= leftSize + 1;
+                        node = node.right;
+                    }
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return remaining > 0;
+            }
+
+            @Override
+            public TransactionRecord next() {
+                if (remaining <= 0) {
+                    throw new NoSuchElementException();
+                }
+                remaining--;
+                Node node = stack[--depth];
+                for (Node next = node.right; next != null; next = next.left) {
+                    stack[depth++] = next;
+                }
+                return node.record;
+            }
+        };
+    }
+}
@@ -0,0 +1,66 @@
+package service;
+
+import model.Money;
+import model.TransactionType;
+
+import java.time.YearMonth;
+import java.util.Arrays;
+
+/**
+ * One user's totals and transaction counts per transaction type for one month, as returned by RollupService.
+ */
+public class MonthlyRollup {
+
+    private final YearMonth month;
+
+    // Totals and counts indexed by type ordinal
+    private final long[] totals;
+    private final long[] counts;
+
+    /**
+     * Constructor for MonthlyRollup.
+     *
+     * @param month  the month
+     * @param totals the total in minor units per type ordinal
+     * @param counts the transaction count per type ordinal
+     */
+    MonthlyRollup(YearMonth month, long[] totals, long[] counts) {
+        this.month = month;
+        this.totals = totals;
+        this.counts = counts;
+    }
+
+    /**
+     * Gets the month.
+     *
+     * @return the month
+     */
+    public YearMonth getMonth() {
+        return month;
+    }
+
+    /**
+     * Gets the total amount of a transaction type in the month.
+     *
+     * @param transactionType the transaction type
+     * @return the total amount
+     */
+    public Money getTotal(TransactionType transactionType) {
+        return Money.ofMinorUnits(totals[transactionType.ordinal()]);
+    }
+
+    /**
+     * Gets the number of transactions of a type in the month.
+     *
+     * @param transactionType the transaction type
+     * @return the transaction count
+     */
+    public long getCount(TransactionType transactionType) {
+        return counts[transactionType.ordinal()];
+    }
+
+    @Override
+    public String toString() {
+        return month + " totals in minor units " + Arrays.toString(totals) + " counts " + Arrays.toString(counts);
+    }
+}
@@ -0,0 +1,301 @@
+package service;
+
+import model.Transaction;
+import model.TransactionListener;
+import model.TransactionType;
+import model.User;
+import model.UserListener;
+import repository.MutationRecords;
+import repository.SnapshotFile;
+import repository.UserRepository;
+import repository.WriteAheadLog;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Service class that makes users and transactions survive restarts.
+ *
+ * <p>{@link #open} recovers the state stored in a directory into the given repository and services:
+ * it loads the latest snapshot and replays the write-ahead log segments written after it. From then on
+ * it logs every mutation made through UserService and TransactionService to the write-ahead log, and
+ * {@link #snapshot()} compacts the current state into a new snapshot so the log can be truncated.
+ *
+ * <p>Mutations are committed in groups by the log; they are durable at most one commit interval after
+ * they are made, or as soon as {@link #sync()} returns.
+ */
+public class PersistenceService implements TransactionListener, UserListener, Closeable {
+
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+    private static final String LOG_DIRECTORY = "wal";
+    private static final long DEFAULT_COMMIT_INTERVAL_MILLIS = 5;
+
+    private final Path directory;
+    private final UserRepository userRepository;
+    private final UserService userService;
+    private final TransactionService transactionService;
+    private final WriteAheadLog log;
+
+    // Number of records applied during recovery
+    private final long recoveredRecords;
+
+    // Runs periodic snapshots once started
+    private ScheduledExecutorService snapshotScheduler;
+
+    // Periodic snapshots that failed, and the cause of the latest failure, or null if none failed
+    private final AtomicLong failedSnapshots = new AtomicLong();
+    private volatile Exception lastSnapshotFailure;
+
+    /**
+     * Constructor for PersistenceService. Recovers the stored state; open then starts logging.
+     */
+    private PersistenceService(Path directory, UserRepository userRepository, UserService userService,
+                               TransactionService transactionService, long commitIntervalMillis) throws IOException {
+        this.directory = directory;
+        this.userRepository = userRepository;
+        this.userService = userService;
+        this.transactionService = transactionService;
+
+        // Recover before listening, so replayed mutations are not logged again
+        this.recoveredRecords = recover();
+
+        this.log = new WriteAheadLog(directory.resolve(LOG_DIRECTORY), commitIntervalMillis);
+    }
+
+    /**
+     * Recovers the state stored in a directory and starts logging every later mutation, using a 5 ms
+     * commit interval.
+     *
+     * @param directory          the directory holding the snapshot and the log, created if missing
+     * @param userRepository     the UserRepository to recover users into
+     * @param userService        the UserService whose mutations are logged
+     * @param transactionService the TransactionService to recover into and whose mutations are logged
+     * @return the persistence service, registered as a listener of both services
+     * @throws IOException if the stored state cannot be read or the log cannot be opened
+     * @throws IllegalArgumentException if a stored record is malformed, e.g. a user's password is not a hash
+     */
+    public static PersistenceService open(Path directory, UserRepository userRepository, UserService userService,
+                                          TransactionService transactionService) throws IOException {
+        return open(directory, userRepository, userService, transactionService, DEFAULT_COMMIT_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Recovers the state stored in a directory and starts logging every later mutation.
+     * The service registers as a listener only once it is fully constructed.
+     *
+     * @param directory            the directory holding the snapshot and the log, created if missing
+     * @param userRepository       the UserRepository to recover users into
+     * @param userService          the UserService whose mutations are logged
+     * @param transactionService   the TransactionService to recover into and whose mutations are logged
+     * @param commitIntervalMillis the longest time a mutation waits before its group commit
+     * @return the persistence service, registered as a listener of both services
+     * @throws IOException if the stored state cannot be read or the log cannot be opened
+     * @throws IllegalArgumentException if a stored record is malformed, e.g. a user's password is not a hash
+     */
+    public static PersistenceService open(Path directory, UserRepository userRepository, UserService userService,
+                                          TransactionService transactionService, long commitIntervalMillis) throws IOException {
+        PersistenceService service = new PersistenceService(directory, userRepository, userService, transactionService,
+                commitIntervalMillis);
+        userService.addListener(service);
+        transactionService.addListener(service);
+        return service;
+    }
+
+    /**
+     * Gets the number of snapshot and log records applied during recovery.
+     *
+     * @return the number of recovered records
+     */
+    public long getRecoveredRecords() {
+        return recoveredRecords;
+    }
+
+    /**
+     * Waits until every mutation made so far is durable.
+     *
+     * @throws IOException if the log failed to commit
+     */
+    public void sync() throws IOException {
+        log.sync();
+    }
+
+    /**
+     * Writes a snapshot of the current state and deletes the log segments it covers.
+     * Writes may continue while the snapshot is taken; those logged meanwhile are kept in the log.
+     *
+     * @throws IOException if the snapshot cannot be written
+     */
+    public synchronized void snapshot() throws IOException {
+        // Everything logged from here on is replayed on top of the snapshot, so the state read
+        // below may include some of those mutations; replaying them again is harmless.
+        long firstSegment = log.rotate();
+
+        List<User> users = userRepository.getAllUsers();
+        List<Transaction> transactions = transactionService.getAllTransactions();
+        Iterator<byte[]> records = Stream.concat(
+                users.stream().map(MutationRecords::userSaved),
+                transactions.stream().map(MutationRecords::transactionSaved)).iterator();
+
+        SnapshotFile.write(directory.resolve(SNAPSHOT_FILE), firstSegment, records);
+        log.deleteSegmentsBefore(firstSegment);
+    }
+
+    /**
+     * Starts taking a snapshot at a fixed interval on a background thread.
+     * A snapshot that fails is counted and kept as the last failure (see getFailedSnapshotCount), and the
+     * schedule carries on; the log keeps every mutation until a later snapshot succeeds.
+     *
+     * @param interval the time between snapshots
+     * @param unit     the unit of the interval
+     */
+    public synchronized void startPeriodicSnapshots(long interval, TimeUnit unit) {
+        if (snapshotScheduler != null) {
+            throw new IllegalStateException("Periodic snapshots are already running");
+        }
+        snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snapshot-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // An exception escaping the task would cancel every later run, so failures are recorded instead
+        snapshotScheduler.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot();
+            } catch (IOException | RuntimeException e) {
+                lastSnapshotFailure = e;
+                failedSnapshots.incrementAndGet();
+            }
+        }, interval, interval, unit);
+    }
+
+    /**
+     * Gets the number of periodic snapshots that failed.
+     *
+     * @return the failure count
+     */
+    public long getFailedSnapshotCount() {
+        return failedSnapshots.get();
+    }
+
+    /**
+     * Gets the cause of the latest failed periodic snapshot.
+     *
+     * @return the exception, or null if no periodic snapshot has failed
+     */
+    public Exception getLastSnapshotFailure() {
+        return lastSnapshotFailure;
+    }
+
+    /**
+     * Stops logging, stops periodic snapshots and commits everything logged so far.
+     *
+     * @throws IOException if the final commit fails
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        userService.removeListener(this);
+        transactionService.removeListener(this);
+        if (snapshotScheduler != null) {
+            snapshotScheduler.shutdownNow();
+        }
+        log.close();
+    }
+
+    @Override
+    public void userSaved(User user) {
+        log.append(MutationRecords.userSaved(user));
+    }
+
+    @Override
+    public void userDeleted(User user) {
+        log.append(MutationRecords.userDeleted(user.getUsername()));
+    }
+
+    @Override
+    public void transactionAdded(Transaction transaction) {
+        log.append(MutationRecords.transactionSaved(transaction));
+    }
+
+    @Override
+    public void transactionDeleted(Transaction transaction) {
+        log.append(MutationRecords.transactionDeleted(transaction.getTransactionId()));
+    }
+
+    @Override
+    public void transactionUpdated(Transaction transaction, TransactionType oldType, long oldAmount,
+                                   LocalDate oldDate, String oldDescription) {
+        log.append(MutationRecords.transactionSaved(transaction));
+    }
+
+    /**
+     * Loads the snapshot and replays the log written after it.
+     *
+     * @return the number of records applied
+     * @throws IOException if the snapshot or the log cannot be read
+     */
+    private long recover() throws IOException {
+        MutationRecords.Handler handler = new RecoveryHandler();
+        long[] snapshotRecords = new long[1];
+        long firstSegment = SnapshotFile.read(directory.resolve(SNAPSHOT_FILE), record -> {
+            MutationRecords.decode(record, handler);
+            snapshotRecords[0]++;
+        });
+        long logRecords = WriteAheadLog.replay(directory.resolve(LOG_DIRECTORY), firstSegment,
+                record -> MutationRecords.decode(record, handler));
+        return snapshotRecords[0] + logRecords;
+    }
+
+    /**
+     * Applies recovered records to the repository and the TransactionService as upserts and deletes.
+     */
+    private class RecoveryHandler implements MutationRecords.Handler {
+
+        @Override
+        public void userSaved(User user) {
+            // Only hashes are ever stored; anything else would be accepted as the password itself
+            if (!CredentialService.isPasswordHash(user.getPasswordHash())) {
+                throw new IllegalArgumentException("Stored password of user '" + user.getUsername() + "' is not a password hash");
+            }
+            User existing = userRepository.getUserByUsername(user.getUsername());
+            if (existing != null) {
+                userRepository.removeUser(existing);
+            }
+            userRepository.addUser(user);
+        }
+
+        @Override
+        public void userDeleted(String username) {
+            User existing = userRepository.getUserByUsername(username);
+            if (existing != null) {
+                userRepository.removeUser(existing);
+            }
+        }
+
+        @Override
+        public void transactionSaved(Transaction transaction) {
+            Transaction existing = transactionService.getTransactionById(transaction.getTransactionId());
+            if (existing == null) {
+                transactionService.restoreTransaction(transaction);
+            } else {
+                existing.setType(transaction.getType());
+                existing.setMoney(transaction.getMoney());
+                existing.setTransactionDate(transaction.getTransactionDate());
+                existing.setDescription(transaction.getDescription());
+            }
+        }
+
+        @Override
+        public void transactionDeleted(int transactionId) {
+            transactionService.deleteTransaction(transactionId);
+        }
+    }
+}
@@ -0,0 +1,624 @@
+package service;
+
+import metrics.MetricsRegistry;
+import metrics.OperationTimer;
+import model.Investment;
+import model.Money;
+import model.Transaction;
+import model.TransactionListener;
+import model.TransactionType;
+import repository.PriceTable;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Service class for investment portfolios: each user's positions, derived from the investment transactions
+ * that record a holding (see {@link TransactionService#addInvestment}), valued against a {@link PriceTable}.
+ * Register it with TransactionService.addListener before transactions are added and it keeps the positions
+ * in step with every add, delete and amount or date change.
+ *
+ * <p>A position's quantity is the sum of its trades. Its cost basis uses the average cost method: a buy adds
+ * what was paid, and a sell removes the average cost of the quantity sold, replaying the trades in date
+ * order. Selling more than is held closes the position; short positions are not tracked. A trade dated after
+ * the position's others, the usual case, is applied to the holding as it stands in O(1); only a back-dated,
+ * changed or deleted trade replays the position's trades.
+ *
+ * <p>Positions are rows in parallel primitive arrays, like {@code ColumnarTransactionStore}: quantity,
+ * price and market value columns plus user and symbol IDs. revalueAll values every position in straight
+ * loops over those arrays that the JIT can unroll and vectorize. revalue applies only the prices changed
+ * since the last valuation, visiting just the positions in those symbols and adjusting each user's total
+ * by the difference, so a tick in a few symbols costs the positions held in them rather than all of them;
+ * when many symbols change at once it falls back to the full pass, which is then cheaper.
+ * Market values are rounded to whole cents per position and summed as longs, so the incremental and the
+ * full valuation always agree to the cent.
+ */
+public class PortfolioService implements TransactionListener {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final double CENTS_PER_UNIT = 100;
+
+    // revalue switches to the full columnar pass when the changed symbols hold more than this share of the
+    // positions: visiting scattered slots one by one costs about fifteen times more per position
+    private static final int INCREMENTAL_SHARE_DIVISOR = 16;
+
+    // Guards all fields; reads share the read lock, trades and valuations take the write lock
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Source of the prices and of the symbol IDs
+    private final PriceTable prices;
+
+    // Position columns, all of the same capacity; slots [0, slotCount) are in use or on the free list.
+    // A free slot has zero quantity and value, so the full valuation loops need not skip it.
+    private int[] slotUsers = new int[INITIAL_CAPACITY];
+    private int[] slotSymbols = new int[INITIAL_CAPACITY];
+    private long[] quantityMicros = new long[INITIAL_CAPACITY];
+    private long[] costBases = new long[INITIAL_CAPACITY];
+    private double[] quantities = new double[INITIAL_CAPACITY];
+    private double[] slotPrices = new double[INITIAL_CAPACITY];
+    private long[] marketValues = new long[INITIAL_CAPACITY];
+    private int slotCount;
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+
+    // Trades of each slot by date and ID, as ledger ordering keys
+    private final List<NavigableMap<Long, Transaction>> tradesBySlot = new ArrayList<>();
+
+    // Slots of each symbol by symbol ID, and each slot's index in its symbol's list for constant-time removal
+    private int[][] slotsBySymbol = new int[0][];
+    private int[] slotsBySymbolCount = new int[0];
+    private int[] symbolListIndex = new int[INITIAL_CAPACITY];
+
+    // Price of each symbol as of the last valuation, NaN if it had none
+    private double[] symbolPrices = new double[0];
+
+    // Portfolios by username, and each user's totals by portfolio index
+    private final Map<String, Portfolio> portfolios = new HashMap<>();
+    private long[] userMarketValues = new long[INITIAL_CAPACITY];
+    private long[] userCostBases = new long[INITIAL_CAPACITY];
+    private int userCount;
+    private final Deque<Integer> freeUsers = new ArrayDeque<>();
+
+    // Price table version the positions were last valued at
+    private long pricesVersion;
+
+    // Call counts and latencies of the valuations
+    private final OperationTimer revalueTimer;
+    private final OperationTimer revalueAllTimer;
+
+    /**
+     * One user's slots, by symbol ID.
+     */
+    private static final class Portfolio {
+
+        private final String username;
+        private final int index;
+        private final Map<Integer, Integer> slots = new HashMap<>();
+
+        Portfolio(String username, int index) {
+            this.username = username;
+            this.index = index;
+        }
+    }
+
+    /**
+     * Constructor for PortfolioService.
+     *
+     * @param prices the price table to value positions against
+     */
+    public PortfolioService(PriceTable prices) {
+        this(prices, new MetricsRegistry());
+    }
+
+    /**
+     * Constructor for PortfolioService.
+     *
+     * @param prices  the price table to value positions against
+     * @param metrics the registry the valuation timers are kept in
+     */
+    public PortfolioService(PriceTable prices, MetricsRegistry metrics) {
+        this.prices = prices;
+        this.revalueTimer = metrics.timer("portfolio.revalue");
+        this.revalueAllTimer = metrics.timer("portfolio.revalue_all");
+        applyPriceChanges();
+    }
+
+    @Override
+    public void transactionAdded(Transaction transaction) {
+        Investment investment = transaction.getInvestment();
+        if (investment == null) {
+            return;
+        }
+        int symbolId = prices.idOf(investment.getSymbol());
+        lock.writeLock().lock();
+        try {
+            Portfolio portfolio = portfolios.computeIfAbsent(transaction.getUsername(), this::newPortfolio);
+            Integer slot = portfolio.slots.get(symbolId);
+            if (slot == null) {
+                slot = newSlot(portfolio.index, symbolId);
+                portfolio.slots.put(symbolId, slot);
+            }
+            NavigableMap<Long, Transaction> trades = tradesBySlot.get(slot);
+            long key = UserLedger.dateKey(transaction);
+            trades.put(key, transaction);
+            if (trades.lastKey() == key) {
+                // The latest trade so far: it applies on top of the holding as it stands
+                applyTrade(slot, transaction);
+            } else {
+                recompute(slot);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void transactionDeleted(Transaction transaction) {
+        Investment investment = transaction.getInvestment();
+        if (investment == null) {
+            return;
+        }
+        int symbolId = prices.idOf(investment.getSymbol());
+        lock.writeLock().lock();
+        try {
+            Portfolio portfolio = portfolios.get(transaction.getUsername());
+            Integer slot = portfolio == null ? null : portfolio.slots.get(symbolId);
+            if (slot == null) {
+                return;
+            }
+            NavigableMap<Long, Transaction> trades = tradesBySlot.get(slot);
+            trades.remove(UserLedger.dateKey(transaction));
+            recompute(slot);
+            if (trades.isEmpty()) {
+                freeSlot(portfolio, symbolId, slot);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void transactionUpdated(Transaction transaction, TransactionType oldType, long oldAmount,
+                                   LocalDate oldDate, String oldDescription) {
+        Investment investment = transaction.getInvestment();
+        if (investment == null
+                || (oldAmount == transaction.getAmountMinorUnits() && oldDate.equals(transaction.getTransactionDate()))) {
+            return;
+        }
+        int symbolId = prices.idOf(investment.getSymbol());
+        lock.writeLock().lock();
+        try {
+            Portfolio portfolio = portfolios.get(transaction.getUsername());
+            Integer slot = portfolio == null ? null : portfolio.slots.get(symbolId);
+            if (slot == null) {
+                return;
+            }
+            NavigableMap<Long, Transaction> trades = tradesBySlot.get(slot);
+            trades.remove(UserLedger.dateKey(oldDate, transaction.getTransactionId()));
+            trades.put(UserLedger.dateKey(transaction), transaction);
+            recompute(slot);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets a user's open positions.
+     *
+     * @param username the username
+     * @return the positions with a non-zero quantity, in symbol order
+     */
+    public List<Position> getPositions(String username) {
+        lock.readLock().lock();
+        try {
+            Portfolio portfolio = portfolios.get(username);
+            if (portfolio == null) {
+                return new ArrayList<>();
+            }
+            List<Position> positions = new ArrayList<>(portfolio.slots.size());
+            for (int slot : portfolio.slots.values()) {
+                if (quantityMicros[slot] != 0) {
+                    positions.add(positionOf(username, slot));
+                }
+            }
+            positions.sort(Comparator.comparing(Position::getSymbol));
+            return positions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets a user's position in one security.
+     *
+     * @param username the username
+     * @param symbol   the security symbol, case-insensitive
+     * @return the position, or null if the user has no open position in it
+     */
+    public Position getPosition(String username, String symbol) {
+        int symbolId = prices.idOf(symbol);
+        lock.readLock().lock();
+        try {
+            Portfolio portfolio = portfolios.get(username);
+            Integer slot = portfolio == null ? null : portfolio.slots.get(symbolId);
+            return slot == null || quantityMicros[slot] == 0 ? null : positionOf(username, slot);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the market value of a user's portfolio at the last valuation. Positions in symbols without a
+     * price count as zero.
+     *
+     * @param username the username
+     * @return the sum of the market values of the user's positions
+     */
+    public Money getMarketValue(String username) {
+        lock.readLock().lock();
+        try {
+            Portfolio portfolio = portfolios.get(username);
+            return portfolio == null ? Money.ZERO : Money.ofMinorUnits(userMarketValues[portfolio.index]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the cost basis of a user's portfolio.
+     *
+     * @param username the username
+     * @return the sum of the cost bases of the user's positions
+     */
+    public Money getCostBasis(String username) {
+        lock.readLock().lock();
+        try {
+            Portfolio portfolio = portfolios.get(username);
+            return portfolio == null ? Money.ZERO : Money.ofMinorUnits(userCostBases[portfolio.index]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the number of positions held by all users, including those whose trades net to zero.
+     *
+     * @return the position count
+     */
+    public int getPositionCount() {
+        lock.readLock().lock();
+        try {
+            return slotCount - freeSlots.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the price table version the positions were last valued at.
+     *
+     * @return the price table version
+     */
+    public long getPricesVersion() {
+        lock.readLock().lock();
+        try {
+            return pricesVersion;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Values the positions in the symbols whose price changed since the last valuation, and only those.
+     *
+     * @return the number of positions re-valued
+     */
+    public int revalue() {
+        long start = revalueTimer.start();
+        lock.writeLock().lock();
+        try {
+            return applyPriceChanges();
+        } finally {
+            lock.writeLock().unlock();
+            revalueTimer.stop(start);
+        }
+    }
+
+    /**
+     * Applies the prices changed since the last valuation and re-values the positions they affect.
+     * The caller must hold the write lock, or be the constructor.
+     *
+     * @return the number of positions re-valued
+     */
+    private int applyPriceChanges() {
+        PriceTable.Changes changes = prices.changesSince(pricesVersion);
+        int affected = 0;
+        for (int i = 0; i < changes.size(); i++) {
+            int symbolId = changes.getSymbolId(i);
+            ensureSymbolCapacity(symbolId);
+            symbolPrices[symbolId] = changes.getPrice(i);
+            affected += slotsBySymbolCount[symbolId];
+        }
+        pricesVersion = changes.getVersion();
+        if (affected > slotCount / INCREMENTAL_SHARE_DIVISOR) {
+            valueAllSlots();
+            return affected;
+        }
+
+        for (int i = 0; i < changes.size(); i++) {
+            int symbolId = changes.getSymbolId(i);
+            double price = changes.getPrice(i);
+            int[] slots = slotsBySymbol[symbolId];
+            int count = slotsBySymbolCount[symbolId];
+            for (int j = 0; j < count; j++) {
+                int slot = slots[j];
+                slotPrices[slot] = price;
+                long value = valueOf(quantities[slot], price);
+                int user = slotUsers[slot];
+                userMarketValues[user] += value - marketValues[slot];
+                marketValues[slot] = value;
+            }
+        }
+        return affected;
+    }
+
+    /**
+     * Values every position against the current prices and recomputes every user's total from scratch.
+     *
+     * @return the number of position slots valued
+     */
+    public int revalueAll() {
+        long start = revalueAllTimer.start();
+        lock.writeLock().lock();
+        try {
+            PriceTable.Changes all = prices.changesSince(0);
+            Arrays.fill(symbolPrices, Double.NaN);
+            for (int i = 0; i < all.size(); i++) {
+                ensureSymbolCapacity(all.getSymbolId(i));
+                symbolPrices[all.getSymbolId(i)] = all.getPrice(i);
+            }
+            pricesVersion = all.getVersion();
+            valueAllSlots();
+            return slotCount;
+        } finally {
+            lock.writeLock().unlock();
+            revalueAllTimer.stop(start);
+        }
+    }
+
+    /**
+     * Values every slot at the symbol prices and rebuilds the user totals. The caller must hold the write lock.
+     */
+    private void valueAllSlots() {
+        int n = slotCount;
+        int[] symbols = slotSymbols;
+        int[] users = slotUsers;
+        double[] quantity = quantities;
+        double[] price = slotPrices;
+        long[] value = marketValues;
+        double[] priceBySymbol = symbolPrices;
+        long[] userValue = userMarketValues;
+
+        // Gather each position's price, then value all positions in one branch-free loop over the
+        // columns, then add the values into the user totals
+        for (int i = 0; i < n; i++) {
+            price[i] = priceBySymbol[symbols[i]];
+        }
+        for (int i = 0; i < n; i++) {
+            value[i] = Math.round(quantity[i] * price[i] * CENTS_PER_UNIT);
+        }
+        Arrays.fill(userValue, 0, userCount, 0);
+        for (int i = 0; i < n; i++) {
+            userValue[users[i]] += value[i];
+        }
+    }
+
+    /**
+     * Values a quantity at a price, in whole cents. Unknown (NaN) prices value to zero.
+     * Must match the expression in valueAllSlots so both valuations agree.
+     */
+    private static long valueOf(double quantity, double price) {
+        return Math.round(quantity * price * CENTS_PER_UNIT);
+    }
+
+    /**
+     * Applies a trade dated after every other trade of its slot to the slot's holding, in O(1), revalues it
+     * at its price, and adjusts the user's totals. The caller must hold the write lock.
+     */
+    private void applyTrade(int slot, Transaction trade) {
+        long quantity = quantityMicros[slot];
+        setHolding(slot, quantityAfter(quantity, trade), costAfter(quantity, costBases[slot], trade));
+    }
+
+    /**
+     * Replays all of a slot's trades into its quantity and average cost basis, revalues it at its price, and
+     * adjusts the user's totals. Needed when a trade is back-dated, changed or removed, since a sell's cost
+     * depends on the holding before it. The caller must hold the write lock.
+     */
+    private void recompute(int slot) {
+        long quantity = 0;
+        long cost = 0;
+        for (Transaction trade : tradesBySlot.get(slot).values()) {
+            cost = costAfter(quantity, cost, trade);
+            quantity = quantityAfter(quantity, trade);
+        }
+        setHolding(slot, quantity, cost);
+    }
+
+    /**
+     * Gets the quantity held after a trade. A sell of more than is held closes the position.
+     */
+    private static long quantityAfter(long quantity, Transaction trade) {
+        long traded = trade.getInvestment().getQuantityMicros();
+        if (traded > 0) {
+            return Math.addExact(quantity, traded);
+        }
+        return quantity - Math.min(-traded, quantity);
+    }
+
+    /**
+     * Gets the cost basis after a trade: a buy adds what was paid, and a sell removes the average cost of
+     * the quantity sold.
+     */
+    private static long costAfter(long quantity, long cost, Transaction trade) {
+        long traded = trade.getInvestment().getQuantityMicros();
+        if (traded > 0) {
+            return Money.add(cost, trade.getAmountMinorUnits());
+        }
+        if (quantity <= 0) {
+            return cost;
+        }
+        long sold = Math.min(-traded, quantity);
+        return sold == quantity ? 0 : cost - averageCostOf(cost, sold, quantity);
+    }
+
+    /**
+     * Stores a slot's new quantity and cost basis, revalues it at its price, and adjusts the user's totals.
+     * The caller must hold the write lock.
+     */
+    private void setHolding(int slot, long quantity, long cost) {
+        int user = slotUsers[slot];
+        userCostBases[user] = Money.add(userCostBases[user], cost - costBases[slot]);
+        quantityMicros[slot] = quantity;
+        costBases[slot] = cost;
+        quantities[slot] = Investment.toDouble(quantity);
+
+        long value = valueOf(quantities[slot], slotPrices[slot]);
+        userMarketValues[user] += value - marketValues[slot];
+        marketValues[slot] = value;
+    }
+
+    /**
+     * Gets the share of a cost basis attributable to part of the quantity, rounded half-even to the cent.
+     */
+    private static long averageCostOf(long cost, long sold, long quantity) {
+        return BigDecimal.valueOf(cost).multiply(BigDecimal.valueOf(sold))
+                .divide(BigDecimal.valueOf(quantity), 0, RoundingMode.HALF_EVEN)
+                .longValueExact();
+    }
+
+    /**
+     * Copies a slot into a Position. The caller must hold the lock.
+     */
+    private Position positionOf(String username, int slot) {
+        return new Position(username, prices.symbolOf(slotSymbols[slot]), quantityMicros[slot], costBases[slot],
+                slotPrices[slot], marketValues[slot]);
+    }
+
+    /**
+     * Creates the portfolio of a user. The caller must hold the write lock.
+     */
+    private Portfolio newPortfolio(String username) {
+        int index;
+        if (!freeUsers.isEmpty()) {
+            index = freeUsers.pop();
+        } else {
+            index = userCount++;
+            if (index == userMarketValues.length) {
+                userMarketValues = Arrays.copyOf(userMarketValues, index * 2);
+                userCostBases = Arrays.copyOf(userCostBases, index * 2);
+            }
+        }
+        return new Portfolio(username, index);
+    }
+
+    /**
+     * Allocates an empty slot for a user's position in a symbol. The caller must hold the write lock.
+     */
+    private int newSlot(int user, int symbolId) {
+        int slot;
+        if (!freeSlots.isEmpty()) {
+            slot = freeSlots.pop();
+        } else {
+            slot = slotCount++;
+            if (slot == slotUsers.length) {
+                grow();
+            }
+            tradesBySlot.add(null);
+        }
+        tradesBySlot.set(slot, new TreeMap<>());
+        slotUsers[slot] = user;
+        slotSymbols[slot] = symbolId;
+
+        ensureSymbolCapacity(symbolId);
+        slotPrices[slot] = symbolPrices[symbolId];
+        int[] slots = slotsBySymbol[symbolId];
+        int count = slotsBySymbolCount[symbolId];
+        if (slots == null || count == slots.length) {
+            slots = slots == null ? new int[4] : Arrays.copyOf(slots, count * 2);
+            slotsBySymbol[symbolId] = slots;
+        }
+        slots[count] = slot;
+        symbolListIndex[slot] = count;
+        slotsBySymbolCount[symbolId] = count + 1;
+        return slot;
+    }
+
+    /**
+     * Returns a slot whose trades are all gone to the free list, and drops the user's portfolio if that was
+     * its last slot. The slot's quantity and value are already zero. The caller must hold the write lock.
+     */
+    private void freeSlot(Portfolio portfolio, int symbolId, int slot) {
+        int[] slots = slotsBySymbol[symbolId];
+        int last = --slotsBySymbolCount[symbolId];
+        int index = symbolListIndex[slot];
+        slots[index] = slots[last];
+        symbolListIndex[slots[index]] = index;
+
+        tradesBySlot.set(slot, null);
+        slotUsers[slot] = 0;
+        slotPrices[slot] = Double.NaN;
+        freeSlots.push(slot);
+
+        portfolio.slots.remove(symbolId);
+        if (portfolio.slots.isEmpty()) {
+            portfolios.remove(portfolio.username);
+            userMarketValues[portfolio.index] = 0;
+            userCostBases[portfolio.index] = 0;
+            freeUsers.push(portfolio.index);
+        }
+    }
+
+    /**
+     * Makes room for a symbol ID in the per-symbol arrays. The caller must hold the write lock.
+     */
+    private void ensureSymbolCapacity(int symbolId) {
+        if (symbolId < symbolPrices.length) {
+            return;
+        }
+        int capacity = Math.max(symbolId + 1, symbolPrices.length * 2);
+        int oldCapacity = symbolPrices.length;
+        symbolPrices = Arrays.copyOf(symbolPrices, capacity);
+        Arrays.fill(symbolPrices, oldCapacity, capacity, Double.NaN);
+        slotsBySymbol = Arrays.copyOf(slotsBySymbol, capacity);
+        slotsBySymbolCount = Arrays.copyOf(slotsBySymbolCount, capacity);
+    }
+
+    /**
+     * Doubles the capacity of the position columns. The caller must hold the write lock.
+     */
+    private void grow() {
+        int capacity = slotUsers.length * 2;
+        slotUsers = Arrays.copyOf(slotUsers, capacity);
+        slotSymbols = Arrays.copyOf(slotSymbols, capacity);
+        quantityMicros = Arrays.copyOf(quantityMicros, capacity);
+        costBases = Arrays.copyOf(costBases, capacity);
+        quantities = Arrays.copyOf(quantities, capacity);
+        slotPrices = Arrays.copyOf(slotPrices, capacity);
+        marketValues = Arrays.copyOf(marketValues, capacity);
+        symbolListIndex = Arrays.copyOf(symbolListIndex, capacity);
+    }
+}
@@ -0,0 +1,130 @@
+package service;
+
+import model.Investment;
+import model.Money;
+
+import java.math.BigDecimal;
+
+/**
+ * A user's holding of one security as derived by PortfolioService: the net quantity of the investment
+ * transactions in that symbol, their average cost basis, and the market value at the last valued price.
+ * A Position is a copy taken under the portfolio lock and does not change afterwards.
+ */
+public final class Position {
+
+    private final String username;
+    private final String symbol;
+    private final long quantityMicros;
+    private final long costBasisMinorUnits;
+
+    // Price per unit the position was last valued at, NaN if the price table has none for the symbol
+    private final double price;
+    private final long marketValueMinorUnits;
+
+    /**
+     * Constructor for Position.
+     *
+     * @param username              the username of the holder
+     * @param symbol                the security symbol
+     * @param quantityMicros        the quantity held in millionths of a unit
+     * @param costBasisMinorUnits   the cost basis in minor units (cents)
+     * @param price                 the price per unit valued at, or NaN
+     * @param marketValueMinorUnits the market value in minor units (cents)
+     */
+    Position(String username, String symbol, long quantityMicros, long costBasisMinorUnits, double price,
+             long marketValueMinorUnits) {
+        this.username = username;
+        this.symbol = symbol;
+        this.quantityMicros = quantityMicros;
+        this.costBasisMinorUnits = costBasisMinorUnits;
+        this.price = price;
+        this.marketValueMinorUnits = marketValueMinorUnits;
+    }
+
+    /**
+     * Gets the username of the holder.
+     *
+     * @return the username
+     */
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * Gets the security symbol.
+     *
+     * @return the uppercase symbol
+     */
+    public String getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * Gets the quantity held.
+     *
+     * @return the exact quantity
+     */
+    public BigDecimal getQuantity() {
+        return BigDecimal.valueOf(quantityMicros, Investment.QUANTITY_SCALE).stripTrailingZeros();
+    }
+
+    /**
+     * Gets the quantity held in millionths of a unit.
+     *
+     * @return the quantity in millionths
+     */
+    public long getQuantityMicros() {
+        return quantityMicros;
+    }
+
+    /**
+     * Gets the cost basis: what was paid for the quantity still held, at the average cost of the buys.
+     *
+     * @return the cost basis
+     */
+    public Money getCostBasis() {
+        return Money.ofMinorUnits(costBasisMinorUnits);
+    }
+
+    /**
+     * Checks whether the price table had a price for the symbol when the position was last valued.
+     *
+     * @return true if the market value is based on a price
+     */
+    public boolean isPriced() {
+        return !Double.isNaN(price);
+    }
+
+    /**
+     * Gets the price per unit the position was last valued at.
+     *
+     * @return the price, or NaN if the symbol has no price
+     */
+    public double getPrice() {
+        return price;
+    }
+
+    /**
+     * Gets the market value: the quantity times the price, rounded to whole cents.
+     *
+     * @return the market value, zero if the symbol has no price
+     */
+    public Money getMarketValue() {
+        return Money.ofMinorUnits(marketValueMinorUnits);
+    }
+
+    /**
+     * Gets the unrealized gain: the market value minus the cost basis.
+     *
+     * @return the gain, negative for a loss
+     */
+    public Money getUnrealizedGain() {
+        return Money.ofMinorUnits(Money.subtract(marketValueMinorUnits, costBasisMinorUnits));
+    }
+
+    @Override
+    public String toString() {
+        return username + " " + getQuantity().toPlainString() + " " + symbol
+                + " cost=" + getCostBasis() + " value=" + getMarketValue();
+    }
+}
@@ -0,0 +1,189 @@
+package service;
+
+import model.Money;
+import model.Transaction;
+import model.TransactionListener;
+import model.TransactionType;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service class keeping materialized per-user, per-month totals and counts for each transaction type.
+ * Created through register, which backfills the months from the transactions already stored and then
+ * updates the affected month on every add, delete and setter change.
+ *
+ * <p>Queries read the stored months of the requested range only, so their cost grows with the number of
+ * months asked for, not with the number of transactions.
+ */
+public class RollupService implements TransactionListener {
+
+    // Each user's months, created on the first transaction and dropped when the last one is deleted
+    private final Map<String, UserRollup> rollupsByUser = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor for RollupService. Private, since rollups missing the transactions stored before they
+     * started listening would silently return wrong totals; use register.
+     */
+    private RollupService() {
+    }
+
+    /**
+     * Creates a RollupService holding the months of every transaction a TransactionService already stores,
+     * and keeps it up to date as a listener of that service.
+     *
+     * @param transactionService the service whose transactions are rolled up
+     * @return the registered service
+     */
+    public static RollupService register(TransactionService transactionService) {
+        RollupService rollups = new RollupService();
+        transactionService.addListenerWithBackfill(rollups);
+        return rollups;
+    }
+
+    @Override
+    public void transactionAdded(Transaction transaction) {
+        rollupsByUser.computeIfAbsent(transaction.getUsername(), key -> new UserRollup())
+                .add(YearMonth.from(transaction.getTransactionDate()), transaction.getType(), transaction.getAmountMinorUnits(), 1);
+    }
+
+    @Override
+    public void transactionDeleted(Transaction transaction) {
+        remove(transaction.getUsername(), transaction.getTransactionDate(), transaction.getType(), transaction.getAmountMinorUnits());
+    }
+
+    @Override
+    public void transactionUpdated(Transaction transaction, TransactionType oldType, long oldAmount,
+                                   LocalDate oldDate, String oldDescription) {
+        remove(transaction.getUsername(), oldDate, oldType, oldAmount);
+        transactionAdded(transaction);
+    }
+
+    /**
+     * Gets a user's rollups for the months of a range that have transactions.
+     *
+     * @param username the username
+     * @param from     the first month of the range, inclusive
+     * @param to       the last month of the range, inclusive
+     * @return the rollups in month order, empty if the user has no transactions in the range
+     */
+    public List<MonthlyRollup> getMonthlyRollups(String username, YearMonth from, YearMonth to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Start month " + from + " is after end month " + to);
+        }
+        UserRollup rollup = rollupsByUser.get(username);
+        return rollup == null ? new ArrayList<>() : rollup.getRollups(from, to);
+    }
+
+    /**
+     * Gets a user's rollup for one month.
+     *
+     * @param username the username
+     * @param month    the month
+     * @return the rollup, with zero totals and counts if the user has no transactions in the month
+     */
+    public MonthlyRollup getMonthlyRollup(String username, YearMonth month) {
+        List<MonthlyRollup> rollups = getMonthlyRollups(username, month, month);
+        return rollups.isEmpty()
+                ? new MonthlyRollup(month, new long[TransactionType.count()], new long[TransactionType.count()])
+                : rollups.get(0);
+    }
+
+    /**
+     * Calculates a user's total amount for a transaction type over a range of months.
+     *
+     * @param username        the username
+     * @param transactionType the transaction type
+     * @param from            the first month of the range, inclusive
+     * @param to              the last month of the range, inclusive
+     * @return the total amount, or 0 if there are no matching transactions
+     */
+    public double getTotalAmountByTypeBetween(String username, TransactionType transactionType, YearMonth from, YearMonth to) {
+        return getTotalByTypeBetween(username, transactionType, from, to).toDouble();
+    }
+
+    /**
+     * Calculates a user's exact total for a transaction type over a range of months.
+     *
+     * @param username        the username
+     * @param transactionType the transaction type
+     * @param from            the first month of the range, inclusive
+     * @param to              the last month of the range, inclusive
+     * @return the total, zero if there are no matching transactions
+     */
+    public Money getTotalByTypeBetween(String username, TransactionType transactionType, YearMonth from, YearMonth to) {
+        long total = 0;
+        for (MonthlyRollup rollup : getMonthlyRollups(username, from, to)) {
+            total = Money.add(total, rollup.getTotal(transactionType).getMinorUnits());
+        }
+        return Money.ofMinorUnits(total);
+    }
+
+    /**
+     * Removes a transaction's old values in minor units from its month, dropping the month and the user once empty.
+     */
+    private void remove(String username, LocalDate date, TransactionType type, long amount) {
+        rollupsByUser.computeIfPresent(username, (key, rollup) ->
+                rollup.add(YearMonth.from(date), type, -amount, -1) ? null : rollup);
+    }
+
+    /**
+     * One user's months. Listener calls for a user arrive one at a time, but queries may run alongside them,
+     * so access is synchronized.
+     */
+    private static class UserRollup {
+
+        // Totals and counts per type ordinal, for each month with transactions
+        private final NavigableMap<YearMonth, long[]> totalsByMonth = new TreeMap<>();
+        private final NavigableMap<YearMonth, long[]> countsByMonth = new TreeMap<>();
+
+        /**
+         * Adds an amount and a count to a month's type, dropping the month when its last transaction goes.
+         *
+         * @return true if the user has no months left
+         */
+        synchronized boolean add(YearMonth month, TransactionType type, long amount, int count) {
+            long[] totals = totalsByMonth.computeIfAbsent(month, key -> new long[TransactionType.count()]);
+            long[] counts = countsByMonth.computeIfAbsent(month, key -> new long[TransactionType.count()]);
+            totals[type.ordinal()] = Money.add(totals[type.ordinal()], amount);
+            counts[type.ordinal()] += count;
+            if (isEmpty(counts)) {
+                totalsByMonth.remove(month);
+                countsByMonth.remove(month);
+            }
+            return totalsByMonth.isEmpty();
+        }
+
+        /**
+         * Copies the stored months of a range.
+         *
+         * @return the rollups in month order
+         */
+        synchronized List<MonthlyRollup> getRollups(YearMonth from, YearMonth to) {
+            List<MonthlyRollup> rollups = new ArrayList<>();
+            for (Map.Entry<YearMonth, long[]> entry : totalsByMonth.subMap(from, true, to, true).entrySet()) {
+                rollups.add(new MonthlyRollup(entry.getKey(), entry.getValue().clone(),
+                        countsByMonth.get(entry.getKey()).clone()));
+            }
+            return rollups;
+        }
+
+        /**
+         * Checks if every type of a month has a zero count.
+         */
+        private static boolean isEmpty(long[] counts) {
+            for (long count : counts) {
+                if (count != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
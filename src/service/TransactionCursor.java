@@ -0,0 +1,120 @@
+package service;
+
+import model.Transaction;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Position in a user's transactions, which are ordered by date and then by ID.
+ * A page read after a cursor starts at the first transaction ordered after the cursor's date and ID,
+ * so paging never rescans earlier transactions and stays correct if the transaction the cursor was
+ * taken from is changed or deleted in between.
+ *
+ * <p>The text form, {@code date:transactionId}, is what clients hand back to fetch the next page.
+ */
+public final class TransactionCursor {
+
+    private final LocalDate date;
+    private final int transactionId;
+
+    /**
+     * Constructor for TransactionCursor.
+     *
+     * @param date          the date of the last transaction read
+     * @param transactionId the ID of the last transaction read
+     */
+    private TransactionCursor(LocalDate date, int transactionId) {
+        this.date = date;
+        this.transactionId = transactionId;
+    }
+
+    /**
+     * Creates a cursor positioned after a date and transaction ID.
+     *
+     * @param date          the date of the last transaction read
+     * @param transactionId the ID of the last transaction read
+     * @return the cursor
+     * @throws IllegalArgumentException if the date is null or outside Transaction.MIN_DATE to Transaction.MAX_DATE
+     */
+    public static TransactionCursor of(LocalDate date, int transactionId) {
+        if (date == null) {
+            throw new IllegalArgumentException("Cursor date must not be null");
+        }
+        if (date.isBefore(Transaction.MIN_DATE) || date.isAfter(Transaction.MAX_DATE)) {
+            throw new IllegalArgumentException("Cursor date " + date + " is outside the supported range");
+        }
+        return new TransactionCursor(date, transactionId);
+    }
+
+    /**
+     * Creates a cursor positioned after a transaction, at its current date.
+     *
+     * @param transaction the last transaction read
+     * @return the cursor
+     */
+    public static TransactionCursor after(Transaction transaction) {
+        return new TransactionCursor(transaction.getTransactionDate(), transaction.getTransactionId());
+    }
+
+    /**
+     * Parses the text form of a cursor.
+     *
+     * @param text the cursor as {@code date:transactionId}, e.g. {@code 2024-03-01:42}
+     * @return the cursor
+     * @throws IllegalArgumentException if the text is not a cursor
+     */
+    public static TransactionCursor parse(String text) {
+        int separator = text == null ? -1 : text.lastIndexOf(':');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Invalid cursor: " + text);
+        }
+        try {
+            return of(LocalDate.parse(text.substring(0, separator)), Integer.parseInt(text.substring(separator + 1)));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + text, e);
+        }
+    }
+
+    /**
+     * Gets the date of the last transaction read.
+     *
+     * @return the date
+     */
+    public LocalDate getDate() {
+        return date;
+    }
+
+    /**
+     * Gets the ID of the last transaction read.
+     *
+     * @return the transaction ID
+     */
+    public int getTransactionId() {
+        return transactionId;
+    }
+
+    /**
+     * Gets the ledger ordering key of the cursor position.
+     *
+     * @return the ordering key
+     */
+    long dateKey() {
+        return UserLedger.dateKey(date, transactionId);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof TransactionCursor other && transactionId == other.transactionId && date.equals(other.date);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * date.hashCode() + transactionId;
+    }
+
+    @Override
+    public String toString() {
+        return date + ":" + transactionId;
+    }
+}
@@ -0,0 +1,328 @@
+package service;
+
+import model.Money;
+import model.Transaction;
+import model.TransactionType;
+import repository.UserRepository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service class for loading transactions in bulk, e.g. a customer's bank history.
+ *
+ * <p>Input is line-delimited CSV with the fields {@code username,type,amount,date,description}, where the
+ * date is ISO {@code yyyy-MM-dd} and the description is the rest of the line, so it may contain commas.
+ * A first line starting with {@code username,} is treated as a header and skipped, as are blank lines.
+ *
+ * <p>Rows are parsed into reusable column buffers and handled a batch at a time: each distinct username
+ * in a batch is checked against the UserRepository once, and each user's valid rows are stored with one
+ * call to {@link TransactionService#addTransactions}, which stores them all or none and notifies the
+ * listeners once. Bad rows are reported in the returned ImportReport instead of stopping the import.
+ */
+public class TransactionImporter {
+
+    private static final int DEFAULT_BATCH_SIZE = 8192;
+
+    // Returned by parseAmount for a region that is not a number
+    private static final long INVALID_AMOUNT = Long.MIN_VALUE;
+
+    private final UserRepository userRepository;
+    private final TransactionService transactionService;
+    private final int batchSize;
+
+    // Column buffers for the rows of the current batch, reused across batches
+    private final String[] usernames;
+    private final TransactionType[] types;
+    private final long[] amounts;
+    private final LocalDate[] dates;
+    private final String[] descriptions;
+    private final long[] lineNumbers;
+    private final String[] lines;
+    private int rows;
+
+    // The last date parsed, reused while consecutive rows share a date
+    private int lastDateKey = -1;
+    private LocalDate lastDate;
+
+    /**
+     * Constructor for TransactionImporter, using batches of 8192 rows.
+     *
+     * @param userRepository     the UserRepository used to check usernames
+     * @param transactionService the TransactionService to store the transactions in
+     */
+    public TransactionImporter(UserRepository userRepository, TransactionService transactionService) {
+        this(userRepository, transactionService, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructor for TransactionImporter.
+     *
+     * @param userRepository     the UserRepository used to check usernames
+     * @param transactionService the TransactionService to store the transactions in
+     * @param batchSize          the number of rows validated and stored together
+     */
+    public TransactionImporter(UserRepository userRepository, TransactionService transactionService, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1");
+        }
+        this.userRepository = userRepository;
+        this.transactionService = transactionService;
+        this.batchSize = batchSize;
+        this.usernames = new String[batchSize];
+        this.types = new TransactionType[batchSize];
+        this.amounts = new long[batchSize];
+        this.dates = new LocalDate[batchSize];
+        this.descriptions = new String[batchSize];
+        this.lineNumbers = new long[batchSize];
+        this.lines = new String[batchSize];
+    }
+
+    /**
+     * Imports the transactions in a UTF-8 CSV file.
+     *
+     * @param file the file to read
+     * @return the report of imported and rejected rows
+     * @throws IOException if the file cannot be read
+     */
+    public ImportReport importCsv(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return importCsv(in);
+        }
+    }
+
+    /**
+     * Imports the transactions in a UTF-8 CSV stream. The stream is read to the end but not closed.
+     * An importer handles one import at a time.
+     *
+     * @param in the stream to read
+     * @return the report of imported and rejected rows
+     * @throws IOException if the stream cannot be read
+     */
+    public synchronized ImportReport importCsv(InputStream in) throws IOException {
+        ImportReport report = new ImportReport();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+        rows = 0;
+
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank() || (lineNumber == 1 && line.startsWith("username,"))) {
+                continue;
+            }
+            String error = parse(line);
+            if (error != null) {
+                report.addRejected(lineNumber, line, error);
+                continue;
+            }
+            lineNumbers[rows] = lineNumber;
+            lines[rows] = line;
+            rows++;
+            if (rows == batchSize) {
+                flush(report);
+            }
+        }
+        flush(report);
+        return report;
+    }
+
+    /**
+     * Parses one line into the next slot of the column buffers.
+     *
+     * @param line the line
+     * @return null if the line was parsed, otherwise why it was rejected
+     */
+    private String parse(String line) {
+        int typeStart = line.indexOf(',') + 1;
+        int amountStart = typeStart == 0 ? 0 : line.indexOf(',', typeStart) + 1;
+        int dateStart = amountStart == 0 ? 0 : line.indexOf(',', amountStart) + 1;
+        int descriptionStart = dateStart == 0 ? 0 : line.indexOf(',', dateStart) + 1;
+        if (descriptionStart == 0) {
+            return "Expected 5 fields: username,type,amount,date,description";
+        }
+
+        if (typeStart == 1) {
+            return "Missing username";
+        }
+        TransactionType type = parseType(line, typeStart, amountStart - 1);
+        if (type == null) {
+            return "Invalid transaction type: " + line.substring(typeStart, amountStart - 1);
+        }
+        long amount = parseAmount(line, amountStart, dateStart - 1);
+        if (amount == INVALID_AMOUNT) {
+            return "Invalid amount: " + line.substring(amountStart, dateStart - 1);
+        }
+        if (amount < 0) {
+            return "Amount must be a positive number";
+        }
+        LocalDate date = parseDate(line, dateStart, descriptionStart - 1);
+        if (date == null) {
+            return "Invalid date: " + line.substring(dateStart, descriptionStart - 1);
+        }
+
+        usernames[rows] = line.substring(0, typeStart - 1);
+        types[rows] = type;
+        amounts[rows] = amount;
+        dates[rows] = date;
+        descriptions[rows] = line.substring(descriptionStart);
+        return null;
+    }
+
+    /**
+     * Stores the valid rows of the current batch, one user at a time, and empties the buffers.
+     * Each distinct username in the batch is checked once.
+     */
+    private void flush(ImportReport report) {
+        if (rows == 0) {
+            return;
+        }
+        // Row indexes of each existing user's rows, in input order
+        Map<String, List<Integer>> rowsByUser = new LinkedHashMap<>();
+        Map<String, Boolean> knownUsers = new HashMap<>();
+        for (int row = 0; row < rows; row++) {
+            if (knownUsers.computeIfAbsent(usernames[row], userRepository::usernameExists)) {
+                rowsByUser.computeIfAbsent(usernames[row], key -> new ArrayList<>()).add(row);
+            } else {
+                report.addRejected(lineNumbers[row], lines[row], "Username '" + usernames[row] + "' does not exist");
+            }
+        }
+
+        // A user deleted since the check fails only that user's rows; report them rather than throwing
+        for (List<Integer> userRows : rowsByUser.values()) {
+            List<Transaction> transactions = new ArrayList<>(userRows.size());
+            for (int row : userRows) {
+                transactions.add(new Transaction(usernames[row], types[row], Money.ofMinorUnits(amounts[row]), dates[row], descriptions[row]));
+            }
+            try {
+                transactionService.addTransactions(transactions);
+                report.addImported(transactions.size());
+            } catch (IllegalArgumentException e) {
+                for (int row : userRows) {
+                    report.addRejected(lineNumbers[row], lines[row], e.getMessage());
+                }
+            }
+        }
+
+        Arrays.fill(usernames, 0, rows, null);
+        Arrays.fill(descriptions, 0, rows, null);
+        Arrays.fill(lines, 0, rows, null);
+        rows = 0;
+    }
+
+    /**
+     * Matches a transaction type name in a region of the line, ignoring case, without copying it.
+     */
+    private static TransactionType parseType(String line, int start, int end) {
+        int length = end - start;
+        for (int ordinal = 0; ordinal < TransactionType.count(); ordinal++) {
+            TransactionType type = TransactionType.fromOrdinal(ordinal);
+            if (type.getName().length() == length && line.regionMatches(true, start, type.getName(), 0, length)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Parses a decimal amount in a region of the line into minor units (cents).
+     * Plain decimals of up to 15 digits with at most two decimals are parsed exactly without copying the region.
+     * Anything else is parsed as a BigDecimal and rounded half-even to cents.
+     *
+     * @return the amount in minor units, or INVALID_AMOUNT if the region is not a number or too large
+     */
+    private static long parseAmount(String line, int start, int end) {
+        int position = start;
+        boolean negative = position < end && line.charAt(position) == '-';
+        if (negative) {
+            position++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = -1;
+        for (; position < end; position++) {
+            char c = line.charAt(position);
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else if (c == '.' && scale < 0) {
+                scale = 0;
+            } else {
+                break;
+            }
+        }
+        if (position == end && digits > 0 && digits <= 15 && scale <= Money.SCALE) {
+            for (int i = Math.max(scale, 0); i < Money.SCALE; i++) {
+                mantissa *= 10;
+            }
+            return negative ? -mantissa : mantissa;
+        }
+        try {
+            return Money.toMinorUnits(new BigDecimal(line.substring(start, end)));
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException for a malformed number, IllegalArgumentException for one too large
+            return INVALID_AMOUNT;
+        }
+    }
+
+    /**
+     * Parses an ISO yyyy-MM-dd date in a region of the line, reusing the previous result when the date repeats.
+     *
+     * @return the date, or null if the region is not a valid date
+     */
+    private LocalDate parseDate(String line, int start, int end) {
+        if (end - start != 10 || line.charAt(start + 4) != '-' || line.charAt(start + 7) != '-') {
+            return null;
+        }
+        int year = digits(line, start, 4);
+        int month = digits(line, start + 5, 2);
+        int day = digits(line, start + 8, 2);
+        if (year < 0 || month < 0 || day < 0) {
+            return null;
+        }
+        int key = year * 10000 + month * 100 + day;
+        if (key != lastDateKey) {
+            try {
+                lastDate = LocalDate.of(year, month, day);
+            } catch (DateTimeException e) {
+                return null;
+            }
+            lastDateKey = key;
+        }
+        return lastDate;
+    }
+
+    /**
+     * Parses a fixed number of decimal digits.
+     *
+     * @return the value, or -1 if a character is not a digit
+     */
+    private static int digits(String line, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = line.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
@@ -0,0 +1,59 @@
+package service;
+
+import model.Transaction;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a user's transactions, as returned by TransactionService.getTransactionsPage,
+ * with the cursor to read the next page from.
+ */
+public class TransactionPage {
+
+    private final List<Transaction> transactions;
+    private final TransactionCursor nextCursor;
+
+    /**
+     * Constructor for TransactionPage.
+     *
+     * @param transactions the transactions of the page, ordered by date and then by ID
+     * @param nextCursor   the cursor after the last transaction, or null if the page is the last one
+     */
+    TransactionPage(List<Transaction> transactions, TransactionCursor nextCursor) {
+        this.transactions = Collections.unmodifiableList(transactions);
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Gets the transactions of the page.
+     *
+     * @return the transactions, ordered by date and then by ID
+     */
+    public List<Transaction> getTransactions() {
+        return transactions;
+    }
+
+    /**
+     * Gets the cursor to pass for the next page.
+     *
+     * @return the cursor after the last transaction of this page, or null if there are no more transactions
+     */
+    public TransactionCursor getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Checks whether more transactions follow this page.
+     *
+     * @return true if there is a next page
+     */
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+
+    @Override
+    public String toString() {
+        return transactions.size() + " transactions, next cursor " + nextCursor;
+    }
+}
@@ -0,0 +1,369 @@
+package service;
+
+import model.Transaction;
+import model.TransactionListener;
+import model.TransactionType;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service class for full-text search over transaction descriptions, backed by a per-user inverted index.
+ * Register it with TransactionService.addListener before transactions are added and it keeps the index in
+ * step with every add, delete and description change.
+ *
+ * <p>Descriptions are split into terms at every character that is not a letter or digit and lowercased.
+ * Each term maps to the sorted IDs of the user's transactions containing it. A query is a list of terms
+ * that must all match; a term ending in {@code *} matches every term starting with it, so
+ * {@code "groc* store"} finds "Grocery store" and "Groceries - corner store". Queries read only the
+ * posting lists of their terms, so their cost grows with the number of matches, not with the user's history.
+ */
+public class TransactionSearchService implements TransactionListener {
+
+    // Marks a query term as a prefix
+    private static final char PREFIX_WILDCARD = '*';
+
+    // Each user's index, created on the first transaction and dropped when the last indexed term goes
+    private final Map<String, UserIndex> indexesByUser = new ConcurrentHashMap<>();
+
+    // Resolves matching IDs to transactions
+    private final TransactionService transactionService;
+
+    /**
+     * Constructor for TransactionSearchService.
+     *
+     * @param transactionService the service whose transactions are indexed; register this search service
+     *                           with its addListener
+     */
+    public TransactionSearchService(TransactionService transactionService) {
+        this.transactionService = transactionService;
+    }
+
+    @Override
+    public void transactionAdded(Transaction transaction) {
+        Set<String> terms = terms(transaction.getDescription());
+        if (!terms.isEmpty()) {
+            indexesByUser.computeIfAbsent(transaction.getUsername(), key -> new UserIndex())
+                    .add(terms, transaction.getTransactionId());
+        }
+    }
+
+    @Override
+    public void transactionDeleted(Transaction transaction) {
+        remove(transaction.getUsername(), transaction.getDescription(), transaction.getTransactionId());
+    }
+
+    @Override
+    public void transactionUpdated(Transaction transaction, TransactionType oldType, long oldAmount,
+                                   LocalDate oldDate, String oldDescription) {
+        if (!terms(oldDescription).equals(terms(transaction.getDescription()))) {
+            remove(transaction.getUsername(), oldDescription, transaction.getTransactionId());
+            transactionAdded(transaction);
+        }
+    }
+
+    /**
+     * Finds a user's transactions whose description matches every term of a query.
+     *
+     * @param username the username
+     * @param query    the terms to match, each optionally ending in {@code *} to match as a prefix
+     * @param limit    the most transactions to return
+     * @return the newest matching transactions, highest ID first
+     * @throws IllegalArgumentException if the query has no terms or the limit is not positive
+     */
+    public List<Transaction> search(String username, String query, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be at least 1");
+        }
+        int[] ids = searchIds(username, query);
+        List<Transaction> matches = new ArrayList<>(Math.min(limit, ids.length));
+        for (int i = ids.length - 1; i >= 0 && matches.size() < limit; i--) {
+            // Skip transactions deleted since the index was read
+            Transaction transaction = transactionService.getTransactionById(ids[i]);
+            if (transaction != null) {
+                matches.add(transaction);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Counts a user's transactions whose description matches every term of a query.
+     *
+     * @param username the username
+     * @param query    the terms to match, each optionally ending in {@code *} to match as a prefix
+     * @return the number of matching transactions
+     * @throws IllegalArgumentException if the query has no terms
+     */
+    public int count(String username, String query) {
+        return searchIds(username, query).length;
+    }
+
+    /**
+     * Finds the IDs of a user's transactions whose description matches every term of a query.
+     *
+     * @param username the username
+     * @param query    the terms to match, each optionally ending in {@code *} to match as a prefix
+     * @return the matching transaction IDs in ascending order
+     * @throws IllegalArgumentException if the query has no terms
+     */
+    public int[] searchIds(String username, String query) {
+        List<String> exactTerms = new ArrayList<>();
+        List<String> prefixes = new ArrayList<>();
+        parseQuery(query, exactTerms, prefixes);
+        UserIndex index = indexesByUser.get(username);
+        return index == null ? new int[0] : index.search(exactTerms, prefixes);
+    }
+
+    /**
+     * Splits text into its distinct lowercased terms.
+     *
+     * @param text the text, e.g. a description
+     * @return the terms in order of first appearance, empty for null or blank text
+     */
+    public static Set<String> terms(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (text == null) {
+            return terms;
+        }
+        int start = -1;
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            if (Character.isLetterOrDigit(codePoint)) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0) {
+                terms.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+            i += Character.charCount(codePoint);
+        }
+        if (start >= 0) {
+            terms.add(text.substring(start).toLowerCase(Locale.ROOT));
+        }
+        return terms;
+    }
+
+    /**
+     * Splits a query into exact terms and prefixes. A word ending in the wildcard contributes its last
+     * term as a prefix and any earlier terms, e.g. of "t-mob*", as exact terms.
+     */
+    private static void parseQuery(String query, List<String> exactTerms, List<String> prefixes) {
+        if (query != null) {
+            for (String word : query.trim().split("\\s+")) {
+                boolean prefix = !word.isEmpty() && word.charAt(word.length() - 1) == PREFIX_WILDCARD;
+                List<String> wordTerms = new ArrayList<>(terms(word));
+                if (prefix && !wordTerms.isEmpty()) {
+                    prefixes.add(wordTerms.remove(wordTerms.size() - 1));
+                }
+                exactTerms.addAll(wordTerms);
+            }
+        }
+        if (exactTerms.isEmpty() && prefixes.isEmpty()) {
+            throw new IllegalArgumentException("Search query must contain at least one term: " + query);
+        }
+    }
+
+    /**
+     * Removes a transaction's description terms from its user's index, dropping the index once empty.
+     */
+    private void remove(String username, String description, int transactionId) {
+        Set<String> terms = terms(description);
+        if (!terms.isEmpty()) {
+            indexesByUser.computeIfPresent(username, (key, index) -> index.remove(terms, transactionId) ? null : index);
+        }
+    }
+
+    /**
+     * One user's inverted index. Listener calls for a user arrive one at a time, but queries may run
+     * alongside them, so access is synchronized.
+     */
+    private static class UserIndex {
+
+        // Term to posting list, sorted so that the terms of a prefix are one contiguous range
+        private final NavigableMap<String, PostingList> postingsByTerm = new TreeMap<>();
+
+        /**
+         * Adds a transaction ID to the posting list of each term.
+         */
+        synchronized void add(Collection<String> terms, int transactionId) {
+            for (String term : terms) {
+                postingsByTerm.computeIfAbsent(term, key -> new PostingList()).add(transactionId);
+            }
+        }
+
+        /**
+         * Removes a transaction ID from the posting list of each term, dropping lists once empty.
+         *
+         * @return true if the index has no terms left
+         */
+        synchronized boolean remove(Collection<String> terms, int transactionId) {
+            for (String term : terms) {
+                PostingList postings = postingsByTerm.get(term);
+                if (postings != null && postings.remove(transactionId) && postings.size == 0) {
+                    postingsByTerm.remove(term);
+                }
+            }
+            return postingsByTerm.isEmpty();
+        }
+
+        /**
+         * Intersects the posting lists of the exact terms and of the prefixes, smallest first.
+         *
+         * @return the matching IDs in ascending order, a new array
+         */
+        synchronized int[] search(List<String> exactTerms, List<String> prefixes) {
+            List<int[]> lists = new ArrayList<>(exactTerms.size() + prefixes.size());
+            List<Integer> sizes = new ArrayList<>(lists.size());
+            for (String term : exactTerms) {
+                PostingList postings = postingsByTerm.get(term);
+                if (postings == null) {
+                    return new int[0];
+                }
+                lists.add(postings.ids);
+                sizes.add(postings.size);
+            }
+            for (String prefix : prefixes) {
+                int[] union = union(postingsByTerm.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values());
+                if (union.length == 0) {
+                    return new int[0];
+                }
+                lists.add(union);
+                sizes.add(union.length);
+            }
+
+            Integer[] order = new Integer[lists.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Integer.compare(sizes.get(a), sizes.get(b)));
+
+            int[] result = Arrays.copyOf(lists.get(order[0]), sizes.get(order[0]));
+            int resultSize = result.length;
+            for (int i = 1; i < order.length && resultSize > 0; i++) {
+                resultSize = intersect(result, resultSize, lists.get(order[i]), sizes.get(order[i]));
+            }
+            return resultSize == result.length ? result : Arrays.copyOf(result, resultSize);
+        }
+
+        /**
+         * Merges the posting lists of the terms sharing a prefix, removing IDs listed under several terms.
+         */
+        private static int[] union(Collection<PostingList> postingLists) {
+            if (postingLists.size() == 1) {
+                PostingList postings = postingLists.iterator().next();
+                return Arrays.copyOf(postings.ids, postings.size);
+            }
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            for (PostingList postings : postingLists) {
+                min = Math.min(min, postings.ids[0]);
+                max = Math.max(max, postings.ids[postings.size - 1]);
+            }
+            if (min > max) {
+                return new int[0];
+            }
+            BitSet seen = new BitSet((int) Math.min(Integer.MAX_VALUE, (long) max - min + 1));
+            for (PostingList postings : postingLists) {
+                for (int i = 0; i < postings.size; i++) {
+                    seen.set(postings.ids[i] - min);
+                }
+            }
+            int[] union = new int[seen.cardinality()];
+            for (int bit = seen.nextSetBit(0), i = 0; bit >= 0; bit = seen.nextSetBit(bit + 1)) {
+                union[i++] = bit + min;
+            }
+            return union;
+        }
+
+        /**
+         * Keeps the IDs of the first list that are also in the second, in place.
+         * Each lookup gallops forward from the previous position and then binary searches the bracketed
+         * range, so lists of similar size merge in linear time and a small list is intersected with a large
+         * one in O(small log large).
+         *
+         * @return the number of IDs kept
+         */
+        private static int intersect(int[] result, int resultSize, int[] other, int otherSize) {
+            int kept = 0;
+            int from = 0;
+            for (int i = 0; i < resultSize && from < otherSize; i++) {
+                int id = result[i];
+                int end = from;
+                for (int step = 1; end < otherSize && other[end] < id; step <<= 1) {
+                    from = end + 1;
+                    end += step;
+                }
+                int found = Arrays.binarySearch(other, from, Math.min(end + 1, otherSize), id);
+                if (found >= 0) {
+                    result[kept++] = id;
+                    from = found + 1;
+                } else {
+                    from = -found - 1;
+                }
+            }
+            return kept;
+        }
+    }
+
+    /**
+     * Sorted set of transaction IDs backed by a growable int array. New transactions get increasing IDs,
+     * so adds almost always append.
+     */
+    private static final class PostingList {
+
+        private int[] ids = new int[4];
+        private int size;
+
+        /**
+         * Adds an ID, keeping the list sorted.
+         */
+        void add(int id) {
+            if (size > 0 && id <= ids[size - 1]) {
+                int index = Arrays.binarySearch(ids, 0, size, id);
+                if (index >= 0) {
+                    return;
+                }
+                insertAt(-index - 1, id);
+            } else {
+                insertAt(size, id);
+            }
+        }
+
+        /**
+         * Removes an ID.
+         *
+         * @return true if the ID was present
+         */
+        boolean remove(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+            return true;
+        }
+
+        private void insertAt(int index, int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            ids[index] = id;
+            size++;
+        }
+    }
+}
@@ -1,38 +1,228 @@
 package service;
 
+import metrics.MetricsRegistry;
+import metrics.OperationTimer;
+import model.Investment;
+import model.Money;
 import model.Transaction;
+import model.TransactionListener;
+import model.TransactionType;
+import model.TransactionUpdateHandler;
+import model.User;
+import model.UserListener;
+import model.UsernameChangeGuard;
 import repository.UserRepository;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Service class for managing user transactions. This class handles adding,
  * retrieving, deleting, and calculating total amounts for transactions.
+ * Totals per user and type are kept as running sums, so reading them is O(1). Amounts and totals are
+ * exact counts of cents (see {@link Money}); the double-based methods convert at the boundary.
+ *
+ * <p>The service is thread-safe. Each user's ledger is guarded by one of a fixed set of
+ * read-write locks chosen by the hash of the username, so writers for different users
+ * rarely contend, and readers always see a ledger between two complete changes.
+ *
+ * <p>The public operations are timed on a sample of calls in a {@link MetricsRegistry}, under
+ * {@code transaction.add}, {@code .list}, {@code .total}, {@code .delete} and the batch variants. The O(1)
+ * lookups (getTransactionById, the running totals and getSnapshot) take tens of nanoseconds and are not
+ * timed, as even a sampled timer would add more than 2% to them.
+ *
+ * <p>Reports that read many transactions can work from {@link #getSnapshot}, an immutable point-in-time view
+ * that takes no lock, so they neither block nor are blocked by ingestion. Snapshots are opt-in per user:
+ * only once a user's snapshot has been asked for do that user's changes pay to publish new ones.
+ *
+ * <p>Other stores and indexes can follow every change by registering a {@link TransactionListener}.
+ * Registered as a {@link UserListener} of the UserService, the service deletes a user's transactions
+ * when the user is deleted. Registered as a {@link UsernameChangeGuard} of the UserRepository, it refuses to
+ * rename a user who has transactions, which it and every listener keep under the old name.
  */
-public class TransactionService {
+public class TransactionService implements UserListener, UsernameChangeGuard {
 
-    // List to store Transaction objects
-    private final List<Transaction> transactions = new ArrayList<>();
+    /**
+     * Largest number of transactions returned in one page.
+     */
+    public static final int MAX_PAGE_SIZE = 10_000;
+
+    // Number of transactions a stream copies out of a ledger per read lock acquisition
+    private static final int STREAM_CHUNK_SIZE = 256;
+
+    // One single-transaction call in this many is timed, so the timers stay a fraction of a percent
+    // of the calls they measure
+    private static final int TIMER_SAMPLE_EVERY = 16;
+
+    // Map of transaction ID to Transaction object
+    private final Map<Integer, Transaction> transactionsById = new ConcurrentHashMap<>();
+
+    // Secondary index of username to that user's date-ordered transactions and running totals.
+    // The username of a Transaction is final, so the setters can never move a
+    // transaction between users; they only reorder it or change the totals of its ledger.
+    private final Map<String, UserLedger> transactionsByUser = new ConcurrentHashMap<>();
+
+    // Lock stripes guarding the ledgers; a user's ledger is guarded by lockFor(username)
+    private final ReadWriteLock[] locks;
+
+    // Keeps the date order and running totals in step with changes made through the Transaction setters
+    private final TransactionUpdateHandler updateHandler = this::applyUpdate;
+
+    // Listeners notified of every add, delete and setter change
+    private final List<TransactionListener> listeners = new CopyOnWriteArrayList<>();
 
     // Reference to UserLookupService (implemented by UserRepository)
     private final UserRepository userRepository;
 
+    // Call counts and latencies of the public operations
+    private final MetricsRegistry metrics;
+    private final OperationTimer addTimer;
+    private final OperationTimer addBatchTimer;
+    private final OperationTimer listTimer;
+    private final OperationTimer totalTimer;
+    private final OperationTimer deleteTimer;
+    private final OperationTimer deleteBatchTimer;
+
     /**
      * Constructor for TransactionService.
+     * Uses four lock stripes per available processor.
      *
      * @param userRepository the UserRepository instance to use
      */
     public TransactionService(UserRepository userRepository) {
+        this(userRepository, new MetricsRegistry());
+    }
+
+    /**
+     * Constructor for TransactionService.
+     * Uses four lock stripes per available processor.
+     *
+     * @param userRepository the UserRepository instance to use
+     * @param metrics        the registry the operation timers are kept in
+     */
+    public TransactionService(UserRepository userRepository, MetricsRegistry metrics) {
+        this(userRepository, 4 * Runtime.getRuntime().availableProcessors(), metrics);
+    }
+
+    /**
+     * Constructor for TransactionService with an explicit number of lock stripes.
+     *
+     * @param userRepository the UserRepository instance to use
+     * @param lockStripes    the number of locks the users are spread over, rounded up to a power of two
+     */
+    public TransactionService(UserRepository userRepository, int lockStripes) {
+        this(userRepository, lockStripes, new MetricsRegistry());
+    }
+
+    /**
+     * Constructor for TransactionService with an explicit number of lock stripes and metrics registry.
+     *
+     * @param userRepository the UserRepository instance to use
+     * @param lockStripes    the number of locks the users are spread over, rounded up to a power of two
+     * @param metrics        the registry the operation timers are kept in
+     */
+    public TransactionService(UserRepository userRepository, int lockStripes, MetricsRegistry metrics) {
+        if (lockStripes < 1) {
+            throw new IllegalArgumentException("Lock stripes must be at least 1");
+        }
         this.userRepository = userRepository;
+        this.metrics = metrics;
+        this.addTimer = metrics.timer("transaction.add", TIMER_SAMPLE_EVERY);
+        this.addBatchTimer = metrics.timer("transaction.add_batch");
+        this.listTimer = metrics.timer("transaction.list", TIMER_SAMPLE_EVERY);
+        this.totalTimer = metrics.timer("transaction.total", TIMER_SAMPLE_EVERY);
+        this.deleteTimer = metrics.timer("transaction.delete", TIMER_SAMPLE_EVERY);
+        this.deleteBatchTimer = metrics.timer("transaction.delete_batch");
+        int stripes = 1;
+        while (stripes < lockStripes) {
+            stripes <<= 1;
+        }
+        this.locks = new ReadWriteLock[stripes];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    /**
+     * Gets the registry holding the operation timers.
+     *
+     * @return the metrics registry
+     */
+    public MetricsRegistry getMetricsRegistry() {
+        return metrics;
+    }
+
+    /**
+     * Registers a listener to be notified of every later add, delete and setter change.
+     *
+     * @param listener the listener to add
+     */
+    public void addListener(TransactionListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Registers a listener and first passes it every transaction already stored, in one
+     * {@link TransactionListener#transactionsAdded} call per user, so that a listener keeping derived state
+     * can be registered after transactions exist. Every lock stripe is held meanwhile, so each transaction
+     * reaches the listener exactly once, either in the backfill or through a later notification.
+     *
+     * @param listener the listener to add
+     */
+    public void addListenerWithBackfill(TransactionListener listener) {
+        for (ReadWriteLock lock : locks) {
+            lock.writeLock().lock();
+        }
+        try {
+            for (UserLedger ledger : transactionsByUser.values()) {
+                if (!ledger.getTransactions().isEmpty()) {
+                    listener.transactionsAdded(new ArrayList<>(ledger.getTransactions()));
+                }
+            }
+            listeners.add(listener);
+        } finally {
+            for (int i = locks.length - 1; i >= 0; i--) {
+                locks[i].writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Unregisters a listener.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeListener(TransactionListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Gets the lock stripe guarding a user's ledger.
+     *
+     * @param username the username
+     * @return the lock for that user
+     */
+    private ReadWriteLock lockFor(String username) {
+        int hash = username.hashCode();
+        return locks[(hash ^ (hash >>> 16)) & (locks.length - 1)];
     }
 
     /**
      * Adds a new transaction for a user.
-     * Takes in transaction details, creates a new Transaction object, and stores it in a list.
+     * Takes in transaction details, creates a new Transaction object, and stores it in the indexes.
      * Associates the transaction with the specified username.
      *
      * @param username        The username of the user for whom the transaction is created
@@ -40,81 +230,926 @@ public class TransactionService {
      * @param amount          The amount of money involved in the transaction
      * @param transactionDate The date of the transaction
      * @param description     A brief description of the transaction
+     * @return The stored transaction, with its assigned ID
      */
-    public void addTransaction(String username, String transactionType, double amount, LocalDate transactionDate, String description) {
-        if (!userRepository.usernameExists(username)) {
-            throw new IllegalArgumentException("Username '" + username + "' does not exist. Cannot add transaction.");
+    public Transaction addTransaction(String username, String transactionType, double amount, LocalDate transactionDate, String description) {
+        long start = addTimer.start();
+        try {
+            if (!userRepository.usernameExists(username)) {
+                throw new IllegalArgumentException("Username '" + username + "' does not exist. Cannot add transaction.");
+            }
+            Transaction transaction = new Transaction(username, transactionType, amount, transactionDate, description);
+            insert(transaction, true);
+            return transaction;
+        } finally {
+            addTimer.stop(start);
         }
-        transactions.add(new Transaction(username, transactionType, amount, transactionDate, description));
+    }
+
+    /**
+     * Adds a new transaction for a user.
+     *
+     * @param username        The username of the user for whom the transaction is created
+     * @param transactionType The type of transaction
+     * @param amount          The amount of money involved in the transaction
+     * @param transactionDate The date of the transaction
+     * @param description     A brief description of the transaction
+     * @return The stored transaction, with its assigned ID
+     */
+    public Transaction addTransaction(String username, TransactionType transactionType, Money amount, LocalDate transactionDate, String description) {
+        long start = addTimer.start();
+        try {
+            if (!userRepository.usernameExists(username)) {
+                throw new IllegalArgumentException("Username '" + username + "' does not exist. Cannot add transaction.");
+            }
+            Transaction transaction = new Transaction(username, transactionType, amount, transactionDate, description);
+            insert(transaction, true);
+            return transaction;
+        } finally {
+            addTimer.stop(start);
+        }
+    }
+
+    /**
+     * Adds a new investment transaction for a user, recording the holding bought or sold.
+     * Register a PortfolioService to follow the resulting positions.
+     *
+     * @param username        The username of the user for whom the transaction is created
+     * @param investment      The security and quantity traded, positive for a buy and negative for a sell
+     * @param amount          The amount paid for a buy or received for a sell
+     * @param transactionDate The date of the transaction
+     * @param description     A brief description of the transaction
+     * @return The stored transaction, with its assigned ID
+     */
+    public Transaction addInvestment(String username, Investment investment, Money amount, LocalDate transactionDate, String description) {
+        long start = addTimer.start();
+        try {
+            if (investment == null) {
+                throw new IllegalArgumentException("Investment must not be null");
+            }
+            if (!userRepository.usernameExists(username)) {
+                throw new IllegalArgumentException("Username '" + username + "' does not exist. Cannot add transaction.");
+            }
+            Transaction transaction = new Transaction(username, TransactionType.INVESTMENT, amount, transactionDate, description, investment);
+            insert(transaction, true);
+            return transaction;
+        } finally {
+            addTimer.stop(start);
+        }
+    }
+
+    /**
+     * Restores a previously stored transaction, keeping its original ID.
+     * Used when recovering persisted data, so it does not require the user to exist: transactions of
+     * deleted users are restored as they were stored.
+     *
+     * @param transaction the transaction to restore
+     * @throws IllegalArgumentException if a transaction with the same ID is already present
+     */
+    public void restoreTransaction(Transaction transaction) {
+        insert(transaction, false);
+    }
+
+    /**
+     * Adds a batch of already-built transactions.
+     * Each distinct username is checked once, and each user's transactions are stored under a single
+     * acquisition of that user's lock. Nothing is stored if any username does not exist. Each username is
+     * checked again once its lock is held, as addTransaction does, so a user deleted meanwhile gets no
+     * transactions; the users stored before it keep theirs.
+     *
+     * <p>Each user's transactions are stored all or nothing, publish at most one snapshot, and reach the
+     * listeners in one {@link TransactionListener#transactionsAdded} call. Callers that need to know which
+     * users were stored, such as TransactionImporter, pass one user's transactions per call.
+     *
+     * @param transactions the transactions to add
+     * @throws IllegalArgumentException if a username does not exist or a transaction ID is already present
+     */
+    public void addTransactions(Collection<Transaction> transactions) {
+        long start = addBatchTimer.start();
+        try {
+            Map<String, List<Transaction>> byUser = new LinkedHashMap<>();
+            for (Transaction transaction : transactions) {
+                byUser.computeIfAbsent(transaction.getUsername(), key -> new ArrayList<>()).add(transaction);
+            }
+            for (String username : byUser.keySet()) {
+                if (!userRepository.usernameExists(username)) {
+                    throw new IllegalArgumentException("Username '" + username + "' does not exist. Cannot add transaction.");
+                }
+            }
+
+            for (Map.Entry<String, List<Transaction>> entry : byUser.entrySet()) {
+                ReadWriteLock lock = lockFor(entry.getKey());
+                lock.writeLock().lock();
+                try {
+                    if (!userRepository.usernameExists(entry.getKey())) {
+                        throw new IllegalArgumentException("Username '" + entry.getKey() + "' does not exist. Cannot add transaction.");
+                    }
+                    insertAllLocked(entry.getKey(), entry.getValue());
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        } finally {
+            addBatchTimer.stop(start);
+        }
+    }
+
+    /**
+     * Stores a new transaction in both indexes and notifies the listeners.
+     *
+     * @param transaction  the transaction to store
+     * @param userRequired whether the user must still exist once the lock is held; checking under the lock
+     *                     means an add racing a user delete is either refused or removed by the cascade
+     * @throws IllegalArgumentException if the user is required but missing, or a transaction with the same ID is already present
+     */
+    private void insert(Transaction transaction, boolean userRequired) {
+        ReadWriteLock lock = lockFor(transaction.getUsername());
+        lock.writeLock().lock();
+        try {
+            if (userRequired && !userRepository.usernameExists(transaction.getUsername())) {
+                throw new IllegalArgumentException("Username '" + transaction.getUsername() + "' does not exist. Cannot add transaction.");
+            }
+            insertLocked(transaction);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Stores a new transaction in both indexes and notifies the listeners.
+     * The caller must hold the write lock of the transaction's user.
+     *
+     * @param transaction the transaction to store
+     * @throws IllegalArgumentException if a transaction with the same ID is already present
+     */
+    private void insertLocked(Transaction transaction) {
+        // Attached before the transaction is visible by ID, so a setter called on it from then on waits for
+        // this lock and updates the ledger; a rejected duplicate keeps the handler, which applies its
+        // changes directly because the transaction stored under its ID is another one
+        transaction.setUpdateHandler(updateHandler);
+        if (transactionsById.putIfAbsent(transaction.getTransactionId(), transaction) != null) {
+            throw new IllegalArgumentException("Transaction ID " + transaction.getTransactionId() + " already exists.");
+        }
+        transactionsByUser.computeIfAbsent(transaction.getUsername(), UserLedger::new).add(transaction);
+        for (TransactionListener listener : listeners) {
+            listener.transactionAdded(transaction);
+        }
+    }
+
+    /**
+     * Stores new transactions of one user in both indexes and notifies the listeners once.
+     * Either all of them are stored or none. The caller must hold the write lock of the user.
+     *
+     * @param username     the user the transactions belong to
+     * @param transactions the transactions to store
+     * @throws IllegalArgumentException if a transaction ID is already present or repeated
+     */
+    private void insertAllLocked(String username, List<Transaction> transactions) {
+        for (int i = 0; i < transactions.size(); i++) {
+            Transaction transaction = transactions.get(i);
+            // Attached before the transaction is visible by ID, as in insertLocked
+            transaction.setUpdateHandler(updateHandler);
+            if (transactionsById.putIfAbsent(transaction.getTransactionId(), transaction) != null) {
+                for (int stored = 0; stored < i; stored++) {
+                    transactionsById.remove(transactions.get(stored).getTransactionId());
+                }
+                throw new IllegalArgumentException("Transaction ID " + transaction.getTransactionId() + " already exists.");
+            }
+        }
+        transactionsByUser.computeIfAbsent(username, UserLedger::new).addAll(transactions);
+        for (TransactionListener listener : listeners) {
+            listener.transactionsAdded(transactions);
+        }
+    }
+
+    /**
+     * Retrieves a transaction by its ID.
+     *
+     * @param transactionId The unique ID of the transaction
+     * @return The transaction, or null if no transaction has that ID
+     */
+    public Transaction getTransactionById(int transactionId) {
+        return transactionsById.get(transactionId);
+    }
+
+    /**
+     * Retrieves every transaction of every user.
+     * The list is built from a weakly consistent view: it reflects each transaction as it was when
+     * visited, and changes made during the call may or may not be included.
+     *
+     * @return A new list of all transactions, in no particular order
+     */
+    public List<Transaction> getAllTransactions() {
+        return new ArrayList<>(transactionsById.values());
+    }
+
+    /**
+     * Counts the transactions of every user, in O(1).
+     *
+     * @return The number of transactions stored
+     */
+    public int getTransactionCount() {
+        return transactionsById.size();
     }
 
     /**
      * Retrieves all transactions for a specific user.
-     * Searches the list of transactions and returns only those associated with the provided username.
+     * Looks the user up in the per-user index, so the cost is proportional to that user's transactions only.
+     * The list is a copy of all of them; for users with many transactions, getTransactionsPage and
+     * streamTransactionsByUser read them without copying the whole ledger.
      *
      * @param username The username of the user whose transactions are being retrieved
-     * @return A list of transactions associated with the given username
+     * @return A list of transactions associated with the given username, ordered by date and then by ID
      */
     public List<Transaction> getTransactionsByUser(String username) {
+        long start = listTimer.start();
+        try {
+            // Check if the username exists using UserLookupService
+            if (!userRepository.usernameExists(username)) {
+                throw new IllegalArgumentException("Username '" + username + "' does not exist.");
+            }
+
+            // Copy the user's indexed transactions so callers cannot modify the index
+            ReadWriteLock lock = lockFor(username);
+            lock.readLock().lock();
+            try {
+                UserLedger ledger = transactionsByUser.get(username);
+                return ledger == null ? new ArrayList<>() : new ArrayList<>(ledger.getTransactions());
+            } finally {
+                lock.readLock().unlock();
+            }
+        } finally {
+            listTimer.stop(start);
+        }
+    }
 
-        List<Transaction> userTransactions = new ArrayList<>();
+    /**
+     * Retrieves a user's transactions dated within a range.
+     * Uses the per-user date index, so the cost is O(log n + k) for k matching transactions.
+     *
+     * @param username The username of the user whose transactions are being retrieved
+     * @param from     The first date of the range, inclusive
+     * @param to       The last date of the range, inclusive
+     * @return A list of the user's transactions in the range, ordered by date and then by ID
+     */
+    public List<Transaction> getTransactionsByUserBetween(String username, LocalDate from, LocalDate to) {
+        long start = listTimer.start();
+        try {
+            validateRange(username, from, to);
+
+            ReadWriteLock lock = lockFor(username);
+            lock.readLock().lock();
+            try {
+                UserLedger ledger = transactionsByUser.get(username);
+                return ledger == null ? new ArrayList<>() : new ArrayList<>(ledger.getTransactionsBetween(from, to));
+            } finally {
+                lock.readLock().unlock();
+            }
+        } finally {
+            listTimer.stop(start);
+        }
+    }
+
+    /**
+     * Retrieves one page of a user's transactions, ordered by date and then by ID.
+     * The page starts right after the cursor through the per-user date index, so reading page k costs
+     * O(log n + page size) and never rescans the earlier pages.
+     *
+     * @param username The username of the user whose transactions are being retrieved
+     * @param after    The cursor returned with the previous page, or null for the first page
+     * @param limit    The most transactions to return, from 1 to {@link #MAX_PAGE_SIZE}
+     * @return The page, with the cursor for the next page if more transactions follow
+     */
+    public TransactionPage getTransactionsPage(String username, TransactionCursor after, int limit) {
+        long start = listTimer.start();
+        try {
+            if (!userRepository.usernameExists(username)) {
+                throw new IllegalArgumentException("Username '" + username + "' does not exist.");
+            }
+            if (limit < 1 || limit > MAX_PAGE_SIZE) {
+                throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+            }
+
+            ReadWriteLock lock = lockFor(username);
+            lock.readLock().lock();
+            try {
+                UserLedger ledger = transactionsByUser.get(username);
+                if (ledger == null) {
+                    return new TransactionPage(new ArrayList<>(), null);
+                }
+
+                List<Transaction> page = new ArrayList<>(limit);
+                Iterator<Transaction> iterator = ledger.getTransactionsAfter(after == null ? null : after.dateKey()).values().iterator();
+                while (page.size() < limit && iterator.hasNext()) {
+                    page.add(iterator.next());
+                }
+                TransactionCursor nextCursor = iterator.hasNext() ? TransactionCursor.after(page.get(page.size() - 1)) : null;
+                return new TransactionPage(page, nextCursor);
+            } finally {
+                lock.readLock().unlock();
+            }
+        } finally {
+            listTimer.stop(start);
+        }
+    }
+
+    /**
+     * Streams all transactions of a user, ordered by date and then by ID.
+     *
+     * @param username The username of the user whose transactions are being retrieved
+     * @return A lazy stream of the user's transactions
+     * @see #streamTransactionsByUser(String, TransactionCursor)
+     */
+    public Stream<Transaction> streamTransactionsByUser(String username) {
+        return streamTransactionsByUser(username, null);
+    }
+
+    /**
+     * Streams a user's transactions after a cursor, ordered by date and then by ID.
+     * Nothing is copied up front: the stream reads the ledger in chunks of a few hundred transactions
+     * into one reused buffer, taking the user's read lock per chunk and resuming after the last key read,
+     * so its memory stays constant however many transactions the user has and a short-circuiting
+     * operation such as limit stops reading early.
+     *
+     * <p>The stream is weakly consistent: each chunk is read at one point in time, and the actions run
+     * without holding the lock. A transaction added, deleted or moved to another date while the stream is
+     * consumed may or may not be seen, and one moved later may be seen twice.
+     *
+     * @param username The username of the user whose transactions are being retrieved
+     * @param after    The cursor to start after, or null to start at the first transaction
+     * @return A lazy stream of the user's transactions
+     */
+    public Stream<Transaction> streamTransactionsByUser(String username, TransactionCursor after) {
 
-        // Check if the username exists using UserLookupService
         if (!userRepository.usernameExists(username)) {
             throw new IllegalArgumentException("Username '" + username + "' does not exist.");
         }
+        return StreamSupport.stream(new LedgerSpliterator(username, after == null ? null : after.dateKey()), false);
+    }
+
+    /**
+     * Calculates the total amount for a specific transaction type for a user within a date range.
+     * Sums the matching transactions found through the per-user date index, in O(log n + k).
+     *
+     * @param username        The username of the user whose transactions are being calculated
+     * @param transactionType The type of transaction to filter by (e.g., "income", "expense")
+     * @param from            The first date of the range, inclusive
+     * @param to              The last date of the range, inclusive
+     * @return The total amount for the specified transaction type for the user within the range, or 0 for an unknown type
+     */
+    public double getTotalAmountByTypeBetween(String username, String transactionType, LocalDate from, LocalDate to) {
+
+        TransactionType type = TransactionType.lookup(transactionType);
+        if (type == null) {
+            validateRange(username, from, to);
+            return 0;
+        }
+        return getTotalAmountByTypeBetween(username, type, from, to);
+    }
 
-        // Loop through transactions and add those matching the username to userTransactions
-        for (Transaction transaction : transactions) {
-            if (transaction.getUsername().equals(username)) {
-                userTransactions.add(transaction);
+    /**
+     * Calculates the total amount for a specific transaction type for a user within a date range.
+     * Sums the matching transactions found through the per-user date index, in O(log n + k).
+     *
+     * @param username        The username of the user whose transactions are being calculated
+     * @param transactionType The type of transaction to filter by
+     * @param from            The first date of the range, inclusive
+     * @param to              The last date of the range, inclusive
+     * @return The total amount for the specified transaction type for the user within the range
+     */
+    public double getTotalAmountByTypeBetween(String username, TransactionType transactionType, LocalDate from, LocalDate to) {
+        return Money.toDouble(totalMinorUnitsBetween(username, transactionType, from, to));
+    }
+
+    /**
+     * Calculates the exact total for a specific transaction type for a user within a date range.
+     * Sums the matching transactions found through the per-user date index, in O(log n + k).
+     *
+     * @param username        The username of the user whose transactions are being calculated
+     * @param transactionType The type of transaction to filter by
+     * @param from            The first date of the range, inclusive
+     * @param to              The last date of the range, inclusive
+     * @return The total for the specified transaction type for the user within the range
+     */
+    public Money getTotalByTypeBetween(String username, TransactionType transactionType, LocalDate from, LocalDate to) {
+        return Money.ofMinorUnits(totalMinorUnitsBetween(username, transactionType, from, to));
+    }
+
+    /**
+     * Gets an immutable point-in-time view of a user's transactions and totals, in O(1).
+     * Takes no lock: the view is the one the user's latest completed change published, and it never changes
+     * afterwards, so reading it neither waits for nor holds up concurrent adds, deletes and edits.
+     *
+     * <p>The first call for a user builds the view from the user's transactions under the user's read lock,
+     * in O(n); from then on each of the user's changes publishes a new view, until the user has no
+     * transactions left.
+     *
+     * @param username The username of the user whose ledger is viewed
+     * @return The snapshot, empty if the user has no transactions
+     */
+    public LedgerSnapshot getSnapshot(String username) {
+        UserLedger ledger = transactionsByUser.get(username);
+        if (ledger == null) {
+            return LedgerSnapshot.empty(username);
+        }
+        LedgerSnapshot snapshot = ledger.getSnapshot();
+        if (snapshot != null) {
+            return snapshot;
+        }
+        ReadWriteLock lock = lockFor(username);
+        lock.readLock().lock();
+        try {
+            ledger = transactionsByUser.get(username);
+            return ledger == null ? LedgerSnapshot.empty(username) : ledger.startSnapshots();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sums the amounts in minor units of a user's transactions of a type within a date range.
+     *
+     * @param username        The username of the user whose transactions are being calculated
+     * @param transactionType The type of transaction to filter by
+     * @param from            The first date of the range, inclusive
+     * @param to              The last date of the range, inclusive
+     * @return The total in minor units
+     */
+    private long totalMinorUnitsBetween(String username, TransactionType transactionType, LocalDate from, LocalDate to) {
+        long start = totalTimer.start();
+        try {
+            validateRange(username, from, to);
+
+            ReadWriteLock lock = lockFor(username);
+            lock.readLock().lock();
+            try {
+                UserLedger ledger = transactionsByUser.get(username);
+                if (ledger == null) {
+                    return 0;
+                }
+
+                long sum = 0;
+                for (Transaction transaction : ledger.getTransactionsBetween(from, to)) {
+                    if (transaction.getType() == transactionType) {
+                        sum = Money.add(sum, transaction.getAmountMinorUnits());
+                    }
+                }
+                return sum;
+            } finally {
+                lock.readLock().unlock();
             }
+        } finally {
+            totalTimer.stop(start);
         }
+    }
 
-        return userTransactions;
+    /**
+     * Validates the arguments of a date-range query.
+     *
+     * @param username The username of the user being queried
+     * @param from     The first date of the range, inclusive
+     * @param to       The last date of the range, inclusive
+     */
+    private void validateRange(String username, LocalDate from, LocalDate to) {
+        if (!userRepository.usernameExists(username)) {
+            throw new IllegalArgumentException("Username '" + username + "' does not exist.");
+        }
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Start date " + from + " is after end date " + to);
+        }
     }
 
     /**
      * Deletes a specific transaction.
-     * Searches for the transaction by its ID and removes it from the list if found.
+     * Looks the transaction up by its ID and removes it from both indexes if found, in O(log n) for the
+     * owning user's n transactions.
      *
      * @param transactionId The unique ID of the transaction to delete
      * @return true if the transaction was successfully deleted, false if not found
      */
     public boolean deleteTransaction(int transactionId) {
+        long start = deleteTimer.start();
+        try {
+            Transaction transaction = transactionsById.get(transactionId);
+            if (transaction == null) {
+                return false;
+            }
 
-        Iterator<Transaction> iterator = transactions.iterator();
+            ReadWriteLock lock = lockFor(transaction.getUsername());
+            lock.writeLock().lock();
+            try {
+                // Another thread may have deleted the transaction before we took the lock
+                if (!removeLocked(transaction)) {
+                    return false;
+                }
+                for (TransactionListener listener : listeners) {
+                    listener.transactionDeleted(transaction);
+                }
+                return true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            deleteTimer.stop(start);
+        }
+    }
 
-        while (iterator.hasNext()) {
-            Transaction transaction = iterator.next();
+    /**
+     * Deletes a set of transactions.
+     * The transactions are grouped by user, and each user's are removed under a single acquisition of that
+     * user's lock and passed to the listeners as one batch, so stores such as ColumnarTransactionStore
+     * reclaim the space in one compaction pass. Unknown and repeated IDs are skipped.
+     *
+     * @param transactionIds The unique IDs of the transactions to delete
+     * @return The number of transactions deleted
+     */
+    public int deleteTransactions(Collection<Integer> transactionIds) {
+        long start = deleteBatchTimer.start();
+        try {
+            Map<String, List<Transaction>> byUser = new LinkedHashMap<>();
+            for (Integer transactionId : transactionIds) {
+                Transaction transaction = transactionsById.get(transactionId);
+                if (transaction != null) {
+                    byUser.computeIfAbsent(transaction.getUsername(), key -> new ArrayList<>()).add(transaction);
+                }
+            }
 
-            if (transaction.getTransactionId() == transactionId) {
-                iterator.remove();
-                return true;
+            int deleted = 0;
+            for (Map.Entry<String, List<Transaction>> entry : byUser.entrySet()) {
+                ReadWriteLock lock = lockFor(entry.getKey());
+                lock.writeLock().lock();
+                try {
+                    List<Transaction> removed = new ArrayList<>(entry.getValue().size());
+                    for (Transaction transaction : entry.getValue()) {
+                        if (removeLocked(transaction)) {
+                            removed.add(transaction);
+                        }
+                    }
+                    notifyDeleted(removed);
+                    deleted += removed.size();
+                } finally {
+                    lock.writeLock().unlock();
+                }
             }
+            return deleted;
+        } finally {
+            deleteBatchTimer.stop(start);
+        }
+    }
+
+    /**
+     * Deletes every transaction of a user, in O(k) for the user's k transactions.
+     * Does not require the user to exist, so it also clears the transactions of a user already deleted.
+     *
+     * @param username The username whose transactions are deleted
+     * @return The number of transactions deleted
+     */
+    public int deleteTransactionsByUser(String username) {
+        long start = deleteBatchTimer.start();
+        try {
+            ReadWriteLock lock = lockFor(username);
+            lock.writeLock().lock();
+            try {
+                UserLedger ledger = transactionsByUser.remove(username);
+                if (ledger == null) {
+                    return 0;
+                }
+
+                List<Transaction> removed = new ArrayList<>(ledger.getTransactions());
+                for (Transaction transaction : removed) {
+                    transactionsById.remove(transaction.getTransactionId(), transaction);
+                    transaction.setUpdateHandler(null);
+                }
+                notifyDeleted(removed);
+                return removed.size();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            deleteBatchTimer.stop(start);
+        }
+    }
+
+    /**
+     * Deletes the transactions of a user deleted through the UserService.
+     *
+     * @param user the deleted user
+     */
+    @Override
+    public void userDeleted(User user) {
+        deleteTransactionsByUser(user.getUsername());
+    }
+
+    /**
+     * Refuses to rename a user who has transactions. The old name's write lock is held while the repository
+     * re-keys the user, so no transaction can be added under the old name once it has been checked.
+     *
+     * @param user        the user being renamed
+     * @param oldUsername the current username
+     * @param newUsername the username about to be set
+     * @param rename      re-keys the user in the repository
+     * @throws IllegalArgumentException if the user has transactions
+     */
+    @Override
+    public void usernameChanging(User user, String oldUsername, String newUsername, Runnable rename) {
+        ReadWriteLock lock = lockFor(oldUsername);
+        lock.writeLock().lock();
+        try {
+            if (transactionsByUser.containsKey(oldUsername)) {
+                throw new IllegalArgumentException("User '" + oldUsername + "' has transactions and cannot be renamed.");
+            }
+            rename.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a transaction from both indexes.
+     * The caller must hold the write lock of the transaction's user.
+     *
+     * @param transaction The transaction to remove
+     * @return true if it was removed, false if it had already been deleted
+     */
+    private boolean removeLocked(Transaction transaction) {
+        if (!transactionsById.remove(transaction.getTransactionId(), transaction)) {
+            return false;
+        }
+
+        transaction.setUpdateHandler(null);
+        UserLedger ledger = transactionsByUser.get(transaction.getUsername());
+        ledger.remove(transaction);
+        if (ledger.isEmpty()) {
+            transactionsByUser.remove(transaction.getUsername());
         }
+        return true;
+    }
 
-        return false;
+    /**
+     * Notifies the listeners of a batch of deleted transactions of one user.
+     * The caller must hold the write lock of that user.
+     *
+     * @param removed The deleted transactions, possibly none
+     */
+    private void notifyDeleted(List<Transaction> removed) {
+        if (removed.isEmpty()) {
+            return;
+        }
+        for (TransactionListener listener : listeners) {
+            listener.transactionsDeleted(removed);
+        }
     }
 
     /**
      * Calculates the total amount for a specific transaction type for a user.
-     * Sums all transaction amounts for the given type (e.g., "income" or "expense") associated with the specified username.
+     * Reads the running total kept for the given type (e.g., "income" or "expense") and username.
      *
      * @param username        The username of the user whose transactions are being calculated
      * @param transactionType The type of transaction to filter by (e.g., "income", "expense")
-     * @return The total amount for the specified transaction type for the user
+     * @return The total amount for the specified transaction type for the user, or 0 for an unknown type
      */
     public double getTotalAmountByType(String username, String transactionType) {
 
-        double sum = 0;
+        TransactionType type = TransactionType.lookup(transactionType);
+        return type == null ? 0 : getTotalAmountByType(username, type);
+    }
+
+    /**
+     * Calculates the total amount for a specific transaction type for a user.
+     * Reads the running total kept for the given type and username.
+     *
+     * @param username        The username of the user whose transactions are being calculated
+     * @param transactionType The type of transaction to filter by
+     * @return The total amount for the specified transaction type for the user
+     */
+    public double getTotalAmountByType(String username, TransactionType transactionType) {
+        return Money.toDouble(totalMinorUnits(username, transactionType));
+    }
+
+    /**
+     * Gets the exact total for a specific transaction type for a user.
+     * Reads the running total kept for the given type and username.
+     *
+     * @param username        The username of the user whose transactions are being calculated
+     * @param transactionType The type of transaction to filter by
+     * @return The total for the specified transaction type for the user
+     */
+    public Money getTotalByType(String username, TransactionType transactionType) {
+        return Money.ofMinorUnits(totalMinorUnits(username, transactionType));
+    }
+
+    /**
+     * Gets the exact total for a specific transaction type over every user, in O(users).
+     * Reads each user's running total under that user's read lock, one user at a time; each user's total
+     * is complete, but changes made during the call may or may not be included.
+     *
+     * @param transactionType The type of transaction to filter by
+     * @return The total for the specified transaction type over all users
+     */
+    public Money getTotalByType(TransactionType transactionType) {
+        long start = totalTimer.start();
+        try {
+            long sum = 0;
+            for (String username : transactionsByUser.keySet()) {
+                sum = Money.add(sum, totalMinorUnits(username, transactionType));
+            }
+            return Money.ofMinorUnits(sum);
+        } finally {
+            totalTimer.stop(start);
+        }
+    }
+
+    /**
+     * Reads a user's running total in minor units for a transaction type.
+     *
+     * @param username        The username of the user whose transactions are being calculated
+     * @param transactionType The type of transaction to filter by
+     * @return The total in minor units
+     */
+    private long totalMinorUnits(String username, TransactionType transactionType) {
+        ReadWriteLock lock = lockFor(username);
+        lock.readLock().lock();
+        try {
+            UserLedger ledger = transactionsByUser.get(username);
+            return ledger == null ? 0 : ledger.getTotal(transactionType);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Verifies the running totals and published snapshots by recomputing every user's totals from their transactions.
+     * Intended for diagnostics; the cost is O(all transactions).
+     *
+     * @return one message per (user, type) total that drifted from the recomputed sum, empty if all match
+     */
+    public List<String> verifyTotals() {
+
+        List<String> drifts = new ArrayList<>();
+
+        for (String username : transactionsByUser.keySet()) {
+            ReadWriteLock lock = lockFor(username);
+            lock.readLock().lock();
+            try {
+                UserLedger ledger = transactionsByUser.get(username);
+                if (ledger != null) {
+                    verifyLedger(username, ledger, drifts);
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        return drifts;
+    }
+
+    /**
+     * Recomputes one ledger's totals and records any drift from its running totals or its published snapshot.
+     * The caller must hold the user's lock.
+     *
+     * @param username The username owning the ledger
+     * @param ledger   The ledger to verify
+     * @param drifts   The list that drift messages are added to
+     */
+    private void verifyLedger(String username, UserLedger ledger, List<String> drifts) {
+        long[] recomputed = new long[TransactionType.count()];
+        int count = 0;
+        for (Transaction transaction : ledger.getTransactions()) {
+            int ordinal = transaction.getType().ordinal();
+            recomputed[ordinal] = Money.add(recomputed[ordinal], transaction.getAmountMinorUnits());
+            count++;
+        }
+
+        LedgerSnapshot snapshot = ledger.getSnapshot();
+        if (snapshot != null && snapshot.size() != count) {
+            drifts.add("User '" + username + "': snapshot holds " + snapshot.size() + " transactions but the ledger " + count);
+        }
+
+        for (int ordinal = 0; ordinal < recomputed.length; ordinal++) {
+            TransactionType type = TransactionType.fromOrdinal(ordinal);
+            long total = ledger.getTotal(type);
+            if (total != recomputed[ordinal]) {
+                drifts.add("User '" + username + "', type '" + type.getName() + "': running total "
+                        + Money.ofMinorUnits(total) + " but recomputed " + Money.ofMinorUnits(recomputed[ordinal]));
+            }
+            if (snapshot != null && snapshot.getTotalMinorUnits(type) != recomputed[ordinal]) {
+                drifts.add("User '" + username + "', type '" + type.getName() + "': snapshot total "
+                        + snapshot.getTotal(type) + " but recomputed " + Money.ofMinorUnits(recomputed[ordinal]));
+            }
+        }
+    }
 
-        for (Transaction transaction : transactions) {
-            if (transaction.getTransactionType().equals(transactionType) && Objects.equals(username, transaction.getUsername())) {
-                sum += transaction.getAmount();
+    /**
+     * Applies a change made through a Transaction setter while holding the owning user's write lock,
+     * so readers never see the transaction out of step with the ledger.
+     *
+     * @param transaction The transaction being changed
+     * @param change      The field assignment to apply
+     */
+    private void applyUpdate(Transaction transaction, Runnable change) {
+        ReadWriteLock lock = lockFor(transaction.getUsername());
+        lock.writeLock().lock();
+        try {
+            // The transaction may have been deleted while we waited; then it no longer belongs to a ledger
+            if (transactionsById.get(transaction.getTransactionId()) == transaction) {
+                TransactionType oldType = transaction.getType();
+                long oldAmount = transaction.getAmountMinorUnits();
+                LocalDate oldDate = transaction.getTransactionDate();
+                String oldDescription = transaction.getDescription();
+
+                transactionsByUser.get(transaction.getUsername()).update(transaction, change);
+
+                for (TransactionListener listener : listeners) {
+                    listener.transactionUpdated(transaction, oldType, oldAmount, oldDate, oldDescription);
+                }
+            } else {
+                change.run();
             }
+        } finally {
+            lock.writeLock().unlock();
         }
-        return sum;
     }
 
-}
\ No newline at end of file
+    /**
+     * Reads one user's ledger in chunks for streamTransactionsByUser, resuming each chunk after the
+     * ordering key of the previous one.
+     */
+    private class LedgerSpliterator implements Spliterator<Transaction> {
+
+        private final String username;
+
+        // The current chunk; read slots are cleared so the buffer does not keep deleted transactions alive
+        private final Transaction[] chunk = new Transaction[STREAM_CHUNK_SIZE];
+        private int position;
+        private int size;
+
+        // Ordering key of the last transaction copied, or null before the first chunk
+        private Long lastKey;
+        private boolean exhausted;
+
+        LedgerSpliterator(String username, Long afterKey) {
+            this.username = username;
+            this.lastKey = afterKey;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Transaction> action) {
+            if (position == size && !fill()) {
+                return false;
+            }
+            Transaction transaction = chunk[position];
+            chunk[position++] = null;
+            action.accept(transaction);
+            return true;
+        }
+
+        /**
+         * Copies the next chunk of the ledger under the user's read lock.
+         *
+         * @return true if at least one transaction was copied
+         */
+        private boolean fill() {
+            if (exhausted) {
+                return false;
+            }
+            position = 0;
+            size = 0;
+
+            ReadWriteLock lock = lockFor(username);
+            lock.readLock().lock();
+            try {
+                UserLedger ledger = transactionsByUser.get(username);
+                if (ledger != null) {
+                    // The map's own keys are reused as the resume position, so this allocates nothing per row
+                    for (Map.Entry<Long, Transaction> entry : ledger.getTransactionsAfter(lastKey).entrySet()) {
+                        if (size == chunk.length) {
+                            break;
+                        }
+                        chunk[size++] = entry.getValue();
+                        lastKey = entry.getKey();
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            exhausted = size < chunk.length;
+            return size > 0;
+        }
+
+        @Override
+        public Spliterator<Transaction> trySplit() {
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package service;
+
+import model.Money;
+import model.Transaction;
+import model.TransactionRecord;
+import model.TransactionType;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Per-user bookkeeping kept by TransactionService: the user's transactions ordered by date
+ * and a running total per transaction type.
+ *
+ * <p>Once snapshots are asked for (see startSnapshots), every change also publishes an immutable
+ * LedgerSnapshot built on a persistent tree of TransactionRecords, so point-in-time views are handed out
+ * without locking. Until then writers build no tree, records or copies of the totals.
+ */
+class UserLedger {
+
+    private final String username;
+
+    // The user's transactions, ordered by date and then by transaction ID (see dateKey)
+    private final NavigableMap<Long, Transaction> transactionsByDate = new TreeMap<>();
+
+    // Running total of the amounts in minor units per transaction type, indexed by type ordinal
+    private final long[] totalsByType = new long[TransactionType.count()];
+
+    // Number of changes applied to the ledger
+    private long version;
+
+    // The view as of the latest change, or null until startSnapshots; replaced, never modified,
+    // under the user's write lock
+    private volatile LedgerSnapshot snapshot;
+
+    /**
+     * Constructor for UserLedger.
+     *
+     * @param username the user the ledger belongs to
+     */
+    UserLedger(String username) {
+        this.username = username;
+    }
+
+    /**
+     * Builds the ordering key of a transaction: its epoch day in the high 32 bits and its ID in the low 32 bits.
+     * Sorting on the key therefore sorts by date first and by ID within a date. Dates before
+     * Transaction.MIN_DATE or after Transaction.MAX_DATE, which no transaction can have, are clamped to those
+     * bounds, so range queries with open-ended bounds such as LocalDate.MIN still order correctly; ranges that
+     * hold no supported date at all are caught by holdsNoSupportedDate.
+     *
+     * @param date          the transaction date, or a query bound
+     * @param transactionId the transaction ID
+     * @return the ordering key
+     */
+    static long dateKey(LocalDate date, int transactionId) {
+        return ((long) Math.clamp(date.toEpochDay(), Integer.MIN_VALUE, Integer.MAX_VALUE) << 32) | (transactionId & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Checks whether a date range lies entirely before Transaction.MIN_DATE or after Transaction.MAX_DATE,
+     * where clamped keys would otherwise select the transactions at the nearer bound.
+     *
+     * @param from the first date of the range, inclusive
+     * @param to   the last date of the range, inclusive
+     * @return true if no transaction can be dated within the range
+     */
+    static boolean holdsNoSupportedDate(LocalDate from, LocalDate to) {
+        return to.isBefore(Transaction.MIN_DATE) || from.isAfter(Transaction.MAX_DATE);
+    }
+
+    /**
+     * Builds the ordering key of a transaction from its current date and ID.
+     *
+     * @param transaction the transaction
+     * @return the ordering key
+     */
+    static long dateKey(Transaction transaction) {
+        return dateKey(transaction.getTransactionDate(), transaction.getTransactionId());
+    }
+
+    /**
+     * Adds a transaction to the ledger and to its type total.
+     *
+     * @param transaction the transaction to add
+     */
+    void add(Transaction transaction) {
+        long key = dateKey(transaction);
+        transactionsByDate.put(key, transaction);
+        addToTotal(transaction);
+        version++;
+        if (snapshot != null) {
+            publish(LedgerTree.put(snapshot.root(), key, transaction.toRecord()));
+        }
+    }
+
+    /**
+     * Adds several transactions to the ledger and to their type totals, publishing one snapshot for all of
+     * them rather than one per transaction.
+     *
+     * @param transactions the transactions to add
+     */
+    void addAll(List<Transaction> transactions) {
+        LedgerTree.Node root = snapshot == null ? null : snapshot.root();
+        for (Transaction transaction : transactions) {
+            long key = dateKey(transaction);
+            transactionsByDate.put(key, transaction);
+            addToTotal(transaction);
+            if (snapshot != null) {
+                root = LedgerTree.put(root, key, transaction.toRecord());
+            }
+        }
+        version += transactions.size();
+        if (snapshot != null) {
+            publish(root);
+        }
+    }
+
+    /**
+     * Removes a transaction from the ledger and from its type total.
+     *
+     * @param transaction the transaction to remove
+     */
+    void remove(Transaction transaction) {
+        long key = dateKey(transaction);
+        transactionsByDate.remove(key);
+        subtractFromTotal(transaction);
+        version++;
+        if (snapshot != null) {
+            publish(LedgerTree.remove(snapshot.root(), key));
+        }
+    }
+
+    /**
+     * Applies a setter change to one of the ledger's transactions, moving it to its new
+     * position in date order and its new type total.
+     *
+     * @param transaction the transaction being changed
+     * @param change      the field assignment to apply
+     */
+    void update(Transaction transaction, Runnable change) {
+        long oldKey = dateKey(transaction);
+        subtractFromTotal(transaction);
+
+        change.run();
+
+        long newKey = dateKey(transaction);
+        if (newKey != oldKey) {
+            transactionsByDate.remove(oldKey);
+            transactionsByDate.put(newKey, transaction);
+        }
+        addToTotal(transaction);
+        version++;
+        if (snapshot != null) {
+            LedgerTree.Node root = snapshot.root();
+            if (newKey != oldKey) {
+                root = LedgerTree.remove(root, oldKey);
+            }
+            publish(LedgerTree.put(root, newKey, transaction.toRecord()));
+        }
+    }
+
+    /**
+     * Replaces the published snapshot after a change. The caller must hold the user's write lock.
+     *
+     * @param root the root of the record tree after the change
+     */
+    private void publish(LedgerTree.Node root) {
+        snapshot = new LedgerSnapshot(username, version, root, totalsByType.clone());
+    }
+
+    /**
+     * Gets an immutable view of the ledger as of its latest change, in O(1) and without locking.
+     *
+     * @return the snapshot, or null if snapshots have not been started
+     */
+    LedgerSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Builds the first snapshot from the live transactions, in O(n), and from then on publishes a new one
+     * on every change. Does nothing more if snapshots are already started.
+     * The caller must hold the user's read or write lock.
+     *
+     * @return the snapshot as of the latest change
+     */
+    synchronized LedgerSnapshot startSnapshots() {
+        if (snapshot == null) {
+            long[] keys = new long[transactionsByDate.size()];
+            TransactionRecord[] records = new TransactionRecord[keys.length];
+            int index = 0;
+            for (Map.Entry<Long, Transaction> entry : transactionsByDate.entrySet()) {
+                keys[index] = entry.getKey();
+                records[index] = entry.getValue().toRecord();
+                index++;
+            }
+            publish(LedgerTree.fromSorted(keys, records));
+        }
+        return snapshot;
+    }
+
+    /**
+     * Adds the amount of a transaction to the running total of its type.
+     *
+     * @param transaction the transaction to count
+     */
+    private void addToTotal(Transaction transaction) {
+        int type = transaction.getType().ordinal();
+        totalsByType[type] = Money.add(totalsByType[type], transaction.getAmountMinorUnits());
+    }
+
+    /**
+     * Subtracts the amount of a transaction from the running total of its type.
+     *
+     * @param transaction the transaction to stop counting
+     */
+    private void subtractFromTotal(Transaction transaction) {
+        int type = transaction.getType().ordinal();
+        totalsByType[type] = Money.subtract(totalsByType[type], transaction.getAmountMinorUnits());
+    }
+
+    /**
+     * Gets the running total for a transaction type.
+     *
+     * @param transactionType the transaction type
+     * @return the total in minor units, or 0 if the user has no transactions of that type
+     */
+    long getTotal(TransactionType transactionType) {
+        return totalsByType[transactionType.ordinal()];
+    }
+
+    /**
+     * Gets the user's transactions.
+     *
+     * @return the transactions, ordered by date and then by ID
+     */
+    Collection<Transaction> getTransactions() {
+        return transactionsByDate.values();
+    }
+
+    /**
+     * Gets the user's transactions dated within the given range, in O(log n + k).
+     *
+     * @param from the first date of the range, inclusive
+     * @param to   the last date of the range, inclusive
+     * @return the transactions in the range, ordered by date and then by ID
+     */
+    Collection<Transaction> getTransactionsBetween(LocalDate from, LocalDate to) {
+        if (holdsNoSupportedDate(from, to)) {
+            return List.of();
+        }
+        return transactionsByDate.subMap(dateKey(from, 0), true, dateKey(to, -1), true).values();
+    }
+
+    /**
+     * Gets the user's transactions ordered after an ordering key, in O(log n) plus the entries visited.
+     * Iterating the entries allocates nothing per transaction.
+     *
+     * @param key the ordering key to start after (see dateKey), or null to start at the first transaction
+     * @return the transactions after the key, keyed by their ordering key
+     */
+    NavigableMap<Long, Transaction> getTransactionsAfter(Long key) {
+        return key == null ? transactionsByDate : transactionsByDate.tailMap(key, false);
+    }
+
+    /**
+     * Checks whether the ledger holds no transactions.
+     *
+     * @return true if the ledger is empty
+     */
+    boolean isEmpty() {
+        return transactionsByDate.isEmpty();
+    }
+}
@@ -1,23 +1,110 @@
 package service;
 
+import metrics.MetricsRegistry;
+import metrics.OperationTimer;
 import model.User;
+import model.UserListener;
 import repository.UserRepository;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 /**
  * Service class for managing users.
+ * Outcomes are reported as structured events ({@code user.created}, {@code user.updated}, {@code user.deleted}
+ * and {@code user.*_rejected}) through the MetricsRegistry, and the operations are counted and timed there
+ * under {@code user.create}, {@code .update}, {@code .delete} and {@code .authenticate}. getUserDetails is a
+ * single hash lookup and is not timed: even a sampled timer would add more than 2% to it.
  */
 public class UserService {
 
     // Reference to the UserRepository
     private final UserRepository userRepository;
 
+    // Hashes and verifies passwords
+    private final CredentialService credentialService;
+
+    // Listeners notified of every create, update and delete
+    private final List<UserListener> listeners = new CopyOnWriteArrayList<>();
+
+    // Call counts, latencies and outcome events of the operations
+    private final MetricsRegistry metrics;
+    private final OperationTimer createTimer;
+    private final OperationTimer updateTimer;
+    private final OperationTimer deleteTimer;
+    private final OperationTimer authenticateTimer;
+
     /**
-     * Constructor for UserService.
+     * Constructor for UserService, hashing passwords with the default work factor.
      *
      * @param userRepository the UserRepository instance to use
      */
     public UserService(UserRepository userRepository) {
+        this(userRepository, new CredentialService());
+    }
+
+    /**
+     * Constructor for UserService.
+     *
+     * @param userRepository    the UserRepository instance to use
+     * @param credentialService the CredentialService hashing and verifying passwords
+     */
+    public UserService(UserRepository userRepository, CredentialService credentialService) {
+        this(userRepository, credentialService, new MetricsRegistry());
+    }
+
+    /**
+     * Constructor for UserService.
+     *
+     * @param userRepository    the UserRepository instance to use
+     * @param credentialService the CredentialService hashing and verifying passwords
+     * @param metrics           the registry the operation timers are kept in and the events are emitted to
+     */
+    public UserService(UserRepository userRepository, CredentialService credentialService, MetricsRegistry metrics) {
         this.userRepository = userRepository;
+        this.credentialService = credentialService;
+        this.metrics = metrics;
+        this.createTimer = metrics.timer("user.create");
+        this.updateTimer = metrics.timer("user.update");
+        this.deleteTimer = metrics.timer("user.delete");
+        this.authenticateTimer = metrics.timer("user.authenticate");
+    }
+
+    /**
+     * Gets the registry holding the operation timers and receiving the events.
+     *
+     * @return the metrics registry
+     */
+    public MetricsRegistry getMetricsRegistry() {
+        return metrics;
+    }
+
+    /**
+     * Gets the CredentialService hashing and verifying passwords.
+     *
+     * @return the credential service
+     */
+    public CredentialService getCredentialService() {
+        return credentialService;
+    }
+
+    /**
+     * Registers a listener to be notified of every later create, update and delete.
+     *
+     * @param listener the listener to add
+     */
+    public void addListener(UserListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeListener(UserListener listener) {
+        listeners.remove(listener);
     }
 
     /**
@@ -29,16 +116,29 @@ public class UserService {
      * @param firstName the first name of the new user
      * @param lastName  the last name of the new user
      * @return the created User object, or null if username is already taken
+     * @throws IllegalArgumentException if the password or email is invalid
      */
     public User createUser(String username, String password, String email, String firstName, String lastName) {
-        if (userRepository.usernameExists(username)) {
-            System.out.println("Username '" + username + "' is already taken. Choose a different username.");
-            return null;
-        } else {
-            User newUser = new User(firstName, lastName, email, username, password);
-            userRepository.addUser(newUser);
-            System.out.println("User created: " + newUser.getUsername());
-            return newUser;
+        long start = createTimer.start();
+        try {
+            if (userRepository.usernameExists(username)) {
+                metrics.emit("user.create_rejected", "username", username, "reason", "username_taken");
+                return null;
+            } else {
+                checkPassword(password);
+                if (!User.isValidEmail(email)) {
+                    throw new IllegalArgumentException("Invalid email address");
+                }
+                User newUser = new User(firstName, lastName, email, username, credentialService.hash(password));
+                userRepository.addUser(newUser);
+                for (UserListener listener : listeners) {
+                    listener.userSaved(newUser);
+                }
+                metrics.emit("user.created", "username", newUser.getUsername());
+                return newUser;
+            }
+        } finally {
+            createTimer.stop(start);
         }
     }
 
@@ -54,16 +154,26 @@ public class UserService {
 
     /**
      * Deletes a user based on the username.
+     * Listeners are notified after the user is removed; a TransactionService registered as a listener
+     * deletes the user's transactions.
      *
      * @param username the username of the user to delete
      */
     public void deleteUser(String username) {
-        User user = userRepository.getUserByUsername(username);
-        if (user != null) {
-            userRepository.removeUser(user);
-            System.out.println("User '" + username + "' has been deleted.");
-        } else {
-            System.out.println("Username '" + username + "' does not exist. Cannot delete user.");
+        long start = deleteTimer.start();
+        try {
+            User user = userRepository.getUserByUsername(username);
+            if (user != null) {
+                userRepository.removeUser(user);
+                for (UserListener listener : listeners) {
+                    listener.userDeleted(user);
+                }
+                metrics.emit("user.deleted", "username", username);
+            } else {
+                metrics.emit("user.delete_rejected", "username", username, "reason", "not_found");
+            }
+        } finally {
+            deleteTimer.stop(start);
         }
     }
 
@@ -76,19 +186,59 @@ public class UserService {
      * @param firstName the new first name
      * @param lastName  the new last name
      * @return the updated User object, or null if the user does not exist
+     * @throws IllegalArgumentException if the password or email is invalid
      */
     public User updateUser(String username, String password, String email, String firstName, String lastName) {
-        User existingUser = userRepository.getUserByUsername(username);
-        if (existingUser == null) {
-            System.out.println("Username '" + username + "' does not exist. Cannot update user.");
-            return null;
-        } else {
-            existingUser.setPassword(password);
-            existingUser.setEmail(email);
-            existingUser.setFirstName(firstName);
-            existingUser.setLastName(lastName);
-            System.out.println("User '" + username + "' has been updated.");
-            return existingUser;
+        long start = updateTimer.start();
+        try {
+            User existingUser = userRepository.getUserByUsername(username);
+            if (existingUser == null) {
+                metrics.emit("user.update_rejected", "username", username, "reason", "not_found");
+                return null;
+            } else {
+                checkPassword(password);
+                existingUser.setPasswordHash(credentialService.hash(password));
+                existingUser.setEmail(email);
+                existingUser.setFirstName(firstName);
+                existingUser.setLastName(lastName);
+                for (UserListener listener : listeners) {
+                    listener.userSaved(existingUser);
+                }
+                metrics.emit("user.updated", "username", username);
+                return existingUser;
+            }
+        } finally {
+            updateTimer.stop(start);
+        }
+    }
+
+    /**
+     * Checks a user's password on the CredentialService verification pool.
+     *
+     * @param username the username
+     * @param password the password to check
+     * @return a future completed with true if the user exists and the password matches, or failed with a
+     * RejectedExecutionException if too many verifications are already waiting
+     */
+    public CompletableFuture<Boolean> authenticate(String username, String password) {
+        long start = authenticateTimer.start();
+        User user = userRepository.getUserByUsername(username);
+        CompletableFuture<Boolean> result = user == null
+                ? CompletableFuture.completedFuture(false)
+                : credentialService.verifyAsync(password, user.getPasswordHash());
+        // Timed until the verification completes, so queueing on the verification pool is included
+        return result.whenComplete((matches, failure) -> authenticateTimer.stop(start));
+    }
+
+    /**
+     * Checks a password against the password rules before it is hashed.
+     *
+     * @param password the password
+     * @throws IllegalArgumentException if the password does not meet the rules
+     */
+    private static void checkPassword(String password) {
+        if (!User.isValidPassword(password)) {
+            throw new IllegalArgumentException("Invalid password");
         }
     }
 }
@@ -0,0 +1,104 @@
+package shard;
+
+import java.util.Arrays;
+
+/**
+ * A consistent hash ring mapping usernames to a fixed number of nodes.
+ *
+ * <p>Each node owns a number of virtual points on a 64-bit ring, and a key belongs to the node owning the
+ * first point at or after the key's hash, wrapping around. The points of a node depend only on its index,
+ * so a ring with one more node keeps every existing point: only the keys falling on the new node's arcs,
+ * about 1/(n + 1) of them, change owner. More virtual points per node spread the keys more evenly.
+ *
+ * <p>A ring is immutable, and looking a key up is a binary search that allocates nothing.
+ */
+public final class ConsistentHashRing {
+
+    /**
+     * Number of virtual points per node used by default, which keeps every node within about 25% of the
+     * average number of keys for up to 16 nodes.
+     */
+    public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+    private final int nodeCount;
+
+    // Ring positions in ascending order, with the index of the node owning each at the same position
+    private final long[] points;
+    private final int[] owners;
+
+    /**
+     * Constructor for ConsistentHashRing.
+     *
+     * @param nodeCount    the number of nodes, numbered from 0
+     * @param virtualNodes the number of ring points per node
+     * @throws IllegalArgumentException if either count is less than 1
+     */
+    public ConsistentHashRing(int nodeCount, int virtualNodes) {
+        if (nodeCount < 1 || virtualNodes < 1) {
+            throw new IllegalArgumentException("A ring needs at least one node and one virtual node per node");
+        }
+        this.nodeCount = nodeCount;
+
+        long[][] entries = new long[nodeCount * virtualNodes][];
+        for (int node = 0; node < nodeCount; node++) {
+            for (int v = 0; v < virtualNodes; v++) {
+                entries[node * virtualNodes + v] = new long[]{mix(((long) node << 32) | v), node};
+            }
+        }
+        Arrays.sort(entries, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+
+        this.points = new long[entries.length];
+        this.owners = new int[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            points[i] = entries[i][0];
+            owners[i] = (int) entries[i][1];
+        }
+    }
+
+    /**
+     * Gets the number of nodes on the ring.
+     *
+     * @return the node count
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Finds the node owning a key.
+     *
+     * @param key the key, e.g. a username
+     * @return the index of the owning node, from 0 to getNodeCount() - 1
+     */
+    public int nodeFor(String key) {
+        int index = Arrays.binarySearch(points, hash(key));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    /**
+     * Hashes a key onto the ring: FNV-1a over its characters, then a finalising mix so that similar keys,
+     * such as user1 and user2, land far apart.
+     *
+     * @param key the key
+     * @return the ring position
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * The MurmurHash3 64-bit finaliser, which spreads every input bit over every output bit.
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+        value = (value ^ (value >>> 33)) * 0xc4ceb93fe1a85ec3L;
+        return value ^ (value >>> 33);
+    }
+}
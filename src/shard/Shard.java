@@ -0,0 +1,131 @@
+package shard;
+
+import metrics.MetricsRegistry;
+import model.Transaction;
+import model.User;
+import repository.UserRepository;
+import service.CredentialService;
+import service.TransactionService;
+import service.UserService;
+
+import java.util.List;
+
+/**
+ * One partition of the users and transactions behind a ShardRouter: its own UserRepository, UserService and
+ * TransactionService, with their own indexes, locks and metrics, holding the users the router's hash ring
+ * assigns to it and their transactions.
+ *
+ * <p>Shards are created by the router. Their services can be used directly, e.g. to register listeners,
+ * but users and transactions should only be added or removed through the router, which keeps each user on
+ * the shard that owns it.
+ */
+public final class Shard {
+
+    private final String name;
+    private final UserRepository userRepository;
+    private final UserService userService;
+    private final TransactionService transactionService;
+
+    /**
+     * Constructor for Shard.
+     *
+     * @param name              the shard name, e.g. shard-0
+     * @param credentialService the password hashing service, shared by all shards
+     */
+    Shard(String name, CredentialService credentialService) {
+        this.name = name;
+        this.userRepository = new UserRepository();
+        MetricsRegistry metrics = new MetricsRegistry();
+        this.userService = new UserService(userRepository, credentialService, metrics);
+        this.transactionService = new TransactionService(userRepository, metrics);
+        userService.addListener(transactionService);
+        userRepository.addUsernameChangeGuard(transactionService);
+    }
+
+    /**
+     * Gets the shard name.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the repository of the shard's users.
+     *
+     * @return the user repository
+     */
+    public UserRepository getUserRepository() {
+        return userRepository;
+    }
+
+    /**
+     * Gets the user service of the shard.
+     *
+     * @return the user service
+     */
+    public UserService getUserService() {
+        return userService;
+    }
+
+    /**
+     * Gets the transaction service of the shard.
+     *
+     * @return the transaction service
+     */
+    public TransactionService getTransactionService() {
+        return transactionService;
+    }
+
+    /**
+     * Gets the registry holding the operation timers of the shard's services.
+     *
+     * @return the metrics registry
+     */
+    public MetricsRegistry getMetricsRegistry() {
+        return transactionService.getMetricsRegistry();
+    }
+
+    /**
+     * Checks whether a user is stored on this shard.
+     *
+     * @param username the username
+     * @return true if the shard holds the user
+     */
+    boolean hasUser(String username) {
+        return userRepository.usernameExists(username);
+    }
+
+    /**
+     * Moves a user and all of their transactions to another shard, keeping the same User and Transaction
+     * objects and therefore their IDs and password hash. The caller must keep every other operation on the
+     * user out until the move returns.
+     *
+     * <p>The move goes through the repositories rather than the user services, so UserListeners see no delete
+     * or save; TransactionListeners see the transactions deleted here and added on the target.
+     *
+     * @param username the username of the user to move
+     * @param target   the shard to move the user to
+     * @return the number of transactions moved, or -1 if the user is not on this shard
+     */
+    int moveUser(String username, Shard target) {
+        User user = userRepository.getUserByUsername(username);
+        if (user == null) {
+            return -1;
+        }
+        // Deleting first detaches the transactions from this service before the target attaches them
+        List<Transaction> transactions = transactionService.getTransactionsByUser(username);
+        transactionService.deleteTransactionsByUser(username);
+        userRepository.removeUser(user);
+
+        target.userRepository.addUser(user);
+        target.transactionService.addTransactions(transactions);
+        return transactions.size();
+    }
+
+    @Override
+    public String toString() {
+        return name + "[" + userRepository.getUserCount() + " users, " + transactionService.getTransactionCount() + " transactions]";
+    }
+}
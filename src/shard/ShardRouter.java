@@ -0,0 +1,491 @@
+package shard;
+
+import metrics.MetricsRegistry;
+import metrics.OperationTimer;
+import model.Money;
+import model.Transaction;
+import model.TransactionType;
+import model.User;
+import service.CredentialService;
+import service.LedgerSnapshot;
+import service.TransactionCursor;
+import service.TransactionPage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Partitions users and their transactions over a set of in-process Shards by consistent hash of the
+ * username, and offers the per-user operations of UserService and TransactionService on top of them.
+ *
+ * <p>Every per-user call is sent to the shard owning the username, so all of a user's data lives on one
+ * shard and per-user operations cost what they cost on an unsharded service. Calls that span users
+ * (counts, totals over all users, lookups by transaction ID) are scattered to every shard and the results
+ * combined; the per-shard parts of the aggregates run in parallel.
+ *
+ * <p>{@link #addShard} rebalances while the router stays in use: it moves the users that the new ring assigns
+ * to the new shard, about 1/(n + 1) of them, one user at a time. Each per-user call holds a read lock of a
+ * fixed set of lock stripes chosen by the username, and each move holds that user's stripe write lock, so a
+ * call sees a user either entirely before or entirely after its move and waits only for the move of a user
+ * on its own stripe. Cross-user queries are retried until they run between two moves.
+ *
+ * <p>Usernames must not be changed through {@link User#setUsername} on users of a router: the renamed user
+ * would stay on the shard owning its old name.
+ */
+public class ShardRouter {
+
+    private final CredentialService credentialService;
+    private final int virtualNodes;
+    private final MetricsRegistry metrics;
+    private final OperationTimer rebalanceTimer;
+
+    // The shards and the ring assigning users to them, replaced as a whole when a shard is added
+    private volatile Topology topology;
+
+    // Lock stripes ordering per-user calls against moves; a user's calls are ordered by lockFor(username)
+    private final ReadWriteLock[] locks;
+
+    // Incremented before and after each user move, so it is odd while a move is in progress; a scatter
+    // query that sees the same even value before and after it ran saw no user twice or not at all
+    private volatile long moveSequence;
+
+    /**
+     * An immutable assignment of users to shards.
+     */
+    private static final class Topology {
+
+        // The shards, indexed by ring node
+        final List<Shard> shards;
+        final ConsistentHashRing ring;
+
+        // The ring before the shard being added, while its users are being moved; null otherwise
+        final ConsistentHashRing previousRing;
+
+        Topology(List<Shard> shards, ConsistentHashRing ring, ConsistentHashRing previousRing) {
+            this.shards = shards;
+            this.ring = ring;
+            this.previousRing = previousRing;
+        }
+    }
+
+    /**
+     * Constructor for ShardRouter.
+     * Uses ConsistentHashRing.DEFAULT_VIRTUAL_NODES points per shard.
+     *
+     * @param shardCount        the number of shards to start with
+     * @param credentialService the password hashing service shared by the shards
+     */
+    public ShardRouter(int shardCount, CredentialService credentialService) {
+        this(shardCount, ConsistentHashRing.DEFAULT_VIRTUAL_NODES, credentialService, new MetricsRegistry());
+    }
+
+    /**
+     * Constructor for ShardRouter with an explicit number of virtual nodes and metrics registry.
+     *
+     * @param shardCount        the number of shards to start with
+     * @param virtualNodes      the number of ring points per shard
+     * @param credentialService the password hashing service shared by the shards
+     * @param metrics           the registry the rebalance timer and events are kept in; each shard keeps its
+     *                          services' timers in a registry of its own
+     * @throws IllegalArgumentException if shardCount or virtualNodes is less than 1
+     */
+    public ShardRouter(int shardCount, int virtualNodes, CredentialService credentialService, MetricsRegistry metrics) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("A router needs at least one shard");
+        }
+        this.credentialService = credentialService;
+        this.virtualNodes = virtualNodes;
+        this.metrics = metrics;
+        this.rebalanceTimer = metrics.timer("shard.rebalance");
+
+        List<Shard> shards = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(new Shard("shard-" + i, credentialService));
+        }
+        this.topology = new Topology(Collections.unmodifiableList(shards), new ConsistentHashRing(shardCount, virtualNodes), null);
+
+        int stripes = 1;
+        while (stripes < 4 * Runtime.getRuntime().availableProcessors()) {
+            stripes <<= 1;
+        }
+        this.locks = new ReadWriteLock[stripes];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    /**
+     * Gets the registry holding the rebalance timer and events.
+     *
+     * @return the metrics registry
+     */
+    public MetricsRegistry getMetricsRegistry() {
+        return metrics;
+    }
+
+    /**
+     * Gets the shards, in ring node order.
+     *
+     * @return an unmodifiable list of the shards
+     */
+    public List<Shard> getShards() {
+        return topology.shards;
+    }
+
+    /**
+     * Gets the number of shards.
+     *
+     * @return the shard count
+     */
+    public int getShardCount() {
+        return topology.shards.size();
+    }
+
+    /**
+     * Finds the shard currently holding, or about to hold, a user.
+     *
+     * @param username the username
+     * @return the owning shard
+     */
+    public Shard getShardFor(String username) {
+        return route(username, shard -> shard);
+    }
+
+    /**
+     * Gets the lock stripe that orders a user's calls against the user's move.
+     *
+     * @param username the username
+     * @return the lock of the user's stripe
+     */
+    private ReadWriteLock lockFor(String username) {
+        int hash = username.hashCode();
+        return locks[(hash ^ (hash >>> 16)) & (locks.length - 1)];
+    }
+
+    /**
+     * Runs a per-user operation on the shard owning the user, holding the user's stripe read lock so the
+     * user cannot be moved meanwhile.
+     *
+     * @param username  the username
+     * @param operation the operation to run on the owning shard
+     * @return the operation's result
+     */
+    private <T> T route(String username, Function<Shard, T> operation) {
+        ReadWriteLock lock = lockFor(username);
+        lock.readLock().lock();
+        try {
+            return operation.apply(ownerOf(username));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the shard owning a user. While a shard is being added, a user the new ring assigns to it
+     * stays with its previous shard until moved. The caller must hold a lock of the user's stripe.
+     *
+     * @param username the username
+     * @return the owning shard
+     */
+    private Shard ownerOf(String username) {
+        Topology current = topology;
+        Shard owner = current.shards.get(current.ring.nodeFor(username));
+        if (current.previousRing != null) {
+            Shard previous = current.shards.get(current.previousRing.nodeFor(username));
+            if (previous != owner && previous.hasUser(username)) {
+                return previous;
+            }
+        }
+        return owner;
+    }
+
+    /**
+     * Runs a query over every shard, retrying until no user move overlapped it.
+     *
+     * @param query the query, given the current shards
+     * @return the query's result
+     */
+    private <T> T scatter(Function<List<Shard>, T> query) {
+        while (true) {
+            long sequence = moveSequence;
+            if ((sequence & 1) == 0) {
+                T result = query.apply(topology.shards);
+                if (moveSequence == sequence) {
+                    return result;
+                }
+            }
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Creates a new user on the shard owning the username.
+     *
+     * @param username  the username for the new user
+     * @param password  the password for the new user
+     * @param email     the email for the new user
+     * @param firstName the first name of the new user
+     * @param lastName  the last name of the new user
+     * @return the created User object, or null if username is already taken
+     * @throws IllegalArgumentException if the password or email is invalid
+     */
+    public User createUser(String username, String password, String email, String firstName, String lastName) {
+        return route(username, shard -> shard.getUserService().createUser(username, password, email, firstName, lastName));
+    }
+
+    /**
+     * Retrieves a user's details based on the username.
+     *
+     * @param username the username
+     * @return the User object if found, null otherwise
+     */
+    public User getUserDetails(String username) {
+        return route(username, shard -> shard.getUserService().getUserDetails(username));
+    }
+
+    /**
+     * Updates the details of an existing user.
+     *
+     * @param username  the username of the user to update
+     * @param password  the new password
+     * @param email     the new email
+     * @param firstName the new first name
+     * @param lastName  the new last name
+     * @return the updated User object, or null if the user does not exist
+     * @throws IllegalArgumentException if the password or email is invalid
+     */
+    public User updateUser(String username, String password, String email, String firstName, String lastName) {
+        return route(username, shard -> shard.getUserService().updateUser(username, password, email, firstName, lastName));
+    }
+
+    /**
+     * Deletes a user and the user's transactions.
+     *
+     * @param username the username of the user to delete
+     */
+    public void deleteUser(String username) {
+        route(username, shard -> {
+            shard.getUserService().deleteUser(username);
+            return null;
+        });
+    }
+
+    /**
+     * Checks a user's password on the shared CredentialService verification pool.
+     *
+     * @param username the username
+     * @param password the password to check
+     * @return a future completed with true if the user exists and the password matches
+     */
+    public CompletableFuture<Boolean> authenticate(String username, String password) {
+        return route(username, shard -> shard.getUserService().authenticate(username, password));
+    }
+
+    /**
+     * Adds a new transaction for a user on the user's shard.
+     *
+     * @param username        The username of the user for whom the transaction is created
+     * @param transactionType The type of transaction
+     * @param amount          The amount of money involved in the transaction
+     * @param transactionDate The date of the transaction
+     * @param description     A brief description of the transaction
+     * @return The stored transaction
+     * @throws IllegalArgumentException if the username does not exist or the amount is negative
+     */
+    public Transaction addTransaction(String username, TransactionType transactionType, Money amount, LocalDate transactionDate, String description) {
+        return route(username, shard -> shard.getTransactionService().addTransaction(username, transactionType, amount, transactionDate, description));
+    }
+
+    /**
+     * Retrieves all transactions for a specific user.
+     *
+     * @param username The username of the user whose transactions are being retrieved
+     * @return A list of the user's transactions, ordered by date and then by ID
+     */
+    public List<Transaction> getTransactionsByUser(String username) {
+        return route(username, shard -> shard.getTransactionService().getTransactionsByUser(username));
+    }
+
+    /**
+     * Retrieves one page of a user's transactions in date order.
+     *
+     * @param username The username of the user whose transactions are being retrieved
+     * @param after    The cursor returned with the previous page, or null for the first page
+     * @param limit    The largest number of transactions to return
+     * @return The page
+     * @throws IllegalArgumentException if the user does not exist or the limit is out of range
+     */
+    public TransactionPage getTransactionsPage(String username, TransactionCursor after, int limit) {
+        return route(username, shard -> shard.getTransactionService().getTransactionsPage(username, after, limit));
+    }
+
+    /**
+     * Gets the exact total for a transaction type for a user.
+     *
+     * @param username        The username of the user whose transactions are being calculated
+     * @param transactionType The type of transaction to filter by
+     * @return The total for the specified transaction type for the user
+     */
+    public Money getTotalByType(String username, TransactionType transactionType) {
+        return route(username, shard -> shard.getTransactionService().getTotalByType(username, transactionType));
+    }
+
+    /**
+     * Gets the exact total for a transaction type for a user within a date range.
+     *
+     * @param username        The username of the user whose transactions are being calculated
+     * @param transactionType The type of transaction to filter by
+     * @param from            The first date of the range, inclusive
+     * @param to              The last date of the range, inclusive
+     * @return The total for the specified transaction type for the user within the range
+     */
+    public Money getTotalByTypeBetween(String username, TransactionType transactionType, LocalDate from, LocalDate to) {
+        return route(username, shard -> shard.getTransactionService().getTotalByTypeBetween(username, transactionType, from, to));
+    }
+
+    /**
+     * Gets an immutable point-in-time view of a user's transactions and totals.
+     *
+     * @param username The username of the user whose ledger is viewed
+     * @return The snapshot, empty if the user has no transactions
+     */
+    public LedgerSnapshot getSnapshot(String username) {
+        return route(username, shard -> shard.getTransactionService().getSnapshot(username));
+    }
+
+    /**
+     * Retrieves a transaction by its ID, looking it up on every shard.
+     * Transaction IDs are unique across the shards of a process.
+     *
+     * @param transactionId The unique ID of the transaction
+     * @return The transaction, or null if no transaction has that ID
+     */
+    public Transaction getTransactionById(int transactionId) {
+        return scatter(shards -> {
+            for (Shard shard : shards) {
+                Transaction transaction = shard.getTransactionService().getTransactionById(transactionId);
+                if (transaction != null) {
+                    return transaction;
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Deletes a transaction by its ID on the shard of its user.
+     *
+     * @param transactionId The unique ID of the transaction to delete
+     * @return true if the transaction was deleted, false if no transaction has that ID
+     */
+    public boolean deleteTransaction(int transactionId) {
+        Transaction transaction = getTransactionById(transactionId);
+        return transaction != null
+                && route(transaction.getUsername(), shard -> shard.getTransactionService().deleteTransaction(transactionId));
+    }
+
+    /**
+     * Counts the users on all shards.
+     *
+     * @return the number of users
+     */
+    public long getUserCount() {
+        return scatter(shards -> shards.parallelStream().mapToLong(shard -> shard.getUserRepository().getUserCount()).sum());
+    }
+
+    /**
+     * Counts the transactions on all shards.
+     *
+     * @return the number of transactions
+     */
+    public long getTransactionCount() {
+        return scatter(shards -> shards.parallelStream().mapToLong(shard -> shard.getTransactionService().getTransactionCount()).sum());
+    }
+
+    /**
+     * Gets the exact total for a transaction type over every user of every shard.
+     *
+     * @param transactionType The type of transaction to filter by
+     * @return The total over all users
+     */
+    public Money getTotalByType(TransactionType transactionType) {
+        return Money.ofMinorUnits(scatter(shards -> shards.parallelStream()
+                .mapToLong(shard -> shard.getTransactionService().getTotalByType(transactionType).getMinorUnits())
+                .reduce(0, Money::add)));
+    }
+
+    /**
+     * Verifies the running totals of every shard.
+     *
+     * @return one message per drift found, prefixed with the shard name, empty if all match
+     */
+    public List<String> verifyTotals() {
+        return scatter(shards -> shards.parallelStream()
+                .flatMap(shard -> shard.getTransactionService().verifyTotals().stream().map(drift -> shard.getName() + ": " + drift))
+                .toList());
+    }
+
+    /**
+     * Adds a shard and moves to it the users the new ring assigns to it, while the router stays in use.
+     * Only one shard is added at a time; a concurrent call waits for the first to finish.
+     *
+     * @return the new shard
+     */
+    public synchronized Shard addShard() {
+        long start = rebalanceTimer.start();
+        try {
+            Topology current = topology;
+            Shard added = new Shard("shard-" + current.shards.size(), credentialService);
+            List<Shard> shards = new ArrayList<>(current.shards);
+            shards.add(added);
+            ConsistentHashRing ring = new ConsistentHashRing(shards.size(), virtualNodes);
+            shards = Collections.unmodifiableList(shards);
+            topology = new Topology(shards, ring, current.ring);
+
+            // Wait out the calls that were routed with the old ring alone, so every user created from now on
+            // is either on its previous shard, where the scan below finds it, or already on the new one
+            for (ReadWriteLock lock : locks) {
+                lock.writeLock().lock();
+                lock.writeLock().unlock();
+            }
+
+            int usersMoved = 0;
+            long transactionsMoved = 0;
+            for (Shard shard : current.shards) {
+                for (User user : shard.getUserRepository().getAllUsers()) {
+                    String username = user.getUsername();
+                    Shard owner = shards.get(ring.nodeFor(username));
+                    if (owner == shard) {
+                        continue;
+                    }
+                    ReadWriteLock lock = lockFor(username);
+                    lock.writeLock().lock();
+                    moveSequence++;
+                    try {
+                        int moved = shard.moveUser(username, owner);
+                        if (moved >= 0) {
+                            usersMoved++;
+                            transactionsMoved += moved;
+                        }
+                    } finally {
+                        moveSequence++;
+                        lock.writeLock().unlock();
+                    }
+                }
+            }
+
+            topology = new Topology(shards, ring, null);
+            metrics.emit("shard.added", "shard", added.getName(), "shards", shards.size(),
+                    "users_moved", usersMoved, "transactions_moved", transactionsMoved);
+            return added;
+        } finally {
+            rebalanceTimer.stop(start);
+        }
+    }
+}
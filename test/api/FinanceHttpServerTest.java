@@ -0,0 +1,191 @@
+package api;
+
+import model.Transaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import repository.UserRepository;
+import service.CredentialService;
+import service.TransactionService;
+import service.UserService;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of the routes, status codes and paging of FinanceHttpServer, served on a free loopback port.
+ */
+class FinanceHttpServerTest {
+
+    private static final String JANE = "{\"username\":\"jane\",\"password\":\"Secret1!\",\"email\":\"jane@example.com\","
+            + "\"firstName\":\"Jane\",\"lastName\":\"Smith\"}";
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private CredentialService credentialService;
+    private TransactionService transactionService;
+    private FinanceHttpServer server;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        UserRepository userRepository = new UserRepository();
+        credentialService = new CredentialService(CredentialService.MIN_ITERATIONS);
+        UserService userService = new UserService(userRepository, credentialService);
+        transactionService = new TransactionService(userRepository);
+        userService.addListener(transactionService);
+        userRepository.addUsernameChangeGuard(transactionService);
+        server = new FinanceHttpServer(userService, transactionService,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), FinanceHttpServer.DEFAULT_BACKLOG);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.close();
+        credentialService.close();
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws IOException, InterruptedException {
+        URI uri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + path);
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private int status(String method, String path, String body) throws IOException, InterruptedException {
+        return send(method, path, body).statusCode();
+    }
+
+    private Map<String, Object> json(String method, String path, String body, int expectedStatus) throws IOException, InterruptedException {
+        HttpResponse<String> response = send(method, path, body);
+        assertEquals(expectedStatus, response.statusCode(), response.body());
+        return Json.parseObject(response.body());
+    }
+
+    private int addTransaction(String type, String amount, String date) throws IOException, InterruptedException {
+        Map<String, Object> transaction = json("POST", "/users/jane/transactions",
+                "{\"type\":\"" + type + "\",\"amount\":\"" + amount + "\",\"date\":\"" + date + "\"}", 201);
+        return ((BigDecimal) transaction.get("id")).intValueExact();
+    }
+
+    @Test
+    void answersEachRouteWithItsDocumentedStatus() throws IOException, InterruptedException {
+        Map<String, Object> created = json("POST", "/users", JANE, 201);
+        assertEquals("jane", created.get("username"));
+        assertFalse(created.containsKey("password"));
+        assertEquals(409, status("POST", "/users", JANE));
+        assertEquals(400, status("POST", "/users", JANE.replace("jane", "john").replace("Secret1!", "weak")));
+        assertEquals(400, status("POST", "/users", "{\"username\":"));
+        assertEquals(400, status("POST", "/users", "{\"username\":\"john\"}"));
+
+        assertEquals("jane@example.com", json("GET", "/users/jane", null, 200).get("email"));
+        assertEquals("Username 'nobody' does not exist", json("GET", "/users/nobody", null, 404).get("error"));
+        assertEquals(404, status("POST", "/users/nobody/transactions", "{\"type\":\"expense\",\"amount\":\"1\"}"));
+        assertEquals(404, status("GET", "/nowhere", null));
+        assertEquals(405, status("PATCH", "/users/jane", "{}"));
+        assertEquals(405, status("GET", "/users", null));
+        assertEquals(405, status("PUT", "/transactions/1", "{}"));
+
+        assertEquals(400, status("POST", "/users/jane/transactions", "{\"type\":\"gift\",\"amount\":\"1\"}"));
+        assertEquals(400, status("POST", "/users/jane/transactions", "{\"type\":\"expense\",\"amount\":\"-1\"}"));
+        assertEquals(400, status("POST", "/users/jane/transactions", "{\"type\":\"expense\",\"amount\":\"1e999999999\"}"));
+        int id = addTransaction("expense", "12.50", "2024-03-15");
+        Map<String, Object> transaction = json("GET", "/transactions/" + id, null, 200);
+        assertEquals("12.50", transaction.get("amount"));
+        assertEquals("2024-03-15", transaction.get("date"));
+
+        assertEquals(400, status("GET", "/transactions/abc", null));
+        assertEquals(404, status("GET", "/transactions/" + (id + 1_000_000), null));
+        assertEquals(204, status("DELETE", "/transactions/" + id, null));
+        assertEquals(404, status("DELETE", "/transactions/" + id, null));
+
+        addTransaction("income", "100", "2024-03-16");
+        assertEquals(204, status("DELETE", "/users/jane", null));
+        assertEquals(404, status("GET", "/users/jane", null));
+        assertEquals(0, transactionService.getTransactionCount());
+    }
+
+    @Test
+    void pagesFollowTheirCursorsThroughEveryTransactionOnce() throws IOException, InterruptedException {
+        json("POST", "/users", JANE, 201);
+        for (int i = 0; i < 11; i++) {
+            addTransaction("expense", "1." + i, "2024-03-" + (10 + i % 3));
+        }
+        List<Integer> expected = new ArrayList<>();
+        for (Transaction transaction : transactionService.getTransactionsByUser("jane")) {
+            expected.add(transaction.getTransactionId());
+        }
+
+        List<Integer> paged = new ArrayList<>();
+        String query = "?limit=4";
+        int pages = 0;
+        while (query != null) {
+            Map<String, Object> page = json("GET", "/users/jane/transactions" + query, null, 200);
+            for (Object transaction : (List<?>) page.get("transactions")) {
+                paged.add(((BigDecimal) ((Map<?, ?>) transaction).get("id")).intValueExact());
+            }
+            String cursor = (String) page.get("nextCursor");
+            query = cursor == null ? null : "?limit=4&after=" + cursor;
+            pages++;
+        }
+        assertEquals(expected, paged);
+        assertEquals(3, pages);
+
+        // Without a limit a page holds DEFAULT_PAGE_SIZE transactions, here all of them
+        Map<String, Object> whole = json("GET", "/users/jane/transactions", null, 200);
+        assertEquals(11, ((List<?>) whole.get("transactions")).size());
+        assertNull(whole.get("nextCursor"));
+        assertEquals(400, status("GET", "/users/jane/transactions?after=garbage", null));
+        assertEquals(400, status("GET", "/users/jane/transactions?limit=0", null));
+        assertEquals(400, status("GET", "/users/jane/transactions?limit=many", null));
+        assertEquals(404, status("GET", "/users/nobody/transactions", null));
+    }
+
+    @Test
+    void totalsCoverAllDatesOrAnInclusiveRange() throws IOException, InterruptedException {
+        json("POST", "/users", JANE, 201);
+        addTransaction("expense", "10.25", "2024-01-31");
+        addTransaction("expense", "5.50", "2024-02-01");
+        addTransaction("expense", "1.00", "2024-02-29");
+        addTransaction("income", "100", "2024-02-15");
+
+        Map<String, Object> total = json("GET", "/users/jane/totals/expense", null, 200);
+        assertEquals("jane", total.get("username"));
+        assertEquals("16.75", total.get("total"));
+        assertEquals("6.50", json("GET", "/users/jane/totals/expense?from=2024-02-01&to=2024-02-29", null, 200).get("total"));
+        assertEquals("0.00", json("GET", "/users/jane/totals/expense?from=2023-01-01&to=2023-12-31", null, 200).get("total"));
+        assertEquals("100.00", json("GET", "/users/jane/totals/income", null, 200).get("total"));
+
+        assertEquals(400, status("GET", "/users/jane/totals/expense?from=2024-02-01", null));
+        assertEquals(400, status("GET", "/users/jane/totals/expense?from=2024-02-30&to=2024-03-01", null));
+        assertEquals(400, status("GET", "/users/jane/totals/expense?from=2024-03-01&to=2024-02-01", null));
+        assertEquals(400, status("GET", "/users/jane/totals/gift", null));
+        assertEquals(404, status("GET", "/users/nobody/totals/expense", null));
+    }
+
+    @Test
+    void refusesBodiesOverTheSizeLimit() throws IOException, InterruptedException {
+        String padding = " ".repeat(70 * 1024);
+        HttpResponse<String> response = send("POST", "/users", JANE + padding);
+        assertEquals(400, response.statusCode());
+        assertTrue(((String) Json.parseObject(response.body()).get("error")).contains("larger than"));
+        assertEquals(404, status("GET", "/users/jane", null));
+
+        // Whitespace short of the limit is still read as part of the object
+        assertEquals(201, status("POST", "/users", JANE + " ".repeat(60 * 1024)));
+    }
+}
@@ -0,0 +1,104 @@
+package api;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests of the JSON reading and writing of the HTTP front end.
+ */
+class JsonTest {
+
+    private static Object field(String json) {
+        return Json.parseObject("{\"value\":" + json + "}").get("value");
+    }
+
+    // An object holding arrays nested so that the innermost value sits the given number of levels deep
+    private static String nested(int depth) {
+        return "{\"value\":" + "[".repeat(depth - 1) + "]".repeat(depth - 1) + "}";
+    }
+
+    @Test
+    void readsEscapesAndSurrogatePairs() {
+        assertEquals("quote \" backslash \\ slash / tab \t newline \n return \r", field("\"quote \\\" backslash \\\\ slash \\/ tab \\t newline \\n return \\r\""));
+        assertEquals("\b\f", field("\"\\b\\f\""));
+        assertEquals("caf\u00e9", field("\"caf\\u00E9\""));
+        assertEquals("\uD83D\uDE00", field("\"\\ud83d\\ude00\""));
+        assertEquals("\uD83D\uDE00 raw", field("\"\uD83D\uDE00 raw\""));
+
+        assertThrows(IllegalArgumentException.class, () -> field("\"\\x\""));
+        assertThrows(IllegalArgumentException.class, () -> field("\"\\u12\""));
+        assertThrows(IllegalArgumentException.class, () -> field("\"\\u+041\""));
+        assertThrows(IllegalArgumentException.class, () -> field("\"\\u-041\""));
+        assertThrows(IllegalArgumentException.class, () -> field("\"\\u\uFF10041\""));
+        assertThrows(IllegalArgumentException.class, () -> field("\"tab\tinside\""));
+        assertThrows(IllegalArgumentException.class, () -> field("\"unterminated"));
+    }
+
+    @Test
+    void readsNumbersAsExactDecimals() {
+        assertEquals(new BigDecimal("0.10"), field("0.10"));
+        assertEquals(new BigDecimal("-42"), field("-42"));
+        assertEquals(new BigDecimal("1E+2"), field("1e2"));
+        assertEquals(new BigDecimal("12345678901234567890.12"), field("12345678901234567890.12"));
+        assertEquals(Arrays.asList(true, false, null), field("[true, false, null]"));
+
+        assertThrows(IllegalArgumentException.class, () -> field("1.2.3"));
+        assertThrows(IllegalArgumentException.class, () -> field("-"));
+        assertThrows(IllegalArgumentException.class, () -> field("+1"));
+    }
+
+    @Test
+    void limitsNesting() {
+        assertEquals(List.of(), Json.parseObject(nested(2)).get("value"));
+        Json.parseObject(nested(33));
+        assertThrows(IllegalArgumentException.class, () -> Json.parseObject(nested(34)));
+        assertThrows(IllegalArgumentException.class, () -> Json.parseObject(nested(100_000)));
+    }
+
+    @Test
+    void rejectsAnythingButOneObject() {
+        assertEquals(Map.of(), Json.parseObject(" { } \n"));
+        assertThrows(IllegalArgumentException.class, () -> Json.parseObject("{} x"));
+        assertThrows(IllegalArgumentException.class, () -> Json.parseObject("{}{}"));
+        assertThrows(IllegalArgumentException.class, () -> Json.parseObject("{\"a\":1},"));
+        assertThrows(IllegalArgumentException.class, () -> Json.parseObject("[1]"));
+        assertThrows(IllegalArgumentException.class, () -> Json.parseObject(""));
+        assertThrows(IllegalArgumentException.class, () -> Json.parseObject("{\"a\":1,}"));
+        assertThrows(IllegalArgumentException.class, () -> Json.parseObject("{\"a\" 1}"));
+        assertThrows(IllegalArgumentException.class, () -> Json.parseObject("{\"a\":tru}"));
+    }
+
+    @Test
+    void writesWhatItReadsBack() {
+        Map<String, Object> object = new LinkedHashMap<>();
+        object.put("text", "quote \" backslash \\ newline \n control \u0001 emoji \uD83D\uDE00");
+        object.put("amount", new BigDecimal("1E+3"));
+        object.put("count", 7L);
+        object.put("missing", null);
+        object.put("list", List.of(true, new BigDecimal("0.50")));
+
+        String json = Json.write(object);
+        assertEquals("{\"text\":\"quote \\\" backslash \\\\ newline \\n control \\u0001 emoji \uD83D\uDE00\","
+                + "\"amount\":1000,\"count\":7,\"missing\":null,\"list\":[true,0.50]}", json);
+
+        Map<String, Object> read = Json.parseObject(json);
+        assertEquals(object.get("text"), read.get("text"));
+        assertEquals(new BigDecimal("1000"), read.get("amount"));
+        assertNull(read.get("missing"));
+        assertEquals(List.of(true, new BigDecimal("0.50")), read.get("list"));
+    }
+
+    @Test
+    void writesNonFiniteNumbersAsNull() {
+        assertEquals("[null,null,1.5]", Json.write(List.of(Double.NaN, Double.POSITIVE_INFINITY, 1.5)));
+    }
+}
@@ -0,0 +1,100 @@
+package metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of the counts, latency statistics and histogram buckets of OperationTimer.
+ */
+class OperationTimerTest {
+
+    @Test
+    void reportsCountMeanMaxAndPercentilesOfRecordedLatencies() {
+        OperationTimer timer = new MetricsRegistry().timer("op");
+        assertEquals(0, timer.getCount());
+        assertEquals(0, timer.getMeanNanos());
+        assertEquals(0, timer.getMaxNanos());
+        assertEquals(0, timer.getP99Nanos());
+
+        for (long nanos = 1; nanos <= 1000; nanos++) {
+            timer.record(nanos * 1000);
+        }
+        timer.record(-5);
+        assertEquals(1001, timer.getCount());
+        assertEquals(1001, timer.getSampleCount());
+        assertEquals(500_500_000 / 1001, timer.getMeanNanos());
+        assertEquals(1_000_000, timer.getMaxNanos());
+        assertEquals(1_000_000, timer.getPercentileNanos(100));
+        assertEquals(0, timer.getPercentileNanos(0));
+
+        // Percentiles are the upper bound of their bucket, at most an eighth above the true value
+        assertBetween(500_000, 500_000 * 9 / 8, timer.getP50Nanos());
+        assertBetween(990_000, 1_000_000, timer.getP99Nanos());
+        assertEquals(1_000_000, timer.getP999Nanos());
+        assertThrows(IllegalArgumentException.class, () -> timer.getPercentileNanos(100.5));
+    }
+
+    @Test
+    void countsEveryStartedAndStoppedCall() throws InterruptedException {
+        MetricsRegistry registry = new MetricsRegistry();
+        OperationTimer timer = registry.timer("op");
+        assertSame(timer, registry.timer("op"));
+
+        for (int i = 0; i < 10; i++) {
+            long start = timer.start();
+            if (i == 9) {
+                Thread.sleep(2);
+            }
+            timer.stop(start);
+        }
+        assertEquals(10, timer.getCount());
+        assertEquals(10, timer.getSampleCount());
+        assertTrue(timer.getMaxNanos() >= 2_000_000, timer.toString());
+        assertTrue(timer.getMeanNanos() >= 200_000 && timer.getMeanNanos() <= timer.getMaxNanos(), timer.toString());
+    }
+
+    @Test
+    void sampledTimersEstimateTheCountFromTheSampledCalls() {
+        OperationTimer timer = new MetricsRegistry().timer("op", 4);
+        assertEquals(4, timer.getSampleEvery());
+        for (int i = 0; i < 4000; i++) {
+            timer.stop(timer.start());
+        }
+        assertEquals(4 * timer.getSampleCount(), timer.getCount());
+        assertBetween(3000, 5000, timer.getCount());
+
+        // The rate of an existing timer is kept
+        assertEquals(4, new MetricsRegistry().timer("op", 4).getSampleEvery());
+        assertThrows(IllegalArgumentException.class, () -> new MetricsRegistry().timer("op", 3));
+    }
+
+    @Test
+    void disabledTimersRecordNothing() {
+        OperationTimer timer = MetricsRegistry.disabled().timer("op");
+        timer.stop(timer.start());
+        timer.record(1000);
+        assertEquals(0, timer.getCount());
+        assertEquals(0, timer.getMaxNanos());
+    }
+
+    @Test
+    void bucketsCoverEveryLatencyWithinAnEighth() {
+        long previousHighest = -1;
+        for (int bucket = 0; bucket <= OperationTimer.bucketOf(Long.MAX_VALUE); bucket++) {
+            long highest = OperationTimer.highestValueOf(bucket);
+            assertEquals(bucket, OperationTimer.bucketOf(previousHighest + 1));
+            assertEquals(bucket, OperationTimer.bucketOf(highest));
+            assertTrue(highest - (previousHighest + 1) <= (previousHighest + 1) / 8, "bucket " + bucket);
+            previousHighest = highest;
+        }
+        assertEquals(Long.MAX_VALUE, previousHighest);
+    }
+
+    private static void assertBetween(long low, long high, long actual) {
+        assertTrue(actual >= low && actual <= high, actual + " not in [" + low + ", " + high + "]");
+    }
+}
@@ -0,0 +1,49 @@
+package metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests of the line format of TextMetricsExporter.
+ */
+class TextMetricsExporterTest {
+
+    @Test
+    void writesOneLinePerTimerInNameOrder() throws IOException {
+        MetricsRegistry registry = new MetricsRegistry();
+        OperationTimer write = registry.timer("transaction.add");
+        registry.timer("transaction.total", 16);
+        OperationTimer read = registry.timer("transaction.list");
+        read.record(1500);
+        read.record(2500);
+        write.record(42_000);
+
+        StringBuilder out = new StringBuilder();
+        new TextMetricsExporter(out).export(registry);
+
+        String separator = System.lineSeparator();
+        assertEquals("transaction.add              count=1          sampled=1/1    mean=42.000us p50=42.000us p99=42.000us p999=42.000us max=42.000us" + separator
+                + "transaction.list             count=2          sampled=1/1    mean=2.000us p50=1.535us p99=2.500us p999=2.500us max=2.500us" + separator
+                + "transaction.total            count=0          sampled=1/16   mean=0.000us p50=0.000us p99=0.000us p999=0.000us max=0.000us" + separator,
+                out.toString());
+    }
+
+    @Test
+    void formatsNumbersTheSameWayInEveryLocale() {
+        OperationTimer timer = new MetricsRegistry().timer("op");
+        timer.record(1500);
+        Locale defaultLocale = Locale.getDefault();
+        try {
+            Locale.setDefault(Locale.GERMANY);
+            String german = TextMetricsExporter.format(timer);
+            Locale.setDefault(Locale.US);
+            assertEquals(TextMetricsExporter.format(timer), german);
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+}
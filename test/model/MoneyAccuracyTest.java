@@ -0,0 +1,104 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Accuracy of the minor-unit arithmetic of Money and of its double conversions, with BigDecimal as the reference.
+ */
+class MoneyAccuracyTest {
+
+    private static final int AMOUNTS = 2_000_000;
+
+    /**
+     * The reference conversion: the shortest decimal of the double, rounded half-even to the minor unit.
+     */
+    private static long exactMinorUnits(double amount) {
+        return BigDecimal.valueOf(amount).setScale(Money.SCALE, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+    }
+
+    @Test
+    void sumsExactlyWhereDoublesDrift() {
+        SplittableRandom random = new SplittableRandom(42);
+        double doubleSum = 0;
+        long minorUnitSum = 0;
+        BigDecimal exactSum = BigDecimal.ZERO;
+        for (int i = 0; i < AMOUNTS; i++) {
+            long amount = 1 + random.nextInt(500_000);
+            doubleSum += Money.toDouble(amount);
+            minorUnitSum = Money.add(minorUnitSum, amount);
+            exactSum = exactSum.add(BigDecimal.valueOf(amount, Money.SCALE));
+        }
+
+        assertEquals(exactSum, Money.ofMinorUnits(minorUnitSum).toBigDecimal());
+        assertNotEquals(0, new BigDecimal(doubleSum).compareTo(exactSum), "the double sum was expected to drift");
+    }
+
+    @Test
+    void runningTotalReturnsToZeroAfterRemovingEveryAmount() {
+        SplittableRandom random = new SplittableRandom(43);
+        long[] amounts = new long[AMOUNTS];
+        long running = 0;
+        for (int i = 0; i < AMOUNTS; i++) {
+            amounts[i] = 1 + random.nextInt(500_000);
+            running = Money.add(running, amounts[i]);
+        }
+        for (long amount : amounts) {
+            running = Money.subtract(running, amount);
+        }
+        assertEquals(0, running);
+    }
+
+    @Test
+    void convertsDoublesOfWholeCentsExactly() {
+        SplittableRandom random = new SplittableRandom(44);
+        for (int i = 0; i < AMOUNTS; i++) {
+            long cents = random.nextLong(-10_000_000_000_00L, 10_000_000_000_00L);
+            double amount = Money.toDouble(cents);
+            assertEquals(cents, Money.toMinorUnits(amount), () -> "amount " + amount);
+            assertEquals(amount, Money.of(amount).toDouble());
+        }
+    }
+
+    @Test
+    void roundsHalfEvenOnTheShortestDecimal() {
+        assertEquals(268, Money.toMinorUnits(2.675));
+        assertEquals(10, Money.toMinorUnits(0.1));
+        assertEquals(2, Money.toMinorUnits(0.025));
+        assertEquals(4, Money.toMinorUnits(0.035));
+        assertEquals(-2, Money.toMinorUnits(-0.025));
+
+        SplittableRandom random = new SplittableRandom(45);
+        for (int i = 0; i < AMOUNTS; i++) {
+            // Amounts in tenths of a cent, half of them on a half-cent tie
+            long mills = random.nextLong(-1_000_000_000L, 1_000_000_000L) * 10 + (random.nextBoolean() ? 5 : random.nextInt(10));
+            double amount = mills / 1000.0;
+            assertEquals(exactMinorUnits(amount), Money.toMinorUnits(amount), () -> "amount " + amount);
+        }
+    }
+
+    @Test
+    void matchesTheDecimalReferenceAcrossMagnitudes() {
+        SplittableRandom random = new SplittableRandom(46);
+        for (int i = 0; i < AMOUNTS; i++) {
+            double amount = (random.nextBoolean() ? 1 : -1) * Math.pow(10, random.nextDouble(-4, 15)) * random.nextDouble();
+            assertEquals(exactMinorUnits(amount), Money.toMinorUnits(amount), () -> "amount " + amount);
+        }
+    }
+
+    @Test
+    void rejectsValuesThatAreNotFiniteOrTooLarge() {
+        assertThrows(IllegalArgumentException.class, () -> Money.toMinorUnits(Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> Money.toMinorUnits(Double.POSITIVE_INFINITY));
+        assertThrows(IllegalArgumentException.class, () -> Money.toMinorUnits(1e30));
+        assertThrows(ArithmeticException.class, () -> Money.add(Long.MAX_VALUE, 1));
+        assertThrows(ArithmeticException.class, () -> Money.subtract(Long.MIN_VALUE, 1));
+    }
+}
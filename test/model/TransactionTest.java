@@ -0,0 +1,53 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests of the validation in the Transaction constructors and setters.
+ */
+class TransactionTest {
+
+    private static Transaction transaction() {
+        return new Transaction("jane", TransactionType.EXPENSE, Money.ofMinorUnits(1250), LocalDate.of(2024, 3, 15), "Lunch");
+    }
+
+    @Test
+    void constructorRejectsNullAndNegativeAmounts() {
+        LocalDate date = LocalDate.of(2024, 3, 15);
+        assertThrows(IllegalArgumentException.class, () -> new Transaction("jane", TransactionType.EXPENSE, (Money) null, date, "Lunch"));
+        assertThrows(IllegalArgumentException.class, () -> new Transaction("jane", TransactionType.EXPENSE, Money.ofMinorUnits(-1), date, "Lunch"));
+        assertThrows(IllegalArgumentException.class, () -> new Transaction("jane", TransactionType.EXPENSE, -0.01, date, "Lunch"));
+    }
+
+    @Test
+    void constructorRejectsDatesOutsideTheSupportedRange() {
+        Money amount = Money.ofMinorUnits(1250);
+        assertThrows(IllegalArgumentException.class, () -> new Transaction("jane", TransactionType.EXPENSE, amount, null, "Lunch"));
+        assertThrows(IllegalArgumentException.class, () -> new Transaction("jane", TransactionType.EXPENSE, amount, LocalDate.MIN, "Lunch"));
+        assertThrows(IllegalArgumentException.class, () -> new Transaction("jane", TransactionType.EXPENSE, amount, Transaction.MAX_DATE.plusDays(1), "Lunch"));
+        assertEquals(Transaction.MAX_DATE, new Transaction("jane", TransactionType.EXPENSE, amount, Transaction.MAX_DATE, "Lunch").getTransactionDate());
+    }
+
+    @Test
+    void settersRejectWhatTheConstructorRejects() {
+        Transaction transaction = transaction();
+        assertThrows(IllegalArgumentException.class, () -> transaction.setMoney(null));
+        assertThrows(IllegalArgumentException.class, () -> transaction.setMoney(Money.ofMinorUnits(-1)));
+        assertThrows(IllegalArgumentException.class, () -> transaction.setAmount(-0.01));
+        assertThrows(IllegalArgumentException.class, () -> transaction.setAmount(Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> transaction.setTransactionDate(null));
+        assertThrows(IllegalArgumentException.class, () -> transaction.setTransactionDate(LocalDate.MAX));
+        assertThrows(IllegalArgumentException.class, () -> transaction.setTransactionDate(Transaction.MIN_DATE.minusDays(1)));
+        assertEquals(1250, transaction.getAmountMinorUnits());
+
+        transaction.setMoney(Money.ZERO);
+        assertEquals(0, transaction.getAmountMinorUnits());
+        transaction.setAmount(3.5);
+        assertEquals(350, transaction.getAmountMinorUnits());
+    }
+}
@@ -0,0 +1,100 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Differential test of the single-pass User.isValidPassword against the reference User.PASSWORD_PATTERN.
+ */
+class UserPasswordTest {
+
+    private static final Pattern REFERENCE = Pattern.compile(User.PASSWORD_PATTERN);
+
+    // Characters the fuzzer draws from: every class the rules distinguish, the whitespace and line terminators
+    // the pattern treats specially, letters outside ASCII, code points outside the BMP and a lone surrogate
+    private static final String[] ALPHABET = {
+            "0", "7", "9", "a", "m", "z", "A", "Q", "Z",
+            "@", "#", "$", "%", "^", "&", "+", "=", "!",
+            "-", "_", ".", "*", "~",
+            " ", "\t", "\n", "\r", "\f", Character.toString(0x0B), "\u0085", "\u2028", "\u2029", "\u00A0", "\u3000",
+            "\u00E9", "\u00C4", "\u0660", "\uFF21",
+            Character.toString(0x1F600), Character.toString(0x1D400), Character.toString(0x10FFFF), "\uD800"
+    };
+
+    private static void assertAgrees(String password) {
+        assertEquals(REFERENCE.matcher(password).matches(), User.isValidPassword(password),
+                () -> "disagreement on " + describe(password));
+    }
+
+    private static String describe(String password) {
+        StringBuilder builder = new StringBuilder("\"");
+        password.codePoints().forEach(c -> builder.append(c >= 0x20 && c < 0x7F ? Character.toString(c) : String.format("\\u{%X}", c)));
+        return builder.append('"').toString();
+    }
+
+    @Test
+    void agreesWithPatternOnRandomStrings() {
+        SplittableRandom random = new SplittableRandom(12);
+        for (int i = 0; i < 200_000; i++) {
+            // Lengths cluster around the 8-character minimum, where the two are easiest to get out of step
+            int length = random.nextInt(4) == 0 ? random.nextInt(20) : 6 + random.nextInt(5);
+            StringBuilder password = new StringBuilder();
+            for (int c = 0; c < length; c++) {
+                password.append(ALPHABET[random.nextInt(ALPHABET.length)]);
+            }
+            assertAgrees(password.toString());
+        }
+    }
+
+    @Test
+    void agreesWithPatternOnValidPasswordsWithOneCharacterInserted() {
+        SplittableRandom random = new SplittableRandom(13);
+        String[] bases = {"Passw0rd!", "aB3$aB3$", "Aa1@", "xY9#xY9"};
+        for (String base : bases) {
+            for (String inserted : ALPHABET) {
+                for (int position = 0; position <= base.length(); position++) {
+                    assertAgrees(base.substring(0, position) + inserted + base.substring(position));
+                }
+            }
+            assertAgrees(base);
+        }
+        for (int i = 0; i < 10_000; i++) {
+            String base = bases[random.nextInt(bases.length)];
+            int position = random.nextInt(base.length() + 1);
+            assertAgrees(base.substring(0, position) + Character.toString(random.nextInt(0x110000)) + base.substring(position));
+        }
+    }
+
+    @Test
+    void countsCodePointsAtTheEightCharacterBoundary() {
+        assertTrue(User.isValidPassword("Abcde1!x"));
+        assertFalse(User.isValidPassword("Abcde1!"));
+        // Seven code points, eight chars: the surrogate pair counts once
+        String sevenCodePoints = "Abcd1!" + Character.toString(0x1F600);
+        assertFalse(User.isValidPassword(sevenCodePoints));
+        assertTrue(User.isValidPassword(sevenCodePoints + "x"));
+        assertAgrees(sevenCodePoints);
+        assertAgrees(sevenCodePoints + "x");
+        assertAgrees("Abcde1!");
+        assertAgrees("Abcde1!x");
+    }
+
+    @Test
+    void rejectsWhitespaceAndLineTerminators() {
+        for (String character : new String[]{" ", "\t", "\n", "\r", "\f", Character.toString(0x0B), "\u0085", "\u2028", "\u2029"}) {
+            String password = "Abcde1!x" + character;
+            assertFalse(User.isValidPassword(password), () -> "accepted " + describe(password));
+            assertAgrees(password);
+            assertAgrees(character + "Abcde1!x");
+        }
+        // Not \s and not a line terminator, so both accept it
+        assertTrue(User.isValidPassword("Abcde1!x\u00A0"));
+        assertAgrees("Abcde1!x\u00A0");
+    }
+}
@@ -0,0 +1,118 @@
+package repository;
+
+import model.Money;
+import model.Transaction;
+import model.TransactionType;
+import model.User;
+import org.junit.jupiter.api.Test;
+import service.TransactionService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Tests that a ColumnarTransactionStore registered with a TransactionService answers the same totals as the
+ * service after concurrent adds, batch adds, deletes, batch deletes and edits.
+ */
+class ColumnarTransactionStoreTest {
+
+    private static final int WRITERS = 4;
+    private static final int USERS = 64;
+    private static final int OPERATIONS_PER_WRITER = 30_000;
+    private static final LocalDate FIRST_DATE = LocalDate.of(2024, 1, 1);
+
+    @Test
+    void mirrorsTheTotalsOfTheTransactionService() throws Exception {
+        UserRepository userRepository = new UserRepository();
+        for (int u = 0; u < USERS; u++) {
+            userRepository.addUser(new User("First", "Last", "user" + u + "@example.com", "user" + u, "hash"));
+        }
+        TransactionService transactionService = new TransactionService(userRepository, 8);
+        ColumnarTransactionStore store = new ColumnarTransactionStore(4);
+        transactionService.addListener(store);
+
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int w = 0; w < WRITERS; w++) {
+                int writer = w;
+                writers.add(executor.submit(() -> write(transactionService, writer)));
+            }
+            for (Future<?> writer : writers) {
+                writer.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(transactionService.getTransactionCount(), store.getRowCount());
+        LocalDate from = FIRST_DATE.plusDays(30);
+        LocalDate to = FIRST_DATE.plusDays(200);
+        Map<String, long[]> parallel = store.getTotalsByTypeForAllUsers(new ForkJoinPool(3));
+        for (TransactionType type : TransactionType.values()) {
+            Map<String, Double> sequential = store.getTotalAmountByTypeForAllUsers(type.getName());
+            for (int u = 0; u < USERS; u++) {
+                String username = "user" + u;
+                Money total = transactionService.getTotalByType(username, type);
+                assertEquals(total.toDouble(), store.getTotalAmountByType(username, type.getName()), username);
+                assertEquals(transactionService.getTotalByTypeBetween(username, type, from, to).toDouble(),
+                        store.getTotalAmountByTypeBetween(username, type.getName(), from, to), username);
+                if (transactionService.getTransactionsByUser(username).isEmpty()) {
+                    assertNull(parallel.get(username));
+                } else {
+                    assertEquals(total.getMinorUnits(), parallel.get(username)[type.ordinal()], username);
+                    assertEquals(total.toDouble(), sequential.getOrDefault(username, 0.0), username);
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies random operations to the users with u % WRITERS == writer, deleting often enough to compact.
+     */
+    private static void write(TransactionService transactionService, int writer) {
+        SplittableRandom random = new SplittableRandom(writer);
+        for (int i = 0; i < OPERATIONS_PER_WRITER; i++) {
+            String username = "user" + (random.nextInt(USERS / WRITERS) * WRITERS + writer);
+            int operation = random.nextInt(100);
+            if (operation < 50) {
+                transactionService.addTransaction(username, randomType(random), Money.ofMinorUnits(1 + random.nextInt(100_000)),
+                        FIRST_DATE.plusDays(random.nextInt(365)), "Single");
+            } else if (operation < 55) {
+                List<Transaction> batch = new ArrayList<>();
+                for (int b = 0; b < 20; b++) {
+                    batch.add(new Transaction(username, randomType(random), Money.ofMinorUnits(1 + random.nextInt(100_000)),
+                            FIRST_DATE.plusDays(random.nextInt(365)), "Batch"));
+                }
+                transactionService.addTransactions(batch);
+            } else if (operation < 99) {
+                List<Transaction> transactions = transactionService.getTransactionsByUser(username);
+                if (!transactions.isEmpty()) {
+                    Transaction transaction = transactions.get(random.nextInt(transactions.size()));
+                    switch (operation % 3) {
+                        case 0 -> transactionService.deleteTransaction(transaction.getTransactionId());
+                        case 1 -> transaction.setMoney(Money.ofMinorUnits(random.nextInt(100_000)));
+                        default -> transaction.setTransactionDate(FIRST_DATE.plusDays(random.nextInt(365)));
+                    }
+                }
+            } else {
+                transactionService.deleteTransactionsByUser(username);
+            }
+        }
+    }
+
+    private static TransactionType randomType(SplittableRandom random) {
+        return TransactionType.fromOrdinal(random.nextInt(TransactionType.count()));
+    }
+}
@@ -0,0 +1,63 @@
+package repository;
+
+import model.Money;
+import model.Transaction;
+import model.TransactionRecord;
+import model.TransactionType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of reading rows back from a MappedTransactionSnapshot.
+ */
+class MappedTransactionSnapshotTest {
+
+    private static final LocalDate FIRST_DATE = LocalDate.of(2024, 1, 1);
+
+    // Header offset of the rows section, and the ID stored at the start of each row
+    private static final int ROWS_OFFSET_IN_HEADER = 40;
+
+    @Test
+    void readsRowsAsRecordsWithoutTouchingTheTransactionIdCounter(@TempDir Path directory) throws IOException {
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            transactions.add(new Transaction(i % 2 == 0 ? "jane" : "john", TransactionType.fromOrdinal(i % TransactionType.count()),
+                    Money.ofMinorUnits(100 + i), FIRST_DATE.plusDays(i), i % 10 == 0 ? null : "Row " + i));
+        }
+        Path file = directory.resolve("mapped.bin");
+        MappedTransactionSnapshot.write(file, transactions);
+
+        MappedTransactionSnapshot snapshot = MappedTransactionSnapshot.open(file);
+        List<TransactionRecord> jane = snapshot.getTransactionsByUser("jane");
+        assertEquals(50, jane.size());
+        for (int i = 0; i < jane.size(); i++) {
+            assertEquals(transactions.get(2 * i).toRecord(), jane.get(i));
+        }
+        assertEquals(10, snapshot.getTransactionsByUserBetween("john", FIRST_DATE.plusDays(20), FIRST_DATE.plusDays(39)).size());
+
+        // A stored ID far above any issued one must not push the IDs of new transactions past it
+        int storedId = Integer.MAX_VALUE - 1000;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(Long.BYTES);
+            channel.read(header, ROWS_OFFSET_IN_HEADER);
+            long rowsOffset = header.flip().getLong();
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, storedId), rowsOffset);
+        }
+        List<TransactionRecord> patched = MappedTransactionSnapshot.open(file).getTransactionsByUser("jane");
+        assertEquals(storedId, patched.get(0).getTransactionId());
+        int nextId = new Transaction("jane", TransactionType.EXPENSE, Money.ofMinorUnits(1), FIRST_DATE, null).getTransactionId();
+        assertTrue(nextId < storedId, "reading a snapshot advanced the transaction ID counter to " + nextId);
+    }
+}
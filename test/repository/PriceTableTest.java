@@ -0,0 +1,84 @@
+package repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of the symbol IDs, versions and change tracking of PriceTable.
+ */
+class PriceTableTest {
+
+    private static Map<String, Double> changes(PriceTable prices, PriceTable.Changes changes) {
+        Map<String, Double> bySymbol = new HashMap<>();
+        for (int i = 0; i < changes.size(); i++) {
+            bySymbol.put(prices.symbolOf(changes.getSymbolId(i)), changes.getPrice(i));
+        }
+        return bySymbol;
+    }
+
+    @Test
+    void givesEachSymbolOneDenseIdRegardlessOfCase() {
+        PriceTable prices = new PriceTable();
+        assertEquals(0, prices.idOf("aapl"));
+        assertEquals(1, prices.idOf("MSFT"));
+        assertEquals(0, prices.idOf("AAPL"));
+        assertEquals("AAPL", prices.symbolOf(0));
+        assertTrue(Double.isNaN(prices.getPrice("aapl")));
+    }
+
+    @Test
+    void reportsOnlyThePricesChangedSinceAVersion() {
+        PriceTable prices = new PriceTable();
+        assertEquals(0, prices.getVersion());
+        prices.setPrices(Map.of("AAPL", 190.0, "MSFT", 410.0));
+        long first = prices.getVersion();
+        assertEquals(Map.of("AAPL", 190.0, "MSFT", 410.0), changes(prices, prices.changesSince(0)));
+
+        prices.setPrice("msft", 415.5);
+        PriceTable.Changes sinceFirst = prices.changesSince(first);
+        assertEquals(Map.of("MSFT", 415.5), changes(prices, sinceFirst));
+        assertEquals(prices.getVersion(), sinceFirst.getVersion());
+
+        // Setting an unchanged price is not a change and does not bump the version
+        prices.setPrice("AAPL", 190.0);
+        assertEquals(sinceFirst.getVersion(), prices.getVersion());
+        assertEquals(0, prices.changesSince(sinceFirst.getVersion()).size());
+    }
+
+    @Test
+    void rejectsInvalidPricesWithoutChangingAny() {
+        PriceTable prices = new PriceTable();
+        prices.setPrice("AAPL", 190.0);
+        Map<String, Double> batch = new HashMap<>();
+        batch.put("AAPL", 200.0);
+        batch.put("MSFT", -1.0);
+        assertThrows(IllegalArgumentException.class, () -> prices.setPrices(batch));
+        assertThrows(IllegalArgumentException.class, () -> prices.setPrice("AAPL", Double.NaN));
+        assertEquals(190.0, prices.getPrice("AAPL"));
+        assertEquals(1, prices.getVersion());
+    }
+
+    @Test
+    void loadsPricesFromACsvFile(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("prices.csv");
+        Files.writeString(file, "symbol,price\n# comment\n\nAAPL,190.25\nmsft, 410\n");
+        PriceTable prices = new PriceTable();
+        assertEquals(2, prices.load(file));
+        assertEquals(190.25, prices.getPrice("AAPL"));
+        assertEquals(410.0, prices.getPrice("MSFT"));
+
+        Files.writeString(file, "AAPL,1\nMSFT,abc\n");
+        assertThrows(IllegalArgumentException.class, () -> prices.load(file));
+        assertEquals(190.25, prices.getPrice("AAPL"));
+    }
+}
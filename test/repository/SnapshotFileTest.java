@@ -0,0 +1,65 @@
+package repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that SnapshotFile hands out records only from snapshots that pass their checks.
+ */
+class SnapshotFileTest {
+
+    private static List<byte[]> records(int count) {
+        List<byte[]> records = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            records.add(("record " + i).getBytes(StandardCharsets.UTF_8));
+        }
+        return records;
+    }
+
+    private static void readAll(Path file, List<String> applied) throws IOException {
+        SnapshotFile.read(file, record -> applied.add(StandardCharsets.UTF_8.decode(record).toString()));
+    }
+
+    @Test
+    void readsBackWhatWasWritten(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("snapshot.bin");
+        SnapshotFile.write(file, 7, records(1000).iterator());
+
+        List<String> applied = new ArrayList<>();
+        assertEquals(7, SnapshotFile.read(file, record -> applied.add(StandardCharsets.UTF_8.decode(record).toString())));
+        assertEquals(1000, applied.size());
+        assertEquals("record 999", applied.get(999));
+    }
+
+    @Test
+    void appliesNothingFromACorruptSnapshot(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("snapshot.bin");
+        SnapshotFile.write(file, 3, records(1000).iterator());
+        byte[] bytes = Files.readAllBytes(file);
+
+        // A flipped byte near the end, after most records, fails the checksum
+        byte[] flipped = bytes.clone();
+        flipped[flipped.length - 40] ^= 1;
+        Files.write(file, flipped);
+        List<String> applied = new ArrayList<>();
+        assertThrows(IOException.class, () -> readAll(file, applied));
+        assertTrue(applied.isEmpty(), applied.size() + " records applied from a corrupt snapshot");
+
+        // A truncated file fails before its trailer
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 10));
+        assertThrows(IOException.class, () -> readAll(file, applied));
+        assertTrue(applied.isEmpty(), applied.size() + " records applied from a truncated snapshot");
+    }
+}
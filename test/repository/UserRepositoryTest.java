@@ -0,0 +1,117 @@
+package repository;
+
+import model.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of the username index of UserRepository.
+ */
+class UserRepositoryTest {
+
+    private static User user(String username) {
+        return new User("First", "Last", username + "@example.com", username, "hash");
+    }
+
+    @Test
+    void findsAddedUsersAndForgetsRemovedOnes() {
+        UserRepository repository = new UserRepository();
+        User jane = user("jane");
+        repository.addUser(jane);
+
+        assertTrue(repository.usernameExists("jane"));
+        assertSame(jane, repository.getUserByUsername("jane"));
+        assertThrows(IllegalArgumentException.class, () -> repository.addUser(user("jane")));
+        assertEquals(1, repository.getUserCount());
+
+        repository.removeUser(jane);
+        assertFalse(repository.usernameExists("jane"));
+        assertNull(repository.getUserByUsername("jane"));
+        assertEquals(0, repository.getUserCount());
+    }
+
+    @Test
+    void removingAnotherUserWithTheSameNameKeepsTheStoredOne() {
+        UserRepository repository = new UserRepository();
+        User jane = user("jane");
+        repository.addUser(jane);
+
+        repository.removeUser(user("jane"));
+        assertSame(jane, repository.getUserByUsername("jane"));
+    }
+
+    @Test
+    void renamingAUserReKeysTheIndex() {
+        UserRepository repository = new UserRepository();
+        User jane = user("jane");
+        repository.addUser(jane);
+        repository.addUser(user("john"));
+
+        jane.setUsername("jane_smith");
+        assertFalse(repository.usernameExists("jane"));
+        assertSame(jane, repository.getUserByUsername("jane_smith"));
+
+        // A taken name is refused and leaves both the user and the index unchanged
+        assertThrows(IllegalArgumentException.class, () -> jane.setUsername("john"));
+        assertEquals("jane_smith", jane.getUsername());
+        assertSame(jane, repository.getUserByUsername("jane_smith"));
+        assertEquals(2, repository.getUserCount());
+
+        repository.removeUser(jane);
+        assertFalse(repository.usernameExists("jane_smith"));
+
+        // Once removed, renaming no longer touches the repository
+        jane.setUsername("john");
+        assertEquals(1, repository.getUserCount());
+        assertEquals("john", repository.getUserByUsername("john").getUsername());
+    }
+
+    /**
+     * Lookups with 1,000 and 1,000,000 users. Hash lookups get slower with the larger index only because it
+     * no longer fits in the CPU caches, about tenfold; a scan would be a thousand times slower.
+     */
+    @Test
+    void lookupTimeDoesNotGrowWithTheNumberOfUsers() {
+        double small = Double.MAX_VALUE;
+        double large = Double.MAX_VALUE;
+        for (int round = 0; round < 3; round++) {
+            small = Math.min(small, nanosPerLookup(1_000));
+            large = Math.min(large, nanosPerLookup(1_000_000));
+        }
+        double ratio = large / small;
+        assertTrue(ratio < 50, () -> "lookups with 1M users took " + ratio + " times as long as with 1k users");
+    }
+
+    private static double nanosPerLookup(int users) {
+        UserRepository repository = new UserRepository();
+        for (int i = 0; i < users; i++) {
+            repository.addUser(user("user" + i));
+        }
+        String[] usernames = new String[1 << 16];
+        SplittableRandom random = new SplittableRandom(2);
+        for (int i = 0; i < usernames.length; i++) {
+            usernames[i] = "user" + random.nextInt(users);
+        }
+
+        int found = 0;
+        long start = System.nanoTime();
+        for (int repeat = 0; repeat < 10; repeat++) {
+            for (String username : usernames) {
+                if (repository.usernameExists(username)) {
+                    found++;
+                }
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        assertEquals(10 * usernames.length, found);
+        return nanos / (10.0 * usernames.length);
+    }
+}
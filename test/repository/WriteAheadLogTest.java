@@ -0,0 +1,73 @@
+package repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests that WriteAheadLog replays committed records and stops cleanly at a torn or corrupt tail.
+ */
+class WriteAheadLogTest {
+
+    private static List<String> replayAll(Path directory) throws IOException {
+        List<String> replayed = new ArrayList<>();
+        WriteAheadLog.replay(directory, 0, record -> replayed.add(StandardCharsets.UTF_8.decode(record).toString()));
+        return replayed;
+    }
+
+    private static void writeRecords(Path directory, int count) throws IOException {
+        try (WriteAheadLog log = new WriteAheadLog(directory, 5)) {
+            for (int i = 0; i < count; i++) {
+                log.append(("record " + i).getBytes(StandardCharsets.UTF_8));
+            }
+            log.sync();
+        }
+    }
+
+    private static Path onlySegment(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".log")).findFirst().orElseThrow();
+        }
+    }
+
+    @Test
+    void replaysEveryCommittedRecord(@TempDir Path directory) throws IOException {
+        writeRecords(directory, 100);
+
+        List<String> replayed = replayAll(directory);
+        assertEquals(100, replayed.size());
+        assertEquals("record 99", replayed.get(99));
+    }
+
+    @Test
+    void stopsAtAFrameLongerThanTheRestOfTheSegment(@TempDir Path directory) throws IOException {
+        writeRecords(directory, 10);
+        // A torn frame whose length field reads as nearly 2 GB, followed by a few bytes of garbage
+        ByteBuffer frame = ByteBuffer.allocate(16).putInt(Integer.MAX_VALUE - 8).putInt(0).putInt(1).putInt(2);
+        Files.write(onlySegment(directory), frame.array(), StandardOpenOption.APPEND);
+
+        assertEquals(10, replayAll(directory).size());
+    }
+
+    @Test
+    void stopsAtARecordWithABadChecksum(@TempDir Path directory) throws IOException {
+        writeRecords(directory, 10);
+        Path segment = onlySegment(directory);
+        byte[] bytes = Files.readAllBytes(segment);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(segment, bytes);
+
+        assertEquals(9, replayAll(directory).size());
+    }
+}
@@ -0,0 +1,101 @@
+package service;
+
+import model.Money;
+import model.Transaction;
+import model.TransactionType;
+import model.User;
+import org.junit.jupiter.api.Test;
+import repository.UserRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Tests that the batch reports of BatchAnalyticsService match the per-user totals of TransactionService.
+ */
+class BatchAnalyticsServiceTest {
+
+    private static final LocalDate FIRST_DATE = LocalDate.of(2024, 1, 1);
+    private static final int USERS = 5;
+
+    private static TransactionService serviceWithUsers() {
+        UserRepository userRepository = new UserRepository();
+        for (int u = 0; u < USERS; u++) {
+            userRepository.addUser(new User("First", "Last", "user" + u + "@example.com", "user" + u, "hash"));
+        }
+        return new TransactionService(userRepository);
+    }
+
+    private static Transaction add(TransactionService transactionService, SplittableRandom random) {
+        return transactionService.addTransaction("user" + random.nextInt(USERS), TransactionType.fromOrdinal(random.nextInt(TransactionType.count())),
+                Money.ofMinorUnits(random.nextInt(100_000)), FIRST_DATE.plusDays(random.nextInt(120)), "Batch");
+    }
+
+    private static void assertMatchesLedgers(TransactionService transactionService, BatchAnalyticsService analytics) {
+        Map<String, long[]> totals = analytics.getTotalsByUser();
+        Map<String, Money> netWorth = analytics.getNetWorthByUser();
+        for (int u = 0; u < USERS; u++) {
+            String username = "user" + u;
+            if (transactionService.getTransactionsByUser(username).isEmpty()) {
+                assertFalse(totals.containsKey(username), username);
+                assertFalse(netWorth.containsKey(username), username);
+                continue;
+            }
+            long[] expected = new long[TransactionType.count()];
+            for (TransactionType type : TransactionType.values()) {
+                expected[type.ordinal()] = transactionService.getTotalByType(username, type).getMinorUnits();
+                assertEquals(expected[type.ordinal()], totals.get(username)[type.ordinal()], username + " " + type);
+                assertEquals(transactionService.getTotalByTypeBetween(username, type, LocalDate.MIN, LocalDate.MAX),
+                        Money.ofMinorUnits(totals.get(username)[type.ordinal()]), username + " " + type);
+            }
+            assertEquals(Money.ofMinorUnits(BatchAnalyticsService.netWorth(expected)), netWorth.get(username), username);
+        }
+    }
+
+    @Test
+    void createdAfterTransactionsExistReportsMatchTheLedgersThroughEveryChange() {
+        TransactionService transactionService = serviceWithUsers();
+        SplittableRandom random = new SplittableRandom(15);
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            transactions.add(add(transactionService, random));
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            BatchAnalyticsService analytics = new BatchAnalyticsService(transactionService, pool);
+            assertMatchesLedgers(transactionService, analytics);
+
+            for (int i = 0; i < 3000; i++) {
+                int operation = random.nextInt(100);
+                if (operation < 40 || transactions.isEmpty()) {
+                    transactions.add(add(transactionService, random));
+                } else if (operation < 55) {
+                    transactions.get(random.nextInt(transactions.size())).setMoney(Money.ofMinorUnits(random.nextInt(100_000)));
+                } else if (operation < 70) {
+                    transactions.get(random.nextInt(transactions.size())).setTransactionDate(FIRST_DATE.plusDays(random.nextInt(120)));
+                } else if (operation < 80) {
+                    transactions.get(random.nextInt(transactions.size())).setType(TransactionType.fromOrdinal(random.nextInt(TransactionType.count())));
+                } else {
+                    transactionService.deleteTransaction(transactions.remove(random.nextInt(transactions.size())).getTransactionId());
+                }
+                if (i % 1000 == 0) {
+                    assertMatchesLedgers(transactionService, analytics);
+                }
+            }
+            assertMatchesLedgers(transactionService, analytics);
+
+            transactionService.deleteTransactionsByUser("user0");
+            assertMatchesLedgers(transactionService, analytics);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package service;
+
+import model.Money;
+import model.Transaction;
+import model.TransactionType;
+import model.User;
+import org.junit.jupiter.api.Test;
+import repository.UserRepository;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of when BudgetAlertService raises alerts, how it delivers them and when it forgets budgets.
+ */
+class BudgetAlertServiceTest {
+
+    private static final LocalDate DATE = LocalDate.of(2024, 3, 15);
+    private static final YearMonth MONTH = YearMonth.of(2024, 3);
+
+    private static UserRepository repositoryWithUsers() {
+        UserRepository userRepository = new UserRepository();
+        userRepository.addUser(new User("Jane", "Smith", "jane@example.com", "jane", "hash"));
+        userRepository.addUser(new User("John", "Doe", "john@example.com", "john", "hash"));
+        return userRepository;
+    }
+
+    private static Transaction expense(TransactionService transactionService, String username, long minorUnits, LocalDate date) {
+        return transactionService.addTransaction(username, TransactionType.EXPENSE, Money.ofMinorUnits(minorUnits), date, "Shopping");
+    }
+
+    // Registers a listener collecting every alert delivered
+    private static List<BudgetAlert> collect(BudgetAlertService budgets) {
+        List<BudgetAlert> alerts = Collections.synchronizedList(new ArrayList<>());
+        budgets.addListener(alerts::add);
+        return alerts;
+    }
+
+    @Test
+    void firesWhenAChangeTakesTheTotalAboveTheLimitButNotToIt() {
+        TransactionService transactionService = new TransactionService(repositoryWithUsers());
+        BudgetAlertService budgets = new BudgetAlertService();
+        transactionService.addListener(budgets);
+        List<BudgetAlert> alerts = collect(budgets);
+        BudgetRule rule = budgets.addRule("jane", TransactionType.EXPENSE, Money.ofMinorUnits(10_000));
+
+        expense(transactionService, "jane", 6_000, DATE);
+        expense(transactionService, "jane", 4_000, DATE);
+        transactionService.addTransaction("jane", TransactionType.INCOME, Money.ofMinorUnits(50_000), DATE, "Salary");
+        expense(transactionService, "john", 20_000, DATE);
+        assertEquals(0, budgets.getRaisedAlertCount());
+
+        // One cent over the limit fires; more spending while already over it does not
+        Transaction crossing = expense(transactionService, "jane", 1, DATE);
+        Transaction more = expense(transactionService, "jane", 1_000, DATE);
+        assertEquals(1, budgets.getRaisedAlertCount());
+
+        // Deletes and decreases never fire, even when the total stays over the limit
+        transactionService.deleteTransaction(crossing.getTransactionId());
+        more.setMoney(Money.ofMinorUnits(500));
+        more.setMoney(Money.ofMinorUnits(0));
+        assertEquals(1, budgets.getRaisedAlertCount());
+        assertEquals(Money.ofMinorUnits(10_000), budgets.getMonthlyTotal("jane", TransactionType.EXPENSE, MONTH));
+
+        // Back at the limit, going over it again fires again
+        Transaction again = expense(transactionService, "jane", 250, DATE);
+        budgets.close();
+
+        assertEquals(2, alerts.size());
+        assertSame(rule, alerts.get(0).getRule());
+        assertEquals(MONTH, alerts.get(0).getMonth());
+        assertEquals(Money.ofMinorUnits(10_001), alerts.get(0).getTotal());
+        assertEquals(crossing.getTransactionId(), alerts.get(0).getTransactionId());
+        assertEquals(Money.ofMinorUnits(10_250), alerts.get(1).getTotal());
+        assertEquals(again.getTransactionId(), alerts.get(1).getTransactionId());
+        assertEquals(0, budgets.getDroppedAlertCount());
+    }
+
+    @Test
+    void oneChangeFiresEveryLimitItCrossesInLimitOrder() {
+        TransactionService transactionService = new TransactionService(repositoryWithUsers());
+        BudgetAlertService budgets = new BudgetAlertService();
+        transactionService.addListener(budgets);
+        List<BudgetAlert> alerts = collect(budgets);
+        BudgetRule highest = budgets.addRule("jane", TransactionType.EXPENSE, Money.ofMinorUnits(20_000));
+        BudgetRule lowest = budgets.addRule("jane", TransactionType.EXPENSE, Money.ofMinorUnits(5_000));
+        BudgetRule first = budgets.addRule("jane", TransactionType.EXPENSE, Money.ofMinorUnits(10_000));
+        BudgetRule second = budgets.addRule("jane", TransactionType.EXPENSE, Money.ofMinorUnits(10_000));
+        BudgetRule middle = budgets.addRule("jane", TransactionType.EXPENSE, Money.ofMinorUnits(15_000));
+        budgets.addRule("john", TransactionType.EXPENSE, Money.ofMinorUnits(1));
+        assertEquals(6, budgets.getRuleCount());
+
+        Transaction transaction = expense(transactionService, "jane", 15_000, DATE);
+
+        // Raising the amount fires only the limits between the old and the new total
+        transaction.setMoney(Money.ofMinorUnits(25_000));
+        budgets.close();
+
+        List<BudgetRule> fired = new ArrayList<>();
+        for (BudgetAlert alert : alerts) {
+            fired.add(alert.getRule());
+        }
+        assertEquals(List.of(lowest, first, second, middle, highest), fired);
+        assertEquals(Money.ofMinorUnits(15_000), alerts.get(2).getTotal());
+        assertEquals(Money.ofMinorUnits(25_000), alerts.get(3).getTotal());
+        assertEquals(Money.ofMinorUnits(25_000), alerts.get(4).getTotal());
+    }
+
+    @Test
+    void eachMonthHasItsOwnTotal() {
+        TransactionService transactionService = new TransactionService(repositoryWithUsers());
+        BudgetAlertService budgets = new BudgetAlertService();
+        transactionService.addListener(budgets);
+        List<BudgetAlert> alerts = collect(budgets);
+        budgets.addRule("jane", TransactionType.EXPENSE, Money.ofMinorUnits(10_000));
+
+        LocalDate newYearsEve = LocalDate.of(2023, 12, 31);
+        Transaction december = expense(transactionService, "jane", 9_000, newYearsEve);
+        expense(transactionService, "jane", 6_000, newYearsEve.plusDays(1));
+        expense(transactionService, "jane", 9_000, newYearsEve.plusDays(32));
+        assertEquals(0, budgets.getRaisedAlertCount());
+
+        // Moving December's spending into January leaves December and takes January over
+        december.setTransactionDate(newYearsEve.plusDays(1));
+        assertEquals(Money.ZERO, budgets.getMonthlyTotal("jane", TransactionType.EXPENSE, YearMonth.of(2023, 12)));
+        assertEquals(Money.ofMinorUnits(15_000), budgets.getMonthlyTotal("jane", TransactionType.EXPENSE, YearMonth.of(2024, 1)));
+        assertEquals(Money.ofMinorUnits(9_000), budgets.getMonthlyTotal("jane", TransactionType.EXPENSE, YearMonth.of(2024, 2)));
+
+        // Changing its type moves it to another type's total; changing it back takes January over again
+        december.setType(TransactionType.INCOME);
+        december.setType(TransactionType.EXPENSE);
+        budgets.close();
+
+        assertEquals(2, alerts.size());
+        assertEquals(YearMonth.of(2024, 1), alerts.get(0).getMonth());
+        assertEquals(YearMonth.of(2024, 1), alerts.get(1).getMonth());
+        assertEquals(december.getTransactionId(), alerts.get(1).getTransactionId());
+    }
+
+    @Test
+    void dropsAndCountsAlertsWhileTheQueueIsFull() throws InterruptedException {
+        TransactionService transactionService = new TransactionService(repositoryWithUsers());
+        BudgetAlertService budgets = new BudgetAlertService(1);
+        transactionService.addListener(budgets);
+        CountDownLatch delivering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<BudgetAlert> alerts = Collections.synchronizedList(new ArrayList<>());
+        budgets.addListener(alert -> {
+            delivering.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            alerts.add(alert);
+        });
+        budgets.addRule("jane", TransactionType.EXPENSE, Money.ofMinorUnits(0));
+
+        // The first alert holds up the notifier thread, the second waits in the queue, the rest are dropped
+        expense(transactionService, "jane", 1, DATE);
+        assertTrue(delivering.await(10, TimeUnit.SECONDS));
+        expense(transactionService, "jane", 1, DATE.plusMonths(1));
+        assertEquals(1, budgets.getQueueDepth());
+        expense(transactionService, "jane", 1, DATE.plusMonths(2));
+        expense(transactionService, "jane", 1, DATE.plusMonths(3));
+        assertEquals(4, budgets.getRaisedAlertCount());
+        assertEquals(2, budgets.getDroppedAlertCount());
+
+        release.countDown();
+        budgets.close();
+        assertEquals(2, alerts.size());
+        assertEquals(MONTH.plusMonths(1), alerts.get(1).getMonth());
+
+        // Closed, the service still counts alerts but drops them all
+        expense(transactionService, "jane", 1, DATE.plusMonths(4));
+        assertEquals(5, budgets.getRaisedAlertCount());
+        assertEquals(3, budgets.getDroppedAlertCount());
+    }
+
+    @Test
+    void deletingAUserDropsItsBudgetsAndTotals() {
+        UserRepository userRepository = repositoryWithUsers();
+        UserService userService = new UserService(userRepository, new CredentialService(CredentialService.MIN_ITERATIONS));
+        TransactionService transactionService = new TransactionService(userRepository);
+        BudgetAlertService budgets = new BudgetAlertService();
+        userService.addListener(transactionService);
+        userService.addListener(budgets);
+        transactionService.addListener(budgets);
+        userRepository.addUsernameChangeGuard(budgets);
+
+        budgets.addRule("jane", TransactionType.EXPENSE, Money.ofMinorUnits(100));
+        budgets.addRule("jane", TransactionType.INCOME, Money.ofMinorUnits(100));
+        BudgetRule johns = budgets.addRule("john", TransactionType.EXPENSE, Money.ofMinorUnits(100));
+        expense(transactionService, "jane", 50, DATE);
+        assertThrows(IllegalArgumentException.class, () -> userRepository.getUserByUsername("jane").setUsername("janet"));
+
+        userService.deleteUser("jane");
+        assertEquals(List.of(), budgets.getRules("jane"));
+        assertEquals(List.of(johns), budgets.getRules("john"));
+        assertEquals(1, budgets.getRuleCount());
+        assertEquals(Money.ZERO, budgets.getMonthlyTotal("jane", TransactionType.EXPENSE, MONTH));
+
+        // Nothing is kept under the name any more, so a new user of that name starts afresh and can be renamed
+        userRepository.addUser(new User("Jane", "Smith", "jane@example.com", "jane", "hash"));
+        userRepository.getUserByUsername("jane").setUsername("janet");
+        assertTrue(userRepository.usernameExists("janet"));
+        assertEquals(1, budgets.getRuleCount());
+        budgets.close();
+    }
+}
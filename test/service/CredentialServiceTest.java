@@ -0,0 +1,102 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of password hashing and verification in CredentialService.
+ */
+class CredentialServiceTest {
+
+    private static final String SALT = Base64.getEncoder().withoutPadding().encodeToString(new byte[16]);
+    private static final String HASH = Base64.getEncoder().withoutPadding().encodeToString(new byte[32]);
+
+    @Test
+    void verifiesTheHashedPasswordAndNoOther() {
+        try (CredentialService credentials = new CredentialService(CredentialService.MIN_ITERATIONS)) {
+            String hash = credentials.hash("Passw0rd!");
+            assertTrue(CredentialService.isPasswordHash(hash));
+            assertTrue(hash.startsWith("pbkdf2-sha256$1000$"));
+            assertTrue(credentials.verify("Passw0rd!", hash));
+            assertFalse(credentials.verify("passw0rd!", hash));
+            assertFalse(credentials.verify("", hash));
+
+            // Each hash has its own salt; two hashes and three verifications were computed
+            assertNotEquals(hash, credentials.hash("Passw0rd!"));
+            assertEquals(5, credentials.getHashCount());
+        }
+    }
+
+    @Test
+    void verifiesHashesMadeWithAnotherWorkFactor() {
+        try (CredentialService old = new CredentialService(CredentialService.MIN_ITERATIONS);
+             CredentialService current = new CredentialService(2 * CredentialService.MIN_ITERATIONS)) {
+            String hash = old.hash("Passw0rd!");
+            assertTrue(current.verify("Passw0rd!", hash));
+            assertTrue(current.needsRehash(hash));
+            assertFalse(old.needsRehash(hash));
+            assertTrue(current.needsRehash("Passw0rd!"));
+        }
+    }
+
+    @Test
+    void rejectsMalformedHashesWithoutThrowing() {
+        try (CredentialService credentials = new CredentialService(CredentialService.MIN_ITERATIONS)) {
+            String[] malformed = {
+                    null,
+                    "",
+                    "Passw0rd!",
+                    "pbkdf2-sha256$1000$" + SALT,
+                    "pbkdf2-sha256$1000$" + SALT + "$" + HASH + "$extra",
+                    "md5$1000$" + SALT + "$" + HASH,
+                    "pbkdf2-sha256$many$" + SALT + "$" + HASH,
+                    "pbkdf2-sha256$1000$$" + HASH,
+                    "pbkdf2-sha256$1000$$AAAA",
+                    "pbkdf2-sha256$0$" + SALT + "$" + HASH,
+                    "pbkdf2-sha256$-5$" + SALT + "$" + HASH,
+                    "pbkdf2-sha256$999$" + SALT + "$" + HASH,
+                    "pbkdf2-sha256$1000$not*base64$" + HASH,
+                    "pbkdf2-sha256$1000$" + SALT + "$AAAA",
+            };
+            for (String encoded : malformed) {
+                assertFalse(credentials.verify("Passw0rd!", encoded), () -> "accepted " + encoded);
+            }
+        }
+    }
+
+    @Test
+    void refusesIterationCountsBelowTheMinimum() {
+        assertThrows(IllegalArgumentException.class, () -> new CredentialService(CredentialService.MIN_ITERATIONS - 1));
+        assertThrows(IllegalArgumentException.class, () -> new CredentialService(CredentialService.MIN_ITERATIONS, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new CredentialService(CredentialService.MIN_ITERATIONS, 1, 0));
+    }
+
+    @Test
+    void rejectsAsynchronousVerificationsBeyondTheQueueCapacity() {
+        try (CredentialService credentials = new CredentialService(CredentialService.MIN_ITERATIONS, 1, 1)) {
+            // Slow enough that the first verification is still running when the third is submitted
+            String slow = "pbkdf2-sha256$1000000$" + SALT + "$" + HASH;
+            CompletableFuture<Boolean> running = credentials.verifyAsync("Passw0rd!", slow);
+            CompletableFuture<Boolean> queued = credentials.verifyAsync("Passw0rd!", slow);
+            CompletableFuture<Boolean> rejected = credentials.verifyAsync("Passw0rd!", slow);
+
+            CompletionException failure = assertThrows(CompletionException.class, rejected::join);
+            assertInstanceOf(RejectedExecutionException.class, failure.getCause());
+            assertEquals(1, credentials.getRejectedVerifications());
+            assertFalse(running.join());
+            assertFalse(queued.join());
+            assertEquals(0, credentials.getQueueDepth());
+        }
+    }
+}
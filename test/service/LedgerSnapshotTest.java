@@ -0,0 +1,158 @@
+package service;
+
+import model.Money;
+import model.Transaction;
+import model.TransactionRecord;
+import model.TransactionType;
+import model.User;
+import org.junit.jupiter.api.Test;
+import repository.UserRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of the snapshots TransactionService builds on demand from a user's ledger.
+ */
+class LedgerSnapshotTest {
+
+    private static final LocalDate FIRST_DATE = LocalDate.of(2024, 1, 1);
+
+    private static TransactionService serviceWithUser() {
+        UserRepository userRepository = new UserRepository();
+        userRepository.addUser(new User("Jane", "Smith", "jane@example.com", "jane", "hash"));
+        return new TransactionService(userRepository);
+    }
+
+    private static List<Integer> ids(List<TransactionRecord> records) {
+        List<Integer> ids = new ArrayList<>();
+        for (TransactionRecord record : records) {
+            ids.add(record.getTransactionId());
+        }
+        return ids;
+    }
+
+    private static List<Integer> ids(Iterable<Transaction> transactions) {
+        List<Integer> ids = new ArrayList<>();
+        for (Transaction transaction : transactions) {
+            ids.add(transaction.getTransactionId());
+        }
+        return ids;
+    }
+
+    @Test
+    void ledgersPublishNoSnapshotsUntilStarted() {
+        UserLedger ledger = new UserLedger("jane");
+        Transaction transaction = new Transaction("jane", TransactionType.EXPENSE, Money.ofMinorUnits(100), FIRST_DATE, "Lunch");
+        ledger.add(transaction);
+        ledger.update(transaction, () -> transaction.setTransactionDate(FIRST_DATE.plusDays(1)));
+        assertNull(ledger.getSnapshot());
+
+        LedgerSnapshot snapshot = ledger.startSnapshots();
+        assertSame(snapshot, ledger.getSnapshot());
+        assertEquals(2, snapshot.getVersion());
+        assertEquals(List.of(transaction.getTransactionId()), ids(snapshot.getTransactions()));
+        assertSame(snapshot, ledger.startSnapshots());
+
+        ledger.remove(transaction);
+        assertTrue(ledger.getSnapshot().isEmpty());
+        assertEquals(1, snapshot.size());
+    }
+
+    @Test
+    void firstSnapshotMatchesTheLedgerAndLaterOnesFollowChanges() {
+        TransactionService transactionService = serviceWithUser();
+        for (int i = 0; i < 100; i++) {
+            transactionService.addTransaction("jane", TransactionType.EXPENSE, Money.ofMinorUnits(100 + i), FIRST_DATE.plusDays(i % 7), "Lunch");
+        }
+
+        LedgerSnapshot first = transactionService.getSnapshot("jane");
+        assertEquals(100, first.size());
+        assertEquals(100, first.getVersion());
+        assertEquals(ids(transactionService.getTransactionsByUser("jane")), ids(first.getTransactions()));
+        assertEquals(transactionService.getTotalByType("jane", TransactionType.EXPENSE), first.getTotal(TransactionType.EXPENSE));
+        assertSame(first, transactionService.getSnapshot("jane"));
+
+        // From now on every change publishes a new snapshot, and earlier ones stay as they were
+        Transaction added = transactionService.addTransaction("jane", TransactionType.INCOME, Money.ofMinorUnits(5000), FIRST_DATE, "Salary");
+        LedgerSnapshot second = transactionService.getSnapshot("jane");
+        assertNotSame(first, second);
+        assertEquals(101, second.size());
+        assertEquals(Money.ofMinorUnits(5000), second.getTotal(TransactionType.INCOME));
+        assertEquals(100, first.size());
+        assertEquals(Money.ZERO, first.getTotal(TransactionType.INCOME));
+
+        added.setTransactionDate(FIRST_DATE.plusDays(30));
+        transactionService.deleteTransaction(transactionService.getTransactionsByUser("jane").get(0).getTransactionId());
+        LedgerSnapshot third = transactionService.getSnapshot("jane");
+        assertEquals(ids(transactionService.getTransactionsByUser("jane")), ids(third.getTransactions()));
+        assertEquals(List.of(), transactionService.verifyTotals());
+    }
+
+    @Test
+    void openEndedRangesIncludeTransactionsAtBothEndsOfTheSupportedDates() {
+        TransactionService transactionService = serviceWithUser();
+        Transaction earliest = transactionService.addTransaction("jane", TransactionType.EXPENSE, Money.ofMinorUnits(100), Transaction.MIN_DATE, "Earliest");
+        Transaction middle = transactionService.addTransaction("jane", TransactionType.EXPENSE, Money.ofMinorUnits(200), FIRST_DATE, "Middle");
+        Transaction latest = transactionService.addTransaction("jane", TransactionType.EXPENSE, Money.ofMinorUnits(400), Transaction.MAX_DATE, "Latest");
+        List<Integer> all = List.of(earliest.getTransactionId(), middle.getTransactionId(), latest.getTransactionId());
+
+        assertEquals(all, ids(transactionService.getTransactionsByUserBetween("jane", LocalDate.MIN, LocalDate.MAX)));
+        assertEquals(List.of(earliest.getTransactionId(), middle.getTransactionId()),
+                ids(transactionService.getTransactionsByUserBetween("jane", LocalDate.MIN, FIRST_DATE)));
+        assertEquals(List.of(middle.getTransactionId(), latest.getTransactionId()),
+                ids(transactionService.getTransactionsByUserBetween("jane", FIRST_DATE, LocalDate.MAX)));
+        assertEquals(Money.ofMinorUnits(700), transactionService.getTotalByTypeBetween("jane", TransactionType.EXPENSE, LocalDate.MIN, LocalDate.MAX));
+
+        LedgerSnapshot snapshot = transactionService.getSnapshot("jane");
+        assertEquals(all, ids(snapshot.getTransactionsBetween(LocalDate.MIN, LocalDate.MAX)));
+        assertEquals(List.of(latest.getTransactionId()), ids(snapshot.getTransactionsBetween(Transaction.MAX_DATE, LocalDate.MAX)));
+        assertEquals(List.of(), ids(snapshot.getTransactionsBetween(LocalDate.MIN, Transaction.MIN_DATE.minusDays(1))));
+
+        // Dates the ledger cannot key are refused rather than wrapped around
+        assertThrows(IllegalArgumentException.class, () -> transactionService.addTransaction("jane", TransactionType.EXPENSE, Money.ofMinorUnits(100), LocalDate.MAX, "Too late"));
+        assertThrows(IllegalArgumentException.class, () -> middle.setTransactionDate(Transaction.MIN_DATE.minusDays(1)));
+        assertEquals(all, ids(transactionService.getTransactionsByUserBetween("jane", LocalDate.MIN, LocalDate.MAX)));
+        assertEquals(List.of(), transactionService.verifyTotals());
+    }
+
+    @Test
+    void buildsBalancedTreesFromSortedRecords() {
+        SplittableRandom random = new SplittableRandom(23);
+        for (int size : new int[] {0, 1, 2, 3, 7, 8, 1000, 4097}) {
+            long[] keys = new long[size];
+            TransactionRecord[] records = new TransactionRecord[size];
+            long key = 0;
+            for (int i = 0; i < size; i++) {
+                key += 1 + random.nextInt(100);
+                keys[i] = key;
+                records[i] = new Transaction("jane", TransactionType.EXPENSE, Money.ofMinorUnits(i), FIRST_DATE, null).toRecord();
+            }
+            LedgerTree.Node root = LedgerTree.fromSorted(keys, records);
+            assertEquals(size, LedgerTree.size(root));
+            for (int i = 0; i < size; i++) {
+                assertSame(records[i], LedgerTree.get(root, i));
+                assertEquals(i, LedgerTree.rank(root, keys[i]));
+            }
+            assertTrue(isBalanced(root));
+        }
+    }
+
+    private static boolean isBalanced(LedgerTree.Node node) {
+        if (node == null) {
+            return true;
+        }
+        int left = node.left == null ? 0 : node.left.height;
+        int right = node.right == null ? 0 : node.right.height;
+        return Math.abs(left - right) <= 1 && isBalanced(node.left) && isBalanced(node.right);
+    }
+}
@@ -0,0 +1,63 @@
+package service;
+
+import model.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import repository.MutationRecords;
+import repository.UserRepository;
+import repository.WriteAheadLog;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of recovery and the periodic snapshots of PersistenceService.
+ */
+class PersistenceServiceTest {
+
+    @Test
+    void periodicSnapshotsKeepRunningAfterAFailure(@TempDir Path directory) throws Exception {
+        UserRepository userRepository = new UserRepository();
+        TransactionService transactionService = new TransactionService(userRepository);
+        UserService userService = new UserService(userRepository);
+        try (PersistenceService persistence = PersistenceService.open(directory, userRepository, userService, transactionService)) {
+            // A directory in the way of the temporary snapshot file makes every snapshot fail
+            Path blocker = Files.createDirectory(directory.resolve("snapshot.bin.tmp"));
+            persistence.startPeriodicSnapshots(10, TimeUnit.MILLISECONDS);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (persistence.getFailedSnapshotCount() < 3 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(persistence.getFailedSnapshotCount() >= 3, "the schedule stopped after a failure");
+            assertNotNull(persistence.getLastSnapshotFailure());
+
+            // Once the cause is gone, the next run succeeds
+            Files.delete(blocker);
+            while (!Files.exists(directory.resolve("snapshot.bin")) && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(Files.exists(directory.resolve("snapshot.bin")), "no snapshot was written after the failures");
+        }
+    }
+
+    @Test
+    void refusesToRecoverAUserWhosePasswordIsNotAHash(@TempDir Path directory) throws Exception {
+        try (WriteAheadLog log = new WriteAheadLog(directory.resolve("wal"), 5)) {
+            log.append(MutationRecords.userSaved(new User("Jane", "Smith", "jane@example.com", "jane", "Passw0rd!")));
+            log.sync();
+        }
+
+        UserRepository userRepository = new UserRepository();
+        TransactionService transactionService = new TransactionService(userRepository);
+        UserService userService = new UserService(userRepository, new CredentialService(CredentialService.MIN_ITERATIONS));
+        assertThrows(IllegalArgumentException.class,
+                () -> PersistenceService.open(directory, userRepository, userService, transactionService));
+        assertEquals(0, userRepository.getUserCount());
+    }
+}
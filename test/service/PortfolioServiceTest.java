@@ -0,0 +1,163 @@
+package service;
+
+import model.Investment;
+import model.Money;
+import model.Transaction;
+import model.User;
+import org.junit.jupiter.api.Test;
+import repository.PriceTable;
+import repository.UserRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Tests that the positions and valuations PortfolioService keeps up to date match those rebuilt from scratch.
+ */
+class PortfolioServiceTest {
+
+    private static final LocalDate FIRST_DATE = LocalDate.of(2024, 1, 1);
+    private static final String[] SYMBOLS = {"AAPL", "MSFT", "VTI", "BND", "GOOG"};
+    private static final int USERS = 4;
+
+    private static TransactionService serviceWithUsers() {
+        UserRepository userRepository = new UserRepository();
+        for (int u = 0; u < USERS; u++) {
+            userRepository.addUser(new User("First", "Last", "user" + u + "@example.com", "user" + u, "hash"));
+        }
+        return new TransactionService(userRepository);
+    }
+
+    @Test
+    void incrementalValuationMatchesAFullRevaluationAfterRandomTradesAndPrices() {
+        TransactionService transactionService = serviceWithUsers();
+        PriceTable prices = new PriceTable();
+        PortfolioService portfolio = new PortfolioService(prices);
+        transactionService.addListener(portfolio);
+
+        SplittableRandom random = new SplittableRandom(21);
+        List<Transaction> trades = new ArrayList<>();
+        int day = 0;
+        for (int i = 0; i < 5000; i++) {
+            int operation = random.nextInt(100);
+            if (operation < 60 || trades.isEmpty()) {
+                // Mostly in date order, sometimes back-dated; sells may exceed the holding
+                int date = random.nextInt(10) == 0 ? random.nextInt(day + 1) : (day += random.nextInt(3));
+                long quantity = (1 + random.nextInt(50_000_000)) * (random.nextInt(3) == 0 ? -1L : 1L);
+                trades.add(transactionService.addInvestment("user" + random.nextInt(USERS),
+                        Investment.ofMicros(SYMBOLS[random.nextInt(SYMBOLS.length)], quantity),
+                        Money.ofMinorUnits(1 + random.nextInt(1_000_000)), FIRST_DATE.plusDays(date), "Trade"));
+            } else if (operation < 70) {
+                transactionService.deleteTransaction(trades.remove(random.nextInt(trades.size())).getTransactionId());
+            } else if (operation < 80) {
+                Transaction trade = trades.get(random.nextInt(trades.size()));
+                if (random.nextBoolean()) {
+                    trade.setMoney(Money.ofMinorUnits(1 + random.nextInt(1_000_000)));
+                } else {
+                    trade.setTransactionDate(FIRST_DATE.plusDays(random.nextInt(day + 1)));
+                }
+            } else {
+                prices.setPrice(SYMBOLS[random.nextInt(SYMBOLS.length)], random.nextInt(100_000) / 100.0);
+                if (random.nextBoolean()) {
+                    portfolio.revalue();
+                }
+            }
+        }
+        portfolio.revalue();
+
+        // A fresh service fed the surviving trades in random order, then valued in one full pass
+        PortfolioService rebuilt = new PortfolioService(prices);
+        List<Transaction> shuffled = new ArrayList<>(transactionService.getAllTransactions());
+        Collections.shuffle(shuffled, new Random(22));
+        for (Transaction trade : shuffled) {
+            rebuilt.transactionAdded(trade);
+        }
+        rebuilt.revalueAll();
+
+        assertEquals(rebuilt.getPositionCount(), portfolio.getPositionCount());
+        for (int u = 0; u < USERS; u++) {
+            String username = "user" + u;
+            assertEquals(rebuilt.getMarketValue(username), portfolio.getMarketValue(username), username);
+            assertEquals(rebuilt.getCostBasis(username), portfolio.getCostBasis(username), username);
+            List<Position> expected = rebuilt.getPositions(username);
+            List<Position> actual = portfolio.getPositions(username);
+            assertEquals(expected.size(), actual.size(), username);
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getSymbol(), actual.get(i).getSymbol());
+                assertEquals(expected.get(i).getQuantityMicros(), actual.get(i).getQuantityMicros());
+                assertEquals(expected.get(i).getCostBasis(), actual.get(i).getCostBasis());
+                assertEquals(expected.get(i).getMarketValue(), actual.get(i).getMarketValue());
+            }
+            for (String symbol : SYMBOLS) {
+                long quantity = replayQuantity(transactionService.getTransactionsByUser(username), symbol);
+                Position position = portfolio.getPosition(username, symbol);
+                assertEquals(quantity, position == null ? 0 : position.getQuantityMicros(), username + " " + symbol);
+            }
+        }
+    }
+
+    /**
+     * Replays a user's trades in one symbol by date and ID, selling at most what is held.
+     */
+    private static long replayQuantity(List<Transaction> transactions, String symbol) {
+        List<Transaction> trades = new ArrayList<>();
+        for (Transaction transaction : transactions) {
+            if (transaction.getInvestment() != null && transaction.getInvestment().getSymbol().equals(symbol)) {
+                trades.add(transaction);
+            }
+        }
+        trades.sort(Comparator.comparing(Transaction::getTransactionDate).thenComparingInt(Transaction::getTransactionId));
+        long quantity = 0;
+        for (Transaction trade : trades) {
+            quantity = Math.max(0, quantity + trade.getInvestment().getQuantityMicros());
+        }
+        return quantity;
+    }
+
+    @Test
+    void sellingMoreThanIsHeldClosesThePosition() {
+        TransactionService transactionService = serviceWithUsers();
+        PriceTable prices = new PriceTable();
+        prices.setPrice("VTI", 250.0);
+        PortfolioService portfolio = new PortfolioService(prices);
+        transactionService.addListener(portfolio);
+
+        transactionService.addInvestment("user0", Investment.of("VTI", 10), Money.ofMinorUnits(200_000), FIRST_DATE, "Buy");
+        transactionService.addInvestment("user0", Investment.of("VTI", 4), Money.ofMinorUnits(90_000), FIRST_DATE.plusDays(1), "Buy");
+        Position position = portfolio.getPosition("user0", "VTI");
+        assertEquals(14_000_000, position.getQuantityMicros());
+        assertEquals(Money.ofMinorUnits(290_000), position.getCostBasis());
+        assertEquals(Money.ofMinorUnits(350_000), portfolio.getMarketValue("user0"));
+
+        // Selling 20 of the 14 held sells 14 and leaves nothing, not a short position
+        Transaction sell = transactionService.addInvestment("user0", Investment.of("VTI", -20), Money.ofMinorUnits(500_000),
+                FIRST_DATE.plusDays(2), "Sell");
+        assertNull(portfolio.getPosition("user0", "VTI"));
+        assertEquals(Money.ZERO, portfolio.getCostBasis("user0"));
+        assertEquals(Money.ZERO, portfolio.getMarketValue("user0"));
+
+        // A later buy starts from zero, at its own cost
+        transactionService.addInvestment("user0", Investment.of("VTI", 5), Money.ofMinorUnits(120_000), FIRST_DATE.plusDays(3), "Buy");
+        assertEquals(5_000_000, portfolio.getPosition("user0", "VTI").getQuantityMicros());
+        assertEquals(Money.ofMinorUnits(120_000), portfolio.getCostBasis("user0"));
+
+        // Moving the oversized sell after that buy sells all 19 instead
+        sell.setTransactionDate(FIRST_DATE.plusDays(4));
+        assertNull(portfolio.getPosition("user0", "VTI"));
+        assertEquals(Money.ZERO, portfolio.getCostBasis("user0"));
+
+        // A partial sell removes the average cost of what was sold
+        transactionService.deleteTransaction(sell.getTransactionId());
+        transactionService.addInvestment("user0", Investment.of("VTI", -19.0 / 2), Money.ofMinorUnits(1), FIRST_DATE.plusDays(5), "Sell");
+        assertEquals(9_500_000, portfolio.getPosition("user0", "VTI").getQuantityMicros());
+        assertEquals(Money.ofMinorUnits(205_000), portfolio.getCostBasis("user0"));
+    }
+}
@@ -0,0 +1,120 @@
+package service;
+
+import model.Money;
+import model.Transaction;
+import model.TransactionType;
+import model.User;
+import org.junit.jupiter.api.Test;
+import repository.UserRepository;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests that the monthly rollups of RollupService match the totals TransactionService computes from its ledgers.
+ */
+class RollupServiceTest {
+
+    private static final YearMonth FIRST_MONTH = YearMonth.of(2023, 11);
+    private static final int MONTHS = 5;
+    private static final int USERS = 3;
+
+    private static TransactionService serviceWithUsers() {
+        UserRepository userRepository = new UserRepository();
+        for (int u = 0; u < USERS; u++) {
+            userRepository.addUser(new User("First", "Last", "user" + u + "@example.com", "user" + u, "hash"));
+        }
+        return new TransactionService(userRepository);
+    }
+
+    private static LocalDate date(SplittableRandom random) {
+        return FIRST_MONTH.atDay(1).plusDays(random.nextInt(MONTHS * 30));
+    }
+
+    private static Transaction add(TransactionService transactionService, SplittableRandom random) {
+        return transactionService.addTransaction("user" + random.nextInt(USERS), TransactionType.fromOrdinal(random.nextInt(TransactionType.count())),
+                Money.ofMinorUnits(random.nextInt(100_000)), date(random), "Rollup");
+    }
+
+    private static void assertMatchesLedgers(TransactionService transactionService, RollupService rollups) {
+        for (int u = 0; u < USERS; u++) {
+            String username = "user" + u;
+            for (int m = 0; m < MONTHS; m++) {
+                YearMonth month = FIRST_MONTH.plusMonths(m);
+                List<Transaction> inMonth = transactionService.getTransactionsByUserBetween(username, month.atDay(1), month.atEndOfMonth());
+                MonthlyRollup rollup = rollups.getMonthlyRollup(username, month);
+                for (TransactionType type : TransactionType.values()) {
+                    assertEquals(transactionService.getTotalByTypeBetween(username, type, month.atDay(1), month.atEndOfMonth()),
+                            rollup.getTotal(type), username + " " + month + " " + type);
+                    assertEquals(inMonth.stream().filter(transaction -> transaction.getType() == type).count(),
+                            rollup.getCount(type), username + " " + month + " " + type);
+                }
+            }
+            YearMonth last = FIRST_MONTH.plusMonths(MONTHS - 1);
+            for (TransactionType type : TransactionType.values()) {
+                assertEquals(transactionService.getTotalByTypeBetween(username, type, FIRST_MONTH.atDay(1), last.atEndOfMonth()),
+                        rollups.getTotalByTypeBetween(username, type, FIRST_MONTH, last));
+            }
+        }
+    }
+
+    @Test
+    void registeredAfterTransactionsExistRollupsMatchTheLedgersThroughEveryChange() {
+        TransactionService transactionService = serviceWithUsers();
+        SplittableRandom random = new SplittableRandom(14);
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            transactions.add(add(transactionService, random));
+        }
+
+        RollupService rollups = RollupService.register(transactionService);
+        assertMatchesLedgers(transactionService, rollups);
+
+        for (int i = 0; i < 3000; i++) {
+            int operation = random.nextInt(100);
+            if (operation < 40 || transactions.isEmpty()) {
+                transactions.add(add(transactionService, random));
+            } else if (operation < 55) {
+                transactions.get(random.nextInt(transactions.size())).setMoney(Money.ofMinorUnits(random.nextInt(100_000)));
+            } else if (operation < 70) {
+                // Often moves the transaction into another month
+                transactions.get(random.nextInt(transactions.size())).setTransactionDate(date(random));
+            } else if (operation < 80) {
+                transactions.get(random.nextInt(transactions.size())).setType(TransactionType.fromOrdinal(random.nextInt(TransactionType.count())));
+            } else {
+                transactionService.deleteTransaction(transactions.remove(random.nextInt(transactions.size())).getTransactionId());
+            }
+            if (i % 1000 == 0) {
+                assertMatchesLedgers(transactionService, rollups);
+            }
+        }
+        assertMatchesLedgers(transactionService, rollups);
+
+        transactionService.deleteTransactionsByUser("user0");
+        assertEquals(List.of(), rollups.getMonthlyRollups("user0", FIRST_MONTH, FIRST_MONTH.plusMonths(MONTHS)));
+        assertMatchesLedgers(transactionService, rollups);
+    }
+
+    @Test
+    void registeringWhileTransactionsArriveCountsEachOnce() throws InterruptedException {
+        TransactionService transactionService = serviceWithUsers();
+        Thread writer = new Thread(() -> {
+            SplittableRandom random = new SplittableRandom(15);
+            for (int i = 0; i < 20_000; i++) {
+                add(transactionService, random);
+            }
+        });
+        writer.start();
+        while (transactionService.getTransactionCount() < 1000) {
+            Thread.onSpinWait();
+        }
+        RollupService rollups = RollupService.register(transactionService);
+        writer.join();
+        assertMatchesLedgers(transactionService, rollups);
+    }
+}
@@ -0,0 +1,41 @@
+package service;
+
+import model.Money;
+import model.Transaction;
+import model.TransactionType;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests of the text form of TransactionCursor and of the positions it accepts.
+ */
+class TransactionCursorTest {
+
+    @Test
+    void parsesWhatItPrints() {
+        TransactionCursor cursor = TransactionCursor.of(LocalDate.of(2024, 3, 1), 42);
+        assertEquals("2024-03-01:42", cursor.toString());
+        assertEquals(cursor, TransactionCursor.parse("2024-03-01:42"));
+        assertEquals(cursor.hashCode(), TransactionCursor.parse("2024-03-01:42").hashCode());
+
+        Transaction transaction = new Transaction("jane", TransactionType.EXPENSE, Money.ofMinorUnits(100), Transaction.MIN_DATE, "Lunch");
+        TransactionCursor earliest = TransactionCursor.after(transaction);
+        assertEquals(earliest, TransactionCursor.parse(earliest.toString()));
+        assertEquals(TransactionCursor.of(Transaction.MAX_DATE, -1), TransactionCursor.parse(Transaction.MAX_DATE + ":-1"));
+    }
+
+    @Test
+    void rejectsMalformedText() {
+        String[] malformed = {null, "", ":", "42", "2024-03-01", "2024-03-01:", ":42", "2024-03-01;42", "2024-3-1:42",
+                "2024-02-30:42", "2024-03-01:4x2", "2024-03-01:42 ", "2024-03-01:99999999999", "+999999999-12-31:1"};
+        for (String text : malformed) {
+            assertThrows(IllegalArgumentException.class, () -> TransactionCursor.parse(text), text);
+        }
+        assertThrows(IllegalArgumentException.class, () -> TransactionCursor.of(null, 1));
+        assertThrows(IllegalArgumentException.class, () -> TransactionCursor.of(LocalDate.MIN, 1));
+    }
+}
@@ -0,0 +1,118 @@
+package service;
+
+import model.Transaction;
+import model.TransactionListener;
+import model.User;
+import org.junit.jupiter.api.Test;
+import repository.UserRepository;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests of TransactionImporter.
+ */
+class TransactionImporterTest {
+
+    private static ImportReport importLines(TransactionImporter importer, List<String> lines) throws IOException {
+        return importer.importCsv(new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void parsesAmountsToTheSameMinorUnitsAsBigDecimal() throws IOException {
+        UserRepository userRepository = new UserRepository();
+        userRepository.addUser(new User("Jane", "Smith", "jane@example.com", "jane", "hash"));
+        TransactionService transactionService = new TransactionService(userRepository);
+        TransactionImporter importer = new TransactionImporter(userRepository, transactionService, 1000);
+
+        // Plain decimals on the fast path, plus long, exponent and over-precise forms that take the BigDecimal path
+        SplittableRandom random = new SplittableRandom(16);
+        List<String> amounts = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            long cents = random.nextLong(0, 1_000_000_000_000L);
+            amounts.add(switch (random.nextInt(8)) {
+                case 0 -> Long.toString(cents / 100);
+                case 1 -> (cents / 100) + "." + (cents % 10);
+                case 2 -> (cents / 100) + "." + (cents / 10 % 10) + (cents % 10);
+                case 3 -> (cents / 100) + "." + String.format("%03d", random.nextInt(1000));
+                case 4 -> (cents / 100) + "." + (random.nextInt(100) * 10 + 5);
+                case 5 -> "0000000000000000" + cents + ".25";
+                case 6 -> cents + "E-2";
+                default -> "." + (cents % 100);
+            });
+        }
+
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < amounts.size(); i++) {
+            lines.add("jane,expense," + amounts.get(i) + ",2024-03-15," + i);
+        }
+        ImportReport report = importLines(importer, lines);
+        assertEquals(amounts.size(), report.getImportedRows(), () -> report.getRejectedRows().toString());
+
+        Map<String, Long> imported = new HashMap<>();
+        for (Transaction transaction : transactionService.getTransactionsByUser("jane")) {
+            imported.put(transaction.getDescription(), transaction.getAmountMinorUnits());
+        }
+        for (int i = 0; i < amounts.size(); i++) {
+            String amount = amounts.get(i);
+            long expected = new BigDecimal(amount).setScale(2, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+            assertEquals(expected, imported.get(Integer.toString(i)), () -> "amount " + amount);
+        }
+    }
+
+    @Test
+    void rejectsAmountsThatAreNotPositiveNumbers() throws IOException {
+        UserRepository userRepository = new UserRepository();
+        userRepository.addUser(new User("Jane", "Smith", "jane@example.com", "jane", "hash"));
+        TransactionService transactionService = new TransactionService(userRepository);
+        TransactionImporter importer = new TransactionImporter(userRepository, transactionService);
+
+        List<String> lines = List.of("jane,expense,1.2.3,2024-03-15,a", "jane,expense,-4.00,2024-03-15,b",
+                "jane,expense,,2024-03-15,c", "jane,expense,12abc,2024-03-15,d", "jane,expense,1e400,2024-03-15,e",
+                "jane,expense,4.50,2024-03-15,f");
+        ImportReport report = importLines(importer, lines);
+
+        assertEquals(1, report.getImportedRows());
+        assertEquals(5, report.getRejectedRowCount());
+        assertEquals(450, transactionService.getTransactionsByUser("jane").get(0).getAmountMinorUnits());
+    }
+
+    @Test
+    void reportsOnlyTheRowsOfAUserDeletedDuringTheImport() throws IOException {
+        UserRepository userRepository = new UserRepository();
+        User john = new User("John", "Doe", "john@example.com", "john", "hash");
+        userRepository.addUser(new User("Jane", "Smith", "jane@example.com", "jane", "hash"));
+        userRepository.addUser(john);
+        TransactionService transactionService = new TransactionService(userRepository);
+        TransactionImporter importer = new TransactionImporter(userRepository, transactionService);
+
+        // John is deleted after the importer has checked the usernames, while Jane's rows are stored
+        transactionService.addListener(new TransactionListener() {
+            @Override
+            public void transactionAdded(Transaction transaction) {
+                if (userRepository.usernameExists("john")) {
+                    userRepository.removeUser(john);
+                }
+            }
+        });
+
+        ImportReport report = importLines(importer, List.of("jane,expense,1.00,2024-03-15,a", "john,expense,2.00,2024-03-15,b",
+                "jane,income,3.00,2024-03-15,c"));
+
+        assertEquals(2, report.getImportedRows());
+        assertEquals(1, report.getRejectedRowCount());
+        assertEquals(2, report.getRejectedRows().get(0).getLineNumber());
+        assertEquals(2, transactionService.getTransactionCount());
+        assertEquals(2, transactionService.getTransactionsByUser("jane").size());
+    }
+}
@@ -0,0 +1,156 @@
+package service;
+
+import model.Money;
+import model.Transaction;
+import model.TransactionType;
+import model.User;
+import org.junit.jupiter.api.Test;
+import repository.UserRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of paging through a user's transactions with TransactionService.getTransactionsPage.
+ */
+class TransactionPageTest {
+
+    private static final LocalDate FIRST_DATE = LocalDate.of(2024, 3, 1);
+
+    // Orders transactions the way the ledger does: by date and then by ID
+    private static final Comparator<Transaction> LEDGER_ORDER =
+            Comparator.comparing(Transaction::getTransactionDate).thenComparingInt(Transaction::getTransactionId);
+
+    private static TransactionService serviceWithUser() {
+        UserRepository userRepository = new UserRepository();
+        userRepository.addUser(new User("Jane", "Smith", "jane@example.com", "jane", "hash"));
+        userRepository.addUser(new User("John", "Doe", "john@example.com", "john", "hash"));
+        return new TransactionService(userRepository);
+    }
+
+    private static Transaction add(TransactionService transactionService, String username, LocalDate date) {
+        return transactionService.addTransaction(username, TransactionType.EXPENSE, Money.ofMinorUnits(100), date, "Lunch");
+    }
+
+    @Test
+    void pagesThroughTransactionsSharingDatesInLedgerOrder() {
+        TransactionService transactionService = serviceWithUser();
+        for (int i = 0; i < 23; i++) {
+            add(transactionService, "jane", FIRST_DATE.plusDays(i % 2));
+            add(transactionService, "john", FIRST_DATE);
+        }
+
+        List<Transaction> paged = new ArrayList<>();
+        TransactionCursor cursor = null;
+        int pages = 0;
+        do {
+            TransactionPage page = transactionService.getTransactionsPage("jane", cursor, 5);
+            paged.addAll(page.getTransactions());
+            assertEquals(page.hasMore(), page.getNextCursor() != null);
+            assertThrows(UnsupportedOperationException.class, () -> page.getTransactions().clear());
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(transactionService.getTransactionsByUser("jane"), paged);
+        assertEquals(5, pages);
+
+        // A page that ends exactly at the last transaction has no next page
+        TransactionPage whole = transactionService.getTransactionsPage("jane", null, 23);
+        assertEquals(23, whole.getTransactions().size());
+        assertFalse(whole.hasMore());
+        assertNull(whole.getNextCursor());
+    }
+
+    @Test
+    void returnsEveryTransactionOnceWhileOthersAreAddedAndDeletedBetweenPages() {
+        SplittableRandom random = new SplittableRandom(17);
+        for (int run = 0; run < 50; run++) {
+            TransactionService transactionService = serviceWithUser();
+            List<Transaction> live = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                live.add(add(transactionService, "jane", FIRST_DATE.plusDays(random.nextInt(3))));
+            }
+            Set<Transaction> kept = new HashSet<>(live);
+            Set<Transaction> deleted = new HashSet<>();
+            List<Transaction> mustAppear = new ArrayList<>();
+
+            List<Transaction> paged = new ArrayList<>();
+            TransactionCursor cursor = null;
+            do {
+                TransactionPage page = transactionService.getTransactionsPage("jane", cursor, 1 + random.nextInt(6));
+                for (Transaction transaction : page.getTransactions()) {
+                    assertFalse(deleted.contains(transaction), "deleted transaction returned");
+                    paged.add(transaction);
+                }
+                cursor = page.getNextCursor();
+                if (cursor == null) {
+                    break;
+                }
+
+                // Changes between pages: transactions added after the cursor must still be returned
+                for (int change = random.nextInt(4); change > 0; change--) {
+                    if (random.nextBoolean() || live.isEmpty()) {
+                        Transaction added = add(transactionService, "jane", FIRST_DATE.plusDays(random.nextInt(3)));
+                        live.add(added);
+                        if (!added.getTransactionDate().isBefore(cursor.getDate())) {
+                            mustAppear.add(added);
+                        }
+                    } else {
+                        Transaction removed = live.remove(random.nextInt(live.size()));
+                        transactionService.deleteTransaction(removed.getTransactionId());
+                        kept.remove(removed);
+                        mustAppear.remove(removed);
+                        deleted.add(removed);
+                    }
+                }
+            } while (true);
+
+            assertEquals(paged.size(), new HashSet<>(paged).size(), "transaction returned twice");
+            List<Transaction> sorted = new ArrayList<>(paged);
+            sorted.sort(LEDGER_ORDER);
+            assertEquals(sorted, paged);
+            assertTrue(paged.containsAll(kept), "transaction present throughout was skipped");
+            assertTrue(paged.containsAll(mustAppear), "transaction added after the cursor was skipped");
+        }
+    }
+
+    @Test
+    void continuesAfterTheCursorsTransactionIsDeleted() {
+        TransactionService transactionService = serviceWithUser();
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            transactions.add(add(transactionService, "jane", FIRST_DATE));
+        }
+        TransactionPage first = transactionService.getTransactionsPage("jane", null, 3);
+        transactionService.deleteTransaction(transactions.get(2).getTransactionId());
+
+        TransactionPage second = transactionService.getTransactionsPage("jane", first.getNextCursor(), 3);
+        assertEquals(transactions.subList(3, 6), second.getTransactions());
+        assertFalse(second.hasMore());
+    }
+
+    @Test
+    void rejectsUnknownUsersAndPageSizesOutOfRange() {
+        TransactionService transactionService = serviceWithUser();
+        assertThrows(IllegalArgumentException.class, () -> transactionService.getTransactionsPage("nobody", null, 10));
+        assertThrows(IllegalArgumentException.class, () -> transactionService.getTransactionsPage("jane", null, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> transactionService.getTransactionsPage("jane", null, TransactionService.MAX_PAGE_SIZE + 1));
+
+        TransactionPage empty = transactionService.getTransactionsPage("jane", null, TransactionService.MAX_PAGE_SIZE);
+        assertEquals(List.of(), empty.getTransactions());
+        assertFalse(empty.hasMore());
+    }
+}
@@ -0,0 +1,164 @@
+package service;
+
+import model.Money;
+import model.Transaction;
+import model.TransactionType;
+import model.User;
+import org.junit.jupiter.api.Test;
+import repository.UserRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests that the inverted index of TransactionSearchService finds what a scan of every description finds.
+ */
+class TransactionSearchServiceTest {
+
+    private static final LocalDate DATE = LocalDate.of(2024, 3, 15);
+    private static final String[] WORDS = {"Grocery", "groceries", "STORE", "corner", "Coffee", "café", "rent",
+            "T", "mobile", "gas", "gasoline", "2024"};
+    private static final String[] SEPARATORS = {" ", " - ", ", ", "/"};
+    private static final int USERS = 3;
+
+    // Queries as the exact terms and prefixes they are made of, e.g. "groc* store" as {store} and {groc}
+    private static final String[][][] QUERIES = {
+            {{"store"}, {}},
+            {{"grocery", "store"}, {}},
+            {{}, {"groc"}},
+            {{"store"}, {"groc"}},
+            {{}, {"gas", "co"}},
+            {{"t"}, {"mob"}},
+            {{"café"}, {}},
+            {{"2024", "rent"}, {}},
+            {{}, {"g"}},
+            {{"nothing"}, {}},
+            {{"store"}, {"nothing"}},
+    };
+
+    private static TransactionService serviceWithUsers() {
+        UserRepository userRepository = new UserRepository();
+        for (int u = 0; u < USERS; u++) {
+            userRepository.addUser(new User("First", "Last", "user" + u + "@example.com", "user" + u, "hash"));
+        }
+        return new TransactionService(userRepository);
+    }
+
+    private static String description(SplittableRandom random) {
+        StringBuilder description = new StringBuilder();
+        for (int i = random.nextInt(5); i > 0; i--) {
+            if (!description.isEmpty()) {
+                description.append(SEPARATORS[random.nextInt(SEPARATORS.length)]);
+            }
+            description.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return random.nextInt(10) == 0 ? null : description.toString();
+    }
+
+    private static String query(String[] exactTerms, String[] prefixes) {
+        List<String> words = new ArrayList<>(Arrays.asList(exactTerms));
+        for (String prefix : prefixes) {
+            words.add(prefix.toUpperCase() + "*");
+        }
+        return String.join("  ", words);
+    }
+
+    // The IDs, ascending, of the user's transactions whose description has every term and a term starting with every prefix
+    private static int[] scan(TransactionService transactionService, String username, String[] exactTerms, String[] prefixes) {
+        return transactionService.getTransactionsByUser(username).stream()
+                .filter(transaction -> {
+                    Set<String> terms = TransactionSearchService.terms(transaction.getDescription());
+                    return terms.containsAll(Arrays.asList(exactTerms)) && Arrays.stream(prefixes)
+                            .allMatch(prefix -> terms.stream().anyMatch(term -> term.startsWith(prefix)));
+                })
+                .mapToInt(Transaction::getTransactionId)
+                .sorted()
+                .toArray();
+    }
+
+    private static void assertMatchesScan(TransactionService transactionService, TransactionSearchService search) {
+        for (int u = 0; u < USERS; u++) {
+            String username = "user" + u;
+            for (String[][] query : QUERIES) {
+                int[] expected = scan(transactionService, username, query[0], query[1]);
+                String text = query(query[0], query[1]);
+                assertArrayEquals(expected, search.searchIds(username, text), text);
+                assertEquals(expected.length, search.count(username, text), text);
+            }
+        }
+    }
+
+    @Test
+    void findsWhatAScanOfEveryDescriptionFindsAsDescriptionsChange() {
+        TransactionService transactionService = serviceWithUsers();
+        TransactionSearchService search = new TransactionSearchService(transactionService);
+        transactionService.addListener(search);
+
+        SplittableRandom random = new SplittableRandom(19);
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            int operation = random.nextInt(100);
+            if (operation < 55 || transactions.isEmpty()) {
+                transactions.add(transactionService.addTransaction("user" + random.nextInt(USERS), TransactionType.EXPENSE,
+                        Money.ofMinorUnits(100), DATE, description(random)));
+            } else if (operation < 75) {
+                transactions.get(random.nextInt(transactions.size())).setDescription(description(random));
+            } else if (operation < 85) {
+                transactions.get(random.nextInt(transactions.size())).setMoney(Money.ofMinorUnits(random.nextInt(1000)));
+            } else {
+                transactionService.deleteTransaction(transactions.remove(random.nextInt(transactions.size())).getTransactionId());
+            }
+            if (i % 500 == 0) {
+                assertMatchesScan(transactionService, search);
+            }
+        }
+        assertMatchesScan(transactionService, search);
+
+        // Deleting everything leaves nothing to find
+        for (Transaction transaction : transactions) {
+            transactionService.deleteTransaction(transaction.getTransactionId());
+        }
+        for (int u = 0; u < USERS; u++) {
+            assertEquals(0, search.count("user" + u, "g*"));
+        }
+    }
+
+    @Test
+    void searchReturnsTheNewestMatchesFirst() {
+        TransactionService transactionService = serviceWithUsers();
+        TransactionSearchService search = new TransactionSearchService(transactionService);
+        transactionService.addListener(search);
+
+        Transaction older = transactionService.addTransaction("user0", TransactionType.EXPENSE, Money.ofMinorUnits(100), DATE, "Grocery store");
+        Transaction newer = transactionService.addTransaction("user0", TransactionType.EXPENSE, Money.ofMinorUnits(100), DATE, "Groceries - corner store");
+        transactionService.addTransaction("user0", TransactionType.EXPENSE, Money.ofMinorUnits(100), DATE, "Coffee");
+        transactionService.addTransaction("user1", TransactionType.EXPENSE, Money.ofMinorUnits(100), DATE, "Grocery store");
+
+        assertEquals(List.of(newer, older), search.search("user0", "groc* store", 10));
+        assertEquals(List.of(newer), search.search("user0", "groc* store", 1));
+        assertEquals(List.of(older), search.search("user0", "grocery", 10));
+        assertEquals(List.of(), search.search("user2", "grocery", 10));
+
+        older.setDescription("Corner shop");
+        assertEquals(List.of(newer), search.search("user0", "groc* store", 10));
+        assertEquals(List.of(newer, older), search.search("user0", "corner", 10));
+    }
+
+    @Test
+    void rejectsQueriesWithoutTermsAndLimitsBelowOne() {
+        TransactionSearchService search = new TransactionSearchService(serviceWithUsers());
+        assertThrows(IllegalArgumentException.class, () -> search.searchIds("user0", ""));
+        assertThrows(IllegalArgumentException.class, () -> search.searchIds("user0", " - * "));
+        assertThrows(IllegalArgumentException.class, () -> search.searchIds("user0", null));
+        assertThrows(IllegalArgumentException.class, () -> search.search("user0", "store", 0));
+        assertArrayEquals(new int[0], search.searchIds("user0", "store"));
+    }
+}
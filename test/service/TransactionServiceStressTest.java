@@ -0,0 +1,247 @@
+package service;
+
+import model.Money;
+import model.Transaction;
+import model.TransactionRecord;
+import model.TransactionType;
+import model.User;
+import org.junit.jupiter.api.Test;
+import repository.UserRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Concurrent adds, deletes, edits and reads against one TransactionService and UserRepository, checking
+ * afterwards that the ID index, the per-user ledgers and the running totals agree with what the writers did.
+ *
+ * <p>Each writer owns its own users, so it can keep the exact expected state of them while the writers run
+ * interleaved on shared lock stripes; a separate thread adds and removes users in the same repository.
+ */
+class TransactionServiceStressTest {
+
+    private static final int WRITERS = 4;
+    private static final int USERS_PER_WRITER = 16;
+    private static final int OPERATIONS_PER_WRITER = 40_000;
+    private static final LocalDate FIRST_DATE = LocalDate.of(2024, 1, 1);
+
+    @Test
+    void concurrentWritersKeepIndexesAndTotalsConsistent() throws Exception {
+        UserRepository userRepository = new UserRepository();
+        for (int u = 0; u < WRITERS * USERS_PER_WRITER; u++) {
+            userRepository.addUser(new User("First", "Last", "user" + u + "@example.com", "user" + u, "hash"));
+        }
+        // Few stripes, so that writers for different users share locks
+        TransactionService transactionService = new TransactionService(userRepository, 4);
+
+        Set<Integer> issuedIds = ConcurrentHashMap.newKeySet();
+        CyclicBarrier start = new CyclicBarrier(WRITERS + 2);
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS + 2);
+        try {
+            List<Future<Map<Integer, Transaction>>> writers = new ArrayList<>();
+            for (int w = 0; w < WRITERS; w++) {
+                int writer = w;
+                writers.add(executor.submit(() -> write(transactionService, writer, issuedIds, start)));
+            }
+            Future<?> reader = executor.submit(() -> read(transactionService, start));
+            Future<?> churn = executor.submit(() -> churnUsers(userRepository, start));
+
+            Map<Integer, Transaction> live = new HashMap<>();
+            for (Future<Map<Integer, Transaction>> writer : writers) {
+                live.putAll(writer.get(2, TimeUnit.MINUTES));
+            }
+            reader.get(2, TimeUnit.MINUTES);
+            churn.get(2, TimeUnit.MINUTES);
+
+            assertEquals(List.of(), transactionService.verifyTotals());
+            assertEquals(live.size(), transactionService.getTransactionCount());
+            assertEquals(live.size(), transactionService.getAllTransactions().size());
+            for (Transaction transaction : live.values()) {
+                assertSame(transaction, transactionService.getTransactionById(transaction.getTransactionId()));
+            }
+
+            int listed = 0;
+            for (int u = 0; u < WRITERS * USERS_PER_WRITER; u++) {
+                String username = "user" + u;
+                List<Transaction> transactions = transactionService.getTransactionsByUser(username);
+                listed += transactions.size();
+                for (int i = 1; i < transactions.size(); i++) {
+                    assertTrue(!transactions.get(i).getTransactionDate().isBefore(transactions.get(i - 1).getTransactionDate()),
+                            "transactions of " + username + " out of date order");
+                }
+                for (TransactionType type : TransactionType.values()) {
+                    long expected = 0;
+                    for (Transaction transaction : live.values()) {
+                        if (transaction.getUsername().equals(username) && transaction.getType() == type) {
+                            expected += transaction.getAmountMinorUnits();
+                        }
+                    }
+                    assertEquals(Money.ofMinorUnits(expected), transactionService.getTotalByType(username, type));
+                    assertEquals(Money.ofMinorUnits(expected), transactionService.getSnapshot(username).getTotal(type));
+                }
+            }
+            assertEquals(live.size(), listed);
+            assertEquals(WRITERS * USERS_PER_WRITER, userRepository.getUserCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void editsOfTransactionsFoundByIdWhileTheyAreAddedReachTheLedger() throws Exception {
+        UserRepository userRepository = new UserRepository();
+        userRepository.addUser(new User("First", "Last", "user0@example.com", "user0", "hash"));
+        TransactionService transactionService = new TransactionService(userRepository, 4);
+
+        // The IDs are known before the transactions are added, so the editor can look each one up the
+        // moment it becomes visible and change it while the adding thread may still be inserting it
+        int count = 100_100;
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            transactions.add(new Transaction("user0", TransactionType.EXPENSE, Money.ofMinorUnits(100),
+                    FIRST_DATE.plusDays(i % 365), "Stress"));
+        }
+
+        CyclicBarrier start = new CyclicBarrier(2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> adder = executor.submit(() -> {
+                start.await();
+                // Alternate single adds with large batches, whose inserts take long enough to be preempted
+                for (int i = 0; i < count; i += 1001) {
+                    transactionService.restoreTransaction(transactions.get(i));
+                    transactionService.addTransactions(transactions.subList(i + 1, Math.min(i + 1001, count)));
+                }
+                return null;
+            });
+            Future<?> editor = executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < count; i++) {
+                    int id = transactions.get(i).getTransactionId();
+                    Transaction found;
+                    while ((found = transactionService.getTransactionById(id)) == null) {
+                        Thread.onSpinWait();
+                    }
+                    found.setMoney(Money.ofMinorUnits(1 + i));
+                    found.setTransactionDate(FIRST_DATE.minusDays(i % 30));
+                }
+                return null;
+            });
+            adder.get(2, TimeUnit.MINUTES);
+            editor.get(2, TimeUnit.MINUTES);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(List.of(), transactionService.verifyTotals());
+        long expected = (long) count * (count + 1) / 2;
+        assertEquals(Money.ofMinorUnits(expected), transactionService.getTotalByType("user0", TransactionType.EXPENSE));
+        assertEquals(count, transactionService.getTransactionsByUserBetween("user0", FIRST_DATE.minusDays(29), FIRST_DATE).size());
+    }
+
+    /**
+     * Adds, deletes and edits the transactions of one writer's users, and returns the ones left.
+     */
+    private static Map<Integer, Transaction> write(TransactionService transactionService, int writer, Set<Integer> issuedIds,
+                                                   CyclicBarrier start) throws Exception {
+        SplittableRandom random = new SplittableRandom(writer);
+        Map<Integer, Transaction> live = new HashMap<>();
+        List<Transaction> liveList = new ArrayList<>();
+        start.await();
+        for (int i = 0; i < OPERATIONS_PER_WRITER; i++) {
+            int operation = random.nextInt(10);
+            if (operation < 6 || liveList.isEmpty()) {
+                String username = "user" + (writer * USERS_PER_WRITER + random.nextInt(USERS_PER_WRITER));
+                Transaction transaction = transactionService.addTransaction(username, TransactionType.fromOrdinal(random.nextInt(TransactionType.count())),
+                        Money.ofMinorUnits(1 + random.nextInt(100_000)), FIRST_DATE.plusDays(random.nextInt(365)), "Stress");
+                assertTrue(issuedIds.add(transaction.getTransactionId()), "ID " + transaction.getTransactionId() + " issued twice");
+                live.put(transaction.getTransactionId(), transaction);
+                liveList.add(transaction);
+            } else if (operation < 8) {
+                Transaction transaction = removeRandom(liveList, random);
+                live.remove(transaction.getTransactionId());
+                assertTrue(transactionService.deleteTransaction(transaction.getTransactionId()));
+                assertNull(transactionService.getTransactionById(transaction.getTransactionId()));
+            } else if (operation == 8) {
+                Transaction transaction = liveList.get(random.nextInt(liveList.size()));
+                transaction.setMoney(Money.ofMinorUnits(1 + random.nextInt(100_000)));
+            } else {
+                Transaction transaction = liveList.get(random.nextInt(liveList.size()));
+                transaction.setTransactionDate(FIRST_DATE.plusDays(random.nextInt(365)));
+            }
+        }
+        return live;
+    }
+
+    private static Transaction removeRandom(List<Transaction> transactions, SplittableRandom random) {
+        int index = random.nextInt(transactions.size());
+        Transaction removed = transactions.get(index);
+        transactions.set(index, transactions.get(transactions.size() - 1));
+        transactions.remove(transactions.size() - 1);
+        return removed;
+    }
+
+    /**
+     * Reads snapshots and ledgers while the writers run, checking that each read is internally consistent.
+     */
+    private static Void read(TransactionService transactionService, CyclicBarrier start) throws Exception {
+        SplittableRandom random = new SplittableRandom(-1);
+        start.await();
+        for (int i = 0; i < OPERATIONS_PER_WRITER / 4; i++) {
+            String username = "user" + random.nextInt(WRITERS * USERS_PER_WRITER);
+            LedgerSnapshot snapshot = transactionService.getSnapshot(username);
+            for (TransactionType type : TransactionType.values()) {
+                long sum = 0;
+                for (TransactionRecord record : snapshot.getTransactions()) {
+                    if (record.getType() == type) {
+                        sum += record.getAmountMinorUnits();
+                    }
+                }
+                assertEquals(sum, snapshot.getTotalMinorUnits(type), "snapshot of " + username + " torn");
+            }
+            List<Transaction> transactions = transactionService.getTransactionsByUser(username);
+            Set<Integer> ids = new HashSet<>();
+            for (Transaction transaction : transactions) {
+                assertTrue(ids.add(transaction.getTransactionId()), "transaction listed twice");
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds and removes users other than the writers' while they run, checking every lookup on the way.
+     */
+    private static Void churnUsers(UserRepository userRepository, CyclicBarrier start) throws Exception {
+        start.await();
+        for (int i = 0; i < OPERATIONS_PER_WRITER / 4; i++) {
+            User user = new User("Temp", "User", "temp" + i + "@example.com", "temp" + i, "hash");
+            userRepository.addUser(user);
+            assertTrue(userRepository.usernameExists("temp" + i));
+            assertSame(user, userRepository.getUserByUsername("temp" + i));
+            userRepository.removeUser(user);
+            assertTrue(!userRepository.usernameExists("temp" + i));
+        }
+        for (int u = 0; u < WRITERS * USERS_PER_WRITER; u++) {
+            assertNotNull(userRepository.getUserByUsername("user" + u));
+        }
+        return null;
+    }
+}
@@ -0,0 +1,131 @@
+package service;
+
+import model.Money;
+import model.Transaction;
+import model.TransactionListener;
+import model.TransactionType;
+import model.User;
+import org.junit.jupiter.api.Test;
+import repository.UserRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of the batch operations of TransactionService and of how it follows user deletes and renames.
+ */
+class TransactionServiceTest {
+
+    private static final LocalDate DATE = LocalDate.of(2024, 3, 15);
+
+    private static Transaction transaction(String username, long minorUnits) {
+        return new Transaction(username, TransactionType.EXPENSE, Money.ofMinorUnits(minorUnits), DATE, "Batch");
+    }
+
+    @Test
+    void addTransactionsStoresNothingForAUserDeletedBeforeItsLockIsTaken() {
+        UserRepository userRepository = new UserRepository();
+        User jane = new User("Jane", "Smith", "jane@example.com", "jane", "hash");
+        User john = new User("John", "Doe", "john@example.com", "john", "hash");
+        userRepository.addUser(jane);
+        userRepository.addUser(john);
+        TransactionService transactionService = new TransactionService(userRepository);
+
+        // John is deleted after the batch has checked the usernames, while Jane's transactions are stored
+        transactionService.addListener(new TransactionListener() {
+            @Override
+            public void transactionAdded(Transaction transaction) {
+                if (userRepository.usernameExists("john")) {
+                    userRepository.removeUser(john);
+                }
+            }
+        });
+
+        assertThrows(IllegalArgumentException.class, () -> transactionService.addTransactions(
+                List.of(transaction("jane", 100), transaction("jane", 200), transaction("john", 300))));
+
+        assertEquals(2, transactionService.getTransactionsByUser("jane").size());
+        assertEquals(2, transactionService.getTransactionCount());
+        assertTrue(transactionService.getAllTransactions().stream().allMatch(transaction -> transaction.getUsername().equals("jane")));
+        assertEquals(List.of(), transactionService.verifyTotals());
+    }
+
+    @Test
+    void addTransactionsStoresEachUsersTransactionsAllOrNothing() {
+        UserRepository userRepository = new UserRepository();
+        userRepository.addUser(new User("Jane", "Smith", "jane@example.com", "jane", "hash"));
+        TransactionService transactionService = new TransactionService(userRepository);
+        List<List<Transaction>> notified = new ArrayList<>();
+        transactionService.addListener(new TransactionListener() {
+            @Override
+            public void transactionsAdded(List<Transaction> transactions) {
+                notified.add(transactions);
+            }
+        });
+
+        Transaction repeated = transaction("jane", 200);
+        assertThrows(IllegalArgumentException.class, () -> transactionService.addTransactions(
+                List.of(transaction("jane", 100), repeated, transaction("jane", 300), repeated)));
+        assertEquals(0, transactionService.getTransactionCount());
+        assertTrue(notified.isEmpty());
+
+        transactionService.addTransactions(List.of(transaction("jane", 100), repeated));
+        assertEquals(1, notified.size());
+        assertEquals(2, notified.get(0).size());
+        assertEquals(Money.ofMinorUnits(300), transactionService.getTotalByType("jane", TransactionType.EXPENSE));
+        assertEquals(List.of(), transactionService.verifyTotals());
+    }
+
+    @Test
+    void renamingAUserWithTransactionsIsRefusedSoDeletingThemStillCascades() {
+        UserRepository userRepository = new UserRepository();
+        UserService userService = new UserService(userRepository, new CredentialService(CredentialService.MIN_ITERATIONS));
+        TransactionService transactionService = new TransactionService(userRepository);
+        userService.addListener(transactionService);
+        userRepository.addUsernameChangeGuard(transactionService);
+        User jane = userService.createUser("jane", "Passw0rd!", "jane@example.com", "Jane", "Smith");
+        transactionService.addTransaction("jane", TransactionType.EXPENSE, Money.ofMinorUnits(100), DATE, "Lunch");
+
+        assertThrows(IllegalArgumentException.class, () -> jane.setUsername("jane_smith"));
+        assertEquals("jane", jane.getUsername());
+        assertSame(jane, userRepository.getUserByUsername("jane"));
+        assertFalse(userRepository.usernameExists("jane_smith"));
+
+        userService.deleteUser("jane");
+        assertEquals(0, transactionService.getTransactionCount());
+    }
+
+    @Test
+    void renamedUserWithoutTransactionsKeepsLaterOnesUnderTheNewName() {
+        UserRepository userRepository = new UserRepository();
+        UserService userService = new UserService(userRepository, new CredentialService(CredentialService.MIN_ITERATIONS));
+        TransactionService transactionService = new TransactionService(userRepository);
+        try (BudgetAlertService budgetAlertService = new BudgetAlertService()) {
+            userService.addListener(transactionService);
+            userRepository.addUsernameChangeGuard(transactionService);
+            userRepository.addUsernameChangeGuard(budgetAlertService);
+            User jane = userService.createUser("jane", "Passw0rd!", "jane@example.com", "Jane", "Smith");
+
+            jane.setUsername("jane_smith");
+            assertThrows(IllegalArgumentException.class,
+                    () -> transactionService.addTransaction("jane", TransactionType.EXPENSE, Money.ofMinorUnits(100), DATE, "Lunch"));
+            transactionService.addTransaction("jane_smith", TransactionType.EXPENSE, Money.ofMinorUnits(100), DATE, "Lunch");
+
+            userService.deleteUser("jane_smith");
+            assertEquals(0, transactionService.getTransactionCount());
+
+            // A budget is kept under the username too, so it also blocks a rename
+            User john = userService.createUser("john", "Passw0rd!", "john@example.com", "John", "Doe");
+            budgetAlertService.addRule("john", TransactionType.EXPENSE, Money.ofMinorUnits(1000));
+            assertThrows(IllegalArgumentException.class, () -> john.setUsername("john_doe"));
+            assertEquals("john", john.getUsername());
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package shard;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of the key distribution of ConsistentHashRing.
+ */
+class ConsistentHashRingTest {
+
+    private static final int KEYS = 200_000;
+
+    @Test
+    void spreadsKeysWithinAQuarterOfTheAverage() {
+        for (int nodes = 1; nodes <= 16; nodes++) {
+            ConsistentHashRing ring = new ConsistentHashRing(nodes, ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+            int[] counts = new int[nodes];
+            for (int i = 0; i < KEYS; i++) {
+                counts[ring.nodeFor("user" + i)]++;
+            }
+            double average = (double) KEYS / nodes;
+            for (int node = 0; node < nodes; node++) {
+                double share = counts[node] / average;
+                int n = nodes;
+                assertTrue(share <= 1.25 && share >= 0.75, () -> "node " + share + " of the average with " + n + " nodes");
+            }
+        }
+    }
+
+    @Test
+    void addingANodeMovesKeysOnlyToTheNewNode() {
+        ConsistentHashRing previous = new ConsistentHashRing(1, ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+        for (int nodes = 2; nodes <= 16; nodes++) {
+            ConsistentHashRing ring = new ConsistentHashRing(nodes, ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+            int moved = 0;
+            for (int i = 0; i < KEYS; i++) {
+                String key = "user" + i;
+                int before = previous.nodeFor(key);
+                int after = ring.nodeFor(key);
+                if (after != before) {
+                    assertEquals(nodes - 1, after, key + " moved between existing nodes");
+                    moved++;
+                }
+            }
+            // About 1/n of the keys move, no more than the new node's share allows
+            double expected = (double) KEYS / nodes;
+            int n = nodes;
+            double share = moved / expected;
+            assertTrue(share <= 1.15 && share >= 0.8, () -> share + " of the expected keys moved to node " + (n - 1));
+            previous = ring;
+        }
+    }
+
+    @Test
+    void mapsKeysTheSameWayEveryTime() {
+        ConsistentHashRing ring = new ConsistentHashRing(8, ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+        ConsistentHashRing again = new ConsistentHashRing(8, ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(ring.nodeFor("user" + i), again.nodeFor("user" + i));
+        }
+    }
+
+    @Test
+    void rejectsEmptyRings() {
+        assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing(0, 160));
+        assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing(4, 0));
+    }
+}
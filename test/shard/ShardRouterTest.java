@@ -0,0 +1,174 @@
+package shard;
+
+import model.Money;
+import model.Transaction;
+import model.TransactionType;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import service.CredentialService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of ShardRouter routing and of rebalancing when shards are added.
+ */
+class ShardRouterTest {
+
+    private static final int USERS = 1000;
+    private static final LocalDate FIRST_DATE = LocalDate.of(2024, 1, 1);
+
+    private static CredentialService credentialService;
+
+    @BeforeAll
+    static void createCredentialService() {
+        credentialService = new CredentialService(CredentialService.MIN_ITERATIONS);
+    }
+
+    private static ShardRouter routerWithUsers(int shards) {
+        ShardRouter router = new ShardRouter(shards, credentialService);
+        for (int u = 0; u < USERS; u++) {
+            assertNotNull(router.createUser("user" + u, "Password123!", "user" + u + "@example.com", "First", "Last"));
+        }
+        return router;
+    }
+
+    private static Map<String, List<Integer>> transactionIdsByUser(ShardRouter router) {
+        Map<String, List<Integer>> ids = new HashMap<>();
+        for (int u = 0; u < USERS; u++) {
+            List<Integer> userIds = new ArrayList<>();
+            for (Transaction transaction : router.getTransactionsByUser("user" + u)) {
+                userIds.add(transaction.getTransactionId());
+            }
+            ids.put("user" + u, userIds);
+        }
+        return ids;
+    }
+
+    @Test
+    void keepsEachUserOnTheShardTheRingAssigns() {
+        ShardRouter router = routerWithUsers(4);
+        ConsistentHashRing ring = new ConsistentHashRing(4, ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+        for (int u = 0; u < USERS; u++) {
+            Shard shard = router.getShardFor("user" + u);
+            assertSame(router.getShards().get(ring.nodeFor("user" + u)), shard);
+            assertTrue(shard.getUserRepository().usernameExists("user" + u));
+        }
+        assertEquals(USERS, router.getUserCount());
+    }
+
+    @Test
+    void addShardMovesUsersOnlyToTheNewShardAndConservesCountsAndTotals() {
+        ShardRouter router = routerWithUsers(2);
+        SplittableRandom random = new SplittableRandom(24);
+        for (int i = 0; i < 20_000; i++) {
+            router.addTransaction("user" + random.nextInt(USERS), TransactionType.fromOrdinal(random.nextInt(TransactionType.count())),
+                    Money.ofMinorUnits(1 + random.nextInt(100_000)), FIRST_DATE.plusDays(random.nextInt(365)), "Rebalance");
+        }
+
+        for (int added = 0; added < 3; added++) {
+            long transactionCount = router.getTransactionCount();
+            Map<TransactionType, Money> totals = new HashMap<>();
+            for (TransactionType type : TransactionType.values()) {
+                totals.put(type, router.getTotalByType(type));
+            }
+            Map<String, List<Integer>> idsBefore = transactionIdsByUser(router);
+            Map<String, Shard> ownersBefore = new HashMap<>();
+            int[] usersBefore = new int[router.getShardCount()];
+            for (int u = 0; u < USERS; u++) {
+                ownersBefore.put("user" + u, router.getShardFor("user" + u));
+            }
+            for (int s = 0; s < usersBefore.length; s++) {
+                usersBefore[s] = router.getShards().get(s).getUserRepository().getUserCount();
+            }
+
+            Shard newShard = router.addShard();
+
+            for (int u = 0; u < USERS; u++) {
+                String username = "user" + u;
+                Shard owner = router.getShardFor(username);
+                assertTrue(owner == ownersBefore.get(username) || owner == newShard, username + " moved between existing shards");
+                assertTrue(owner.getUserRepository().usernameExists(username));
+            }
+            for (int s = 0; s < usersBefore.length; s++) {
+                assertTrue(router.getShards().get(s).getUserRepository().getUserCount() <= usersBefore[s], "an existing shard gained users");
+            }
+            assertTrue(newShard.getUserRepository().getUserCount() > 0, "the new shard gained no users");
+
+            assertEquals(USERS, router.getUserCount());
+            assertEquals(transactionCount, router.getTransactionCount());
+            for (TransactionType type : TransactionType.values()) {
+                assertEquals(totals.get(type), router.getTotalByType(type));
+            }
+            assertEquals(idsBefore, transactionIdsByUser(router));
+            assertEquals(List.of(), router.verifyTotals());
+        }
+    }
+
+    @Test
+    void rebalanceWhileWritingLosesNoTransactions() throws Exception {
+        ShardRouter router = routerWithUsers(2);
+        int writers = 3;
+        AtomicBoolean rebalancing = new AtomicBoolean(true);
+        Map<String, Long> addedByUser = new ConcurrentHashMap<>();
+        LongAdder[] addedByType = new LongAdder[TransactionType.count()];
+        for (int i = 0; i < addedByType.length; i++) {
+            addedByType[i] = new LongAdder();
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                int writer = w;
+                futures.add(executor.submit(() -> {
+                    SplittableRandom random = new SplittableRandom(writer);
+                    // Keep writing until the rebalance is over, and a little after
+                    for (int i = 0; rebalancing.get() || i < 2000; i++) {
+                        String username = "user" + random.nextInt(USERS);
+                        TransactionType type = TransactionType.fromOrdinal(random.nextInt(TransactionType.count()));
+                        long amount = 1 + random.nextInt(100_000);
+                        router.addTransaction(username, type, Money.ofMinorUnits(amount), FIRST_DATE.plusDays(random.nextInt(365)), "Concurrent");
+                        addedByUser.merge(username, 1L, Long::sum);
+                        addedByType[type.ordinal()].add(amount);
+                    }
+                }));
+            }
+            router.addShard();
+            router.addShard();
+            rebalancing.set(false);
+            for (Future<?> future : futures) {
+                future.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long added = addedByUser.values().stream().mapToLong(Long::longValue).sum();
+        assertEquals(added, router.getTransactionCount());
+        for (TransactionType type : TransactionType.values()) {
+            assertEquals(Money.ofMinorUnits(addedByType[type.ordinal()].sum()), router.getTotalByType(type));
+        }
+        for (int u = 0; u < USERS; u++) {
+            String username = "user" + u;
+            assertEquals(addedByUser.getOrDefault(username, 0L).intValue(), router.getTransactionsByUser(username).size());
+        }
+        assertEquals(List.of(), router.verifyTotals());
+    }
+}